@@ -1,6 +1,7 @@
 package hudson.plugins.analysis.core;
 
 import javax.annotation.CheckForNull;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.List;
 import java.util.logging.Level;
@@ -133,6 +134,28 @@ public abstract class AbstractProjectAction<T extends ResultAction<?>> implement
         return new Api(this);
     }
 
+    /**
+     * Exports the annotations of the last valid result page by page as JSON or NDJSON, see
+     * {@link BuildResult#doExport(StaplerRequest, StaplerResponse)}.
+     *
+     * @param request
+     *            Stapler request
+     * @param response
+     *            Stapler response
+     * @throws IOException
+     *             if the annotations could not be read or written
+     * @since 1.93
+     */
+    public void doExport(final StaplerRequest request, final StaplerResponse response) throws IOException {
+        ResultAction<?> lastAction = getLastAction();
+        if (lastAction == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+        else {
+            lastAction.getResult().doExport(request, response);
+        }
+    }
+
     @Override @Exported
     public String getDisplayName() {
         return asString(name);
@@ -266,6 +289,24 @@ public abstract class AbstractProjectAction<T extends ResultAction<?>> implement
         }
     }
 
+    /**
+     * Renders the trend graph of the default graph configuration in order to
+     * answer the next request for this graph from the cache.
+     *
+     * @since 1.93
+     */
+    public void prerenderTrendGraph() {
+        GraphConfigurationView configuration = createDefaultConfiguration();
+        if (configuration.isVisible() && configuration.hasMeaningfulGraph()) {
+            try {
+                configuration.prerender(getUrlName());
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't render trend graph of " + getOwner(), exception);
+            }
+        }
+    }
+
     /**
      * Returns whether the trend graph is visible.
      *
@@ -48,7 +48,7 @@ public abstract class AbstractResultAction<T extends BuildResult> implements Sta
     /** Parameters for the health report. */
     private final AbstractHealthDescriptor healthDescriptor;
     /** The actual result of this action. */
-    private T result;
+    private volatile T result;
 
     /**
      * Creates a new instance of <code>AbstractResultAction</code>.
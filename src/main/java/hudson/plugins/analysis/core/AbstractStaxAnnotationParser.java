@@ -0,0 +1,100 @@
+package hudson.plugins.analysis.core;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * A base class for parsers of XML reports that read the report with a StAX {@link XMLStreamReader}. In contrast to
+ * parsers based on commons-digester, the document is never built up in memory: the reader is positioned at each
+ * start element and the subclass creates the annotations of that element and reports them to the sink. Afterwards
+ * the element is not referenced anymore. DTDs and external entities of the report are not resolved.
+ *
+ * @since 1.93
+ */
+public abstract class AbstractStaxAnnotationParser extends AbstractStreamingAnnotationParser {
+    private static final long serialVersionUID = -2874625226296393017L;
+
+    /**
+     * Creates a new instance of {@link AbstractStaxAnnotationParser}.
+     *
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     */
+    protected AbstractStaxAnnotationParser(final String defaultEncoding) {
+        super(defaultEncoding);
+    }
+
+    @Override
+    protected void parse(final InputStream file, final String moduleName, final AnnotationSink sink)
+            throws InvocationTargetException {
+        XMLStreamReader reader = null;
+        try {
+            reader = createInputFactory().createXMLStreamReader(file);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    startElement(reader, moduleName, sink);
+                }
+            }
+        }
+        catch (XMLStreamException exception) {
+            throw new InvocationTargetException(exception);
+        }
+        finally {
+            close(reader);
+        }
+    }
+
+    private XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        return factory;
+    }
+
+    private void close(final XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            }
+            catch (XMLStreamException exception) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Called for each start element of the report. The reader is positioned at the start element. Implementations
+     * may read the attributes and the content of the element (e.g., using {@link XMLStreamReader#getElementText()}
+     * or by advancing the reader up to the corresponding end element). Start elements that have been consumed this
+     * way are not reported to this method anymore.
+     *
+     * @param reader
+     *            the reader, positioned at the start element
+     * @param moduleName
+     *            name of the maven module
+     * @param sink
+     *            the sink that receives the annotations
+     * @throws XMLStreamException
+     *             if the element could not be read
+     */
+    protected abstract void startElement(XMLStreamReader reader, String moduleName, AnnotationSink sink)
+            throws XMLStreamException;
+
+    /**
+     * Returns the value of the attribute with the specified local name of the current start element.
+     *
+     * @param reader
+     *            the reader, positioned at a start element
+     * @param name
+     *            the local name of the attribute
+     * @return the value or <code>null</code> if there is no such attribute
+     */
+    protected static String getAttribute(final XMLStreamReader reader, final String name) {
+        return reader.getAttributeValue(null, name);
+    }
+}
@@ -0,0 +1,138 @@
+package hudson.plugins.analysis.core;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+
+import hudson.plugins.analysis.util.TreeStringBuilder;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * A base class for parsers that report the found annotations one by one to an {@link AnnotationSink}, instead of
+ * returning all annotations of a file at once. If the sink does not keep the annotations, then the memory required
+ * to parse a file is bounded by the size of a single annotation, not by the size of the file.
+ * {@link FilesParser} uses the streaming API for such parsers and adds the annotations to the {@link ParserResult}
+ * in small batches.
+ *
+ * @since 1.93
+ */
+public abstract class AbstractStreamingAnnotationParser extends AbstractAnnotationParser {
+    private static final long serialVersionUID = 3384618286052549346L;
+
+    /**
+     * Creates a new instance of {@link AbstractStreamingAnnotationParser}.
+     *
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     */
+    protected AbstractStreamingAnnotationParser(final String defaultEncoding) {
+        super(defaultEncoding);
+    }
+
+    /**
+     * Parses the specified file and reports the found annotations one by one to the specified sink. The file names
+     * of all annotations of the file share a common string pool.
+     *
+     * @param file
+     *            the file to parse
+     * @param moduleName
+     *            name of the maven module
+     * @param sink
+     *            the sink that receives the annotations
+     * @throws InvocationTargetException
+     *             if the file could not be parsed. Note that the sink already might have received some annotations
+     *             of the file.
+     */
+    public void parse(final File file, final String moduleName, final AnnotationSink sink)
+            throws InvocationTargetException {
+        InputStream input = null;
+        InterningSink interningSink = new InterningSink(sink);
+        try {
+            input = new BufferedInputStream(new FileInputStream(file));
+            parse(input, moduleName, interningSink);
+        }
+        catch (FileNotFoundException exception) {
+            throw new InvocationTargetException(exception);
+        }
+        finally {
+            interningSink.dedup();
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Returns the annotations found in the specified file. This implementation collects all annotations that are
+     * reported by {@link #parse(InputStream, String, AnnotationSink)}.
+     *
+     * @param file
+     *            the file to parse
+     * @param moduleName
+     *            name of the maven module
+     * @return the found annotations
+     * @throws InvocationTargetException
+     *             if the file could not be parsed
+     */
+    @Override
+    public Collection<FileAnnotation> parse(final InputStream file, final String moduleName)
+            throws InvocationTargetException {
+        final List<FileAnnotation> annotations = new ArrayList<FileAnnotation>();
+        parse(file, moduleName, new AnnotationSink() {
+            @Override
+            public void add(final FileAnnotation annotation) {
+                annotations.add(annotation);
+            }
+        });
+        return annotations;
+    }
+
+    /**
+     * Parses the specified file and reports the found annotations one by one to the specified sink. Implementations
+     * should not keep references to the reported annotations.
+     *
+     * @param file
+     *            the file to parse
+     * @param moduleName
+     *            name of the maven module
+     * @param sink
+     *            the sink that receives the annotations
+     * @throws InvocationTargetException
+     *             if the file could not be parsed (wrap your exception in this exception)
+     */
+    protected abstract void parse(InputStream file, String moduleName, AnnotationSink sink)
+            throws InvocationTargetException;
+
+    /**
+     * Interns the strings of the annotations before they are passed to the actual sink.
+     *
+     * @see AbstractAnnotation#intern(Collection)
+     */
+    private static class InterningSink implements AnnotationSink {
+        private final AnnotationSink sink;
+        private final TreeStringBuilder stringPool = new TreeStringBuilder();
+
+        InterningSink(final AnnotationSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void add(final FileAnnotation annotation) {
+            if (annotation instanceof AbstractAnnotation) {
+                ((AbstractAnnotation)annotation).intern(stringPool);
+            }
+            sink.add(annotation);
+        }
+
+        void dedup() {
+            stringPool.dedup();
+        }
+    }
+}
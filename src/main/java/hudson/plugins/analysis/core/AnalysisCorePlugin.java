@@ -1,11 +1,17 @@
 package hudson.plugins.analysis.core;
 
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
 import hudson.Plugin;
+import hudson.model.Api;
 
 /**
  * Provides unique keys for jelly scripts which can be accessed globally with
- * <code>${app.getPlugin('analysis-core')}</code>.
+ * <code>${app.getPlugin('analysis-core')}</code>. The statistics of the
+ * {@link ResultCache} are exported by the remote API of this plug-in.
  */
+@ExportedBean
 public class AnalysisCorePlugin extends Plugin {
     /**
      * A number that can be used to generate unique ids within a request. This
@@ -27,4 +33,25 @@ public class AnalysisCorePlugin extends Plugin {
         }
         return counter++;
     }
+
+    /**
+     * Gets the remote API for this plug-in.
+     *
+     * @return the remote API
+     * @since 1.93
+     */
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    /**
+     * Returns the cache of the loaded warnings.
+     *
+     * @return the cache
+     * @since 1.93
+     */
+    @Exported
+    public ResultCache getResultCache() {
+        return ResultCache.getInstance();
+    }
 }
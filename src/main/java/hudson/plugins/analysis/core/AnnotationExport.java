@@ -0,0 +1,336 @@
+package hudson.plugins.analysis.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.kohsuke.stapler.StaplerRequest;
+
+import com.google.common.collect.Sets;
+
+import net.sf.json.JSONObject;
+
+import hudson.plugins.analysis.util.model.BinaryAnnotationFile;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Exports the annotations of a build page by page as JSON or NDJSON (one JSON object per line). The annotations are
+ * streamed from the persisted data file of the build, so neither the whole set of annotations nor the whole response
+ * is held in memory.
+ * <p>
+ * The export is configured by the following request parameters:
+ * <ul>
+ * <li><code>format</code>: <code>json</code> (default) or <code>ndjson</code>,</li>
+ * <li><code>set</code>: <code>all</code> (default), <code>new</code>, or <code>fixed</code> annotations,</li>
+ * <li><code>cursor</code>: the position to continue from, as returned by the previous page (default 0),</li>
+ * <li><code>limit</code>: the maximum number of annotations of a page,</li>
+ * <li><code>priority</code>, <code>category</code>, <code>type</code>, <code>module</code>, <code>file</code>:
+ * filters, each parameter may be specified several times to select any of the values.</li>
+ * </ul>
+ * Every exported annotation contains the cursor of the following annotation. A JSON page additionally contains the
+ * property <code>nextCursor</code>, which is <code>null</code> on the last page. An NDJSON page with fewer lines than
+ * the limit is the last page.
+ *
+ * @since 1.93
+ */
+public class AnnotationExport {
+    /** Default number of annotations of a page. */
+    private static final int DEFAULT_LIMIT = 1000;
+    /** Maximum number of annotations of a page. */
+    private static final int MAX_LIMIT = Integer.getInteger(AnnotationExport.class.getName() + ".maxLimit", 10000);
+
+    /**
+     * The formats of the export.
+     */
+    public enum Format {
+        /** A single JSON object that contains the annotations of the page. */
+        JSON("application/json;charset=UTF-8"),
+        /** One JSON object per line and annotation. */
+        NDJSON("application/x-ndjson;charset=UTF-8");
+
+        private final String contentType;
+
+        Format(final String contentType) {
+            this.contentType = contentType;
+        }
+
+        /**
+         * Returns the content type of the response.
+         *
+         * @return the content type
+         */
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    /**
+     * The annotations of a build that can be exported.
+     */
+    public enum Selection {
+        /** All annotations of the build. */
+        ALL,
+        /** The new annotations of the build. */
+        NEW,
+        /** The annotations that have been fixed in the build. */
+        FIXED
+    }
+
+    private final Format format;
+    private final Selection selection;
+    private final int cursor;
+    private final int limit;
+
+    private final Set<Priority> priorities = Sets.newHashSet();
+    private final Set<String> categories = Sets.newHashSet();
+    private final Set<String> types = Sets.newHashSet();
+    private final Set<String> modules = Sets.newHashSet();
+    private final Set<String> files = Sets.newHashSet();
+
+    /**
+     * Creates a new export using the parameters of the specified request.
+     *
+     * @param request
+     *            the request
+     * @return the export
+     * @throws IllegalArgumentException
+     *             if a parameter has an invalid value
+     */
+    public static AnnotationExport fromRequest(final StaplerRequest request) {
+        AnnotationExport export = new AnnotationExport(
+                parseEnum(Format.class, request.getParameter("format"), Format.JSON),
+                parseEnum(Selection.class, request.getParameter("set"), Selection.ALL),
+                parseNumber("cursor", request.getParameter("cursor"), 0),
+                parseNumber("limit", request.getParameter("limit"), DEFAULT_LIMIT));
+
+        for (String priority : getValues(request, "priority")) {
+            export.priorities.add(parseEnum(Priority.class, priority, null));
+        }
+        export.categories.addAll(getValues(request, "category"));
+        export.types.addAll(getValues(request, "type"));
+        export.modules.addAll(getValues(request, "module"));
+        export.files.addAll(getValues(request, "file"));
+
+        return export;
+    }
+
+    private static Collection<String> getValues(final StaplerRequest request, final String name) {
+        String[] values = request.getParameterValues(name);
+        if (values == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(values);
+    }
+
+    private static <E extends Enum<E>> E parseEnum(final Class<E> type, final String value, final E defaultValue) {
+        if (StringUtils.isEmpty(value)) {
+            if (defaultValue == null) {
+                throw new IllegalArgumentException("Empty value for " + type.getSimpleName());
+            }
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, StringUtils.upperCase(value));
+        }
+        catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Invalid value for " + type.getSimpleName() + ": " + value, exception);
+        }
+    }
+
+    private static int parseNumber(final String name, final String value, final int defaultValue) {
+        if (StringUtils.isEmpty(value)) {
+            return defaultValue;
+        }
+        int number = NumberUtils.toInt(value, -1);
+        if (number < 0) {
+            throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+        }
+        return number;
+    }
+
+    /**
+     * Creates a new instance of {@link AnnotationExport} without filters.
+     *
+     * @param format
+     *            the format of the export
+     * @param selection
+     *            the annotations to export
+     * @param cursor
+     *            the position of the first annotation to export
+     * @param limit
+     *            the maximum number of annotations to export, the limit is capped by the system property
+     *            <code>hudson.plugins.analysis.core.AnnotationExport.maxLimit</code>
+     */
+    public AnnotationExport(final Format format, final Selection selection, final int cursor, final int limit) {
+        this.format = format;
+        this.selection = selection;
+        this.cursor = cursor;
+        this.limit = Math.min(Math.max(limit, 1), MAX_LIMIT);
+    }
+
+    /**
+     * Returns the content type of the response.
+     *
+     * @return the content type
+     */
+    public String getContentType() {
+        return format.getContentType();
+    }
+
+    /**
+     * Returns the annotations to export.
+     *
+     * @return the annotations to export
+     */
+    public Selection getSelection() {
+        return selection;
+    }
+
+    /**
+     * Returns whether the specified annotation matches all filters of this export.
+     *
+     * @param annotation
+     *            the annotation to check
+     * @return <code>true</code> if the annotation should be exported, <code>false</code> otherwise
+     */
+    public boolean matches(final FileAnnotation annotation) {
+        return matches(priorities, annotation.getPriority())
+                && matches(categories, annotation.getCategory())
+                && matches(types, annotation.getType())
+                && matches(modules, annotation.getModuleName())
+                && (files.isEmpty() || files.contains(annotation.getFileName())
+                        || files.contains(annotation.getShortFileName()));
+    }
+
+    private static <T> boolean matches(final Set<T> values, final T value) {
+        return values.isEmpty() || values.contains(value);
+    }
+
+    /**
+     * Writes the page of annotations of the specified build result.
+     *
+     * @param result
+     *            the result to export
+     * @param writer
+     *            the writer to write the page to
+     * @throws IOException
+     *             if the annotations could not be read or written
+     */
+    public void write(final BuildResult result, final Writer writer) throws IOException {
+        Page page = new Page(writer);
+        page.start();
+        result.visitAnnotations(selection, cursor, page);
+        page.finish();
+        writer.flush();
+    }
+
+    /**
+     * Passes the specified annotations to the visitor in a stable order, so that the cursor of a page still points to
+     * the same position when the annotations are loaded again.
+     *
+     * @param annotations
+     *            the annotations to visit
+     * @param first
+     *            the position of the first annotation to pass to the visitor
+     * @param visitor
+     *            the visitor
+     * @throws IOException
+     *             if the visitor failed
+     */
+    static void visit(final Collection<FileAnnotation> annotations, final int first,
+            final BinaryAnnotationFile.Visitor visitor) throws IOException {
+        FileAnnotation[] sorted = annotations.toArray(new FileAnnotation[annotations.size()]);
+        Arrays.sort(sorted, new Comparator<FileAnnotation>() {
+            @Override
+            public int compare(final FileAnnotation left, final FileAnnotation right) {
+                int result = left.compareTo(right);
+                if (result == 0) {
+                    return left.getKey() < right.getKey() ? -1 : (left.getKey() == right.getKey() ? 0 : 1);
+                }
+                return result;
+            }
+        });
+        for (int i = first; i < sorted.length; i++) {
+            if (!visitor.visit(sorted[i])) {
+                return;
+            }
+        }
+    }
+
+    private static JSONObject toJson(final FileAnnotation annotation, final int next) {
+        JSONObject json = new JSONObject();
+        json.put("cursor", next);
+        json.put("key", annotation.getKey());
+        json.put("priority", annotation.getPriority().name());
+        json.put("category", annotation.getCategory());
+        json.put("type", annotation.getType());
+        json.put("moduleName", annotation.getModuleName());
+        json.put("packageName", annotation.getPackageName());
+        json.put("fileName", annotation.getFileName());
+        json.put("primaryLineNumber", annotation.getPrimaryLineNumber());
+        json.put("message", annotation.getMessage());
+        json.put("build", annotation.getBuild());
+        return json;
+    }
+
+    /**
+     * Writes the matching annotations until the limit has been reached. The visited annotations start at the cursor,
+     * the preceding annotations are skipped by the reader.
+     */
+    private class Page implements BinaryAnnotationFile.Visitor {
+        private final Writer writer;
+        private int position = cursor;
+        private int count;
+        private boolean isComplete = true;
+
+        Page(final Writer writer) {
+            this.writer = writer;
+        }
+
+        void start() throws IOException {
+            if (format == Format.JSON) {
+                writer.write("{\"annotations\":[");
+            }
+        }
+
+        @Override
+        public boolean visit(final FileAnnotation annotation) throws IOException {
+            int current = position++;
+            if (!matches(annotation)) {
+                return true;
+            }
+            if (count == limit) {
+                position = current;
+                isComplete = false;
+                return false;
+            }
+            if (format == Format.JSON) {
+                if (count > 0) {
+                    writer.write(',');
+                }
+                writer.write(toJson(annotation, position).toString());
+            }
+            else {
+                writer.write(toJson(annotation, position).toString());
+                writer.write('\n');
+            }
+            count++;
+            return true;
+        }
+
+        void finish() throws IOException {
+            if (format == Format.JSON) {
+                writer.write("],\"nextCursor\":");
+                writer.write(isComplete ? "null" : String.valueOf(position));
+                writer.write('}');
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package hudson.plugins.analysis.core;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Receives the annotations of a {@link AbstractStreamingAnnotationParser} one by one, as soon as they have been
+ * parsed.
+ *
+ * @since 1.93
+ */
+public interface AnnotationSink {
+    /**
+     * Adds the specified annotation.
+     *
+     * @param annotation
+     *            the annotation to add
+     */
+    void add(FileAnnotation annotation);
+}
@@ -17,7 +17,11 @@ import hudson.model.BuildListener;
  * @author Ulli Hafner
  */
 public abstract class AnnotationsAggregator extends MatrixAggregator {
+    /** Default value of {@link #isCountOnly()}. */
+    private static final boolean COUNT_ONLY = Boolean.getBoolean(AnnotationsAggregator.class.getName() + ".countOnly");
+
     private final ParserResult totals = new ParserResult();
+    private final RunAggregation aggregation = new RunAggregation();
     private final HealthDescriptor healthDescriptor;
     private final String defaultEncoding;
     /**
@@ -69,7 +73,12 @@ public abstract class AnnotationsAggregator extends MatrixAggregator {
 
     @Override
     public boolean endRun(final MatrixRun run) throws InterruptedException, IOException {
-        if (totals.hasNoAnnotations() && hasResult(run)) {
+        if (isCountOnly()) {
+            if (aggregation.hasNoAnnotations() && hasResult(run)) {
+                aggregation.add(run.getParent().getCombination().toString(), getResult(run));
+            }
+        }
+        else if (totals.hasNoAnnotations() && hasResult(run)) {
             BuildResult result = getResult(run);
             totals.addAnnotations(result.getAnnotations());
             totals.addModules(result.getModules());
@@ -79,7 +88,7 @@ public abstract class AnnotationsAggregator extends MatrixAggregator {
 
     @Override
     public boolean endBuild() throws InterruptedException, IOException {
-        build.addAction(createAction(healthDescriptor, defaultEncoding, totals));
+        build.addAction(createAction(healthDescriptor, defaultEncoding, isCountOnly() ? aggregation : totals));
 
         return true;
     }
@@ -97,6 +106,32 @@ public abstract class AnnotationsAggregator extends MatrixAggregator {
         return false;
     }
 
+    /**
+     * Returns whether only the number of warnings, the modules and references
+     * to the runs should be aggregated. In this mode the warnings of the runs
+     * are not loaded during the build: the aggregated result is a
+     * {@link RunAggregation} and the created {@link BuildResult} loads the
+     * warnings of the runs on demand. The default can be enabled with the
+     * system property
+     * <code>hudson.plugins.analysis.core.AnnotationsAggregator.countOnly</code>.
+     * <p>
+     * Both modes aggregate the same runs: the runs are added until the first
+     * run with warnings has been added, so the warnings of the matrix build
+     * are the warnings of this run. The modes differ in the new and fixed
+     * warnings: without loading the warnings, the new and fixed warnings of
+     * the added runs are used, i.e. the difference of each run to the
+     * previous build of the same configuration. Otherwise, the difference is
+     * computed against the reference build of the matrix build.
+     * </p>
+     *
+     * @return <code>true</code> if only the counters should be aggregated,
+     *         <code>false</code> if the warnings should be copied
+     * @since 1.93
+     */
+    protected boolean isCountOnly() {
+        return COUNT_ONLY;
+    }
+
     /**
      * Determines whether only stable builds should be used as reference builds
      * or not.
@@ -2,10 +2,21 @@ package hudson.plugins.analysis.core;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.ListMultimap;
 
 import jenkins.MasterToSlaveFileCallable;
 
-import hudson.plugins.analysis.util.ContextHashCode;
+import hudson.plugins.analysis.util.SourceMetadataService;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 
 import hudson.remoting.VirtualChannel;
@@ -13,6 +24,10 @@ import hudson.remoting.VirtualChannel;
 /**
  * Reads the content of each file with warnings and creates a unique hash code
  * of the warning to enable a more flexible new and fixed warnings detection.
+ * Each file is read only once for all of its warnings. Several files are read
+ * in parallel using a bounded pool of threads on the agent. The files are read
+ * by the {@link SourceMetadataService}, so files that already have been read
+ * by the parsers (e.g., to detect the package names) are not read again.
  *
  * @author Ulli Hafner
  */
@@ -23,6 +38,8 @@ public class AnnotationsClassifier extends MasterToSlaveFileCallable<ParserResul
     private final ParserResult result;
     /** The default encoding to be used when reading and parsing files. */
     private final String defaultEncoding;
+    /** The maximum number of threads to read files with, a value less than 1 uses the number of processors. */
+    private final int numberOfThreads;
 
     /**
      * Creates a new instance of {@link AnnotationsClassifier}.
@@ -33,17 +50,105 @@ public class AnnotationsClassifier extends MasterToSlaveFileCallable<ParserResul
      *            the default encoding to be used when reading and parsing files
      */
     public AnnotationsClassifier(final ParserResult result, final String defaultEncoding) {
+        this(result, defaultEncoding, 0);
+    }
+
+    /**
+     * Creates a new instance of {@link AnnotationsClassifier}.
+     *
+     * @param result
+     *            the annotations to assign a module for
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param numberOfThreads
+     *            the maximum number of threads to read the files with, a value
+     *            less than 1 uses the number of available processors of the agent
+     * @since 1.93
+     */
+    public AnnotationsClassifier(final ParserResult result, final String defaultEncoding, final int numberOfThreads) {
         this.result = result;
         this.defaultEncoding = defaultEncoding;
+        this.numberOfThreads = numberOfThreads;
     }
 
     @Override
-    public ParserResult invoke(final File workspace, final VirtualChannel channel) throws IOException {
-        ContextHashCode contextHashCode = new ContextHashCode();
+    public ParserResult invoke(final File workspace, final VirtualChannel channel) throws IOException, InterruptedException {
+        ListMultimap<String, FileAnnotation> annotationsByFile = ArrayListMultimap.create();
         for (FileAnnotation annotation : result.getAnnotations()) {
-            annotation.setContextHashCode(contextHashCode.compute(
-                    annotation.getFileName(), annotation.getPrimaryLineNumber(), defaultEncoding));
+            annotationsByFile.put(annotation.getFileName(), annotation);
+        }
+
+        SourceMetadataService metadataService = new SourceMetadataService(defaultEncoding);
+        List<FileClassifier> classifiers = Lists.newArrayList();
+        for (String fileName : annotationsByFile.keySet()) {
+            classifiers.add(new FileClassifier(fileName, annotationsByFile.get(fileName), metadataService));
+        }
+
+        int threads = Math.min(getNumberOfThreads(), classifiers.size());
+        if (threads > 1) {
+            classifyInParallel(classifiers, threads);
+        }
+        else {
+            for (FileClassifier classifier : classifiers) {
+                classifier.call();
+            }
         }
         return result;
     }
-}
\ No newline at end of file
+
+    private int getNumberOfThreads() {
+        if (numberOfThreads < 1) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return numberOfThreads;
+    }
+
+    private void classifyInParallel(final Collection<FileClassifier> classifiers, final int threads) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Void> future : executor.invokeAll(classifiers)) {
+                future.get();
+            }
+        }
+        catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Computes the context hash codes of all annotations of a single file.
+     */
+    private static class FileClassifier implements Callable<Void> {
+        private final String fileName;
+        private final List<FileAnnotation> annotations;
+        private final SourceMetadataService metadataService;
+
+        FileClassifier(final String fileName, final List<FileAnnotation> annotations,
+                final SourceMetadataService metadataService) {
+            this.fileName = fileName;
+            this.annotations = annotations;
+            this.metadataService = metadataService;
+        }
+
+        @Override
+        public Void call() {
+            int[] lines = new int[annotations.size()];
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = annotations.get(i).getPrimaryLineNumber();
+            }
+
+            int[] hashCodes = metadataService.getContextHashCodes(fileName, lines);
+            for (int i = 0; i < hashCodes.length; i++) {
+                annotations.get(i).setContextHashCode(hashCodes[i]);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package hudson.plugins.analysis.core;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.StringUtils;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Compact table of the number of warnings per author and priority of a build. The table is computed when the
+ * {@link BuildResult} is created (i.e., after the authors have been blamed) and is persisted together with the build
+ * result, so that the author graphs don't need to load the warnings of a build. The tables of older builds are
+ * computed in the background on demand. The number of builds that are waiting for the computation is bounded, and the
+ * table of a build is persisted only if the warnings of the build could be read.
+ *
+ * @since 1.93
+ */
+public final class AuthorStatistics implements Serializable {
+    private static final long serialVersionUID = -3329371546802046593L;
+    private static final Logger LOGGER = Logger.getLogger(AuthorStatistics.class.getName());
+
+    /** Author of warnings that could not be blamed. */
+    private static final String NO_AUTHOR = "-";
+
+    /** Maximum number of builds that are waiting for the computation of their statistics. */
+    private static final int MAX_QUEUE = Integer.getInteger(AuthorStatistics.class.getName() + ".maxQueue", 100);
+
+    private static final ExecutorService BACKFILL = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(MAX_QUEUE),
+            new NamingThreadFactory(new DaemonThreadFactory(), "AuthorStatistics.backfill"));
+
+    /** Number of warnings per priority (in the order of {@link Priority#ordinal()}), mapped by author. */
+    private final Map<String, int[]> countsByAuthor = new TreeMap<String, int[]>();
+
+    /**
+     * Creates the statistics of the specified warnings. Warnings without author are skipped.
+     *
+     * @param annotations
+     *            the warnings
+     * @return the statistics
+     */
+    public static AuthorStatistics create(final Collection<? extends FileAnnotation> annotations) {
+        AuthorStatistics statistics = new AuthorStatistics();
+        for (FileAnnotation annotation : annotations) {
+            String author = annotation.getAuthor();
+            if (StringUtils.isNotBlank(author) && !NO_AUTHOR.equals(author)) {
+                int[] counts = statistics.countsByAuthor.get(author);
+                if (counts == null) {
+                    counts = new int[Priority.values().length];
+                    statistics.countsByAuthor.put(author, counts);
+                }
+                counts[annotation.getPriority().ordinal()]++;
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Computes the statistics of the specified result in the background and persists them with the build of the
+     * result.
+     *
+     * @param result
+     *            the result to compute the statistics for
+     * @return <code>true</code> if the computation has been scheduled, <code>false</code> if too many builds are
+     *         already waiting for the computation
+     */
+    static boolean backfill(final BuildResult result) {
+        try {
+            BACKFILL.execute(new Runnable() {
+                @Override
+                public void run() {
+                    compute(result);
+                }
+            });
+            return true;
+        }
+        catch (RejectedExecutionException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Computes the statistics of the specified result and persists them with the build of the result. If the
+     * warnings of the result can't be read, then nothing is stored: otherwise empty statistics would be persisted
+     * for good.
+     *
+     * @param result
+     *            the result to compute the statistics for
+     * @return <code>true</code> if the statistics have been computed, <code>false</code> otherwise
+     */
+    static boolean compute(final BuildResult result) {
+        AuthorStatistics statistics;
+        try {
+            statistics = result.loadAuthorStatistics();
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't compute author statistics of " + result.getOwner(), exception);
+            return false;
+        }
+        catch (RuntimeException exception) {
+            LOGGER.log(Level.WARNING, "Can't compute author statistics of " + result.getOwner(), exception);
+            return false;
+        }
+
+        result.setAuthorStatistics(statistics);
+        try {
+            result.getOwner().save();
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't save author statistics of " + result.getOwner(), exception);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of warnings per priority, mapped by author. The index of a priority in the array of counts
+     * is the value of {@link Priority#ordinal()}.
+     *
+     * @return the number of warnings per priority and author
+     */
+    public Map<String, int[]> getCountsByAuthor() {
+        return Collections.unmodifiableMap(countsByAuthor);
+    }
+
+    /**
+     * Returns the number of authors.
+     *
+     * @return the number of authors
+     */
+    public int size() {
+        return countsByAuthor.size();
+    }
+}
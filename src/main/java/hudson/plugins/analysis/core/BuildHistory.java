@@ -110,6 +110,22 @@ public class BuildHistory {
         return new DefaultAnnotationContainer();
     }
 
+    /**
+     * Returns the result of the reference build. In contrast to {@link #getReferenceAnnotations()} the
+     * warnings of the reference build are not loaded.
+     *
+     * @return the result of the reference build, or <code>null</code> if no such build exists
+     * @since 1.93
+     */
+    @CheckForNull
+    public BuildResult getReferenceResult() {
+        ResultAction<? extends BuildResult> action = getReferenceAction();
+        if (action != null) {
+            return action.getResult();
+        }
+        return null;
+    }
+
     /**
      * Returns the action of the reference build.
      *
@@ -299,7 +315,7 @@ public class BuildHistory {
      */
     public Collection<FileAnnotation> getNewWarnings(final Set<FileAnnotation> annotations) {
         if (hasReferenceResult()) {
-            return new IssueDifference(annotations, getReferenceAnnotations().getAnnotations()).getNewIssues();
+            return getDifference(annotations).getNewIssues();
         }
         else {
             return annotations;
@@ -316,13 +332,26 @@ public class BuildHistory {
      */
     public Collection<FileAnnotation> getFixedWarnings(final Set<FileAnnotation> annotations) {
         if (hasReferenceResult()) {
-            return new IssueDifference(annotations, getReferenceAnnotations().getAnnotations()).getFixedIssues();
+            return getDifference(annotations).getFixedIssues();
         }
         else {
             return Collections.emptyList();
         }
     }
 
+    /**
+     * Returns the difference between the specified collection of warnings and the warnings of the reference build.
+     * If there is no reference build, then all warnings are new.
+     *
+     * @param annotations
+     *            the warnings in the current build
+     * @return the difference "current build" - "reference build"
+     * @since 1.93
+     */
+    public IssueDifference getDifference(final Set<FileAnnotation> annotations) {
+        return new IssueDifference(annotations, getReferenceAnnotations().getAnnotations());
+    }
+
     /**
      * Returns the health descriptor used for the builds.
      *
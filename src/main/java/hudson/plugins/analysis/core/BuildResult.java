@@ -1,17 +1,22 @@
 package hudson.plugins.analysis.core; // NOPMD
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,11 +43,14 @@ import hudson.model.ModelObject;
 import hudson.model.Result;
 import hudson.model.Run;
 import hudson.plugins.analysis.Messages;
+import hudson.plugins.analysis.util.Compatibility;
 import hudson.plugins.analysis.util.HtmlPrinter;
 import hudson.plugins.analysis.util.PluginLogger;
 import hudson.plugins.analysis.util.model.AnnotationContainer;
 import hudson.plugins.analysis.util.model.AnnotationProvider;
 import hudson.plugins.analysis.util.model.AnnotationStream;
+import hudson.plugins.analysis.util.model.BinaryAnnotationFile;
+import hudson.plugins.analysis.util.model.DefaultAnnotationContainer;
 import hudson.plugins.analysis.util.model.AnnotationsLabelProvider;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.JavaProject;
@@ -68,8 +76,7 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
     private static final String UNSTABLE = "yellow.png";
     private static final String FAILED = "red.png";
     private static final String SUCCESS = "blue.png";
-
-    private transient Object projectLock = new Object();
+    private static final String BINARY_SUFFIX = ".bin";
 
     /**
      * Returns the number of days for the specified number of milliseconds.
@@ -91,17 +98,11 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
     /** The default encoding to be used when reading and parsing files. */
     private String defaultEncoding;
 
-    /** The project containing the annotations. */
-    @SuppressFBWarnings("Se")
-    private transient WeakReference<JavaProject> project;
-    /** All new warnings in the current build. */
-    @SuppressFBWarnings("Se")
-    private transient WeakReference<Collection<FileAnnotation>> newWarningsReference;
-    /** All fixed warnings in the current build. */
-    @SuppressFBWarnings("Se")
-    private transient WeakReference<Collection<FileAnnotation>> fixedWarningsReference;
     /** The build history for the results of this plug-in. */
     private transient BuildHistory history;
+    /** The difference to the reference build that has been computed for the current build. */
+    @SuppressFBWarnings("Se")
+    private transient WeakReference<IssueDifference> differenceReference;
 
     /** The number of warnings in this build. */
     private int numberOfWarnings;
@@ -201,6 +202,23 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      */
     private String reason;
 
+    /**
+     * Number of warnings per author and priority.
+     *
+     * @since 1.93
+     */
+    private volatile AuthorStatistics authorStatistics;
+    /**
+     * The combinations of the matrix runs that contain the warnings of this result, or <code>null</code> if the
+     * warnings are stored with this result.
+     *
+     * @since 1.93
+     * @see RunAggregation
+     */
+    private List<String> aggregatedRuns;
+    /** Determines whether the author statistics of an older build are currently computed in the background. */
+    private transient AtomicBoolean isAuthorStatisticsScheduled = new AtomicBoolean();
+
     /**
      * Creates a new instance of {@link BuildResult}. Note that the warnings are
      * not serialized anymore automatically. You need to call
@@ -279,29 +297,62 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         numberOfModules = modules.size();
         errors = new ArrayList<String>(result.getErrorMessages());
         numberOfWarnings = result.getNumberOfAnnotations();
-        AnnotationContainer referenceResult = history.getReferenceAnnotations();
+        highWarnings = result.getNumberOfAnnotations(Priority.HIGH);
+        normalWarnings = result.getNumberOfAnnotations(Priority.NORMAL);
+        lowWarnings = result.getNumberOfAnnotations(Priority.LOW);
+
+        if (result instanceof RunAggregation) {
+            initializeAggregation((RunAggregation) result);
+        }
+        else {
+            initializeWarnings(build, result);
+        }
+
+        computeZeroWarningsHighScore(build, result);
+
+        defineReferenceBuild(history);
+    }
+
+    /**
+     * Initializes the counters of an aggregation of matrix runs. The warnings of the runs are not loaded, so the new
+     * and fixed warnings are the ones of the runs, see {@link RunAggregation}.
+     */
+    private void initializeAggregation(final RunAggregation aggregation) {
+        aggregatedRuns = new ArrayList<String>(aggregation.getRuns());
+
+        AnnotationProvider referenceResult = history.getReferenceResult();
+        if (referenceResult == null) {
+            referenceResult = new DefaultAnnotationContainer();
+        }
+        computeDeltas(aggregation, referenceResult);
 
+        numberOfNewWarnings = aggregation.getNumberOfNewWarnings();
+        numberOfFixedWarnings = aggregation.getNumberOfFixedWarnings();
+    }
+
+    private void computeDeltas(final ParserResult result, final AnnotationProvider referenceResult) {
         delta = result.getNumberOfAnnotations() - referenceResult.getNumberOfAnnotations();
         lowDelta = computeDelta(result, referenceResult, Priority.LOW);
         normalDelta = computeDelta(result, referenceResult, Priority.NORMAL);
         highDelta = computeDelta(result, referenceResult, Priority.HIGH);
+    }
+
+    private void initializeWarnings(final Run<?, ?> build, final ParserResult result) {
+        AnnotationContainer referenceResult = history.getReferenceAnnotations();
+
+        computeDeltas(result, referenceResult);
 
         Set<FileAnnotation> allWarnings = result.getAnnotations();
 
         // FIXME: why is there a flag to enable computation of new warnings?
 
         IssueDifference difference = new IssueDifference(allWarnings, referenceResult.getAnnotations());
+        differenceReference = new WeakReference<IssueDifference>(difference);
         Set<FileAnnotation> newWarnings = difference.getNewIssues();
         numberOfNewWarnings = newWarnings.size();
-        newWarningsReference = new WeakReference<Collection<FileAnnotation>>(newWarnings);
 
         Set<FileAnnotation> fixedWarnings = difference.getFixedIssues();
         numberOfFixedWarnings = fixedWarnings.size();
-        fixedWarningsReference = new WeakReference<Collection<FileAnnotation>>(fixedWarnings);
-
-        highWarnings = result.getNumberOfAnnotations(Priority.HIGH);
-        normalWarnings = result.getNumberOfAnnotations(Priority.NORMAL);
-        lowWarnings = result.getNumberOfAnnotations(Priority.LOW);
 
         JavaProject container = new JavaProject();
         container.addAnnotations(result.getAnnotations());
@@ -310,11 +361,11 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
             newWarning.setBuild(build.getNumber());
         }
 
-        project = new WeakReference<JavaProject>(container);
-
-        computeZeroWarningsHighScore(build, result);
-
-        defineReferenceBuild(history);
+        ResultCache cache = ResultCache.getInstance();
+        cache.put(this, ResultCache.Kind.PROJECT, container, container.getNumberOfAnnotations());
+        cache.put(this, ResultCache.Kind.NEW, newWarnings, numberOfNewWarnings);
+        cache.put(this, ResultCache.Kind.FIXED, fixedWarnings, numberOfFixedWarnings);
+        authorStatistics = AuthorStatistics.create(allWarnings);
     }
 
     /**
@@ -367,7 +418,7 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
       return owner instanceof AbstractBuild ? ((AbstractBuild) owner).getProject().getBuildByNumber(referenceBuild) : null;
     }
 
-    private int computeDelta(final ParserResult result, final AnnotationContainer referenceResult, final Priority priority) {
+    private int computeDelta(final ParserResult result, final AnnotationProvider referenceResult, final Priority priority) {
         return result.getNumberOfAnnotations(priority) - referenceResult.getNumberOfAnnotations(priority);
     }
 
@@ -444,14 +495,10 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      */
     @SuppressWarnings({"PMD", "deprecation"})
     protected Object readResolve() {
-        projectLock = new Object();
         if (pluginResult == null) {
             pluginResult = Result.SUCCESS;
             resetSuccessfulState();
         }
-        if (projectLock == null) {
-            projectLock = new Object();
-        }
         if (history == null) {
             history = createHistory(owner);
         }
@@ -461,6 +508,7 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         if (errors == null) {
             errors = new ArrayList<String>();
         }
+        isAuthorStatisticsScheduled = new AtomicBoolean();
         try {
             if (low != null) {
                 lowWarnings = Integer.valueOf(low);
@@ -528,11 +576,49 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
     }
 
     /**
-     * Returns the serialization file for all warnings.
+     * Returns the XML serialization file for all warnings. Since release 1.93 the warnings are stored in binary
+     * format, so this file exists only for builds that have been recorded by previous releases or that contain
+     * annotations that can't be stored in binary format. If the warnings of this build are stored in binary format
+     * only, then a warning is logged since the returned file does not exist.
      *
      * @return the serialization file.
+     * @deprecated use {@link #getAnnotationsFile()} to get the file that actually contains the warnings
      */
+    @Deprecated
     public final XmlFile getDataFile() {
+        XmlFile xmlFile = getXmlDataFile();
+        BinaryAnnotationFile binaryFile = getBinaryDataFile();
+        if (!xmlFile.exists() && binaryFile.exists()) {
+            LOGGER.log(Level.WARNING, "The warnings of build " + getOwner().getNumber() + " are stored in "
+                    + binaryFile.getFile() + ", the XML file " + xmlFile.getFile() + " does not exist. "
+                    + "Use BuildResult.getAnnotationsFile() instead of the deprecated BuildResult.getDataFile().");
+        }
+        return xmlFile;
+    }
+
+    /**
+     * Returns the file that contains all warnings of this build, regardless of the format the warnings have been
+     * stored in. This is the binary serialization file for builds that have been recorded since release 1.93, and the
+     * XML serialization file for older builds.
+     *
+     * @return the serialization file, the file does not exist if the build has no persisted warnings (e.g., if this
+     *         result is an aggregation of other results)
+     * @since 1.93
+     */
+    public final File getAnnotationsFile() {
+        BinaryAnnotationFile binaryFile = getBinaryDataFile();
+        if (binaryFile.exists()) {
+            return binaryFile.getFile();
+        }
+        return getXmlDataFile().getFile();
+    }
+
+    /**
+     * Returns the XML serialization file for all warnings.
+     *
+     * @return the serialization file.
+     */
+    private XmlFile getXmlDataFile() {
         return new XmlFile(getXStream(), new File(getOwner().getRootDir(), getSerializationFileName()));
     }
 
@@ -546,6 +632,49 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
                 getSerializationFileName().replace(".xml", "-fixed.xml")));
     }
 
+    /**
+     * Returns the serialization file for the new warnings.
+     *
+     * @return the serialization file.
+     */
+    private XmlFile getNewDataFile() {
+        return new XmlFile(getXStream(), new File(getOwner().getRootDir(),
+                getSerializationFileName().replace(".xml", "-new.xml")));
+    }
+
+    /**
+     * Returns the binary serialization file for the new warnings. Builds that have been recorded before release 1.93
+     * have no such file, their new warnings are filtered from all warnings instead.
+     *
+     * @return the binary serialization file
+     */
+    private BinaryAnnotationFile getBinaryNewDataFile() {
+        return new BinaryAnnotationFile(getXStream(), new File(getOwner().getRootDir(),
+                StringUtils.removeEnd(getSerializationFileName(), ".xml") + "-new" + BINARY_SUFFIX));
+    }
+
+    /**
+     * Returns the binary serialization file for all warnings. Builds that have been recorded before release 1.93 or
+     * that contain annotations that can't be stored in binary format use the XML file {@link #getXmlDataFile()}
+     * instead.
+     *
+     * @return the binary serialization file
+     */
+    private BinaryAnnotationFile getBinaryDataFile() {
+        return new BinaryAnnotationFile(getXStream(), new File(getOwner().getRootDir(),
+                StringUtils.removeEnd(getSerializationFileName(), ".xml") + BINARY_SUFFIX));
+    }
+
+    /**
+     * Returns the binary serialization file for the fixed warnings.
+     *
+     * @return the binary serialization file
+     */
+    private BinaryAnnotationFile getBinaryFixedDataFile() {
+        return new BinaryAnnotationFile(getXStream(), new File(getOwner().getRootDir(),
+                StringUtils.removeEnd(getSerializationFileName(), ".xml") + "-fixed" + BINARY_SUFFIX));
+    }
+
     /**
      * Returns the {@link XStream} to use.
      *
@@ -693,25 +822,92 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
 
     /**
      * Serializes the annotations of the specified project and writes them to
-     * the file specified by method {@link #getDataFile()}.
+     * the file specified by method {@link #getAnnotationsFile()}. The
+     * annotations are stored in binary format, only annotations that are not
+     * supported by the binary format are stored as XML. Additionally, the new
+     * and fixed annotations are stored in separate files in the same format.
      *
      * @param annotations
      *            the annotations to store
      */
     protected void serializeAnnotations(final Collection<FileAnnotation> annotations) {
+        if (isAggregation()) {
+            return; // the warnings are stored by the aggregated runs
+        }
         try {
-            getDataFile().write(annotations.toArray(new FileAnnotation[annotations.size()]));
+            writeAnnotations(getBinaryDataFile(), getXmlDataFile(), annotations);
 
-            Set<FileAnnotation> allAnnotations = new HashSet<FileAnnotation>();
-            allAnnotations.addAll(annotations);
-            Collection<FileAnnotation> fixedWarnings = history.getFixedWarnings(allAnnotations);
-            getFixedDataFile().write(fixedWarnings.toArray(new FileAnnotation[fixedWarnings.size()]));
+            writeAnnotations(getBinaryFixedDataFile(), getFixedDataFile(), computeFixedWarnings(annotations));
+            serializeNewWarnings(annotations);
         }
         catch (IOException exception) {
             LOGGER.log(Level.SEVERE, "Failed to serialize the annotations of the build.", exception);
         }
     }
 
+    /**
+     * Writes the new warnings of the specified warnings to the file of the new warnings.
+     *
+     * @param annotations
+     *            the warnings of the current build
+     * @throws IOException
+     *             if the warnings could not be written
+     */
+    void serializeNewWarnings(final Collection<FileAnnotation> annotations) throws IOException {
+        writeAnnotations(getBinaryNewDataFile(), getNewDataFile(), filterNewWarnings(annotations));
+    }
+
+    /**
+     * Writes the specified annotations in binary format. If the annotations are not supported by the binary
+     * format then the XML file is written instead. The other file is removed so that no stale data will be read.
+     */
+    private void writeAnnotations(final BinaryAnnotationFile binaryFile, final XmlFile xmlFile,
+            final Collection<FileAnnotation> annotations) throws IOException {
+        FileAnnotation[] values = annotations.toArray(new FileAnnotation[annotations.size()]);
+        if (binaryFile.isSupported(values)) {
+            binaryFile.write(values);
+            if (xmlFile.exists() && !xmlFile.getFile().delete()) {
+                throw new IOException("Can't delete " + xmlFile);
+            }
+        }
+        else {
+            xmlFile.write(values);
+            binaryFile.delete();
+        }
+    }
+
+    /**
+     * Reads the annotations of the binary file if it exists, otherwise the annotations of the XML file of builds
+     * that have been recorded by previous releases.
+     */
+    private FileAnnotation[] readAnnotations(final BinaryAnnotationFile binaryFile, final XmlFile xmlFile)
+            throws IOException {
+        if (binaryFile.exists()) {
+            return binaryFile.read();
+        }
+        return (FileAnnotation[])xmlFile.read();
+    }
+
+    /**
+     * Returns the fixed warnings with respect to the specified warnings of the current build. If these are the
+     * warnings this result has been initialized with, then the already computed difference is reused.
+     *
+     * @param annotations
+     *            the warnings of the current build
+     * @return the fixed warnings
+     */
+    private Collection<FileAnnotation> computeFixedWarnings(final Collection<FileAnnotation> annotations) {
+        if (differenceReference != null) {
+            IssueDifference difference = differenceReference.get();
+            if (difference != null && difference.isComputedFor(annotations)) {
+                return difference.getFixedIssues();
+            }
+        }
+        Set<FileAnnotation> allAnnotations = new HashSet<FileAnnotation>();
+        allAnnotations.addAll(annotations);
+        return history.getFixedWarnings(allAnnotations);
+    }
+
     /**
      * Returns the build since we have zero warnings.
      *
@@ -954,44 +1150,100 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return the associated project of this result.
      */
     public JavaProject getProject() {
-        synchronized (projectLock) {
-            if (project == null) {
-                return loadResult();
-            }
-            JavaProject result = project.get();
-            if (result == null) {
-                return loadResult();
-            }
-            return result;
-        }
+        return ResultCache.getInstance().get(this, ResultCache.Kind.PROJECT, JavaProject.class,
+                new Callable<JavaProject>() {
+                    @Override
+                    public JavaProject call() {
+                        return loadResult();
+                    }
+                });
     }
 
     /**
-     * Loads the results and wraps them in a weak reference that might get
-     * removed by the garbage collector.
+     * Loads the results and stores them in the {@link ResultCache}.
      *
      * @return the loaded result
      */
     private JavaProject loadResult() {
+        JavaProject result;
+        if (isAggregation()) {
+            result = loadAggregatedResult();
+        }
+        else {
+            result = loadOwnResult();
+        }
+        ResultCache.getInstance().put(this, ResultCache.Kind.PROJECT, result, result.getNumberOfAnnotations());
+
+        return result;
+    }
+
+    private JavaProject loadOwnResult() {
         JavaProject result;
         try {
             JavaProject newProject = new JavaProject();
-            FileAnnotation[] annotations = (FileAnnotation[])getDataFile().read();
+            FileAnnotation[] annotations = readAnnotations(getBinaryDataFile(), getXmlDataFile());
             newProject.addAnnotations(annotations);
             attachLabelProvider(newProject);
 
-            LOGGER.log(Level.FINE, "Loaded data file " + getDataFile() + " for build " + getOwner().getNumber());
+            LOGGER.log(Level.FINE, "Loaded data file " + getSerializationFileName() + " for build " + getOwner().getNumber());
             result = newProject;
         }
         catch (IOException exception) {
-            LOGGER.log(Level.WARNING, "Failed to load " + getDataFile(), exception);
+            LOGGER.log(Level.WARNING, "Failed to load " + getSerializationFileName() + " of build " + getOwner().getNumber(), exception);
             result = new JavaProject();
         }
-        project = new WeakReference<JavaProject>(result);
+        return result;
+    }
 
+    /**
+     * Reads the data files of the aggregated runs one after another. The results of the runs are not cached.
+     *
+     * @return the warnings of all aggregated runs
+     */
+    private JavaProject loadAggregatedResult() {
+        JavaProject result = new JavaProject();
+        for (BuildResult run : getAggregatedResults()) {
+            try {
+                result.addAnnotations(run.readAnnotations(run.getBinaryDataFile(), run.getXmlDataFile()));
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Failed to load " + run.getSerializationFileName() + " of run " + run.getOwner(), exception);
+            }
+        }
+        attachLabelProvider(result);
+
+        LOGGER.log(Level.FINE, "Loaded data files of " + aggregatedRuns.size() + " runs of build " + getOwner().getNumber());
         return result;
     }
 
+    /**
+     * Returns whether this result is an aggregation of matrix runs that does not store its own warnings.
+     *
+     * @return <code>true</code> if the warnings of this result are stored by matrix runs
+     * @see RunAggregation
+     * @since 1.93
+     */
+    public boolean isAggregation() {
+        return aggregatedRuns != null;
+    }
+
+    private List<BuildResult> getAggregatedResults() {
+        return RunAggregation.getResults(getOwner(), aggregatedRuns, getResultActionType());
+    }
+
+    private Set<FileAnnotation> collectAggregatedWarnings(final ResultCache.Kind kind) {
+        Set<FileAnnotation> warnings = new HashSet<FileAnnotation>();
+        for (BuildResult run : getAggregatedResults()) {
+            if (kind == ResultCache.Kind.NEW) {
+                warnings.addAll(run.getNewWarnings());
+            }
+            else {
+                warnings.addAll(run.getFixedWarnings());
+            }
+        }
+        return warnings;
+    }
+
     /**
      * Returns the default label provider that is used to visualize the build result (i.e., the tab labels).
      *
@@ -1009,31 +1261,69 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      */
     @Exported
     public Collection<FileAnnotation> getNewWarnings() {
-        if (newWarningsReference == null) {
-            return loadNewWarnings();
+        return getWarnings(ResultCache.Kind.NEW, new Callable<Collection<FileAnnotation>>() {
+            @Override
+            public Collection<FileAnnotation> call() {
+                return loadNewWarnings();
+            }
+        });
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Collection<FileAnnotation> getWarnings(final ResultCache.Kind kind,
+            final Callable<Collection<FileAnnotation>> loader) {
+        return ResultCache.getInstance().get(this, kind, Collection.class, (Callable) loader);
+    }
+
+    private void cacheWarnings(final ResultCache.Kind kind, final Collection<FileAnnotation> warnings) {
+        ResultCache.getInstance().put(this, kind, warnings, warnings.size());
+    }
+
+    /**
+     * Loads the new warnings and stores them in the {@link ResultCache}. Builds that have been recorded before
+     * release 1.93 have no file for the new warnings, in this case all warnings are filtered by the current build
+     * number.
+     *
+     * @return the new warnings
+     */
+    Collection<FileAnnotation> loadNewWarnings() {
+        Set<FileAnnotation> newWarnings;
+        if (isAggregation()) {
+            newWarnings = collectAggregatedWarnings(ResultCache.Kind.NEW);
         }
-        Collection<FileAnnotation> result = newWarningsReference.get();
-        if (result == null) {
-            return loadNewWarnings();
+        else if (getBinaryNewDataFile().exists() || getNewDataFile().exists()) {
+            try {
+                newWarnings = Sets.newHashSet(readAnnotations(getBinaryNewDataFile(), getNewDataFile()));
+
+                LOGGER.log(Level.FINE, "Loaded new warnings of " + getSerializationFileName() + " for build " + getOwner().getNumber());
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Failed to load new warnings of " + getSerializationFileName() + " of build " + getOwner().getNumber(), exception);
+                newWarnings = filterNewWarnings(getProject().getAnnotations());
+            }
         }
-        return result;
+        else {
+            newWarnings = filterNewWarnings(getProject().getAnnotations());
+        }
+        cacheWarnings(ResultCache.Kind.NEW, newWarnings);
+
+        return newWarnings;
     }
 
     /**
-     * Filters all warnings by the current build number and wraps them in a weak reference that might get
-     * removed by the garbage collector.
+     * Returns the warnings that have been introduced in the current build.
      *
+     * @param annotations
+     *            the warnings of the current build
      * @return the new warnings
      */
-    private Collection<FileAnnotation> loadNewWarnings() {
+    private Set<FileAnnotation> filterNewWarnings(final Collection<FileAnnotation> annotations) {
         Set<FileAnnotation> newWarnings = new HashSet<FileAnnotation>();
-        for (FileAnnotation warning : getProject().getAnnotations()) {
+        for (FileAnnotation warning : annotations) {
             if (warning.getBuild() == getOwner().getNumber()) {
                 newWarnings.add(warning);
             }
         }
-        newWarningsReference = new WeakReference<Collection<FileAnnotation>>(newWarnings);
-
         return newWarnings;
     }
 
@@ -1043,7 +1333,17 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return the fixed warnings of this build.
      */
     public Collection<FileAnnotation> getFixedWarnings() {
-        if (getFixedDataFile().exists()) {
+        if (isAggregation()) {
+            return getWarnings(ResultCache.Kind.FIXED, new Callable<Collection<FileAnnotation>>() {
+                @Override
+                public Collection<FileAnnotation> call() {
+                    Set<FileAnnotation> fixedWarnings = collectAggregatedWarnings(ResultCache.Kind.FIXED);
+                    cacheWarnings(ResultCache.Kind.FIXED, fixedWarnings);
+                    return fixedWarnings;
+                }
+            });
+        }
+        else if (getBinaryFixedDataFile().exists() || getFixedDataFile().exists()) {
             return getFixedWarningsAfterRelease72();
         }
         else {
@@ -1052,57 +1352,50 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
     }
 
     private Collection<FileAnnotation> getFixedWarningsAfterRelease72() {
-        synchronized (projectLock) {
-            if (fixedWarningsReference == null) {
+        return getWarnings(ResultCache.Kind.FIXED, new Callable<Collection<FileAnnotation>>() {
+            @Override
+            public Collection<FileAnnotation> call() {
                 return loadFixedWarningsAfterRelease72();
             }
-            Collection<FileAnnotation> result = fixedWarningsReference.get();
-            if (result == null) {
-                return loadFixedWarningsAfterRelease72();
-            }
-            return result;
-        }
+        });
     }
 
     private Collection<FileAnnotation> loadFixedWarningsAfterRelease72() {
         Set<FileAnnotation> fixedWarnings;
         try {
-            FileAnnotation[] annotations = (FileAnnotation[])getFixedDataFile().read();
+            FileAnnotation[] annotations = readAnnotations(getBinaryFixedDataFile(), getFixedDataFile());
             fixedWarnings = Sets.newHashSet(annotations);
 
-            LOGGER.log(Level.FINE, "Loaded data file " + getFixedDataFile() + " for build " + getOwner().getNumber());
+            LOGGER.log(Level.FINE, "Loaded fixed warnings of " + getSerializationFileName() + " for build " + getOwner().getNumber());
         }
         catch (IOException exception) {
-            LOGGER.log(Level.WARNING, "Failed to load " + getFixedDataFile(), exception);
+            LOGGER.log(Level.WARNING, "Failed to load fixed warnings of " + getSerializationFileName() + " of build " + getOwner().getNumber(), exception);
             fixedWarnings = new HashSet<FileAnnotation>();
         }
-        fixedWarningsReference = new WeakReference<Collection<FileAnnotation>>(fixedWarnings);
+        cacheWarnings(ResultCache.Kind.FIXED, fixedWarnings);
 
         return fixedWarnings;
 
     }
 
     private Collection<FileAnnotation> getFixedWarningsBeforeRelease72() {
-        if (fixedWarningsReference == null) {
-            return loadFixedWarningsBeforeRelease72();
-        }
-        Collection<FileAnnotation> result = fixedWarningsReference.get();
-        if (result == null) {
-            return loadFixedWarningsBeforeRelease72();
-        }
-        return result;
+        return getWarnings(ResultCache.Kind.FIXED, new Callable<Collection<FileAnnotation>>() {
+            @Override
+            public Collection<FileAnnotation> call() {
+                return loadFixedWarningsBeforeRelease72();
+            }
+        });
     }
 
     /**
      * Loads the results of the current and previous build, computes the fixed
-     * warnings and wraps them in a weak reference that might get removed by the
-     * garbage collector.
+     * warnings and stores them in the {@link ResultCache}.
      *
      * @return the fixed warnings
      */
     private Collection<FileAnnotation> loadFixedWarningsBeforeRelease72() {
         Collection<FileAnnotation> difference = history.getFixedWarnings(getProject().getAnnotations());
-        fixedWarningsReference = new WeakReference<Collection<FileAnnotation>>(difference);
+        cacheWarnings(ResultCache.Kind.FIXED, difference);
 
         return difference;
     }
@@ -1127,7 +1420,8 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      */
     public Object getDynamic(final String link, final StaplerRequest request, final StaplerResponse response) {
         try {
-            return DetailFactory.create(getResultActionType()).createTrendDetails(link, getOwner(), getContainer(), getFixedWarnings(),
+            DetailFactory factory = DetailFactory.create(getResultActionType());
+            return factory.createTrendDetails(link, getOwner(), getDetailContainer(link, factory), getFixedWarnings(),
                     getNewWarnings(), getErrors(), getDefaultEncoding(), getDisplayName());
         }
         catch (NoSuchElementException exception) {
@@ -1141,6 +1435,38 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         }
     }
 
+    /**
+     * Returns the container that is passed to the details of the specified link. The details of the new and fixed
+     * warnings and of the errors do not use the container, so the warnings of the whole project are not loaded for
+     * these links unless the detail factory overrides the creation of these details.
+     *
+     * @param link
+     *            the link to identify the sub page to show
+     * @param factory
+     *            the factory that creates the details
+     * @return the container to pass to the factory
+     */
+    AnnotationContainer getDetailContainer(final String link, final DetailFactory factory) {
+        if (isTrendLink(link) && !isTrendDetailsOverridden(factory)) {
+            return new JavaProject();
+        }
+        return getContainer();
+    }
+
+    private static boolean isTrendLink(final String link) {
+        return "new".equals(link) || "fixed".equals(link) || "error".equals(link)
+                || link.startsWith("tab.new") || link.startsWith("tab.fixed");
+    }
+
+    private static boolean isTrendDetailsOverridden(final DetailFactory factory) {
+        return Compatibility.isOverridden(DetailFactory.class, factory.getClass(), "createTrendDetails",
+                String.class, Run.class, AnnotationContainer.class, Collection.class, Collection.class,
+                Collection.class, String.class, String.class)
+                || Compatibility.isOverridden(DetailFactory.class, factory.getClass(), "createTrendDetails",
+                String.class, AbstractBuild.class, AnnotationContainer.class, Collection.class, Collection.class,
+                Collection.class, String.class, String.class);
+    }
+
     /**
      * Returns all possible priorities.
      *
@@ -1169,6 +1495,55 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         return getProject();
     }
 
+    /**
+     * Returns the number of warnings per author and priority. Builds that have been recorded before the statistics
+     * have been introduced get their statistics computed in the background: until then <code>null</code> is returned,
+     * i.e. graphs of these statistics are incomplete.
+     *
+     * @return the statistics, or <code>null</code> if the statistics are not available yet
+     * @since 1.93
+     */
+    @CheckForNull
+    public AuthorStatistics getAuthorStatistics() {
+        AuthorStatistics statistics = authorStatistics;
+        if (statistics == null && isAuthorStatisticsScheduled.compareAndSet(false, true)
+                && !AuthorStatistics.backfill(this)) {
+            isAuthorStatisticsScheduled.set(false);
+        }
+        return statistics;
+    }
+
+    /**
+     * Computes the number of warnings per author and priority from the persisted warnings of this result. In
+     * contrast to {@link #getAnnotations()} a failure to read the warnings is not ignored.
+     *
+     * @return the statistics
+     * @throws IOException
+     *             if the warnings could not be read
+     */
+    AuthorStatistics loadAuthorStatistics() throws IOException {
+        List<FileAnnotation> annotations = new ArrayList<FileAnnotation>();
+        if (isAggregation()) {
+            for (BuildResult run : getAggregatedResults()) {
+                annotations.addAll(Arrays.asList(run.readAnnotations(run.getBinaryDataFile(), run.getXmlDataFile())));
+            }
+        }
+        else {
+            annotations.addAll(Arrays.asList(readAnnotations(getBinaryDataFile(), getXmlDataFile())));
+        }
+        return AuthorStatistics.create(annotations);
+    }
+
+    /**
+     * Sets the number of warnings per author and priority.
+     *
+     * @param authorStatistics
+     *            the statistics
+     */
+    void setAuthorStatistics(final AuthorStatistics authorStatistics) {
+        this.authorStatistics = authorStatistics;
+    }
+
     /**
      * Gets the remote API for this build result.
      *
@@ -1178,6 +1553,79 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         return new Api(this);
     }
 
+    /**
+     * Exports the annotations of this result page by page as JSON or NDJSON. In contrast to {@link #getApi()} the
+     * annotations are streamed from the data file of the build, see {@link AnnotationExport} for the supported
+     * parameters.
+     *
+     * @param request
+     *            Stapler request
+     * @param response
+     *            Stapler response
+     * @throws IOException
+     *             if the annotations could not be read or written
+     * @since 1.93
+     */
+    public void doExport(final StaplerRequest request, final StaplerResponse response) throws IOException {
+        AnnotationExport export;
+        try {
+            export = AnnotationExport.fromRequest(request);
+        }
+        catch (IllegalArgumentException exception) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, exception.getMessage());
+            return;
+        }
+        response.setContentType(export.getContentType());
+        export.write(this, response.getWriter());
+    }
+
+    /**
+     * Passes the selected annotations of this result to the specified visitor. If the annotations are stored in
+     * binary format then they are streamed from the data file, otherwise the annotations are loaded and visited in a
+     * stable order. The annotations before the specified position are skipped without being passed to the visitor.
+     *
+     * @param selection
+     *            the annotations to visit
+     * @param first
+     *            the position of the first annotation to visit
+     * @param visitor
+     *            the visitor
+     * @throws IOException
+     *             if the annotations could not be read
+     */
+    void visitAnnotations(final AnnotationExport.Selection selection, final int first,
+            final BinaryAnnotationFile.Visitor visitor) throws IOException {
+        BinaryAnnotationFile file = getBinaryDataFile(selection);
+        if (!isAggregation() && file.exists()) {
+            file.read(first, visitor);
+        }
+        else {
+            AnnotationExport.visit(getAnnotations(selection), first, visitor);
+        }
+    }
+
+    private BinaryAnnotationFile getBinaryDataFile(final AnnotationExport.Selection selection) {
+        switch (selection) {
+            case NEW:
+                return getBinaryNewDataFile();
+            case FIXED:
+                return getBinaryFixedDataFile();
+            default:
+                return getBinaryDataFile();
+        }
+    }
+
+    private Collection<FileAnnotation> getAnnotations(final AnnotationExport.Selection selection) {
+        switch (selection) {
+            case NEW:
+                return getNewWarnings();
+            case FIXED:
+                return getFixedWarnings();
+            default:
+                return getAnnotations();
+        }
+    }
+
     /**
      * Returns whether this build is successful with respect to the
      * {@link HealthDescriptor} of this result.
@@ -1530,6 +1978,17 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return the icon for the build result
      */
     public String getResultIcon() {
+        return getResultIcon(pluginResult);
+    }
+
+    /**
+     * Returns the icon for the specified plug-in result.
+     *
+     * @param pluginResult
+     *            the result of the plug-in
+     * @return the icon as HTML image
+     */
+    static String getResultIcon(final Result pluginResult) {
         String message = "<img src=\"" + Stapler.getCurrentRequest().getContextPath() + Jenkins.RESOURCE_PATH
                 + "/images/16x16/%s\" alt=\"%s\" title=\"%s\"/>";
         if (pluginResult == Result.FAILURE) {
@@ -1,14 +1,28 @@
 package hudson.plugins.analysis.core;
 
+import javax.annotation.CheckForNull;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 
+import com.google.common.collect.Lists;
+
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import jenkins.MasterToSlaveFileCallable;
 
@@ -50,6 +64,13 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
 
     private final boolean canResolveRelativePaths;
 
+    /** The number of threads to parse the files with. @since 1.93 */
+    private int numberOfThreads = 1;
+    /** Ant file-set pattern of the workspace files to resolve relative paths with. @since 1.93 */
+    private String sourceFilePattern;
+    /** Determines whether the index of the workspace files should be persisted. @since 1.93 */
+    private boolean persistWorkspaceIndex;
+
     private FilesParser(final String filePattern, final AnnotationParser parser,
             final boolean isMavenBuild, final String moduleName) {
         this.filePattern = filePattern;
@@ -153,6 +174,68 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
                 canResolveRelativePaths);
     }
 
+    /**
+     * Applies the specified settings to this parser, i.e. the number of threads
+     * and whether the index of the workspace files should be persisted. A
+     * publisher obtains the settings with
+     * {@link HealthAwareRecorder#getParserSettings()} or
+     * {@link HealthAwareReporter#getParserSettings()}.
+     *
+     * @param settings
+     *            the settings to apply
+     * @see #setNumberOfThreads(int)
+     * @see #setPersistWorkspaceIndex(boolean)
+     * @since 1.93
+     */
+    public void setParserSettings(final ParserSettings settings) {
+        Integer parserThreads = settings.getParserThreads();
+        numberOfThreads = parserThreads == null ? 1 : parserThreads;
+        persistWorkspaceIndex = Boolean.TRUE.equals(settings.getPersistWorkspaceIndex());
+    }
+
+    /**
+     * Sets the number of threads to parse the files with. If more than one
+     * thread is used and the parser is a {@link ThreadSafeAnnotationParser},
+     * then the files are parsed in parallel. The results are merged in the
+     * order of the files so that the result is the same as when parsing the
+     * files one after another.
+     *
+     * @param numberOfThreads
+     *            the number of threads, a value less than 2 parses the files
+     *            one after another
+     * @since 1.93
+     */
+    public void setNumberOfThreads(final int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * Sets the Ant file-set pattern of the workspace files that are scanned
+     * to resolve relative paths in warnings.
+     *
+     * @param sourceFilePattern
+     *            the pattern, if blank all files of the workspace are scanned
+     * @see ParserResult#setSourceFilePattern(String)
+     * @since 1.93
+     */
+    public void setSourceFilePattern(final String sourceFilePattern) {
+        this.sourceFilePattern = sourceFilePattern;
+    }
+
+    /**
+     * Determines whether the index of the workspace files that is used to
+     * resolve relative paths and the module names of the Maven, Ant and OSGi
+     * descriptors should be persisted between builds.
+     *
+     * @param persistWorkspaceIndex
+     *            <code>true</code> if the index should be persisted
+     * @see ParserResult#setPersistWorkspaceIndex(boolean)
+     * @since 1.93
+     */
+    public void setPersistWorkspaceIndex(final boolean persistWorkspaceIndex) {
+        this.persistWorkspaceIndex = persistWorkspaceIndex;
+    }
+
     /**
      * Logs the specified message.
      *
@@ -195,6 +278,8 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
     public ParserResult invoke(final File workspace, final VirtualChannel channel)
             throws IOException {
         ParserResult result = new ParserResult(new FilePath(workspace), canResolveRelativePaths);
+        result.setSourceFilePattern(sourceFilePattern);
+        result.setPersistWorkspaceIndex(persistWorkspaceIndex);
         try {
             if (StringUtils.isBlank(filePattern)) {
                 parseSingleFile(workspace, result);
@@ -205,6 +290,8 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
         }
         catch (InterruptedException exception) {
             log("Parsing has been canceled.");
+
+            Thread.currentThread().interrupt();
         }
 
         if (stringLogger != null) {
@@ -256,37 +343,166 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
             final ParserResult result) throws InterruptedException {
         ModuleDetector detector = createModuleDetector(workspace);
 
-        for (String fileName : fileNames) {
-            File file = new File(fileName);
+        if (numberOfThreads > 1 && fileNames.length > 1 && parser instanceof ThreadSafeAnnotationParser) {
+            parseFilesInParallel(workspace, fileNames, detector, result);
+        }
+        else {
+            if (numberOfThreads > 1 && fileNames.length > 1) {
+                log("Parsing files one after another since the parser is not thread safe");
+            }
+            for (String fileName : fileNames) {
+                File file = getFile(workspace, fileName);
+                String module = getModuleName(detector, file);
+
+                String errorMessage = validate(file, module);
+                if (errorMessage == null) {
+                    parseFile(file, module, result);
+
+                    result.addModule(module);
+                }
+                else {
+                    addErrorMessage(module, errorMessage, result);
+                }
+            }
+        }
+    }
 
-            if (!file.isAbsolute()) {
-                file = new File(workspace, fileName);
+    /**
+     * Parses the specified collection of files using a pool of worker threads.
+     * Each worker hands the annotations of its file over in small batches
+     * using a bounded queue. The batches are appended to the provided
+     * container in the order of the specified file names so that the result is
+     * the same as when parsing the files one after another. Since the queues
+     * are bounded, the workers wait until the batches of the previous files
+     * have been merged, so the annotations of all files are never kept in
+     * memory.
+     *
+     * @param workspace
+     *            the workspace root
+     * @param fileNames
+     *            the names of the file to parse
+     * @param detector
+     *            the module detector
+     * @param result
+     *            the result of the parsing
+     * @throws InterruptedException
+     *             if the user cancels the parsing
+     */
+    private void parseFilesInParallel(final File workspace, final String[] fileNames,
+            final ModuleDetector detector, final ParserResult result) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numberOfThreads, fileNames.length));
+        try {
+            List<ReportFile> reports = Lists.newArrayList();
+            for (String fileName : fileNames) {
+                File file = getFile(workspace, fileName);
+                String module = getModuleName(detector, file);
+
+                String errorMessage = validate(file, module);
+                if (errorMessage == null) {
+                    BlockingQueue<Collection<FileAnnotation>> batches
+                            = new ArrayBlockingQueue<Collection<FileAnnotation>>(QueueSink.CAPACITY);
+                    Future<Void> task = executor.submit(new ParserTask(parser, file, module, batches));
+                    reports.add(new ReportFile(file, module, batches, task));
+                }
+                else {
+                    reports.add(new ReportFile(file, module, errorMessage));
+                }
             }
 
-            String module = getModuleName(detector, file);
+            for (ReportFile report : reports) {
+                if (report.hasErrorMessage()) {
+                    addErrorMessage(report.getModule(), report.getErrorMessage(), result);
+                }
+                else {
+                    mergeResult(report, result);
 
-            if (!file.canRead()) {
-                String message = Messages.FilesParser_Error_NoPermission(module, file);
-                log(message);
-                result.addErrorMessage(module, message);
-                continue;
+                    result.addModule(report.getModule());
+                }
             }
-            if (file.length() <= 0) {
-                String message = Messages.FilesParser_Error_EmptyFile(module, file);
-                log(message);
-                result.addErrorMessage(module, message);
-                continue;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Appends the batches of the specified report file to the result, as soon
+     * as the worker thread provides them.
+     *
+     * @param report
+     *            the report file
+     * @param result
+     *            the result of the parsing
+     * @throws InterruptedException
+     *             if the user cancels the parsing
+     */
+    private void mergeResult(final ReportFile report, final ParserResult result) throws InterruptedException {
+        int duplicateCount = 0;
+        Collection<FileAnnotation> batch = report.takeBatch();
+        while (batch != QueueSink.END) {
+            duplicateCount += batch.size() - result.addAnnotations(batch);
+            batch = report.takeBatch();
+        }
+        try {
+            report.waitForParser();
+
+            logParsedFile(report.getFile(), report.getModule(), duplicateCount, result);
+        }
+        catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof InvocationTargetException) {
+                addParsingError(report.getFile(), report.getModule(), (InvocationTargetException) cause, result);
+            }
+            else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            else if (cause instanceof Error) {
+                throw (Error) cause;
             }
+            else {
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
 
-            parseFile(file, module, result);
+    private File getFile(final File workspace, final String fileName) {
+        File file = new File(fileName);
 
-            result.addModule(module);
+        if (!file.isAbsolute()) {
+            file = new File(workspace, fileName);
         }
+        return file;
+    }
+
+    /**
+     * Checks whether the specified file can be parsed.
+     *
+     * @param file
+     *            the file to parse
+     * @param module
+     *            the associated module
+     * @return the error message if the file can't be parsed, <code>null</code>
+     *         otherwise
+     */
+    @CheckForNull
+    private String validate(final File file, final String module) {
+        if (!file.canRead()) {
+            return Messages.FilesParser_Error_NoPermission(module, file);
+        }
+        if (file.length() <= 0) {
+            return Messages.FilesParser_Error_EmptyFile(module, file);
+        }
+        return null;
+    }
+
+    private void addErrorMessage(final String module, final String message, final ParserResult result) {
+        log(message);
+        result.addErrorMessage(module, message);
     }
 
     private ModuleDetector createModuleDetector(final File workspace) {
         if (shouldDetectModules) {
-            return new ModuleDetector(workspace);
+            return new ModuleDetector(workspace, persistWorkspaceIndex);
         }
         else {
             return new NullModuleDetector();
@@ -320,22 +536,258 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
     private void parseFile(final File file, final String module, final ParserResult result)
             throws InterruptedException {
         try {
-            Collection<FileAnnotation> annotations = parser.parse(file, module);
-            int duplicateCount = annotations.size() - result.addAnnotations(annotations);
-            int moduleCount = StringUtils.isBlank(module) ? 0 : 1;
-
-            log("Successfully parsed file " + file + plural(moduleCount, " of module " + module) + " with "
-                    + plural(result.getNumberOfAnnotations(), "%d unique warning")
-                    + plural(duplicateCount, " and %d duplicate") + ".");
+            if (parser instanceof AbstractStreamingAnnotationParser) {
+                streamFile(file, module, result);
+            }
+            else {
+                addAnnotations(file, module, parser.parse(file, module), result);
+            }
         }
         catch (InvocationTargetException exception) {
-            String errorMessage = Messages.FilesParser_Error_Exception(file)
-                    + "\n\n"
-                    + ExceptionUtils.getStackTrace((Throwable)ObjectUtils.defaultIfNull(
-                            exception.getCause(), exception));
-            result.addErrorMessage(module, errorMessage);
+            addParsingError(file, module, exception, result);
+        }
+    }
+
+    /**
+     * Parses the specified file with a streaming parser. The annotations are
+     * added to the result in batches so that the annotations of the whole
+     * file are never kept in memory.
+     *
+     * @param file
+     *            the file to parse
+     * @param module
+     *            the associated module
+     * @param result
+     *            the result of the parser
+     * @throws InvocationTargetException
+     *             if the file could not be parsed, the annotations of the
+     *             previous batches remain in the result
+     */
+    private void streamFile(final File file, final String module, final ParserResult result)
+            throws InvocationTargetException {
+        ResultSink sink = new ResultSink(result);
+        try {
+            ((AbstractStreamingAnnotationParser)parser).parse(file, module, sink);
+        }
+        finally {
+            sink.flush();
+        }
+        logParsedFile(file, module, sink.getDuplicateCount(), result);
+    }
+
+    private void addAnnotations(final File file, final String module, final Collection<FileAnnotation> annotations,
+            final ParserResult result) {
+        int duplicateCount = annotations.size() - result.addAnnotations(annotations);
+
+        logParsedFile(file, module, duplicateCount, result);
+    }
+
+    private void logParsedFile(final File file, final String module, final int duplicateCount,
+            final ParserResult result) {
+        int moduleCount = StringUtils.isBlank(module) ? 0 : 1;
+
+        log("Successfully parsed file " + file + plural(moduleCount, " of module " + module) + " with "
+                + plural(result.getNumberOfAnnotations(), "%d unique warning")
+                + plural(duplicateCount, " and %d duplicate") + ".");
+    }
+
+    private void addParsingError(final File file, final String module, final InvocationTargetException exception,
+            final ParserResult result) {
+        String errorMessage = Messages.FilesParser_Error_Exception(file)
+                + "\n\n"
+                + ExceptionUtils.getStackTrace((Throwable)ObjectUtils.defaultIfNull(
+                        exception.getCause(), exception));
+        result.addErrorMessage(module, errorMessage);
+
+        log(errorMessage);
+    }
+
+    /**
+     * Collects the annotations of a streaming parser in batches.
+     */
+    private abstract static class BatchingSink implements AnnotationSink {
+        private static final int BATCH_SIZE = 1000;
+
+        private List<FileAnnotation> batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+
+        @Override
+        public void add(final FileAnnotation annotation) {
+            batch.add(annotation);
+            if (batch.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!batch.isEmpty()) {
+                List<FileAnnotation> full = batch;
+                batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+                addBatch(full);
+            }
+        }
+
+        /**
+         * Adds the specified batch of annotations.
+         *
+         * @param annotations
+         *            the annotations to add
+         */
+        abstract void addBatch(Collection<FileAnnotation> annotations);
+    }
+
+    /**
+     * Adds the annotations of a streaming parser in batches to the result.
+     */
+    private static class ResultSink extends BatchingSink {
+        private final ParserResult result;
+        private int duplicateCount;
+
+        ResultSink(final ParserResult result) {
+            this.result = result;
+        }
+
+        @Override
+        void addBatch(final Collection<FileAnnotation> annotations) {
+            duplicateCount += annotations.size() - result.addAnnotations(annotations);
+        }
+
+        int getDuplicateCount() {
+            return duplicateCount;
+        }
+    }
+
+    /**
+     * Hands the annotations of a parser in a worker thread over to the
+     * calling thread. The worker waits if the calling thread did not yet
+     * merge the previous batches.
+     */
+    private static class QueueSink extends BatchingSink {
+        /** The number of batches a worker can provide in advance. */
+        static final int CAPACITY = 4;
+        /** Marks that a worker has finished its file. */
+        static final Collection<FileAnnotation> END = Collections.unmodifiableList(new ArrayList<FileAnnotation>());
+
+        private final BlockingQueue<Collection<FileAnnotation>> batches;
+
+        QueueSink(final BlockingQueue<Collection<FileAnnotation>> batches) {
+            this.batches = batches;
+        }
+
+        @Override
+        void addBatch(final Collection<FileAnnotation> annotations) {
+            if (!annotations.isEmpty()) {
+                try {
+                    batches.put(annotations);
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+
+                    throw new CancellationException("Parsing has been canceled.");
+                }
+            }
+        }
+
+        /**
+         * Adds the remaining annotations and marks the end of the file.
+         */
+        void close() {
+            flush();
+            try {
+                batches.put(END);
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt(); // the calling thread does not wait anymore
+            }
+        }
+    }
+
+    /**
+     * Parses a single file in a worker thread.
+     */
+    private static class ParserTask implements Callable<Void> {
+        private final AnnotationParser parser;
+        private final File file;
+        private final String module;
+        private final BlockingQueue<Collection<FileAnnotation>> batches;
+
+        ParserTask(final AnnotationParser parser, final File file, final String module,
+                final BlockingQueue<Collection<FileAnnotation>> batches) {
+            this.parser = parser;
+            this.file = file;
+            this.module = module;
+            this.batches = batches;
+        }
+
+        @Override
+        public Void call() throws InvocationTargetException {
+            QueueSink sink = new QueueSink(batches);
+            try {
+                if (parser instanceof AbstractStreamingAnnotationParser) {
+                    ((AbstractStreamingAnnotationParser)parser).parse(file, module, sink);
+                }
+                else {
+                    sink.addBatch(parser.parse(file, module));
+                }
+            }
+            finally {
+                sink.close();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A report file that either will be parsed or that can't be parsed.
+     */
+    private static class ReportFile {
+        private final File file;
+        private final String module;
+        @CheckForNull
+        private final String errorMessage;
+        @CheckForNull
+        private final BlockingQueue<Collection<FileAnnotation>> batches;
+        @CheckForNull
+        private final Future<Void> task;
+
+        ReportFile(final File file, final String module, final BlockingQueue<Collection<FileAnnotation>> batches,
+                final Future<Void> task) {
+            this.file = file;
+            this.module = module;
+            this.batches = batches;
+            this.task = task;
+            errorMessage = null;
+        }
+
+        ReportFile(final File file, final String module, final String errorMessage) {
+            this.file = file;
+            this.module = module;
+            this.errorMessage = errorMessage;
+            batches = null;
+            task = null;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getModule() {
+            return module;
+        }
+
+        public boolean hasErrorMessage() {
+            return errorMessage != null;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        public Collection<FileAnnotation> takeBatch() throws InterruptedException {
+            return batches.take();
+        }
 
-            log(errorMessage);
+        public void waitForParser() throws InterruptedException, ExecutionException {
+            task.get();
         }
     }
 
@@ -39,17 +39,33 @@ public class GlobalSettings extends RunListener<Run<?, ?>> implements Describabl
         return findDescriptor();
     }
 
+    /**
+     * Returns the global settings of the parsers.
+     *
+     * @return the global settings of the parsers
+     * @since 1.93
+     */
+    public static ParserSettings parserInstance() {
+        return findDescriptor();
+    }
+
     /**
      * Descriptor for {@link GlobalSettings}.
      *
      * @author Ulli Hafner
      */
     @Extension
-    public static class DescriptorImpl extends Descriptor<GlobalSettings> implements Settings {
+    public static class DescriptorImpl extends Descriptor<GlobalSettings> implements Settings, ParserSettings {
         private Boolean isQuiet;
         private Boolean failOnCorrupt;
         /** @Since 1.88 */
         private Boolean noAuthors;
+        /** @Since 1.93 */
+        private Integer blameThreads;
+        /** @Since 1.93 */
+        private Integer parserThreads;
+        /** @Since 1.93 */
+        private Boolean persistWorkspaceIndex;
 
         @Override
         public String getDisplayName() {
@@ -115,6 +131,48 @@ public class GlobalSettings extends RunListener<Run<?, ?>> implements Describabl
             noAuthors = value;
         }
 
+        @Override
+        public Integer getBlameThreads() {
+            return blameThreads == null ? Integer.valueOf(1) : blameThreads;
+        }
+
+        /**
+         * Sets the number of threads that should be used to blame the files with warnings in parallel.
+         *
+         * @param value the value to set
+         */
+        public void setBlameThreads(final Integer value) {
+            blameThreads = value;
+        }
+
+        @Override
+        public Integer getParserThreads() {
+            return parserThreads == null ? Integer.valueOf(1) : parserThreads;
+        }
+
+        /**
+         * Sets the number of threads that should be used to parse report files in parallel.
+         *
+         * @param value the value to set
+         */
+        public void setParserThreads(final Integer value) {
+            parserThreads = value;
+        }
+
+        @Override
+        public Boolean getPersistWorkspaceIndex() {
+            return getValidBoolean(persistWorkspaceIndex);
+        }
+
+        /**
+         * Sets the value of the persist workspace index boolean property.
+         *
+         * @param value the value to set
+         */
+        public void setPersistWorkspaceIndex(final Boolean value) {
+            persistWorkspaceIndex = value;
+        }
+
         private Boolean getValidBoolean(final Boolean value) {
             return value == null ? Boolean.FALSE : value;
         }
@@ -127,6 +127,20 @@ public abstract class HealthAwareRecorder extends Recorder implements HealthDesc
      * @since 1.43
      */
     private boolean doNotResolveRelativePaths;
+    /**
+     * The number of threads to parse the report files with. If not set, then
+     * the value of the {@link GlobalSettings} is used.
+     *
+     * @since 1.93
+     */
+    private int parserThreads;
+    /**
+     * Ant file-set pattern of the workspace files that are scanned to resolve
+     * relative paths in warnings. If not set, then all files are scanned.
+     *
+     * @since 1.93
+     */
+    private String sourceFilePattern;
 
     private transient TaskListener listener;
 
@@ -420,6 +434,107 @@ public abstract class HealthAwareRecorder extends Recorder implements HealthDesc
         return shouldDetectModules;
     }
 
+    /**
+     * Returns the number of threads to parse the report files with. A value
+     * of 0 uses the number of threads of the {@link GlobalSettings}.
+     *
+     * @return the number of threads
+     */
+    public int getParserThreads() {
+        return parserThreads;
+    }
+
+    /**
+     * @see {@link #getParserThreads()}
+     */
+    @DataBoundSetter
+    public void setParserThreads(final int parserThreads) {
+        this.parserThreads = parserThreads;
+    }
+
+    /**
+     * Returns the actual number of threads to parse the report files with,
+     * i.e. the number of threads of this publisher or, if not set, the number
+     * of threads of the {@link GlobalSettings}.
+     *
+     * @return the number of threads, a value less than 2 parses the files one
+     *         after another
+     * @see #getParserSettings()
+     */
+    protected int getNumberOfParserThreads() {
+        if (parserThreads > 0) {
+            return parserThreads;
+        }
+        return GlobalSettings.parserInstance().getParserThreads();
+    }
+
+    /**
+     * Returns the settings that control how the report files are parsed, i.e.
+     * the {@link GlobalSettings} with the number of threads of this publisher.
+     * Concrete plug-ins pass these settings to each {@link FilesParser} they
+     * create in {@link #perform(Run, FilePath, Launcher, PluginLogger)}.
+     *
+     * @return the parser settings
+     * @see FilesParser#setParserSettings(ParserSettings)
+     * @since 1.93
+     */
+    protected ParserSettings getParserSettings() {
+        final int numberOfThreads = getNumberOfParserThreads();
+        final boolean persistWorkspaceIndex = shouldPersistWorkspaceIndex();
+        final Integer blameThreads = GlobalSettings.parserInstance().getBlameThreads();
+
+        return new ParserSettings() {
+            @Override
+            public Integer getBlameThreads() {
+                return blameThreads;
+            }
+
+            @Override
+            public Integer getParserThreads() {
+                return numberOfThreads;
+            }
+
+            @Override
+            public Boolean getPersistWorkspaceIndex() {
+                return persistWorkspaceIndex;
+            }
+        };
+    }
+
+    /**
+     * Returns the Ant file-set pattern of the workspace files that are
+     * scanned to resolve relative paths in warnings (e.g.,
+     * <code>**&#47;*.java</code>). If empty, then all files of the workspace
+     * are scanned.
+     *
+     * @return the pattern, concrete plug-ins pass it to each
+     *         {@link FilesParser} they create in
+     *         {@link #perform(Run, FilePath, Launcher, PluginLogger)}
+     * @see FilesParser#setSourceFilePattern(String)
+     */
+    public String getSourceFilePattern() {
+        return sourceFilePattern;
+    }
+
+    /**
+     * @see {@link #getSourceFilePattern()}
+     */
+    @DataBoundSetter
+    public void setSourceFilePattern(final String sourceFilePattern) {
+        this.sourceFilePattern = sourceFilePattern;
+    }
+
+    /**
+     * Returns whether the index of the workspace files should be persisted
+     * between builds, see {@link GlobalSettings}.
+     *
+     * @return <code>true</code> if the index should be persisted
+     * @see #getParserSettings()
+     */
+    protected boolean shouldPersistWorkspaceIndex() {
+        return GlobalSettings.parserInstance().getPersistWorkspaceIndex();
+    }
+
     /**
      * Returns whether this publisher can continue processing. This default
      * implementation returns <code>true</code> if the property
@@ -102,6 +102,14 @@ public abstract class HealthAwareReporter<T extends BuildResult> extends MavenRe
      * @since 1.48
      */
     private final boolean useStableBuildAsReference;
+    /**
+     * The settings of the master that control how the report files are parsed.
+     * They are received before each invocation of
+     * {@link #perform(MavenBuildProxy, MavenProject, MojoInfo, PluginLogger)}.
+     *
+     * @since 1.93
+     */
+    private transient ParserSettings parserSettings;
 
     /**
      * Creates a new instance of <code>HealthReportingMavenReporter</code>.
@@ -324,7 +332,8 @@ public abstract class HealthAwareReporter<T extends BuildResult> extends MavenRe
         }
 
         Result currentResult = getCurrentResult(build);
-        PluginLogger logger = new LoggerFactory(receiveSettingsFromMaster(build)).createLogger(listener.getLogger(), pluginName);
+        SerializableSettings settings = receiveSettingsFromMaster(build);
+        PluginLogger logger = new LoggerFactory(settings).createLogger(listener.getLogger(), pluginName);
 
         if (!canContinue(currentResult)) {
             logger.log("Skipping reporter since build result is " + currentResult);
@@ -336,6 +345,7 @@ public abstract class HealthAwareReporter<T extends BuildResult> extends MavenRe
         }
 
         ParserResult result;
+        parserSettings = settings;
         try {
             result = perform(build, pom, mojo, logger);
 
@@ -379,10 +389,10 @@ public abstract class HealthAwareReporter<T extends BuildResult> extends MavenRe
     }
 
     @SuppressWarnings("serial")
-    private Settings receiveSettingsFromMaster(final MavenBuildProxy build) throws IOException, InterruptedException {
-        return build.execute(new BuildCallable<Settings, IOException>() {
+    private SerializableSettings receiveSettingsFromMaster(final MavenBuildProxy build) throws IOException, InterruptedException {
+        return build.execute(new BuildCallable<SerializableSettings, IOException>() {
             @Override
-            public Settings call(final MavenBuild mavenBuild) throws IOException, InterruptedException {
+            public SerializableSettings call(final MavenBuild mavenBuild) throws IOException, InterruptedException {
                 return new SerializableSettings(GlobalSettings.instance());
             }});
     }
@@ -540,6 +550,20 @@ public abstract class HealthAwareReporter<T extends BuildResult> extends MavenRe
     protected abstract ParserResult perform(MavenBuildProxy build, MavenProject pom, MojoInfo mojo,
             PluginLogger logger) throws InterruptedException, IOException;
 
+    /**
+     * Returns the settings of the master that control how the report files
+     * are parsed. Concrete plug-ins pass these settings to each
+     * {@link FilesParser} they create in
+     * {@link #perform(MavenBuildProxy, MavenProject, MojoInfo, PluginLogger)}.
+     *
+     * @return the parser settings of the current build
+     * @see FilesParser#setParserSettings(ParserSettings)
+     * @since 1.93
+     */
+    protected ParserSettings getParserSettings() {
+        return parserSettings;
+    }
+
     /**
      * Creates a new {@link BuildResult} instance.
      *
@@ -1,25 +1,49 @@
 package hudson.plugins.analysis.core;
 
 import javax.annotation.CheckForNull;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+
 import hudson.plugins.analysis.util.model.FileAnnotation;
 
 /**
  * Computes old, new, and fixed issues based on two set of issues.
+ * <p>
+ * The reference issues are indexed twice: by their {@link FileAnnotation#hashCode() hash code} (exact matches) and
+ * by their {@link FileAnnotation#getContextHashCode() context hash code} (fallback matches). So the difference is
+ * computed in linear time with respect to the number of issues. The candidates of the context hash code index are
+ * kept in the iteration order of the reference issues so that the same reference is chosen as when scanning the
+ * remaining reference issues one by one.
+ * </p>
  *
  * @author Ulli Hafner
  */
 public class IssueDifference {
+    private final Set<FileAnnotation> currentIssues;
     private final Set<FileAnnotation> newIssues;
     private final Set<FileAnnotation> fixedIssues;
 
+    private final Map<FileAnnotation, FileAnnotation> referencesByEquality;
+    private final ListMultimap<Long, FileAnnotation> referencesByContext;
+
     public IssueDifference(final Set<FileAnnotation> currentIssues, final Set<FileAnnotation> referenceIssues) {
+        this.currentIssues = currentIssues;
         newIssues = new HashSet<FileAnnotation>(currentIssues);
         fixedIssues = new HashSet<FileAnnotation>(referenceIssues);
-        
-        Set<FileAnnotation> oldIssues = new HashSet<FileAnnotation>(); // TODO: do we need old issues?
+
+        referencesByEquality = Maps.newHashMapWithExpectedSize(fixedIssues.size());
+        referencesByContext = ArrayListMultimap.create();
+        for (FileAnnotation reference : fixedIssues) {
+            referencesByEquality.put(reference, reference);
+            referencesByContext.put(reference.getContextHashCode(), reference);
+        }
 
         for (FileAnnotation current : currentIssues) {
             FileAnnotation referenceToRemove = findReferenceByEquals(current);
@@ -29,41 +53,50 @@ public class IssueDifference {
             }
 
             if (referenceToRemove != null) {
-                oldIssues.add(current);
                 newIssues.remove(current);
-                fixedIssues.remove(referenceToRemove);
+                removeReference(referenceToRemove);
 
                 current.setBuild(referenceToRemove.getBuild());
             }
         }
     }
 
+    private void removeReference(final FileAnnotation reference) {
+        fixedIssues.remove(reference);
+        referencesByEquality.remove(reference);
+        referencesByContext.remove(reference.getContextHashCode(), reference);
+    }
+
     @CheckForNull
     private FileAnnotation findReferenceByContext(final FileAnnotation current) {
-        for (FileAnnotation reference : fixedIssues) {
-            if (current.getContextHashCode() == reference.getContextHashCode()) {
-                return reference;
-            }
+        List<FileAnnotation> candidates = referencesByContext.get(current.getContextHashCode());
+        if (candidates.isEmpty()) {
+            return null;
         }
-        return null;
+        return candidates.get(0);
     }
 
     @CheckForNull
     private FileAnnotation findReferenceByEquals(final FileAnnotation current) {
-        for (FileAnnotation reference : fixedIssues) {
-            if (current.equals(reference)) {
-                return reference;
-            }
-        }
-        return null;
+        return referencesByEquality.get(current);
+    }
+
+    /**
+     * Returns whether this difference has been computed for the specified issues of the current build.
+     *
+     * @param issues
+     *            the issues of the current build
+     * @return <code>true</code> if the specified issues are the same as the current issues of this difference
+     */
+    public boolean isComputedFor(final Collection<FileAnnotation> issues) {
+        return currentIssues.size() == issues.size() && currentIssues.containsAll(issues);
     }
 
     public Set<FileAnnotation> getNewIssues() {
-        return newIssues;   
+        return newIssues;
     }
 
     public Set<FileAnnotation> getFixedIssues() {
         return fixedIssues;
     }
 }
-
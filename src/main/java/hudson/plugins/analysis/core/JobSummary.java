@@ -0,0 +1,414 @@
+package hudson.plugins.analysis.core;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Summary of the last result of a job: the number of warnings per priority, the number of new and fixed warnings, and
+ * the result state. The summaries are cached for each job and project action, so that dashboard portlets and list
+ * view columns can read them without loading the builds of the jobs. The cached summaries of a job are invalidated
+ * by a {@link RunListener} as soon as a build of the job has been finalized or deleted, and are removed if the job
+ * has been deleted or renamed.
+ *
+ * @since 1.93
+ */
+public final class JobSummary {
+    /** Minimum number of summaries that are not cached yet to create them in parallel. */
+    private static final int PARALLEL_THRESHOLD = 50;
+    private static final int KEEP_ALIVE_SECONDS = 60;
+
+    /** Summary of jobs that have no results yet. */
+    private static final JobSummary NO_RESULT = new JobSummary();
+
+    /** The cached summaries, mapped by the full name of the job and the URL of the project action. */
+    private static final ConcurrentHashMap<String, Map<String, JobSummary>> CACHE
+            = new ConcurrentHashMap<String, Map<String, JobSummary>>();
+
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private final boolean hasResult;
+    private final int buildNumber;
+    private final int numberOfWarnings;
+    private final int highWarnings;
+    private final int normalWarnings;
+    private final int lowWarnings;
+    private final int newWarnings;
+    private final int fixedWarnings;
+    private final Result pluginResult;
+    private final boolean isSuccessfulTouched;
+    private final boolean isSuccessful;
+
+    private static ThreadPoolExecutor createExecutor() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "JobSummary.loader"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Returns the summary of the last result of the specified project action.
+     *
+     * @param action
+     *            the project action of the job
+     * @return the summary, see {@link #hasResult()}
+     */
+    public static JobSummary of(final AbstractProjectAction<?> action) {
+        Job<?, ?> job = action.getOwner();
+        if (job == null) {
+            return create(action);
+        }
+        Map<String, JobSummary> summaries = getSummaries(job);
+        JobSummary summary = summaries.get(action.getUrlName());
+        if (summary == null) {
+            summary = create(action);
+            summaries.put(action.getUrlName(), summary);
+        }
+        return summary;
+    }
+
+    /**
+     * Returns the summaries of the last results of the specified project actions. If many summaries are not cached
+     * yet, then these summaries are created in parallel.
+     *
+     * @param actions
+     *            the project actions of the jobs
+     * @return the summaries, in the order of the actions
+     * @throws InterruptedException
+     *             if the current thread has been interrupted while waiting for the summaries
+     */
+    public static List<JobSummary> of(final Collection<? extends AbstractProjectAction<?>> actions)
+            throws InterruptedException {
+        List<JobSummary> summaries = new ArrayList<JobSummary>(actions.size());
+        List<AbstractProjectAction<?>> missing = new ArrayList<AbstractProjectAction<?>>();
+        for (AbstractProjectAction<?> action : actions) {
+            JobSummary summary = getCached(action);
+            if (summary == null) {
+                missing.add(action);
+            }
+            summaries.add(summary);
+        }
+        if (missing.isEmpty()) {
+            return summaries;
+        }
+
+        List<JobSummary> created;
+        if (missing.size() < PARALLEL_THRESHOLD) {
+            created = new ArrayList<JobSummary>(missing.size());
+            for (AbstractProjectAction<?> action : missing) {
+                created.add(of(action));
+            }
+        }
+        else {
+            created = createInParallel(missing);
+        }
+        int next = 0;
+        for (int i = 0; i < summaries.size(); i++) {
+            if (summaries.get(i) == null) {
+                summaries.set(i, created.get(next));
+                next++;
+            }
+        }
+        return summaries;
+    }
+
+    private static List<JobSummary> createInParallel(final List<AbstractProjectAction<?>> actions)
+            throws InterruptedException {
+        final SecurityContext context = SecurityContextHolder.getContext();
+        List<Callable<JobSummary>> callables = new ArrayList<Callable<JobSummary>>(actions.size());
+        for (final AbstractProjectAction<?> action : actions) {
+            callables.add(new Callable<JobSummary>() {
+                @Override
+                public JobSummary call() {
+                    SecurityContext previous = SecurityContextHolder.getContext();
+                    SecurityContextHolder.setContext(context);
+                    try {
+                        return of(action);
+                    }
+                    finally {
+                        SecurityContextHolder.setContext(previous);
+                    }
+                }
+            });
+        }
+        List<JobSummary> created = new ArrayList<JobSummary>(actions.size());
+        for (Future<JobSummary> future : EXECUTOR.invokeAll(callables)) {
+            created.add(getSummary(future));
+        }
+        return created;
+    }
+
+    private static JobSummary getSummary(final Future<JobSummary> future) throws InterruptedException {
+        try {
+            return future.get();
+        }
+        catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @CheckForNull
+    private static JobSummary getCached(final AbstractProjectAction<?> action) {
+        Job<?, ?> job = action.getOwner();
+        if (job == null) {
+            return null;
+        }
+        Map<String, JobSummary> summaries = CACHE.get(job.getFullName());
+        if (summaries == null) {
+            return null;
+        }
+        return summaries.get(action.getUrlName());
+    }
+
+    private static Map<String, JobSummary> getSummaries(final Job<?, ?> job) {
+        String key = job.getFullName();
+        Map<String, JobSummary> summaries = CACHE.get(key);
+        if (summaries == null) {
+            summaries = new ConcurrentHashMap<String, JobSummary>();
+            Map<String, JobSummary> existing = CACHE.putIfAbsent(key, summaries);
+            if (existing != null) {
+                summaries = existing;
+            }
+        }
+        return summaries;
+    }
+
+    private static JobSummary create(final AbstractProjectAction<?> action) {
+        ResultAction<?> lastAction = action.getLastAction();
+        if (lastAction == null) {
+            return NO_RESULT;
+        }
+        BuildResult result = lastAction.getResult();
+        if (result == null) {
+            return NO_RESULT;
+        }
+        return new JobSummary(result);
+    }
+
+    /**
+     * Removes the cached summaries of the specified job.
+     *
+     * @param job
+     *            the job
+     */
+    static void invalidate(final Job<?, ?> job) {
+        CACHE.remove(job.getFullName());
+    }
+
+    /**
+     * Removes the cached summaries of the specified job and of all jobs within the specified job (if it is a
+     * folder).
+     *
+     * @param fullName
+     *            the full name of the job
+     */
+    static void removeJob(final String fullName) {
+        for (Iterator<String> iterator = CACHE.keySet().iterator(); iterator.hasNext();) {
+            String name = iterator.next();
+            if (name.equals(fullName) || name.startsWith(fullName + '/')) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private JobSummary() {
+        hasResult = false;
+        buildNumber = 0;
+        numberOfWarnings = 0;
+        highWarnings = 0;
+        normalWarnings = 0;
+        lowWarnings = 0;
+        newWarnings = 0;
+        fixedWarnings = 0;
+        pluginResult = Result.SUCCESS;
+        isSuccessfulTouched = false;
+        isSuccessful = true;
+    }
+
+    /**
+     * Creates a new instance of {@link JobSummary}.
+     *
+     * @param result
+     *            the result to summarize
+     */
+    JobSummary(final BuildResult result) {
+        hasResult = true;
+        buildNumber = result.getOwner().getNumber();
+        numberOfWarnings = result.getNumberOfAnnotations();
+        highWarnings = result.getNumberOfHighPriorityWarnings();
+        normalWarnings = result.getNumberOfNormalPriorityWarnings();
+        lowWarnings = result.getNumberOfLowPriorityWarnings();
+        newWarnings = result.getNumberOfNewWarnings();
+        fixedWarnings = result.getNumberOfFixedWarnings();
+        pluginResult = result.getPluginResult();
+        isSuccessfulTouched = result.isSuccessfulTouched();
+        isSuccessful = result.isSuccessful();
+    }
+
+    /**
+     * Returns whether the job has a result.
+     *
+     * @return <code>true</code> if the job has a result, <code>false</code> if all other properties are undefined
+     */
+    public boolean hasResult() {
+        return hasResult;
+    }
+
+    /**
+     * Returns the number of the build of the summarized result.
+     *
+     * @return the build number
+     */
+    public int getBuildNumber() {
+        return buildNumber;
+    }
+
+    /**
+     * Returns the total number of warnings.
+     *
+     * @return the number of warnings
+     */
+    public int getNumberOfAnnotations() {
+        return numberOfWarnings;
+    }
+
+    /**
+     * Returns the number of warnings with the specified priority.
+     *
+     * @param priority
+     *            the priority
+     * @return the number of warnings with the specified priority
+     */
+    public int getNumberOfAnnotations(final Priority priority) {
+        if (priority == Priority.HIGH) {
+            return highWarnings;
+        }
+        else if (priority == Priority.NORMAL) {
+            return normalWarnings;
+        }
+        else {
+            return lowWarnings;
+        }
+    }
+
+    /**
+     * Returns the number of new warnings.
+     *
+     * @return the number of new warnings
+     */
+    public int getNumberOfNewWarnings() {
+        return newWarnings;
+    }
+
+    /**
+     * Returns the number of fixed warnings.
+     *
+     * @return the number of fixed warnings
+     */
+    public int getNumberOfFixedWarnings() {
+        return fixedWarnings;
+    }
+
+    /**
+     * Returns the {@link Result} of the plug-in.
+     *
+     * @return the plug-in result
+     */
+    public Result getPluginResult() {
+        return pluginResult;
+    }
+
+    /**
+     * Returns whether the successful state has been touched.
+     *
+     * @return <code>true</code> if the successful state has been touched
+     * @see BuildResult#isSuccessfulTouched()
+     */
+    public boolean isSuccessfulTouched() {
+        return isSuccessfulTouched;
+    }
+
+    /**
+     * Returns whether the result is successful with respect to the thresholds of the job.
+     *
+     * @return <code>true</code> if the result is successful
+     * @see BuildResult#isSuccessful()
+     */
+    public boolean isSuccessful() {
+        return isSuccessful;
+    }
+
+    /**
+     * Returns the icon of the plug-in result.
+     *
+     * @return the icon as HTML image
+     * @see BuildResult#getResultIcon()
+     */
+    public String getResultIcon() {
+        return BuildResult.getResultIcon(pluginResult);
+    }
+
+    /**
+     * Invalidates the cached summaries of a job when a build of the job has been finalized or deleted. The summaries
+     * are not invalidated when the build has been completed: the build is still running at that time, so the summary
+     * of the previous build would be cached again.
+     */
+    @Extension
+    public static class Listener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onFinalized(final Run<?, ?> run) {
+            invalidate(run.getParent());
+        }
+
+        @Override
+        public void onDeleted(final Run<?, ?> run) {
+            invalidate(run.getParent());
+        }
+    }
+
+    /**
+     * Removes the cached summaries of deleted and renamed jobs.
+     */
+    @Extension
+    public static class JobListener extends ItemListener {
+        @Override
+        public void onDeleted(final Item item) {
+            removeJob(item.getFullName());
+        }
+
+        @Override
+        public void onLocationChanged(final Item item, final String oldFullName, final String newFullName) {
+            removeJob(oldFullName);
+        }
+    }
+}
@@ -7,6 +7,9 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,6 +20,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.infradna.tool.bridge_method_injector.WithBridgeMethods;
 
+import hudson.Extension;
 import hudson.FilePath;
 import hudson.maven.AggregatableAction;
 import hudson.maven.MavenAggregatedReport;
@@ -27,20 +31,35 @@ import hudson.model.AbstractBuild;
 import hudson.model.Run;
 import hudson.model.HealthReport;
 import hudson.model.Result;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
 
 import hudson.plugins.analysis.util.PluginLogger;
+import hudson.plugins.analysis.util.SourceStore;
 import hudson.plugins.analysis.util.StringPluginLogger;
 import hudson.plugins.analysis.util.ToolTipProvider;
 import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 
 /**
- * Base class for Maven aggregated build reports.
+ * Base class for Maven aggregated build reports. The warnings of the module builds are appended to a mutable
+ * aggregation as soon as a module build has been completed. The aggregated {@link BuildResult} (which computes the
+ * difference to the reference build, evaluates the status and serializes the warnings) is created in the background
+ * at most once per flush delay and at the end of the reactor build. While the build is running, readers get the
+ * result that has been created last.
  *
  * @author Ulli Hafner
  * @since 1.20
  * @param <T> type of the build result
  */
 public abstract class MavenResultAction<T extends BuildResult> implements StaplerProxy, AggregatableAction, MavenAggregatedReport, ResultAction<T> {
+    /** Delay in seconds between the completion of a module build and the creation of the aggregated result. */
+    private static final long FLUSH_DELAY = Long.getLong(MavenResultAction.class.getName() + ".flushDelay", 10L);
+
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), "MavenResultAction.flush"));
+
     /** The default encoding to be used when reading and parsing files. */
     private final String defaultEncoding;
     /** Reuse all the functionality of the action for freestyle jobs. */
@@ -50,6 +69,15 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
     private transient Set<MavenModule> modules = Sets.newHashSet();
     private final transient String pluginName;
 
+    /** The warnings, modules and errors of all aggregated module builds. */
+    private transient ParserResult aggregation;
+    /** The module results that have not been aggregated into the result of this action yet. */
+    private transient List<T> pendingResults = Lists.newArrayList();
+    /** Determines whether the aggregated result is currently created. */
+    private transient boolean isFlushing;
+    /** Determines whether the creation of the aggregated result has been scheduled. */
+    private transient boolean isFlushScheduled;
+
     /**
      * Creates a new instance of {@link MavenResultAction}.
      *
@@ -95,8 +123,9 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
     /**
      * Called whenever a new module build is completed, to update the aggregated
      * report. When multiple builds complete simultaneously, Jenkins serializes
-     * the execution of this method, so this method needs not be
-     * concurrency-safe.
+     * the execution of this method. The warnings of the new build are appended
+     * to the aggregation, the aggregated result is created later on, see
+     * {@link #flush()}.
      *
      * @param moduleBuilds
      *            Same as <tt>MavenModuleSet.getModuleBuilds()</tt> but provided
@@ -114,17 +143,101 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
 
             if (newBuild.getResult().isBetterThan(Result.FAILURE) || additionalResult.getPluginResult().isWorseOrEqualTo(Result.FAILURE)) {
                 getModules().add(project);
-                setResult(createAggregatedResult(existingResult, additionalResult));
+                append(existingResult, additionalResult);
 
                 copySourceFilesToModuleBuildFolder(newBuild);
             }
         }
     }
 
+    /**
+     * Appends the warnings, modules and errors of the specified module result to the aggregation and schedules the
+     * creation of the aggregated result.
+     *
+     * @param existingResult
+     *            the already existing result, might be <code>null</code> for the first module
+     * @param additionalResult
+     *            the result of the module build
+     */
+    synchronized void append(@CheckForNull final T existingResult, final T additionalResult) {
+        if (aggregation == null) {
+            aggregation = new ParserResult();
+            if (existingResult != null) {
+                add(aggregation, existingResult);
+            }
+        }
+        add(aggregation, additionalResult);
+        getPendingResults().add(additionalResult);
+
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (!isFlushScheduled) {
+            isFlushScheduled = true;
+            FLUSHER.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, FLUSH_DELAY, TimeUnit.SECONDS);
+        }
+    }
+
+    private List<T> getPendingResults() {
+        if (pendingResults == null) {
+            pendingResults = Lists.newArrayList();
+        }
+        return pendingResults;
+    }
+
+    private static void add(final ParserResult aggregatedAnnotations, final BuildResult result) {
+        aggregatedAnnotations.addAnnotations(result.getAnnotations());
+        aggregatedAnnotations.addModules(result.getModules());
+        aggregatedAnnotations.addErrors(result.getErrors());
+    }
+
+    /**
+     * Creates the aggregated result if there are module results that have not been aggregated yet, see
+     * {@link #createAggregatedResult(BuildResult, List, ParserResult)}.
+     *
+     * @return <code>true</code> if the aggregated result has been created, <code>false</code> if the result is
+     *         already up to date
+     */
+    synchronized boolean flush() {
+        isFlushScheduled = false;
+
+        List<T> results = getPendingResults();
+        if (isFlushing || results.isEmpty()) {
+            return false;
+        }
+        isFlushing = true;
+        try {
+            ParserResult aggregatedAnnotations = new ParserResult();
+            aggregatedAnnotations.addProject(aggregation);
+            T additionalResult = results.get(results.size() - 1);
+
+            T createdResult = createAggregatedResult(delegate.getResult(), Lists.newArrayList(results),
+                    aggregatedAnnotations);
+            if (new NullHealthDescriptor(delegate.getHealthDescriptor()).isThresholdEnabled()) {
+                createdResult.evaluateStatus(additionalResult.getThresholds(), additionalResult.canUseDeltaValues(),
+                        getLogger(), getUrlName());
+            }
+            setResult(createdResult);
+
+            results.clear();
+            return true;
+        }
+        finally {
+            isFlushing = false;
+        }
+    }
+
     private void copySourceFilesToModuleBuildFolder(final MavenBuild newBuild) {
         FilePath filePath = new FilePath(new File(newBuild.getRootDir(), AbstractAnnotation.WORKSPACE_FILES));
         try {
             filePath.copyRecursiveTo("*.tmp", new FilePath(new File(getOwner().getRootDir(), AbstractAnnotation.WORKSPACE_FILES)));
+            SourceStore.copy(newBuild.getRootDir(), getOwner().getRootDir());
         }
         catch (IOException exception) {
             Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Can't copy workspace files: ", exception);
@@ -134,11 +247,32 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
         }
     }
 
-    private T createAggregatedResult(@CheckForNull final T existingResult, final T additionalResult) {
-        T createdResult = createResult(existingResult, additionalResult);
-        if (new NullHealthDescriptor(delegate.getHealthDescriptor()).isThresholdEnabled()) {
-            createdResult.evaluateStatus(additionalResult.getThresholds(), additionalResult.canUseDeltaValues(),
-                    getLogger(), getUrlName());
+    /**
+     * Creates a new build result that contains the aggregated results of the
+     * specified module builds. This default implementation adds the module
+     * results one by one using {@link #createResult(BuildResult, BuildResult)}.
+     * Plug-ins that create their results from the warnings, modules and errors
+     * of all module builds should override this method and create the result
+     * from the provided aggregation with a single call.
+     *
+     * @param existingResult
+     *            the result that has been created last, might be
+     *            <code>null</code> if no result has been created yet
+     * @param additionalResults
+     *            the module results that have been completed since the
+     *            existing result has been created, in the order of their
+     *            completion
+     * @param aggregation
+     *            the warnings, modules and errors of the existing result and
+     *            all additional results
+     * @return the created result
+     * @since 1.93
+     */
+    protected T createAggregatedResult(@CheckForNull final T existingResult, final List<T> additionalResults,
+            final ParserResult aggregation) {
+        T createdResult = existingResult;
+        for (T additionalResult : additionalResults) {
+            createdResult = createResult(createdResult, additionalResult);
         }
         return createdResult;
     }
@@ -164,9 +298,7 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
         results.add(additionalResult);
 
         for (BuildResult result : results) {
-            aggregatedAnnotations.addAnnotations(result.getAnnotations());
-            aggregatedAnnotations.addModules(result.getModules());
-            aggregatedAnnotations.addErrors(result.getErrors());
+            add(aggregatedAnnotations, result);
         }
 
         return aggregatedAnnotations;
@@ -253,9 +385,19 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
         delegate.setResult(additionalResult);
     }
 
+    /**
+     * Returns the aggregated result that has been created last. If no result
+     * has been created yet, then the result is created now.
+     *
+     * @return the result
+     */
     @Override
     public T getResult() {
-        return delegate.getResult();
+        T result = delegate.getResult();
+        if (result == null && flush()) {
+            return delegate.getResult();
+        }
+        return result;
     }
 
     /**
@@ -266,7 +408,7 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
      * @return <code>true</code> if only stable builds should be used
      */
     public boolean useOnlyStableBuildsAsReference() {
-        return delegate.getResult().useOnlyStableBuildsAsReference();
+        return getResult().useOnlyStableBuildsAsReference();
     }
 
     /**
@@ -276,7 +418,7 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
      * @return <code>true</code> if the previous build should always be used.
      */
     public boolean usePreviousBuildAsStable() {
-        return delegate.getResult().usePreviousBuildAsStable();
+        return getResult().usePreviousBuildAsStable();
     }
 
     /**
@@ -306,6 +448,8 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
      * @return the health of this action
      */
     public final HealthReport getBuildHealth() {
+        getResult();
+
         return delegate.getBuildHealth();
     }
 
@@ -322,6 +466,8 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
 
     @Override
     public final Object getTarget() {
+        getResult();
+
         return delegate.getTarget();
     }
 
@@ -338,6 +484,8 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
 
     @Override
     public boolean isSuccessful() {
+        getResult();
+
         return delegate.isSuccessful();
     }
 
@@ -346,4 +494,29 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
         return delegate.getHealthDescriptor();
     }
     // CHECKSTYLE:ON
+
+    /**
+     * Creates the aggregated results of the Maven actions of a build that have not been created yet when the build
+     * has been completed. Builds are completed before they are finalized, so the listeners that record the results
+     * of finalized builds (e.g., {@link TrendStore} and {@link JobSummary}) see the complete results.
+     */
+    @Extension
+    public static class Listener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onCompleted(final Run<?, ?> run, final TaskListener listener) {
+            boolean isChanged = false;
+            for (MavenResultAction<?> action : run.getActions(MavenResultAction.class)) {
+                isChanged |= action.flush();
+            }
+            if (isChanged) {
+                try {
+                    run.save();
+                }
+                catch (IOException exception) {
+                    Logger.getLogger(MavenResultAction.class.getName()).log(Level.SEVERE,
+                            "Can't save aggregated results of " + run, exception);
+                }
+            }
+        }
+    }
 }
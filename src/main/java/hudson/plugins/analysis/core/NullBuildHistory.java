@@ -41,6 +41,11 @@ public class NullBuildHistory extends BuildHistory {
         return new DefaultAnnotationContainer();
     }
 
+    @Override
+    public BuildResult getReferenceResult() {
+        return null;
+    }
+
     @Override
     public AbstractBuild<?, ?> getReferenceBuild() {
         return null;
@@ -26,6 +26,8 @@ import com.infradna.tool.bridge_method_injector.WithBridgeMethods;
 import hudson.FilePath;
 import hudson.plugins.analysis.Messages;
 import hudson.plugins.analysis.util.FileFinder;
+import hudson.plugins.analysis.util.RelativePathResolver;
+import hudson.plugins.analysis.util.WorkspaceFileIndex;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.Priority;
 
@@ -67,6 +69,18 @@ public class ParserResult implements Serializable {
      * @since 1.55
      */
     private final boolean canResolveRelativePaths;
+    /**
+     * Ant file-set pattern of the workspace files that are scanned to resolve relative paths.
+     *
+     * @since 1.93
+     */
+    private String sourceFilePattern;
+    /**
+     * Determines whether the index of the workspace files should be persisted between builds.
+     *
+     * @since 1.93
+     */
+    private boolean persistWorkspaceIndex;
 
     /**
      * Creates a new instance of {@link ParserResult}.
@@ -124,6 +138,35 @@ public class ParserResult implements Serializable {
         return new FilePathAdapter(workspace);
     }
 
+    /**
+     * Sets the Ant file-set pattern of the workspace files that are scanned to resolve relative paths in warnings.
+     * Restricting the pattern to the source files speeds up the scanning of large workspaces.
+     *
+     * @param sourceFilePattern
+     *            the pattern, several patterns are separated by comma. If blank, all files of the workspace are
+     *            scanned.
+     * @since 1.93
+     */
+    public void setSourceFilePattern(final String sourceFilePattern) {
+        this.sourceFilePattern = sourceFilePattern;
+    }
+
+    /**
+     * Determines whether the index of the workspace files should be persisted in the temporary folder of the
+     * workspace. A persisted index is reused by subsequent builds as long as the workspace folders are unchanged.
+     *
+     * @param persistWorkspaceIndex
+     *            <code>true</code> if the index should be persisted
+     * @since 1.93
+     */
+    public void setPersistWorkspaceIndex(final boolean persistWorkspaceIndex) {
+        this.persistWorkspaceIndex = persistWorkspaceIndex;
+    }
+
+    private String getSourceFilePattern() {
+        return StringUtils.defaultIfBlank(sourceFilePattern, WorkspaceFileIndex.ALL_FILES);
+    }
+
     /**
      * Creates a new instance of {@link ParserResult}.
      *
@@ -147,12 +190,59 @@ public class ParserResult implements Serializable {
         addModules(additionalProject.getModules());
     }
 
+    /**
+     * Finds the files with relative filenames and replaces the names with the absolute paths. All relative file names
+     * are resolved in the workspace with a single remote call. If this call fails, then each file name is resolved
+     * on its own.
+     *
+     * @param newAnnotations the annotations
+     */
+    private void expandRelativePaths(final Collection<? extends FileAnnotation> newAnnotations) {
+        Set<String> relativeFileNames = new HashSet<String>();
+        for (FileAnnotation annotation : newAnnotations) {
+            if (hasRelativeFileName(annotation)) {
+                relativeFileNames.add(annotation.getFileName());
+            }
+        }
+        if (relativeFileNames.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<String, String> absoluteFileNames = workspace.resolveRelativePaths(relativeFileNames,
+                    canResolveRelativePaths, getSourceFilePattern(), persistWorkspaceIndex);
+            for (FileAnnotation annotation : newAnnotations) {
+                String fileName = annotation.getFileName();
+                if (absoluteFileNames.containsKey(fileName)) {
+                    String absoluteFileName = absoluteFileNames.get(fileName);
+                    if (absoluteFileName != null) {
+                        annotation.setFileName(absoluteFileName);
+                    }
+                }
+                else {
+                    expandRelativePaths(annotation);
+                }
+            }
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.FINE, "Can't resolve relative file names in a single call, resolving each file", exception);
+            for (FileAnnotation annotation : newAnnotations) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                expandRelativePaths(annotation);
+            }
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Finds a file with relative filename and replaces the name with the absolute path.
      *
      * @param annotation the annotation
      */
-    // TODO: when used on a slave then for each file a remote call is initiated
     private void expandRelativePaths(final FileAnnotation annotation) {
         try {
             if (hasRelativeFileName(annotation)) {
@@ -169,7 +259,7 @@ public class ParserResult implements Serializable {
             // ignore
         }
         catch (InterruptedException exception) {
-            // ignore
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -219,7 +309,7 @@ public class ParserResult implements Serializable {
     }
 
     String stripRelativePrefix(final String annotationFileName) {
-        return StringUtils.removePattern(annotationFileName, ".*(\\.\\.?/)+");
+        return WorkspaceFileIndex.stripRelativePrefix(annotationFileName);
     }
 
     /**
@@ -228,11 +318,10 @@ public class ParserResult implements Serializable {
      * @throws IOException          if the file could not be read
      * @throws InterruptedException if the user cancels the search
      */
-    // TODO: Maybe the file pattern should be exposed on the UI in order to speed up the scanning, see JENKINS-2927
     private void populateFileNameCache() throws IOException, InterruptedException {
         LOGGER.log(Level.FINE, "Building cache of all workspace files to obtain absolute filenames for all warnings: " + workspace.getPath());
 
-        String[] allFiles = workspace.findFiles("**/*");
+        String[] allFiles = workspace.findFiles(getSourceFilePattern());
         for (String file : allFiles) {
             fileNameCache.put(FilenameUtils.getName(file), FilenameUtils.separatorsToUnix(file));
         }
@@ -258,7 +347,10 @@ public class ParserResult implements Serializable {
      */
     @WithBridgeMethods(value = void.class) // JENKINS-25405
     public final int addAnnotation(final FileAnnotation annotation) {
-        expandRelativePaths(annotation);
+        return addAnnotations(Collections.singleton(annotation));
+    }
+
+    private int add(final FileAnnotation annotation) {
         if (annotations.add(annotation)) {
             Integer count = annotationCountByPriority.get(annotation.getPriority());
             annotationCountByPriority.put(annotation.getPriority(), count + 1);
@@ -275,9 +367,11 @@ public class ParserResult implements Serializable {
      */
     @WithBridgeMethods(value = void.class) // JENKINS-25405
     public final int addAnnotations(final Collection<? extends FileAnnotation> newAnnotations) {
+        expandRelativePaths(newAnnotations);
+
         int count = 0;
         for (FileAnnotation annotation : newAnnotations) {
-            count += addAnnotation(annotation);
+            count += add(annotation);
         }
         return count;
     }
@@ -468,6 +562,15 @@ public class ParserResult implements Serializable {
         String getPath();
 
         String[] findFiles(String pattern) throws IOException, InterruptedException;
+
+        /**
+         * Resolves the specified relative file names in this workspace. File names that are missing in the returned
+         * mapping are resolved one by one using the other methods of this facade.
+         *
+         * @since 1.93
+         */
+        Map<String, String> resolveRelativePaths(Collection<String> fileNames, boolean canScanWorkspace,
+                String pattern, boolean isPersistent) throws IOException, InterruptedException;
     }
 
     /**
@@ -506,6 +609,13 @@ public class ParserResult implements Serializable {
         public String[] findFiles(final String pattern) throws IOException, InterruptedException {
             return wrapped.act(new FileFinder(pattern));
         }
+
+        @Override
+        public Map<String, String> resolveRelativePaths(final Collection<String> fileNames,
+                final boolean canScanWorkspace, final String pattern, final boolean isPersistent)
+                throws IOException, InterruptedException {
+            return wrapped.act(new RelativePathResolver(fileNames, canScanWorkspace, pattern, isPersistent));
+        }
     }
 
     /**
@@ -533,6 +643,13 @@ public class ParserResult implements Serializable {
         public String[] findFiles(final String pattern) throws IOException, InterruptedException {
             return new String[0];
         }
+
+        @Override
+        public Map<String, String> resolveRelativePaths(final Collection<String> fileNames,
+                final boolean canScanWorkspace, final String pattern, final boolean isPersistent)
+                throws IOException, InterruptedException {
+            return Collections.emptyMap();
+        }
     }
 }
 
@@ -0,0 +1,34 @@
+package hudson.plugins.analysis.core;
+
+/**
+ * Global settings for all static code analysis plug-ins that control how the report files are parsed and how the
+ * author and commit information of the warnings is computed. These settings are not part of {@link Settings} so that
+ * existing implementations of that interface are not broken.
+ *
+ * @since 1.93
+ */
+public interface ParserSettings {
+    /**
+     * Returns the number of threads that should be used to compute the author and commit information of the files
+     * with warnings in parallel.
+     *
+     * @return the number of threads, a value less than 2 blames the files one after another
+     */
+    Integer getBlameThreads();
+
+    /**
+     * Returns the number of threads that should be used to parse report files in parallel.
+     *
+     * @return the number of threads, a value less than 2 parses the files one after another
+     */
+    Integer getParserThreads();
+
+    /**
+     * Returns whether the index of the workspace files that is used to resolve relative paths and the module names
+     * of the Maven, Ant and OSGi descriptors should be persisted in the workspace between builds.
+     *
+     * @return <code>true</code> if the index should be persisted, <code>false</code> if the index is kept in memory
+     *         only
+     */
+    Boolean getPersistWorkspaceIndex();
+}
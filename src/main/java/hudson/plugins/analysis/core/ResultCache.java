@@ -0,0 +1,572 @@
+package hudson.plugins.analysis.core;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.Run;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+
+/**
+ * Process wide cache of the warnings that have been loaded by the {@link BuildResult} instances (all warnings, new
+ * warnings and fixed warnings of a build). The cache has an explicit budget: the weight of an entry is the number of
+ * its warnings, the least recently used entries are evicted as soon as the total weight exceeds the budget. The
+ * entries of the latest build of each job and plug-in are pinned: they are never evicted until a newer build of the
+ * same job and plug-in has been loaded or completed. The latest build is the last completed build of the job, or
+ * a newer build that is still running. The pinned entries are part of the total weight, and their weight is bounded
+ * by a separate budget: entries of a latest build that would exceed this budget are not pinned. The statistics of
+ * the cache are exported by the remote API of the {@link AnalysisCorePlugin}.
+ * <p>
+ * Reading a cached value does not acquire a lock, it just records the time of the access. The entries that are not
+ * pinned are kept in a queue in the order of their last access as known when they have been queued. When evicting,
+ * an entry at the head of the queue that has been accessed since it has been queued gets a second chance and is
+ * moved to the tail of the queue, otherwise it is evicted.
+ * </p>
+ * <p>
+ * Values that are not cached are loaded only once: the first caller loads the value in its own thread, all
+ * concurrent callers for the same value wait for the same {@link Future}.
+ * </p>
+ *
+ * @since 1.93
+ */
+@ExportedBean
+public final class ResultCache {
+    /** Maximum total number of cached warnings. */
+    private static final long BUDGET = Long.getLong(ResultCache.class.getName() + ".budget", 500000L);
+    /** Maximum total number of warnings of the pinned entries. */
+    private static final long PINNED_BUDGET = Long.getLong(ResultCache.class.getName() + ".pinnedBudget", BUDGET / 2);
+
+    private static final ResultCache INSTANCE = new ResultCache(BUDGET, PINNED_BUDGET);
+
+    /**
+     * The kind of the cached warnings.
+     */
+    public enum Kind {
+        /** All warnings of a build. */
+        PROJECT,
+        /** The new warnings of a build. */
+        NEW,
+        /** The fixed warnings of a build. */
+        FIXED
+    }
+
+    private final long budget;
+    private final long pinnedBudget;
+
+    /** All entries, mapped by key. Entries are read without lock, modifications are guarded by this cache. */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    /** The entries that are not pinned, in the order of their last access when queued. Guarded by this cache. */
+    private final LinkedHashMap<String, Entry> evictionQueue = new LinkedHashMap<String, Entry>();
+    /** The keys of the pinned entries, mapped by the slot (job and plug-in). Guarded by this cache. */
+    private final Map<String, List<String>> pinnedKeys = new HashMap<String, List<String>>();
+    /** The values that are currently loaded, mapped by key. */
+    private final ConcurrentHashMap<String, Future<Object>> loading = new ConcurrentHashMap<String, Future<Object>>();
+    /** The number of the latest build, mapped by the slot (job and plug-in). Guarded by this cache. */
+    private final Map<String, Integer> latestBuilds = new HashMap<String, Integer>();
+    /** Logical clock that orders the accesses of the entries. */
+    private final AtomicLong clock = new AtomicLong();
+
+    private long footprint;
+    private long pinnedFootprint;
+    private int pinned;
+    private long evictions;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Returns the cache of this Jenkins instance.
+     *
+     * @return the cache
+     */
+    public static ResultCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a new instance of {@link ResultCache}. At most half of the budget is used by pinned entries.
+     *
+     * @param budget
+     *            the maximum total number of cached warnings
+     */
+    ResultCache(final long budget) {
+        this(budget, budget / 2);
+    }
+
+    /**
+     * Creates a new instance of {@link ResultCache}.
+     *
+     * @param budget
+     *            the maximum total number of cached warnings
+     * @param pinnedBudget
+     *            the maximum total number of warnings of the pinned entries
+     */
+    ResultCache(final long budget, final long pinnedBudget) {
+        this.budget = budget;
+        this.pinnedBudget = pinnedBudget;
+    }
+
+    /**
+     * Returns the cached warnings of the specified result.
+     *
+     * @param result
+     *            the result
+     * @param kind
+     *            the kind of the warnings
+     * @param type
+     *            the type of the cached value
+     * @param <T>
+     *            the type of the cached value
+     * @return the cached warnings, or <code>null</code> if the warnings are not cached
+     */
+    @CheckForNull
+    public <T> T get(final BuildResult result, final Kind kind, final Class<T> type) {
+        return get(getJobName(result), result.getSerializationFileName(), result.getOwner().getNumber(), kind, type);
+    }
+
+    /**
+     * Stores the warnings of the specified result.
+     *
+     * @param result
+     *            the result
+     * @param kind
+     *            the kind of the warnings
+     * @param value
+     *            the warnings
+     * @param numberOfWarnings
+     *            the number of warnings, used as weight of the entry
+     */
+    public void put(final BuildResult result, final Kind kind, final Object value, final int numberOfWarnings) {
+        put(getJobName(result), result.getSerializationFileName(), result.getOwner().getNumber(),
+                getLastCompletedBuild(result), kind, value, numberOfWarnings);
+    }
+
+    private static int getLastCompletedBuild(final BuildResult result) {
+        Run<?, ?> lastCompletedBuild = result.getOwner().getParent().getLastCompletedBuild();
+        if (lastCompletedBuild == null) {
+            return 0;
+        }
+        return lastCompletedBuild.getNumber();
+    }
+
+    /**
+     * Returns the cached warnings of the specified result. If the warnings are not cached, then they are loaded by
+     * the specified loader and stored in the cache. Concurrent calls for the same warnings wait for the same load.
+     *
+     * @param result
+     *            the result
+     * @param kind
+     *            the kind of the warnings
+     * @param type
+     *            the type of the cached value
+     * @param loader
+     *            loads the warnings if they are not cached, the value is stored in this cache by the loader
+     * @param <T>
+     *            the type of the cached value
+     * @return the cached or loaded warnings
+     * @throws IllegalStateException
+     *             if the current thread has been interrupted while waiting for the load of another thread, the
+     *             interrupt flag of the thread is set in this case
+     */
+    public <T> T get(final BuildResult result, final Kind kind, final Class<T> type, final Callable<T> loader) {
+        return get(getJobName(result), result.getSerializationFileName(), result.getOwner().getNumber(), kind, type,
+                loader);
+    }
+
+    private static String getJobName(final BuildResult result) {
+        return result.getOwner().getParent().getFullName();
+    }
+
+    @CheckForNull
+    <T> T get(final String jobName, final String fileName, final int buildNumber, final Kind kind,
+            final Class<T> type) {
+        T value = lookup(createKey(createSlot(jobName, fileName), buildNumber, kind), type);
+        if (value == null) {
+            misses.incrementAndGet();
+        }
+        else {
+            hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    <T> T get(final String jobName, final String fileName, final int buildNumber, final Kind kind,
+            final Class<T> type, final Callable<T> loader) {
+        T cached = get(jobName, fileName, buildNumber, kind, type);
+        if (cached != null) {
+            return cached;
+        }
+
+        final String key = createKey(createSlot(jobName, fileName), buildNumber, kind);
+        FutureTask<Object> task = new FutureTask<Object>(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                try {
+                    T value = lookup(key, type);
+                    if (value == null) {
+                        return loader.call();
+                    }
+                    return value;
+                }
+                finally {
+                    loading.remove(key);
+                }
+            }
+        });
+        Future<Object> future = loading.putIfAbsent(key, task);
+        if (future == null) {
+            task.run(); // the caller that wins the race loads the value, all others wait
+            future = task;
+        }
+        return type.cast(waitFor(future));
+    }
+
+    private static Object waitFor(final Future<Object> future) {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the warnings", exception);
+        }
+        catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @CheckForNull
+    private <T> T lookup(final String key, final Class<T> type) {
+        Entry entry = entries.get(key);
+        if (entry == null || !type.isInstance(entry.value)) {
+            return null;
+        }
+        entry.lastAccess = clock.incrementAndGet();
+        return type.cast(entry.value);
+    }
+
+    void put(final String jobName, final String fileName, final int buildNumber, final Kind kind,
+            final Object value, final int numberOfWarnings) {
+        put(jobName, fileName, buildNumber, 0, kind, value, numberOfWarnings);
+    }
+
+    synchronized void put(final String jobName, final String fileName, final int buildNumber,
+            final int lastCompletedBuild, final Kind kind, final Object value, final int numberOfWarnings) {
+        String slot = createSlot(jobName, fileName);
+        String key = createKey(slot, buildNumber, kind);
+        remove(key);
+
+        Entry entry = new Entry(jobName, slot, buildNumber, value, Math.max(1, numberOfWarnings));
+        entry.lastAccess = clock.incrementAndGet();
+
+        Integer known = latestBuilds.get(slot);
+        int latest = Math.max(buildNumber, lastCompletedBuild);
+        if (known != null) {
+            latest = Math.max(latest, known);
+        }
+        if (known == null || latest > known) {
+            latestBuilds.put(slot, latest);
+            unpin(slot);
+        }
+        entry.isPinned = buildNumber == latest && pinnedFootprint + entry.weight <= pinnedBudget;
+        add(key, entry);
+        evict();
+    }
+
+    /**
+     * Makes the pinned entries of the specified slot evictable.
+     */
+    private void unpin(final String slot) {
+        List<String> keys = pinnedKeys.remove(slot);
+        if (keys != null) {
+            for (String key : keys) {
+                Entry entry = entries.get(key);
+                entry.isPinned = false;
+                pinned--;
+                pinnedFootprint -= entry.weight;
+                enqueue(key, entry);
+            }
+        }
+    }
+
+    private void enqueue(final String key, final Entry entry) {
+        entry.queuedAccess = entry.lastAccess;
+        evictionQueue.put(key, entry);
+    }
+
+    /**
+     * Evicts the least recently used entries until the footprint is within the budget. Each entry in the queue gets
+     * at most one second chance per eviction, so this method terminates even if the entries are accessed
+     * concurrently.
+     */
+    private void evict() {
+        int secondChances = evictionQueue.size();
+        while (footprint > budget && !evictionQueue.isEmpty()) {
+            String key = evictionQueue.keySet().iterator().next();
+            Entry entry = evictionQueue.get(key);
+            if (entry.lastAccess != entry.queuedAccess && secondChances > 0) {
+                secondChances--;
+                evictionQueue.remove(key);
+                enqueue(key, entry);
+            }
+            else {
+                remove(key);
+                evictions++;
+            }
+        }
+    }
+
+    private void add(final String key, final Entry entry) {
+        entries.put(key, entry);
+        footprint += entry.weight;
+        if (entry.isPinned) {
+            pinned++;
+            pinnedFootprint += entry.weight;
+            List<String> keys = pinnedKeys.get(entry.slot);
+            if (keys == null) {
+                keys = new ArrayList<String>(Kind.values().length);
+                pinnedKeys.put(entry.slot, keys);
+            }
+            keys.add(key);
+        }
+        else {
+            enqueue(key, entry);
+        }
+    }
+
+    private void remove(final String key) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            footprint -= previous.weight;
+            if (previous.isPinned) {
+                pinned--;
+                pinnedFootprint -= previous.weight;
+                List<String> keys = pinnedKeys.get(previous.slot);
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    pinnedKeys.remove(previous.slot);
+                }
+            }
+            else {
+                evictionQueue.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes all entries of the specified build. If the build is the latest build of a job and plug-in, then the
+     * latest build is determined again when the next entry of this job and plug-in is stored.
+     *
+     * @param jobName
+     *            the full name of the job
+     * @param buildNumber
+     *            the number of the build
+     */
+    synchronized void remove(final String jobName, final int buildNumber) {
+        for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+            Entry entry = candidate.getValue();
+            if (entry.buildNumber == buildNumber && entry.jobName.equals(jobName)) {
+                remove(candidate.getKey());
+            }
+        }
+        for (Iterator<Map.Entry<String, Integer>> iterator = latestBuilds.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry<String, Integer> latest = iterator.next();
+            String slot = latest.getKey();
+            if (latest.getValue() == buildNumber && slot.substring(0, slot.lastIndexOf('/')).equals(jobName)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries and latest builds of the specified job and of all jobs within the specified job (if it is
+     * a folder).
+     *
+     * @param jobName
+     *            the full name of the job
+     */
+    synchronized void removeJob(final String jobName) {
+        String prefix = jobName + '/';
+        for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+            if (candidate.getValue().slot.startsWith(prefix)) {
+                remove(candidate.getKey());
+            }
+        }
+        for (Iterator<String> iterator = latestBuilds.keySet().iterator(); iterator.hasNext();) {
+            if (iterator.next().startsWith(prefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static String createSlot(final String jobName, final String fileName) {
+        return jobName + '/' + fileName;
+    }
+
+    private static String createKey(final String slot, final int buildNumber, final Kind kind) {
+        return slot + '#' + buildNumber + '#' + kind;
+    }
+
+    /**
+     * Returns the maximum total number of cached warnings.
+     *
+     * @return the budget
+     */
+    @Exported
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns the total number of cached warnings.
+     *
+     * @return the footprint
+     */
+    @Exported
+    public synchronized long getFootprint() {
+        return footprint;
+    }
+
+    /**
+     * Returns the number of cached entries.
+     *
+     * @return the number of entries
+     */
+    @Exported
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of entries of latest builds that are pinned.
+     *
+     * @return the number of pinned entries
+     */
+    @Exported
+    public synchronized int getPinned() {
+        return pinned;
+    }
+
+    /**
+     * Returns the total number of warnings of the pinned entries.
+     *
+     * @return the footprint of the pinned entries
+     */
+    @Exported
+    public synchronized long getPinnedFootprint() {
+        return pinnedFootprint;
+    }
+
+    /**
+     * Returns the maximum total number of warnings of the pinned entries.
+     *
+     * @return the budget of the pinned entries
+     */
+    @Exported
+    public long getPinnedBudget() {
+        return pinnedBudget;
+    }
+
+    /**
+     * Returns the number of cache hits.
+     *
+     * @return the number of hits
+     */
+    @Exported
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of cache misses.
+     *
+     * @return the number of misses
+     */
+    @Exported
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of evicted entries.
+     *
+     * @return the number of evictions
+     */
+    @Exported
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * A cached value.
+     */
+    private static final class Entry {
+        private final String jobName;
+        private final String slot;
+        private final int buildNumber;
+        private final Object value;
+        private final int weight;
+        /** The time of the last access, see {@link ResultCache#clock}. */
+        private volatile long lastAccess;
+        /** The time of the last access when this entry has been queued for eviction, guarded by the cache. */
+        private long queuedAccess;
+        /** Determines whether this entry belongs to a latest build, guarded by the cache. */
+        private boolean isPinned;
+
+        Entry(final String jobName, final String slot, final int buildNumber, final Object value, final int weight) {
+            this.jobName = jobName;
+            this.slot = slot;
+            this.buildNumber = buildNumber;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Removes the cached warnings of a build when the build has been deleted.
+     */
+    @Extension
+    public static class Listener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(final Run<?, ?> run) {
+            getInstance().remove(run.getParent().getFullName(), run.getNumber());
+        }
+    }
+
+    /**
+     * Removes the cached warnings of deleted and renamed jobs.
+     */
+    @Extension
+    public static class JobListener extends ItemListener {
+        @Override
+        public void onDeleted(final Item item) {
+            getInstance().removeJob(item.getFullName());
+        }
+
+        @Override
+        public void onLocationChanged(final Item item, final String oldFullName, final String newFullName) {
+            getInstance().removeJob(oldFullName);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package hudson.plugins.analysis.core;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import hudson.matrix.Combination;
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixRun;
+import hudson.model.Run;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Aggregation of the results of the runs of a matrix build that does not contain any warnings. Only the number of
+ * warnings, the number of new and fixed warnings, the modules and references to the runs are aggregated. A
+ * {@link BuildResult} that is created for such an aggregation loads its warnings on demand from the results of the
+ * referenced runs.
+ * <p>
+ * The new and fixed warnings of the aggregation are the sums of the new and fixed warnings of the runs, i.e. each
+ * run is compared with the previous build of its configuration rather than the whole aggregation with the reference
+ * build of the matrix build. See {@link AnnotationsAggregator#isCountOnly()} for the runs that are aggregated.
+ * </p>
+ *
+ * @see AnnotationsAggregator#isCountOnly()
+ * @since 1.93
+ */
+public class RunAggregation extends ParserResult {
+    private static final long serialVersionUID = -8318929932358411212L;
+
+    /** Number of warnings per priority, in the order of {@link Priority#ordinal()}. */
+    private final int[] countsByPriority = new int[Priority.values().length];
+    private int numberOfNewWarnings;
+    private int numberOfFixedWarnings;
+    /** The combinations of the aggregated runs. */
+    private final List<String> runs = Lists.newArrayList();
+
+    /**
+     * Adds the counters and modules of the specified result of a matrix run. Like the aggregation of the warnings of
+     * the runs, the errors of the runs are not aggregated.
+     *
+     * @param combination
+     *            the combination of the run
+     * @param result
+     *            the result of the run
+     */
+    public void add(final String combination, final BuildResult result) {
+        countsByPriority[Priority.HIGH.ordinal()] += result.getNumberOfHighPriorityWarnings();
+        countsByPriority[Priority.NORMAL.ordinal()] += result.getNumberOfNormalPriorityWarnings();
+        countsByPriority[Priority.LOW.ordinal()] += result.getNumberOfLowPriorityWarnings();
+        numberOfNewWarnings += result.getNumberOfNewWarnings();
+        numberOfFixedWarnings += result.getNumberOfFixedWarnings();
+        addModules(result.getModules());
+        runs.add(combination);
+    }
+
+    /**
+     * Returns the combinations of the aggregated runs.
+     *
+     * @return the combinations
+     */
+    public List<String> getRuns() {
+        return Collections.unmodifiableList(runs);
+    }
+
+    /**
+     * Returns the total number of new warnings of the aggregated runs with respect to the reference builds of the
+     * runs.
+     *
+     * @return the number of new warnings
+     */
+    public int getNumberOfNewWarnings() {
+        return numberOfNewWarnings;
+    }
+
+    /**
+     * Returns the total number of fixed warnings of the aggregated runs with respect to the reference builds of the
+     * runs.
+     *
+     * @return the number of fixed warnings
+     */
+    public int getNumberOfFixedWarnings() {
+        return numberOfFixedWarnings;
+    }
+
+    @Override
+    public int getNumberOfAnnotations() {
+        int sum = 0;
+        for (int count : countsByPriority) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    @Override
+    public int getNumberOfAnnotations(final Priority priority) {
+        return countsByPriority[priority.ordinal()];
+    }
+
+    @Override
+    public boolean hasAnnotations() {
+        return getNumberOfAnnotations() > 0;
+    }
+
+    @Override
+    public boolean hasAnnotations(final Priority priority) {
+        return getNumberOfAnnotations(priority) > 0;
+    }
+
+    /**
+     * Returns the results of the specified runs of a matrix build.
+     *
+     * @param owner
+     *            the matrix build
+     * @param combinations
+     *            the combinations of the runs
+     * @param type
+     *            the type of the result action of the runs
+     * @return the results of the runs that still exist
+     */
+    static List<BuildResult> getResults(final Run<?, ?> owner, final Collection<String> combinations,
+            final Class<? extends ResultAction<? extends BuildResult>> type) {
+        List<BuildResult> results = Lists.newArrayList();
+        if (owner instanceof MatrixBuild) {
+            for (String combination : combinations) {
+                MatrixRun run = ((MatrixBuild) owner).getRun(Combination.fromString(combination));
+                if (run != null) {
+                    ResultAction<? extends BuildResult> action = run.getAction(type);
+                    if (action != null) {
+                        results.add(action.getResult());
+                    }
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -7,24 +7,41 @@ import java.io.Serializable;
  *
  * @author Ulli Hafner
  */
-public class SerializableSettings implements Settings, Serializable {
+public class SerializableSettings implements Settings, ParserSettings, Serializable {
     private static final long serialVersionUID = 2078877884081589761L;
 
     private final boolean failOnCorrupt;
     private final boolean quietMode;
     /** @Since 1.88 */
     private final Boolean noAuthors;
+    /** @Since 1.93 */
+    private final Integer blameThreads;
+    /** @Since 1.93 */
+    private final Integer parserThreads;
+    /** @Since 1.93 */
+    private final Boolean persistWorkspaceIndex;
 
     /**
      * Creates a new instance of {@link SerializableSettings}.
      *
      * @param original
-     *            the original settings
+     *            the original settings, the parser settings are copied if the original settings provide them as well
      */
     public SerializableSettings(final Settings original) {
         failOnCorrupt = original.getFailOnCorrupt();
         quietMode = original.getQuietMode();
         noAuthors = original.getNoAuthors();
+        if (original instanceof ParserSettings) {
+            ParserSettings parserSettings = (ParserSettings)original;
+            blameThreads = parserSettings.getBlameThreads();
+            parserThreads = parserSettings.getParserThreads();
+            persistWorkspaceIndex = parserSettings.getPersistWorkspaceIndex();
+        }
+        else {
+            blameThreads = 1;
+            parserThreads = 1;
+            persistWorkspaceIndex = false;
+        }
     }
 
     @Override
@@ -41,5 +58,19 @@ public class SerializableSettings implements Settings, Serializable {
     public Boolean getNoAuthors() {
         return noAuthors;
     }
-}
 
+    @Override
+    public Integer getBlameThreads() {
+        return blameThreads;
+    }
+
+    @Override
+    public Integer getParserThreads() {
+        return parserThreads;
+    }
+
+    @Override
+    public Boolean getPersistWorkspaceIndex() {
+        return persistWorkspaceIndex;
+    }
+}
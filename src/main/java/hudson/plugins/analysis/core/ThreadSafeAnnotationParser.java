@@ -0,0 +1,12 @@
+package hudson.plugins.analysis.core;
+
+/**
+ * Marks an {@link AnnotationParser} that can parse several files at the same time. {@link FilesParser} parses the
+ * report files in parallel only if the parser implements this interface; all other parsers parse the files one after
+ * another, even if more than one thread has been configured in the {@link ParserSettings}.
+ *
+ * @since 1.93
+ */
+public interface ThreadSafeAnnotationParser extends AnnotationParser {
+    // empty
+}
@@ -0,0 +1,532 @@
+package hudson.plugins.analysis.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Persistent store of the trend of a job: contains the warning counters of each build (number of warnings per
+ * priority, number of new and fixed warnings, and the delta to the previous build). The trend graphs read these
+ * counters instead of walking through the chain of {@link BuildResult} instances, which would require loading all
+ * builds of the job.
+ * <p>
+ * The store is an append-only binary file with fixed size records in the root folder of the job, one file per
+ * plug-in. A record is appended when a build has been finalized, i.e. after all results of the build (e.g., the
+ * aggregated results of Maven modules) have been completed. If a build is deleted then a tombstone record is
+ * appended. If a record for a build number occurs multiple times then the last record wins. The history of existing
+ * jobs is added on demand: when the trend of a build is requested that is not yet part of the store then the missing
+ * builds are collected by walking back the chain of previous results until a build is found that is already part of
+ * the store.
+ *
+ * @since 1.93
+ */
+public final class TrendStore {
+    private static final Logger LOGGER = Logger.getLogger(TrendStore.class.getName());
+
+    /** Suffix of the trend store files. */
+    static final String SUFFIX = "-trend.bin";
+    private static final int MAGIC = 0x54524E44; // TRND
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 36;
+
+    /** The stores of each job, mapped by the full name of the job and the name of the file. */
+    private static final Map<String, Map<String, TrendStore>> STORES = new HashMap<String, Map<String, TrendStore>>();
+
+    private final File file;
+    /** The records of this store, mapped by build number. Loaded on demand. */
+    private SoftReference<NavigableMap<Integer, Record>> records = new SoftReference<NavigableMap<Integer, Record>>(null);
+    /** Length of the file when the records have been loaded. */
+    private long loadedLength = -1;
+
+    /**
+     * Returns the trend store of the job and plug-in of the specified result.
+     *
+     * @param result
+     *            the result
+     * @return the trend store
+     */
+    public static TrendStore of(final BuildResult result) {
+        Job<?, ?> job = result.getOwner().getParent();
+        String fileName = StringUtils.removeEnd(result.getSerializationFileName(), ".xml") + SUFFIX;
+        File file = new File(job.getRootDir(), fileName);
+        synchronized (STORES) {
+            Map<String, TrendStore> stores = STORES.get(job.getFullName());
+            if (stores == null) {
+                stores = new HashMap<String, TrendStore>();
+                STORES.put(job.getFullName(), stores);
+            }
+            TrendStore store = stores.get(fileName);
+            if (store == null || !store.getFile().equals(file)) {
+                store = new TrendStore(file);
+                stores.put(fileName, store);
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Removes the stores of the specified job and of all jobs within the specified job (if it is a folder) from
+     * memory. The files of the stores are not touched.
+     *
+     * @param fullName
+     *            the full name of the job
+     */
+    static void removeJob(final String fullName) {
+        synchronized (STORES) {
+            for (Iterator<String> iterator = STORES.keySet().iterator(); iterator.hasNext();) {
+                String name = iterator.next();
+                if (name.equals(fullName) || name.startsWith(fullName + '/')) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of jobs with stores in memory.
+     *
+     * @return the number of jobs
+     */
+    static int size() {
+        synchronized (STORES) {
+            return STORES.size();
+        }
+    }
+
+    /**
+     * Creates a new instance of {@link TrendStore}.
+     *
+     * @param file
+     *            the file that persists the records
+     */
+    TrendStore(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the file of this store.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the trend up to the build of the specified result. Builds of the history that are not yet part of this
+     * store are added before. If the build is still running, then its counters are part of the returned trend but
+     * are not stored yet.
+     *
+     * @param last
+     *            the result of the last build of the trend
+     * @return the records of the builds of the trend, starting with the specified build, followed by the previous
+     *         builds in descending order
+     */
+    public synchronized List<Record> getTrend(final BuildResult last) {
+        Run<?, ?> owner = last.getOwner();
+        NavigableMap<Integer, Record> available;
+        Record current = null;
+        if (owner.isBuilding()) {
+            current = new Record(last);
+            available = backfill(last.hasPreviousResult() ? last.getPreviousResult() : null);
+        }
+        else {
+            available = backfill(last);
+        }
+
+        List<Record> trend = new ArrayList<Record>();
+        if (current != null) {
+            trend.add(current);
+        }
+        trend.addAll(available.headMap(owner.getNumber(), current == null).descendingMap().values());
+        return trend;
+    }
+
+    /**
+     * Stores the counters of the specified result. If the previous builds are not yet part of this store, then their
+     * counters are stored as well.
+     *
+     * @param result
+     *            the result to store
+     */
+    public synchronized void add(final BuildResult result) {
+        List<Record> added = new ArrayList<Record>();
+        added.add(new Record(result));
+        if (result.hasPreviousResult()) {
+            collectMissing(read(), result.getPreviousResult(), added);
+        }
+        append(added);
+    }
+
+    /**
+     * Removes the counters of the specified build.
+     *
+     * @param number
+     *            the number of the build
+     */
+    public synchronized void remove(final int number) {
+        if (read().containsKey(number)) {
+            append(Collections.singletonList(Record.deleted(number)));
+        }
+    }
+
+    /**
+     * Adds the counters of all builds of the history of the specified result that are not yet part of this store.
+     *
+     * @param last
+     *            the result to start with, might be <code>null</code>
+     * @return all records of this store
+     */
+    public synchronized NavigableMap<Integer, Record> backfill(final BuildResult last) {
+        NavigableMap<Integer, Record> available = read();
+        List<Record> missing = new ArrayList<Record>();
+        collectMissing(available, last, missing);
+        if (missing.isEmpty()) {
+            return available;
+        }
+        LOGGER.log(Level.FINE, "Adding " + missing.size() + " builds to trend " + file);
+        append(missing);
+        return read();
+    }
+
+    private void collectMissing(final Map<Integer, Record> available, final BuildResult last,
+            final List<Record> missing) {
+        BuildResult current = last;
+        while (current != null && !current.getOwner().isBuilding()
+                && !available.containsKey(current.getOwner().getNumber())) {
+            missing.add(new Record(current));
+            if (current.hasPreviousResult()) {
+                current = current.getPreviousResult(); // might be null, see JENKINS-6613
+            }
+            else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Appends the specified records to the file of this store, the records are written in ascending order of their
+     * build numbers.
+     */
+    private void append(final List<Record> added) {
+        List<Record> sorted = new ArrayList<Record>(added);
+        Collections.reverse(sorted);
+
+        DataOutputStream output = null;
+        try {
+            boolean isNew = !file.exists() || file.length() < HEADER_SIZE;
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, !isNew)));
+            if (isNew) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+            }
+            for (Record record : sorted) {
+                record.write(output);
+            }
+            output.close();
+
+            NavigableMap<Integer, Record> loaded = records.get();
+            if (loaded != null && !isNew && file.length() == loadedLength + sorted.size() * RECORD_SIZE) {
+                for (Record record : sorted) {
+                    record.mergeInto(loaded);
+                }
+                loadedLength = file.length();
+            }
+            else {
+                records = new SoftReference<NavigableMap<Integer, Record>>(null);
+            }
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't write trend " + file, exception);
+        }
+        finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
+    /**
+     * Returns the records of this store, the file is read only if it has been changed since the last call.
+     */
+    private NavigableMap<Integer, Record> read() {
+        NavigableMap<Integer, Record> loaded = records.get();
+        if (loaded != null && file.length() == loadedLength) {
+            return loaded;
+        }
+
+        loaded = new TreeMap<Integer, Record>();
+        loadedLength = 0;
+        if (file.exists()) {
+            DataInputStream input = null;
+            try {
+                input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                    throw new IOException("Unsupported format of trend " + file);
+                }
+                long length = file.length();
+                int count = (int)((length - HEADER_SIZE) / RECORD_SIZE); // ignore partially written records
+                for (int i = 0; i < count; i++) {
+                    Record.read(input).mergeInto(loaded);
+                }
+                loadedLength = length;
+            }
+            catch (EOFException exception) {
+                LOGGER.log(Level.WARNING, "Trend " + file + " is truncated, it will be created again.");
+                deleteFile();
+                loaded.clear();
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't read trend " + file + ", it will be created again.", exception);
+                deleteFile();
+                loaded.clear();
+            }
+            finally {
+                IOUtils.closeQuietly(input);
+            }
+        }
+        records = new SoftReference<NavigableMap<Integer, Record>>(loaded);
+        return loaded;
+    }
+
+    private void deleteFile() {
+        if (!file.delete()) {
+            LOGGER.log(Level.WARNING, "Can't delete trend " + file);
+        }
+        loadedLength = 0;
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+    /**
+     * The counters of a single build.
+     */
+    public static final class Record {
+        private final int number;
+        private final long timestamp;
+        private final int highWarnings;
+        private final int normalWarnings;
+        private final int lowWarnings;
+        private final int newWarnings;
+        private final int fixedWarnings;
+        private final int delta;
+
+        /**
+         * Creates a new instance of {@link Record} with the counters of the specified result.
+         *
+         * @param result
+         *            the result
+         */
+        public Record(final BuildResult result) {
+            this(result.getOwner().getNumber(), result.getOwner().getTimeInMillis(),
+                    result.getNumberOfAnnotations(Priority.HIGH), result.getNumberOfAnnotations(Priority.NORMAL),
+                    result.getNumberOfAnnotations(Priority.LOW), result.getNumberOfNewWarnings(),
+                    result.getNumberOfFixedWarnings(), result.getDelta());
+        }
+
+        // CHECKSTYLE:OFF
+        Record(final int number, final long timestamp, final int highWarnings, final int normalWarnings,
+                final int lowWarnings, final int newWarnings, final int fixedWarnings, final int delta) {
+            this.number = number;
+            this.timestamp = timestamp;
+            this.highWarnings = highWarnings;
+            this.normalWarnings = normalWarnings;
+            this.lowWarnings = lowWarnings;
+            this.newWarnings = newWarnings;
+            this.fixedWarnings = fixedWarnings;
+            this.delta = delta;
+        }
+        // CHECKSTYLE:ON
+
+        private static Record deleted(final int number) {
+            return new Record(-number, 0, 0, 0, 0, 0, 0, 0);
+        }
+
+        private static Record read(final DataInputStream input) throws IOException {
+            return new Record(input.readInt(), input.readLong(), input.readInt(), input.readInt(), input.readInt(),
+                    input.readInt(), input.readInt(), input.readInt());
+        }
+
+        private void write(final DataOutputStream output) throws IOException {
+            output.writeInt(number);
+            output.writeLong(timestamp);
+            output.writeInt(highWarnings);
+            output.writeInt(normalWarnings);
+            output.writeInt(lowWarnings);
+            output.writeInt(newWarnings);
+            output.writeInt(fixedWarnings);
+            output.writeInt(delta);
+        }
+
+        /**
+         * Adds this record to the specified records, or removes the corresponding record if this record is a tombstone.
+         */
+        private void mergeInto(final Map<Integer, Record> records) {
+            if (number < 0) {
+                records.remove(-number);
+            }
+            else {
+                records.put(number, this);
+            }
+        }
+
+        /**
+         * Returns the build number.
+         *
+         * @return the build number
+         */
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * Returns the start time of the build in milliseconds.
+         *
+         * @return the time stamp of the build
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Returns the total number of warnings.
+         *
+         * @return the number of warnings
+         */
+        public int getNumberOfWarnings() {
+            return highWarnings + normalWarnings + lowWarnings;
+        }
+
+        /**
+         * Returns the number of warnings of the specified priority.
+         *
+         * @param priority
+         *            the priority
+         * @return the number of warnings of the specified priority
+         */
+        public int getNumberOfAnnotations(final Priority priority) {
+            if (priority == Priority.HIGH) {
+                return highWarnings;
+            }
+            else if (priority == Priority.NORMAL) {
+                return normalWarnings;
+            }
+            else {
+                return lowWarnings;
+            }
+        }
+
+        /**
+         * Returns the number of new warnings.
+         *
+         * @return the number of new warnings
+         */
+        public int getNumberOfNewWarnings() {
+            return newWarnings;
+        }
+
+        /**
+         * Returns the number of fixed warnings.
+         *
+         * @return the number of fixed warnings
+         */
+        public int getNumberOfFixedWarnings() {
+            return fixedWarnings;
+        }
+
+        /**
+         * Returns the delta to the previous build.
+         *
+         * @return the delta
+         */
+        public int getDelta() {
+            return delta;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d: %d warnings (%d new, %d fixed)", number, getNumberOfWarnings(),
+                    newWarnings, fixedWarnings);
+        }
+    }
+
+    /**
+     * Updates the trend stores of all results of a build when the build has been finalized or deleted. The counters
+     * are not stored when the build has been completed, since other listeners might still change the results (e.g.,
+     * the aggregation of the Maven modules).
+     */
+    @Extension
+    public static class Listener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onFinalized(final Run<?, ?> run) {
+            for (BuildResult result : getResults(run)) {
+                of(result).add(result);
+            }
+        }
+
+        @Override
+        public void onDeleted(final Run<?, ?> run) {
+            for (BuildResult result : getResults(run)) {
+                of(result).remove(run.getNumber());
+            }
+        }
+
+        @SuppressWarnings("rawtypes")
+        private List<BuildResult> getResults(final Run<?, ?> run) {
+            List<BuildResult> results = new ArrayList<BuildResult>();
+            for (ResultAction action : run.getActions(ResultAction.class)) {
+                BuildResult result = action.getResult();
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Removes the stores of deleted and renamed jobs from memory.
+     */
+    @Extension
+    public static class JobListener extends ItemListener {
+        @Override
+        public void onDeleted(final Item item) {
+            removeJob(item.getFullName());
+        }
+
+        @Override
+        public void onLocationChanged(final Item item, final String oldFullName, final String newFullName) {
+            removeJob(oldFullName);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package hudson.plugins.analysis.dashboard;
 
 import javax.annotation.CheckForNull;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
@@ -10,11 +11,13 @@ import com.google.common.collect.Lists;
 
 import hudson.model.Job;
 import hudson.plugins.analysis.core.AbstractProjectAction;
-import hudson.plugins.analysis.core.BuildResult;
-import hudson.plugins.analysis.core.ResultAction;
+import hudson.plugins.analysis.core.JobSummary;
+import hudson.plugins.analysis.util.Compatibility;
+import hudson.plugins.analysis.util.model.Priority;
 
 /**
- * A portlet that shows a table with the number of warnings in the selected jobs.
+ * A portlet that shows a table with the number of warnings in the selected jobs. The numbers are read from the
+ * cached {@link JobSummary} of each job, the summaries that are not cached yet are created in parallel.
  *
  * @author Ulli Hafner
  */
@@ -106,7 +109,11 @@ public abstract class AbstractWarningsTablePortlet extends AbstractPortlet {
      *         otherwise
      */
     protected boolean isVisibleJob(final Job<?, ?> job) {
-        return toInt(getWarnings(job)) > 0;
+        if (isOverridden(Job.class)) {
+            return toInt(getWarnings(job)) > 0;
+        }
+        AbstractProjectAction<?> action = selectAction(job);
+        return action != null && JobSummary.of(action).getNumberOfAnnotations() > 0;
     }
 
     /**
@@ -129,8 +136,15 @@ public abstract class AbstractWarningsTablePortlet extends AbstractPortlet {
      */
     public String getWarnings(final Collection<Job<?, ?>> jobs) {
         int sum = 0;
-        for (Job<?, ?> job : jobs) {
-            sum += toInt(getWarnings(job));
+        if (isOverridden(Job.class)) {
+            for (Job<?, ?> job : jobs) {
+                sum += toInt(getWarnings(job));
+            }
+        }
+        else {
+            for (JobSummary summary : getSummaries(jobs)) {
+                sum += summary.getNumberOfAnnotations();
+            }
         }
         return String.valueOf(sum);
     }
@@ -146,12 +160,46 @@ public abstract class AbstractWarningsTablePortlet extends AbstractPortlet {
      */
     public String getWarnings(final Collection<Job<?, ?>> jobs, final String priority) {
         int sum = 0;
-        for (Job<?, ?> job : jobs) {
-            sum += toInt(getWarnings(job, priority));
+        if (isOverridden(Job.class, String.class)) {
+            for (Job<?, ?> job : jobs) {
+                sum += toInt(getWarnings(job, priority));
+            }
+        }
+        else {
+            Priority selected = Priority.fromString(priority);
+            for (JobSummary summary : getSummaries(jobs)) {
+                sum += summary.getNumberOfAnnotations(selected);
+            }
         }
         return String.valueOf(sum);
     }
 
+    /**
+     * Returns whether a subclass overrides the method {@code getWarnings} with the specified parameters. Then the
+     * totals are computed using the overridden method rather than using the job summaries.
+     */
+    private boolean isOverridden(final Class<?>... types) {
+        return Compatibility.isOverridden(AbstractWarningsTablePortlet.class, getClass(), "getWarnings", types);
+    }
+
+    private List<JobSummary> getSummaries(final Collection<Job<?, ?>> jobs) {
+        List<AbstractProjectAction<?>> actions = Lists.newArrayList();
+        for (Job<?, ?> job : jobs) {
+            AbstractProjectAction<?> action = selectAction(job);
+            if (action != null) {
+                actions.add(action);
+            }
+        }
+        try {
+            return JobSummary.of(actions);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+
+            return Collections.emptyList();
+        }
+    }
+
     /**
      * Converts the string to an integer. If the string is not valid then 0
      * is returned.
@@ -184,10 +232,9 @@ public abstract class AbstractWarningsTablePortlet extends AbstractPortlet {
     public String getWarnings(final Job<?, ?> job) {
         AbstractProjectAction<?> action = selectAction(job);
         if (action != null) {
-            ResultAction<?> lastAction = action.getLastAction();
-            if (lastAction != null) {
-                BuildResult result = lastAction.getResult();
-                int numberOfAnnotations = result.getNumberOfAnnotations();
+            JobSummary summary = JobSummary.of(action);
+            if (summary.hasResult()) {
+                int numberOfAnnotations = summary.getNumberOfAnnotations();
                 String value;
                 if (numberOfAnnotations > 0) {
                     String prefix = getDashboard().getUrl();
@@ -197,8 +244,8 @@ public abstract class AbstractWarningsTablePortlet extends AbstractPortlet {
                 else {
                     value = String.valueOf(numberOfAnnotations);
                 }
-                if (result.isSuccessfulTouched() && !result.isSuccessful()) {
-                    return value + result.getResultIcon();
+                if (summary.isSuccessfulTouched() && !summary.isSuccessful()) {
+                    return value + summary.getResultIcon();
                 }
                 return value;
             }
@@ -218,11 +265,9 @@ public abstract class AbstractWarningsTablePortlet extends AbstractPortlet {
     public String getWarnings(final Job<?, ?> job, final String priority) {
         AbstractProjectAction<?> action = selectAction(job);
         if (action != null) {
-            ResultAction<?> lastAction = action.getLastAction();
-            if (lastAction != null) {
-                BuildResult result = lastAction.getResult();
-
-                return String.valueOf(result.getNumberOfAnnotations(priority));
+            JobSummary summary = JobSummary.of(action);
+            if (summary.hasResult()) {
+                return String.valueOf(summary.getNumberOfAnnotations(Priority.fromString(priority)));
             }
         }
         return NO_RESULTS_FOUND;
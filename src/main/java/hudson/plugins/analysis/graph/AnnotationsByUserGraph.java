@@ -8,7 +8,6 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import org.apache.commons.lang3.StringUtils;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.CategoryPlot;
 import org.jfree.chart.renderer.category.CategoryItemRenderer;
@@ -16,10 +15,10 @@ import org.jfree.chart.renderer.category.StackedBarRenderer;
 import org.jfree.data.category.CategoryDataset;
 
 import hudson.plugins.analysis.Messages;
+import hudson.plugins.analysis.core.AuthorStatistics;
 import hudson.plugins.analysis.core.BuildResult;
 import hudson.plugins.analysis.core.ResultAction;
 import hudson.plugins.analysis.util.ToolTipProvider;
-import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.util.DataSetBuilder;
 
 /**
@@ -92,21 +91,38 @@ public class AnnotationsByUserGraph extends BuildResultGraph {
         return builder.build();
     }
 
+    /**
+     * Merges the number of warnings per author and priority of the specified result. Only the precomputed
+     * {@link AuthorStatistics} of the result are read, the warnings of the build are not loaded. Results of older
+     * builds that have no statistics yet are skipped until their statistics have been computed in the background.
+     */
     private void mergeResults(final BuildResult current, final Map<String, Integer[]> annotationCountByUser) {
-        Collection<FileAnnotation> annotations = current.getAnnotations();
-        for (FileAnnotation annotation : annotations) {
-            String author = annotation.getAuthor();
-            if (StringUtils.isNotBlank(author) && !"-".equals(author)) {
-                if (annotationCountByUser.get(author) == null) {
-                    annotationCountByUser.put(author, new Integer[]{0, 0, 0});
-                }
-                Integer[] priorities = annotationCountByUser.get(author);
-                int index = annotation.getPriority().ordinal();
-                priorities[index]++;
+        AuthorStatistics statistics = current.getAuthorStatistics();
+        if (statistics == null) {
+            return;
+        }
+        for (Entry<String, int[]> entry : statistics.getCountsByAuthor().entrySet()) {
+            Integer[] priorities = annotationCountByUser.get(entry.getKey());
+            if (priorities == null) {
+                priorities = new Integer[]{0, 0, 0};
+                annotationCountByUser.put(entry.getKey(), priorities);
+            }
+            int[] counts = entry.getValue();
+            for (int i = 0; i < priorities.length; i++) {
+                priorities[i] += counts[i];
             }
         }
     }
 
+    /**
+     * Returns whether the author statistics of the specified result are available. The statistics of older builds
+     * are computed in the background, until then the graph is not cached.
+     */
+    @Override
+    protected boolean isComplete(final ResultAction<? extends BuildResult> resultAction) {
+        return resultAction.getResult().getAuthorStatistics() != null;
+    }
+
     @Override
     public String getId() {
         return "USERS";
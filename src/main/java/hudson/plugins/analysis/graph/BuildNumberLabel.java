@@ -0,0 +1,91 @@
+package hudson.plugins.analysis.graph;
+
+import hudson.model.Run;
+
+/**
+ * Graph label showing the build number. In contrast to {@link hudson.util.ChartUtil.NumberOnlyBuildLabel} this label
+ * does not require the build to be loaded.
+ *
+ * @since 1.93
+ */
+public class BuildNumberLabel implements Comparable<BuildNumberLabel> {
+    private final int number;
+    private final long timestamp;
+    private final String displayName;
+
+    /**
+     * Creates a new instance of {@link BuildNumberLabel}.
+     *
+     * @param build
+     *            the build
+     */
+    public BuildNumberLabel(final Run<?, ?> build) {
+        this(build.getNumber(), build.getTimeInMillis(), build.getDisplayName());
+    }
+
+    /**
+     * Creates a new instance of {@link BuildNumberLabel}.
+     *
+     * @param number
+     *            the number of the build
+     * @param timestamp
+     *            the start time of the build in milliseconds
+     */
+    public BuildNumberLabel(final int number, final long timestamp) {
+        this(number, timestamp, "#" + number);
+    }
+
+    private BuildNumberLabel(final int number, final long timestamp, final String displayName) {
+        this.number = number;
+        this.timestamp = timestamp;
+        this.displayName = displayName;
+    }
+
+    /**
+     * Returns the number of the build.
+     *
+     * @return the build number
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Returns the start time of the build in milliseconds.
+     *
+     * @return the time stamp of the build
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public int compareTo(final BuildNumberLabel o) {
+        return number < o.number ? -1 : (number == o.number ? 0 : 1);
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+
+    @Override
+    public int hashCode() {
+        return number;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        BuildNumberLabel other = (BuildNumberLabel)obj;
+        return number == other.number;
+    }
+}
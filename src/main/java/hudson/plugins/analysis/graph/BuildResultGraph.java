@@ -5,6 +5,7 @@ import java.awt.*;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
@@ -29,6 +30,8 @@ import hudson.model.AbstractBuild;
 import hudson.model.Run;
 import hudson.plugins.analysis.core.BuildResult;
 import hudson.plugins.analysis.core.ResultAction;
+import hudson.plugins.analysis.core.TrendStore;
+import hudson.plugins.analysis.core.TrendStore.Record;
 import hudson.util.Graph;
 import hudson.util.ShiftedCategoryAxis;
 
@@ -232,7 +235,8 @@ public abstract class BuildResultGraph {
 
     /**
      * Returns the new graph object that wraps the actual {@link JFreeChart}
-     * into a PNG image or map.
+     * into a PNG image or map. The rendered image and map are stored in the
+     * {@link GraphCache} until a new build of the job has been recorded.
      *
      * @param timestamp
      *            the last build time
@@ -245,14 +249,54 @@ public abstract class BuildResultGraph {
      * @return the graph to render
      */
     public Graph getGraph(final long timestamp, final GraphConfiguration configuration, final String pluginName, final ResultAction<?> lastAction) {
-        return new Graph(timestamp, configuration.getWidth(), configuration.getHeight()) {
+        if (lastAction == null || lastAction.getBuild() == null) {
+            return new Graph(timestamp, configuration.getWidth(), configuration.getHeight()) {
+                @Override
+                protected JFreeChart createGraph() {
+                    return create(configuration, lastAction, pluginName);
+                }
+            };
+        }
+        Run<?, ?> build = lastAction.getBuild();
+        String key = GraphCache.createKey(build.getParent().getFullName(), getId(), configuration.serializeToString(),
+                getCacheStamp(), build.getNumber(), getRootUrl(), StringUtils.defaultString(pluginName));
+        return new CachedGraph(key, timestamp, configuration.getWidth(), configuration.getHeight()) {
             @Override
             protected JFreeChart createGraph() {
                 return create(configuration, lastAction, pluginName);
             }
+
+            @Override
+            protected boolean isComplete() {
+                return BuildResultGraph.this.isComplete(lastAction);
+            }
         };
     }
 
+    /**
+     * Returns whether all data that is required to create this graph for the specified result is available. Graphs
+     * that are created from incomplete data are not cached.
+     *
+     * @param resultAction
+     *            the action of the last build
+     * @return <code>true</code> if the data is complete, <code>false</code> otherwise
+     * @since 1.93
+     */
+    protected boolean isComplete(final ResultAction<? extends BuildResult> resultAction) {
+        return true;
+    }
+
+    /**
+     * Returns a stamp of all settings that are used to create this graph and that are not part of the
+     * {@link GraphConfiguration}. A cached graph is rendered again as soon as the stamp changes.
+     *
+     * @return the stamp of the settings
+     * @since 1.93
+     */
+    protected String getCacheStamp() {
+        return StringUtils.EMPTY;
+    }
+
     /**
      * Returns the new graph object that wraps the actual {@link JFreeChart}
      * into a PNG image or map.
@@ -301,6 +345,40 @@ public abstract class BuildResultGraph {
         return areResultsTooOld(configuration, current);
     }
 
+    /**
+     * Returns the counters of the builds that should be shown in the trend graph. The counters are read from the
+     * {@link TrendStore} of the job, so the previous builds do not need to be loaded. The number of builds is limited
+     * by the number of days and the number of builds of the specified configuration.
+     *
+     * @param configuration
+     *            the graph configuration
+     * @param lastBuildResult
+     *            the build result to start with
+     * @return the counters of the builds in descending order of the build numbers, or <code>null</code> if the
+     *         configuration filters the builds by a build parameter that is not part of the trend store
+     * @since 1.93
+     */
+    @CheckForNull
+    protected List<Record> getTrend(final GraphConfiguration configuration, final BuildResult lastBuildResult) {
+        if (StringUtils.isNotBlank(configuration.getParameterName())) {
+            return null;
+        }
+
+        List<Record> trend = TrendStore.of(lastBuildResult).getTrend(lastBuildResult);
+        Calendar today = new GregorianCalendar();
+        for (int count = 0; count < trend.size(); count++) {
+            if (configuration.isDayCountDefined()
+                    && Math.abs((today.getTimeInMillis() - trend.get(count).getTimestamp()) / A_DAY_IN_MSEC)
+                    >= configuration.getDayCount()) {
+                return trend.subList(0, count);
+            }
+            if (configuration.isBuildCountDefined() && count >= configuration.getBuildCount()) {
+                return trend.subList(0, count);
+            }
+        }
+        return trend;
+    }
+
     /**
      * Sets properties common to all category graphs of this plug-in.
      *
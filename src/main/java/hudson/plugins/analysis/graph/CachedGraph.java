@@ -0,0 +1,239 @@
+package hudson.plugins.analysis.graph;
+
+import javax.servlet.http.HttpServletResponse;
+import java.awt.HeadlessException;
+import java.io.IOException;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import com.google.common.base.Charsets;
+
+import hudson.plugins.analysis.util.SourceStore;
+import hudson.util.Graph;
+
+/**
+ * A {@link Graph} that renders the PNG image and the image map of a chart only once and stores them in the
+ * {@link GraphCache}. The entity tag of a graph is derived from its cache key (job, graph ID, configuration, last
+ * build and size), so conditional requests are answered before the graph is rendered. Graphs that are created while
+ * some of their data is not available yet are neither cached nor tagged, see {@link #isComplete()}.
+ */
+abstract class CachedGraph extends Graph {
+    /** Maximum width and height of a graph, the same as for the configured size of a graph. */
+    private static final int MAX_SIZE = 2000;
+    private static final double MAX_SCALE = 2.0;
+    /** Maximum number of pixels of a scaled image. */
+    private static final double MAX_PIXELS = 2000.0 * 2000.0;
+
+    private final GraphCache cache;
+    private final String key;
+    private final long timestamp;
+    private final int defaultWidth;
+    private final int defaultHeight;
+
+    /**
+     * Creates a new instance of {@link CachedGraph}.
+     *
+     * @param key
+     *            the key of the graph, see {@link GraphCache#createKey(String, String, String, String, int, String...)}
+     * @param timestamp
+     *            the timestamp of the last build
+     * @param defaultWidth
+     *            the default width of the image
+     * @param defaultHeight
+     *            the default height of the image
+     */
+    CachedGraph(final String key, final long timestamp, final int defaultWidth, final int defaultHeight) {
+        this(GraphCache.getInstance(), key, timestamp, defaultWidth, defaultHeight);
+    }
+
+    CachedGraph(final GraphCache cache, final String key, final long timestamp,
+            final int defaultWidth, final int defaultHeight) {
+        super(timestamp, defaultWidth, defaultHeight);
+
+        this.cache = cache;
+        this.key = key;
+        this.timestamp = timestamp;
+        this.defaultWidth = defaultWidth;
+        this.defaultHeight = defaultHeight;
+    }
+
+    @Override
+    public void doPng(final StaplerRequest request, final StaplerResponse response) throws IOException {
+        try {
+            Size size = getSize(request);
+            if (isNotModified(size, request, response)) {
+                return;
+            }
+            response.setContentType("image/png");
+            response.getOutputStream().write(getRenderedGraph(size).getPng());
+        }
+        catch (HeadlessException exception) {
+            response.sendRedirect2(request.getContextPath() + "/images/headless.png");
+        }
+    }
+
+    @Override
+    public void doMap(final StaplerRequest request, final StaplerResponse response) throws IOException {
+        Size size = getSize(request);
+        if (isNotModified(size, request, response)) {
+            return;
+        }
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().println(getRenderedGraph(size).getMap());
+    }
+
+    /**
+     * Sets the entity tag of the graph and determines whether the client already has the graph. If the request
+     * contains the header <code>If-None-Match</code>, then the header <code>If-Modified-Since</code> is ignored.
+     * Incomplete graphs are never tagged since they change without a new build.
+     */
+    private boolean isNotModified(final Size size, final StaplerRequest request, final StaplerResponse response) {
+        if (cache.get(size.getKey(key)) == null && !isComplete()) {
+            return false;
+        }
+        String eTag = getETag(size);
+        response.setHeader("ETag", eTag);
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            if (matches(ifNoneMatch, eTag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return true;
+            }
+            return false;
+        }
+        return timestamp > 0 && request.checkIfModified(timestamp, response);
+    }
+
+    private static boolean matches(final String ifNoneMatch, final String eTag) {
+        for (String candidate : StringUtils.split(ifNoneMatch, ',')) {
+            String tag = StringUtils.removeStart(candidate.trim(), "W/");
+            if ("*".equals(tag) || eTag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String getETag(final Size size) {
+        return '"' + SourceStore.computeHash(size.getKey(key).getBytes(Charsets.UTF_8)) + '"';
+    }
+
+    /**
+     * Returns the entity tag of the graph with the specified size.
+     *
+     * @param width
+     *            the width of the image
+     * @param height
+     *            the height of the image
+     * @param scale
+     *            the scale factor of the image
+     * @return the entity tag, including the quotes
+     */
+    String getETag(final int width, final int height, final double scale) {
+        return getETag(new Size(width, height, scale));
+    }
+
+    private Size getSize(final StaplerRequest request) {
+        return new Size(NumberUtils.toInt(request.getParameter("width"), defaultWidth),
+                NumberUtils.toInt(request.getParameter("height"), defaultHeight),
+                NumberUtils.toDouble(request.getParameter("scale"), 1.0));
+    }
+
+    private static int clampSize(final int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    /**
+     * Clamps the scale factor of an image so that the scaled image has at most {@link #MAX_PIXELS} pixels.
+     *
+     * @param width
+     *            the clamped width of the image
+     * @param height
+     *            the clamped height of the image
+     * @param scale
+     *            the requested scale factor
+     * @return the clamped scale factor
+     */
+    private static double clampScale(final int width, final int height, final double scale) {
+        if (scale <= 0 || Double.isNaN(scale)) {
+            return 1.0;
+        }
+        double maximum = Math.min(MAX_SCALE, Math.sqrt(MAX_PIXELS / ((double)width * height)));
+        return Math.min(scale, maximum);
+    }
+
+    /**
+     * Returns the rendered graph with the specified size. The size and the scale factor are clamped to the maximum
+     * size of a graph. If the graph is not cached yet, then the graph is rendered and stored in the cache.
+     *
+     * @param width
+     *            the width of the image
+     * @param height
+     *            the height of the image
+     * @param scale
+     *            the scale factor of the image
+     * @return the rendered graph
+     * @throws IOException
+     *             if the image could not be encoded
+     */
+    RenderedGraph getRenderedGraph(final int width, final int height, final double scale) throws IOException {
+        return getRenderedGraph(new Size(width, height, scale));
+    }
+
+    private RenderedGraph getRenderedGraph(final Size size) throws IOException {
+        String sizedKey = size.getKey(key);
+        RenderedGraph graph = cache.get(sizedKey);
+        if (graph == null) {
+            boolean isComplete = isComplete();
+            graph = RenderedGraph.render(createGraph(), size.width, size.height, size.scale);
+            if (isComplete) {
+                cache.put(sizedKey, graph);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Returns whether all data of the graph is available. This method is called before the graph is created, graphs
+     * that are created from incomplete data (e.g., statistics that are still computed in the background) are not
+     * cached.
+     *
+     * @return <code>true</code> if the graph can be cached, <code>false</code> otherwise
+     */
+    protected boolean isComplete() {
+        return true;
+    }
+
+    /**
+     * Renders the graph with its default size and stores it in the cache.
+     *
+     * @throws IOException
+     *             if the image could not be encoded
+     */
+    void prerender() throws IOException {
+        getRenderedGraph(defaultWidth, defaultHeight, 1.0);
+    }
+
+    /**
+     * The clamped size and scale factor of an image.
+     */
+    private static final class Size {
+        private final int width;
+        private final int height;
+        private final double scale;
+
+        Size(final int width, final int height, final double scale) {
+            this.width = clampSize(width);
+            this.height = clampSize(height);
+            this.scale = clampScale(this.width, this.height, scale);
+        }
+
+        String getKey(final String key) {
+            return key + '\n' + width + 'x' + height + '@' + scale;
+        }
+    }
+}
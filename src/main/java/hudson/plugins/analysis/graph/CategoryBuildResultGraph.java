@@ -27,12 +27,11 @@ import com.google.common.collect.Sets;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
-import hudson.model.Run;
 import hudson.plugins.analysis.Messages;
 import hudson.plugins.analysis.core.BuildResult;
 import hudson.plugins.analysis.core.ResultAction;
+import hudson.plugins.analysis.core.TrendStore.Record;
 import hudson.plugins.analysis.util.ToolTipProvider;
-import hudson.util.ChartUtil.NumberOnlyBuildLabel;
 import hudson.util.DataSetBuilder;
 /**
  * A build result graph using a {@link CategoryPlot}. Uses a template method to
@@ -190,7 +189,9 @@ public abstract class CategoryBuildResultGraph extends BuildResultGraph {
     }
 
     /**
-     * Creates a series of values per build.
+     * Creates a series of values per build. The values are computed from the counters of the {@link
+     * hudson.plugins.analysis.core.TrendStore TrendStore} if possible. Otherwise the values are computed by walking
+     * through the previous build results.
      *
      * @param configuration
      *            the configuration
@@ -198,13 +199,38 @@ public abstract class CategoryBuildResultGraph extends BuildResultGraph {
      *            the build result to start with
      * @return a series of values per build
      */
-    @SuppressWarnings("rawtypes")
-    private Map<Run, List<Integer>> createSeriesPerBuild(
+    private Map<BuildNumberLabel, List<Integer>> createSeriesPerBuild(
+            final GraphConfiguration configuration, final BuildResult lastBuildResult) {
+        List<Record> trend = getTrend(configuration, lastBuildResult);
+        if (trend != null) {
+            Map<BuildNumberLabel, List<Integer>> valuesPerBuild = Maps.newHashMap();
+            for (Record record : trend) {
+                List<Integer> series = computeSeries(record);
+                if (series == null) {
+                    return createSeriesPerBuildFromResults(configuration, lastBuildResult);
+                }
+                valuesPerBuild.put(new BuildNumberLabel(record.getNumber(), record.getTimestamp()), series);
+            }
+            return valuesPerBuild;
+        }
+        return createSeriesPerBuildFromResults(configuration, lastBuildResult);
+    }
+
+    /**
+     * Creates a series of values per build by walking through the previous build results.
+     *
+     * @param configuration
+     *            the configuration
+     * @param lastBuildResult
+     *            the build result to start with
+     * @return a series of values per build
+     */
+    private Map<BuildNumberLabel, List<Integer>> createSeriesPerBuildFromResults(
             final GraphConfiguration configuration, final BuildResult lastBuildResult) {
         BuildResult current = lastBuildResult;
 
         int buildCount = 0;
-        Map<Run, List<Integer>> valuesPerBuild = Maps.newHashMap();
+        Map<BuildNumberLabel, List<Integer>> valuesPerBuild = Maps.newHashMap();
         String parameterName = configuration.getParameterName();
         String parameterValue = configuration.getParameterValue();
         while (true) {
@@ -212,7 +238,7 @@ public abstract class CategoryBuildResultGraph extends BuildResultGraph {
                 break;
             }
             if (passesFilteringByParameter(current.getOwner(), parameterName, parameterValue)) {
-                valuesPerBuild.put(current.getOwner(), computeSeries(current));
+                valuesPerBuild.put(new BuildNumberLabel(current.getOwner()), computeSeries(current));
             }
 
             if (current.hasPreviousResult()) {
@@ -242,16 +268,16 @@ public abstract class CategoryBuildResultGraph extends BuildResultGraph {
      *            the collected values
      * @return a data set
      */
-    @SuppressWarnings({"rawtypes", "unchecked"})
-    private CategoryDataset createDatasetPerBuildNumber(final Map<Run, List<Integer>> valuesPerBuild) {
-        DataSetBuilder<String, NumberOnlyBuildLabel> builder = new DataSetBuilder<String, NumberOnlyBuildLabel>();
-        List<Run> builds = Lists.newArrayList(valuesPerBuild.keySet());
+    @SuppressWarnings("unchecked")
+    private CategoryDataset createDatasetPerBuildNumber(final Map<BuildNumberLabel, List<Integer>> valuesPerBuild) {
+        DataSetBuilder<String, BuildNumberLabel> builder = new DataSetBuilder<String, BuildNumberLabel>();
+        List<BuildNumberLabel> builds = Lists.newArrayList(valuesPerBuild.keySet());
         Collections.sort(builds);
-        for (Run<?, ?> build : builds) {
+        for (BuildNumberLabel build : builds) {
             List<Integer> series = valuesPerBuild.get(build);
             int level = 0;
             for (Integer integer : series) {
-                builder.add(integer, getRowId(level), new NumberOnlyBuildLabel(build));
+                builder.add(integer, getRowId(level), build);
                 level++;
             }
         }
@@ -290,9 +316,8 @@ public abstract class CategoryBuildResultGraph extends BuildResultGraph {
      *            the series per build
      * @return the series per date
      */
-    @SuppressWarnings("rawtypes")
     private Map<LocalDate, List<Integer>> averageByDate(
-            final Map<Run, List<Integer>> valuesPerBuild) {
+            final Map<BuildNumberLabel, List<Integer>> valuesPerBuild) {
         return createSeriesPerDay(createMultiSeriesPerDay(valuesPerBuild));
     }
 
@@ -339,12 +364,11 @@ public abstract class CategoryBuildResultGraph extends BuildResultGraph {
      *            the values per build
      * @return the multi map with the values per day
      */
-    @SuppressWarnings("rawtypes")
     @SuppressFBWarnings("WMI")
     private Multimap<LocalDate, List<Integer>> createMultiSeriesPerDay(
-            final Map<Run, List<Integer>> valuesPerBuild) {
+            final Map<BuildNumberLabel, List<Integer>> valuesPerBuild) {
         Multimap<LocalDate, List<Integer>> valuesPerDate = HashMultimap.create();
-        for (Run<?, ?> build : valuesPerBuild.keySet()) {
+        for (BuildNumberLabel build : valuesPerBuild.keySet()) {
             valuesPerDate.put(new LocalDate(build.getTimestamp()), valuesPerBuild.get(build));
         }
         return valuesPerDate;
@@ -370,6 +394,21 @@ public abstract class CategoryBuildResultGraph extends BuildResultGraph {
      */
     protected abstract List<Integer> computeSeries(BuildResult current);
 
+    /**
+     * Returns the series to plot for the specified counters of the {@link hudson.plugins.analysis.core.TrendStore
+     * TrendStore}. This default implementation returns <code>null</code> to indicate that the series can't be
+     * computed from the stored counters, so the series will be computed using
+     * {@link #computeSeries(BuildResult)}.
+     *
+     * @param current
+     *            the counters of the current build
+     * @return the series to plot, or <code>null</code> if the series requires the build result
+     * @since 1.93
+     */
+    protected List<Integer> computeSeries(final Record current) {
+        return null;
+    }
+
     /**
      * Creates the chart for the specified data set.
      *
@@ -19,6 +19,7 @@ import org.jfree.data.xy.XYSeriesCollection;
 import hudson.plugins.analysis.Messages;
 import hudson.plugins.analysis.core.ResultAction;
 import hudson.plugins.analysis.core.BuildResult;
+import hudson.plugins.analysis.core.TrendStore.Record;
 import hudson.plugins.analysis.util.CategoryUrlBuilder;
 import hudson.plugins.analysis.util.Pair;
 
@@ -119,6 +120,25 @@ public class DifferenceGraph extends BuildResultGraph {
      */
     private void extractPoints(final GraphConfiguration configuration, final ResultAction<? extends BuildResult> action,
             final List<Pair<Integer, Integer>> fixedWarnings, final List<Pair<Integer, Integer>> newWarnings) {
+        List<Record> trend = getTrend(configuration, action.getResult());
+        if (trend == null) {
+            extractPointsFromResults(configuration, action, fixedWarnings, newWarnings);
+        }
+        else {
+            for (Record record : trend) {
+                int build = record.getNumber();
+                fixedWarnings.add(new Pair<Integer, Integer>(build, record.getNumberOfFixedWarnings()));
+                newWarnings.add(new Pair<Integer, Integer>(build, record.getNumberOfNewWarnings()));
+            }
+        }
+
+        Collections.reverse(fixedWarnings);
+        Collections.reverse(newWarnings);
+    }
+
+    private void extractPointsFromResults(final GraphConfiguration configuration,
+            final ResultAction<? extends BuildResult> action,
+            final List<Pair<Integer, Integer>> fixedWarnings, final List<Pair<Integer, Integer>> newWarnings) {
         int buildCount = 0;
         BuildResult current = action.getResult();
         while (true) {
@@ -144,9 +164,6 @@ public class DifferenceGraph extends BuildResultGraph {
                 }
             }
         }
-
-        Collections.reverse(fixedWarnings);
-        Collections.reverse(newWarnings);
     }
 
     /**
@@ -0,0 +1,257 @@
+package hudson.plugins.analysis.graph;
+
+import javax.annotation.CheckForNull;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.StringUtils;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.analysis.core.AbstractProjectAction;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Process wide cache of rendered trend graphs (PNG image and clickable image map). A graph is identified by the job,
+ * the graph ID, the serialized {@link GraphConfiguration}, a stamp of the other settings of the graph (e.g., the health
+ * thresholds), the last build, the URLs of the links, and the size of the image. The total size of the cached graphs
+ * is bounded, the least recently used graphs are evicted first. Additionally, the number of cached graphs of each job
+ * is bounded, so that requests for many different image sizes do not evict the graphs of other jobs. If enabled by
+ * the system property <code>hudson.plugins.analysis.graph.GraphCache.prerender</code>, the default trend graph of a
+ * job is rendered in the background as soon as a build has been finalized.
+ *
+ * @since 1.93
+ */
+public final class GraphCache {
+    private static final Logger LOGGER = Logger.getLogger(GraphCache.class.getName());
+
+    /** Maximum total size of the cached graphs in bytes. */
+    private static final long SIZE = Long.getLong(GraphCache.class.getName() + ".size", 16L * 1024 * 1024);
+    /** Maximum number of cached graphs of a job. */
+    private static final int GRAPHS_PER_JOB = Integer.getInteger(GraphCache.class.getName() + ".graphsPerJob", 16);
+    private static final boolean PRERENDER = Boolean.getBoolean(GraphCache.class.getName() + ".prerender");
+    private static final char SEPARATOR = '\n';
+
+    private static final GraphCache INSTANCE = new GraphCache(SIZE, GRAPHS_PER_JOB);
+
+    private static final ExecutorService PRERENDERER = Executors.newSingleThreadExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), "GraphCache.prerender"));
+
+    private final long budget;
+    private final int graphsPerJob;
+    /** The rendered graphs, in the order of their last access. */
+    private final Map<String, RenderedGraph> graphs = new LinkedHashMap<String, RenderedGraph>(16, 0.75f, true);
+    /** The number of cached graphs, mapped by the full name of the job. */
+    private final Map<String, Integer> graphsByJob = new HashMap<String, Integer>();
+    private long footprint;
+
+    /**
+     * Returns the cache of this Jenkins instance.
+     *
+     * @return the cache
+     */
+    public static GraphCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a new instance of {@link GraphCache} that caches at most 16 graphs of each job. This limit can be
+     * changed with the system property <code>hudson.plugins.analysis.graph.GraphCache.graphsPerJob</code>.
+     *
+     * @param budget
+     *            the maximum total size of the cached graphs in bytes
+     */
+    GraphCache(final long budget) {
+        this(budget, GRAPHS_PER_JOB);
+    }
+
+    /**
+     * Creates a new instance of {@link GraphCache}.
+     *
+     * @param budget
+     *            the maximum total size of the cached graphs in bytes
+     * @param graphsPerJob
+     *            the maximum number of cached graphs of a job
+     */
+    GraphCache(final long budget, final int graphsPerJob) {
+        this.budget = budget;
+        this.graphsPerJob = graphsPerJob;
+    }
+
+    /**
+     * Creates the key of a graph.
+     *
+     * @param jobName
+     *            the full name of the job
+     * @param graphId
+     *            the ID of the graph
+     * @param configuration
+     *            the serialized graph configuration
+     * @param stamp
+     *            the stamp of the other settings that are used to create the graph
+     * @param buildNumber
+     *            the number of the last build
+     * @param urls
+     *            the URLs of the links in the graph
+     * @return the key
+     */
+    static String createKey(final String jobName, final String graphId, final String configuration,
+            final String stamp, final int buildNumber, final String... urls) {
+        StringBuilder key = new StringBuilder(jobName);
+        key.append(SEPARATOR).append(graphId).append(SEPARATOR).append(configuration).append(SEPARATOR)
+                .append(stamp).append(SEPARATOR).append(buildNumber);
+        for (String url : urls) {
+            key.append(SEPARATOR).append(url);
+        }
+        return key.toString();
+    }
+
+    private static String getJobName(final String key) {
+        return StringUtils.substringBefore(key, String.valueOf(SEPARATOR));
+    }
+
+    @CheckForNull
+    synchronized RenderedGraph get(final String key) {
+        return graphs.get(key);
+    }
+
+    synchronized void put(final String key, final RenderedGraph graph) {
+        remove(key);
+        graphs.put(key, graph);
+        footprint += graph.getSize();
+        String jobName = getJobName(key);
+        increment(jobName, 1);
+
+        for (Iterator<Map.Entry<String, RenderedGraph>> eldest = graphs.entrySet().iterator(); eldest.hasNext();) {
+            boolean isOverBudget = footprint > budget;
+            if (!isOverBudget && graphsByJob.get(jobName) <= graphsPerJob) {
+                break;
+            }
+            Map.Entry<String, RenderedGraph> entry = eldest.next();
+            if (isOverBudget || getJobName(entry.getKey()).equals(jobName)) {
+                remove(entry);
+                eldest.remove();
+            }
+        }
+    }
+
+    private void remove(final String key) {
+        RenderedGraph previous = graphs.remove(key);
+        if (previous != null) {
+            footprint -= previous.getSize();
+            increment(getJobName(key), -1);
+        }
+    }
+
+    private void remove(final Map.Entry<String, RenderedGraph> entry) {
+        footprint -= entry.getValue().getSize();
+        increment(getJobName(entry.getKey()), -1);
+    }
+
+    private int increment(final String jobName, final int delta) {
+        Integer count = graphsByJob.get(jobName);
+        int newCount = (count == null ? 0 : count) + delta;
+        if (newCount > 0) {
+            graphsByJob.put(jobName, newCount);
+        }
+        else {
+            graphsByJob.remove(jobName);
+        }
+        return newCount;
+    }
+
+    /**
+     * Removes all graphs of the specified job and of all jobs within the specified job (if it is a folder).
+     *
+     * @param jobName
+     *            the full name of the job
+     */
+    synchronized void removeJob(final String jobName) {
+        String folder = jobName + '/';
+        for (Iterator<Map.Entry<String, RenderedGraph>> iterator = graphs.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry<String, RenderedGraph> entry = iterator.next();
+            String name = getJobName(entry.getKey());
+            if (name.equals(jobName) || name.startsWith(folder)) {
+                remove(entry);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cached graphs.
+     *
+     * @return the number of cached graphs
+     */
+    synchronized int size() {
+        return graphs.size();
+    }
+
+    /**
+     * Returns the total size of the cached graphs in bytes.
+     *
+     * @return the footprint
+     */
+    synchronized long getFootprint() {
+        return footprint;
+    }
+
+    /**
+     * Removes the graphs of a job if a build has been deleted, and pre-renders the default graphs of a job if a build
+     * has been finalized, i.e. when the results of the build are complete.
+     */
+    @Extension
+    public static class Listener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onFinalized(final Run<?, ?> run) {
+            if (PRERENDER) {
+                final Job<?, ?> job = run.getParent();
+                PRERENDERER.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (AbstractProjectAction<?> action : job.getActions(AbstractProjectAction.class)) {
+                            try {
+                                action.prerenderTrendGraph();
+                            }
+                            catch (RuntimeException exception) {
+                                LOGGER.log(Level.WARNING, "Can't render trend graph of " + job, exception);
+                            }
+                        }
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onDeleted(final Run<?, ?> run) {
+            getInstance().removeJob(run.getParent().getFullName());
+        }
+    }
+
+    /**
+     * Removes the graphs of deleted and renamed jobs.
+     */
+    @Extension
+    public static class JobListener extends ItemListener {
+        @Override
+        public void onDeleted(final Item item) {
+            getInstance().removeJob(item.getFullName());
+        }
+
+        @Override
+        public void onLocationChanged(final Item item, final String oldFullName, final String newFullName) {
+            getInstance().removeJob(oldFullName);
+        }
+    }
+}
@@ -262,6 +262,22 @@ public abstract class GraphConfigurationView implements ModelObject {
         return graph.getGraph(getTimestamp(), configuration, url, buildHistory.getBaseline());
     }
 
+    /**
+     * Renders the current graph with its default size and stores it in the {@link GraphCache}.
+     *
+     * @param url
+     *            the URL of links in the trend graph
+     * @throws IOException
+     *             if the image could not be encoded
+     * @since 1.93
+     */
+    public void prerender(final String url) throws IOException {
+        Graph graph = getGraphRenderer(url);
+        if (graph instanceof CachedGraph) {
+            ((CachedGraph) graph).prerender();
+        }
+    }
+
     /**
      * Returns the graph renderer of the current graph.
      *
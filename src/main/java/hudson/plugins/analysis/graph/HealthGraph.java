@@ -13,6 +13,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.plugins.analysis.Messages;
 import hudson.plugins.analysis.core.AbstractHealthDescriptor;
 import hudson.plugins.analysis.core.BuildResult;
+import hudson.plugins.analysis.core.TrendStore.Record;
 import hudson.plugins.analysis.util.AreaRenderer;
 import hudson.plugins.analysis.util.CategoryUrlBuilder;
 import hudson.plugins.analysis.util.SerializableToolTipGenerator;
@@ -56,10 +57,33 @@ public class HealthGraph extends CategoryBuildResultGraph {
         return Messages.Trend_type_health();
     }
 
+    @Override
+    protected String getCacheStamp() {
+        return healthDescriptor.isHealthyReportEnabled() + "!" + healthDescriptor.getHealthyAnnotations() + "!"
+                + healthDescriptor.getUnHealthyAnnotations() + "!" + healthDescriptor.isThresholdEnabled() + "!"
+                + healthDescriptor.getLowerBoundOfThresholds();
+    }
+
     @Override
     protected List<Integer> computeSeries(final BuildResult current) {
+        return computeSeries(current.getNumberOfAnnotations());
+    }
+
+    @Override
+    protected List<Integer> computeSeries(final Record current) {
+        return computeSeries(current.getNumberOfWarnings());
+    }
+
+    /**
+     * Splits the specified number of warnings into the ranges of the health descriptor.
+     *
+     * @param numberOfWarnings
+     *            the number of warnings
+     * @return the series to plot
+     */
+    private List<Integer> computeSeries(final int numberOfWarnings) {
         List<Integer> series = new ArrayList<Integer>();
-        int remainder = current.getNumberOfAnnotations();
+        int remainder = numberOfWarnings;
 
         if (healthDescriptor.isHealthyReportEnabled()) {
             series.add(Math.min(remainder, healthDescriptor.getHealthyAnnotations()));
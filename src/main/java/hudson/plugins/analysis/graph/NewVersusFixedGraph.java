@@ -10,6 +10,7 @@ import org.jfree.data.category.CategoryDataset;
 
 import hudson.plugins.analysis.Messages;
 import hudson.plugins.analysis.core.BuildResult;
+import hudson.plugins.analysis.core.TrendStore.Record;
 import hudson.plugins.analysis.util.BoxRenderer;
 import hudson.plugins.analysis.util.CategoryUrlBuilder;
 import hudson.plugins.analysis.util.ToolTipBoxRenderer;
@@ -40,6 +41,14 @@ public class NewVersusFixedGraph extends CategoryBuildResultGraph {
         return series;
     }
 
+    @Override
+    protected List<Integer> computeSeries(final Record current) {
+        List<Integer> series = new ArrayList<Integer>();
+        series.add(current.getNumberOfNewWarnings());
+        series.add(current.getNumberOfFixedWarnings());
+        return series;
+    }
+
     @Override
     protected JFreeChart createChart(final CategoryDataset dataSet) {
         return createBlockChart(dataSet);
@@ -12,6 +12,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import hudson.plugins.analysis.Messages;
 import hudson.plugins.analysis.core.BuildResult;
+import hudson.plugins.analysis.core.TrendStore.Record;
 import hudson.plugins.analysis.util.AreaRenderer;
 import hudson.plugins.analysis.util.CategoryUrlBuilder;
 import hudson.plugins.analysis.util.ToolTipAreaRenderer;
@@ -44,6 +45,15 @@ public class PriorityGraph extends CategoryBuildResultGraph {
         return series;
     }
 
+    @Override
+    protected List<Integer> computeSeries(final Record current) {
+        List<Integer> series = new ArrayList<Integer>();
+        series.add(current.getNumberOfAnnotations(Priority.LOW));
+        series.add(current.getNumberOfAnnotations(Priority.NORMAL));
+        series.add(current.getNumberOfAnnotations(Priority.HIGH));
+        return series;
+    }
+
     @Override
     protected JFreeChart createChart(final CategoryDataset dataSet) {
         return createAreaChart(dataSet);
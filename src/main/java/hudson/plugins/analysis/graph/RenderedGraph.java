@@ -0,0 +1,74 @@
+package hudson.plugins.analysis.graph;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.jfree.chart.ChartRenderingInfo;
+import org.jfree.chart.ChartUtilities;
+import org.jfree.chart.JFreeChart;
+
+/**
+ * A trend graph that has been rendered as PNG image together with its clickable image map.
+ */
+final class RenderedGraph {
+    private final byte[] png;
+    private final String map;
+
+    /**
+     * Renders the specified chart.
+     *
+     * @param chart
+     *            the chart to render
+     * @param width
+     *            the width of the chart
+     * @param height
+     *            the height of the chart
+     * @param scale
+     *            the scale factor of the image, the image map uses the unscaled coordinates
+     * @return the rendered graph
+     * @throws IOException
+     *             if the image could not be encoded
+     */
+    static RenderedGraph render(final JFreeChart chart, final int width, final int height, final double scale)
+            throws IOException {
+        ChartRenderingInfo info = new ChartRenderingInfo();
+        BufferedImage image = chart.createBufferedImage((int) (width * scale), (int) (height * scale), width, height,
+                info);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ChartUtilities.writeBufferedImageAsPNG(output, image);
+
+        return new RenderedGraph(output.toByteArray(), ChartUtilities.getImageMap("map", info));
+    }
+
+    /**
+     * Creates a new instance of {@link RenderedGraph}.
+     *
+     * @param png
+     *            the PNG image
+     * @param map
+     *            the image map
+     */
+    RenderedGraph(final byte[] png, final String map) {
+        this.png = png;
+        this.map = map;
+    }
+
+    byte[] getPng() {
+        return png;
+    }
+
+    String getMap() {
+        return map;
+    }
+
+    /**
+     * Returns the approximate size of this graph in bytes.
+     *
+     * @return the size
+     */
+    long getSize() {
+        return png.length + 2L * map.length();
+    }
+}
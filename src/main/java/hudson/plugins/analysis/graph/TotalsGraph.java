@@ -10,6 +10,7 @@ import org.jfree.data.category.CategoryDataset;
 
 import hudson.plugins.analysis.Messages;
 import hudson.plugins.analysis.core.BuildResult;
+import hudson.plugins.analysis.core.TrendStore.Record;
 import hudson.plugins.analysis.util.ToolTipProvider;
 
 /**
@@ -36,6 +37,13 @@ public class TotalsGraph extends CategoryBuildResultGraph {
         return series;
     }
 
+    @Override
+    protected List<Integer> computeSeries(final Record current) {
+        List<Integer> series = new ArrayList<Integer>();
+        series.add(current.getNumberOfWarnings());
+        return series;
+    }
+
     @Override
     protected JFreeChart createChart(final CategoryDataset dataSet) {
         return createLineGraph(dataSet, false);
@@ -1,8 +1,10 @@
 package hudson.plugins.analysis.util;
 
+import javax.annotation.CheckForNull;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.nio.charset.Charset;
 
 import org.apache.commons.io.IOUtils;
 
@@ -33,4 +35,29 @@ public abstract class AbstractPackageDetector implements PackageDetector {
         }
         return UNKNOWN_PACKAGE;
     }
+
+    /**
+     * Returns the package or namespace name that is declared in the specified line of a file. Detectors that
+     * override this method can be used by {@link SourceMetadataService} to detect the package name while reading the
+     * file for other purposes.
+     *
+     * @param line
+     *            the line to scan
+     * @return the package or namespace name, or <code>null</code> if the line does not declare a package
+     * @since 1.93
+     */
+    @CheckForNull
+    protected String detectPackageNameInLine(final String line) {
+        return null;
+    }
+
+    /**
+     * Returns the charset that is used to read the files if no encoding has been specified.
+     *
+     * @return the charset, the default charset of the platform if not overridden
+     * @since 1.93
+     */
+    protected Charset getDefaultCharset() {
+        return Charset.defaultCharset();
+    }
 }
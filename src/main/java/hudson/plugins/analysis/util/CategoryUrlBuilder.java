@@ -3,6 +3,7 @@ package hudson.plugins.analysis.util;
 import org.apache.commons.lang.StringUtils;
 import org.jfree.data.category.CategoryDataset;
 
+import hudson.plugins.analysis.graph.BuildNumberLabel;
 import hudson.util.ChartUtil.NumberOnlyBuildLabel;
 
 /**
@@ -39,7 +40,7 @@ public class CategoryUrlBuilder implements SerializableUrlGenerator {
 
     @Override
     public String generateURL(final CategoryDataset dataset, final int row, final int column) {
-        String prefix = rootUrl + getLabel(dataset, column).getRun().getNumber();
+        String prefix = rootUrl + getBuildNumber(dataset, column);
         if (isBlank(pluginName)) {
             return prefix;
         }
@@ -84,16 +85,20 @@ public class CategoryUrlBuilder implements SerializableUrlGenerator {
     }
 
     /**
-     * Returns the build label at the specified column.
+     * Returns the build number of the label at the specified column.
      *
      * @param dataset
      *            data set of values
      * @param column
      *            the column
-     * @return the label of the column
+     * @return the build number of the column
      */
-    private NumberOnlyBuildLabel getLabel(final CategoryDataset dataset, final int column) {
-        return (NumberOnlyBuildLabel)dataset.getColumnKey(column);
+    private int getBuildNumber(final CategoryDataset dataset, final int column) {
+        Comparable<?> label = dataset.getColumnKey(column);
+        if (label instanceof BuildNumberLabel) {
+            return ((BuildNumberLabel)label).getNumber();
+        }
+        return ((NumberOnlyBuildLabel)label).getRun().getNumber();
     }
 }
 
@@ -12,7 +12,7 @@ import org.apache.commons.io.LineIterator;
  */
 public class ContextHashCode {
     /** Number of lines before and after current line to consider. */
-    private static final int LINES_LOOK_AHEAD = 3;
+    static final int LINES_LOOK_AHEAD = 3;
     private static final int BUFFER_SIZE = 1000;
 
     /**
@@ -65,5 +65,21 @@ public class ContextHashCode {
             return fileName.hashCode();
         }
     }
-}
 
+    /**
+     * Creates the hash codes from the source code of several warning lines of the same file and the surrounding
+     * context. The file is read only once using the {@link SourceMetadataService}, so the package detection of the
+     * parsers and the context hash codes share the same pass over the file. The computed hash codes are the same as
+     * the hash codes of {@link #compute(String, int, String)}.
+     *
+     * @param fileName the absolute path of the file to read
+     * @param lines    the lines of the warnings
+     * @param encoding the encoding of the file, if <code>null</code> or empty then the default encoding of the platform
+     *                 is used
+     * @return the hash codes of the source code, the hash code at index <code>i</code> belongs to the line at index
+     *         <code>i</code>
+     */
+    public int[] compute(final String fileName, final int[] lines, final String encoding) {
+        return new SourceMetadataService(encoding).getContextHashCodes(fileName, lines);
+    }
+}
@@ -2,6 +2,7 @@ package hudson.plugins.analysis.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
@@ -14,6 +15,9 @@ import org.apache.commons.lang.StringUtils;
  */
 // CHECKSTYLE:CONSTANTS-OFF
 public class CsharpNamespaceDetector extends AbstractPackageDetector {
+    /** The encoding of the files. */
+    private static final String ENCODING = "UTF-8";
+
     @Override
     public boolean accepts(final String fileName) {
         return fileName.endsWith(".cs");
@@ -23,16 +27,11 @@ public class CsharpNamespaceDetector extends AbstractPackageDetector {
     @Override
     public String detectPackageName(final InputStream stream) {
         try {
-            LineIterator iterator = IOUtils.lineIterator(stream, "UTF-8");
+            LineIterator iterator = IOUtils.lineIterator(stream, ENCODING);
             while (iterator.hasNext()) {
-                String line = iterator.nextLine();
-                if (line.matches("^namespace .*$")) {
-                    if (line.contains("{")) {
-                        return StringUtils.substringBetween(line, " ", "{").trim();
-                    }
-                    else {
-                        return StringUtils.substringAfter(line, " ").trim();
-                    }
+                String namespace = detectPackageNameInLine(iterator.nextLine());
+                if (namespace != null) {
+                    return namespace;
                 }
             }
         }
@@ -44,5 +43,23 @@ public class CsharpNamespaceDetector extends AbstractPackageDetector {
         }
         return UNKNOWN_PACKAGE;
     }
+
+    @Override
+    protected Charset getDefaultCharset() {
+        return Charset.forName(ENCODING);
+    }
+
+    @Override
+    protected String detectPackageNameInLine(final String line) {
+        if (line.matches("^namespace .*$")) {
+            if (line.contains("{")) {
+                return StringUtils.substringBetween(line, " ", "{").trim();
+            }
+            else {
+                return StringUtils.substringAfter(line, " ").trim();
+            }
+        }
+        return null;
+    }
 }
 
@@ -1,29 +1,51 @@
 package hudson.plugins.analysis.util;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import jenkins.security.MasterToSlaveCallable;
+
 import hudson.FilePath;
 import hudson.plugins.analysis.util.model.AbstractAnnotation;
 import hudson.plugins.analysis.util.model.AnnotationContainer;
 import hudson.plugins.analysis.util.model.DefaultAnnotationContainer;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.WorkspaceFile;
+import hudson.remoting.Callable;
 import hudson.remoting.VirtualChannel;
 
 /**
- * Provides a method to copy all files affected by warnings to the build folder.
+ * Provides a method to copy all files affected by warnings to the build folder. The contents of the files are stored
+ * in the {@link SourceStore} of the job, the build folder gets a manifest that references these contents.
  *
  * @author Ullrich Hafner
  * @since 1.69
  */
 public class Files {
     private static final String SLASH = "/";
+    /** Maximum number of bytes of source files that are transferred from the agent in a single call. */
+    private static final long MAX_BATCH_SIZE = 8 * 1024 * 1024;
 
     /**
      * Copies all files with annotations from the workspace to the build folder.
@@ -72,18 +94,102 @@ public class Files {
             }
         }
 
+        Map<String, String> tempNames = Maps.newHashMap();
         AnnotationContainer container = new DefaultAnnotationContainer(annotations);
         for (WorkspaceFile file : container.getFiles()) {
-            FilePath masterFile = directory.child(file.getTempName());
-            if (!masterFile.exists()) {
-                try {
-                    new FilePath(channel, file.getName()).copyTo(masterFile);
+            tempNames.put(file.getName(), file.getTempName());
+        }
+        if (tempNames.isEmpty()) {
+            return;
+        }
+
+        SourceHashes sources = call(channel, new ComputeHashes(tempNames.keySet()));
+        for (Entry<String, IOException> error : sources.getErrors().entrySet()) {
+            logExceptionToFile(error.getValue(), directory.child(tempNames.get(error.getKey())), error.getKey(),
+                    defaultEncoding);
+        }
+
+        FilePath store = SourceStore.getStoreDirectory(rootDir);
+        Properties manifest;
+        List<String> missingFiles = Lists.newArrayList();
+        synchronized (SourceStore.LOCK) {
+            // the manifest references the stored contents before the lock is released, so the contents are kept
+            // by a concurrent garbage collection of the store
+            manifest = SourceStore.readManifest(directory);
+            Collection<String> missingHashes = Sets.newHashSet();
+            for (Entry<String, String> hash : sources.getHashes().entrySet()) {
+                manifest.setProperty(tempNames.get(hash.getKey()), hash.getValue());
+                if (!missingHashes.contains(hash.getValue())
+                        && !store.child(SourceStore.getBlobPath(hash.getValue())).exists()) {
+                    missingHashes.add(hash.getValue());
+                    missingFiles.add(hash.getKey());
                 }
-                catch (IOException exception) {
-                    logExceptionToFile(exception, masterFile, file.getName(), defaultEncoding);
+            }
+            SourceStore.writeManifest(directory, manifest);
+        }
+
+        for (List<String> batch : createBatches(missingFiles, sources.getSizes())) {
+            Map<String, byte[]> contents = call(channel, new ReadSources(batch));
+            for (String fileName : batch) {
+                String tempName = tempNames.get(fileName);
+                byte[] content = contents.get(fileName);
+                if (content == null) {
+                    manifest.remove(tempName);
+                    logExceptionToFile(new FileNotFoundException(fileName), directory.child(tempName), fileName,
+                            defaultEncoding);
+                }
+                else {
+                    String hash = SourceStore.computeHash(content);
+                    store(store.child(SourceStore.getBlobPath(hash)), content);
+                    manifest.setProperty(tempName, hash);
                 }
             }
         }
+        SourceStore.writeManifest(directory, manifest);
+    }
+
+    private List<List<String>> createBatches(final List<String> fileNames, final Map<String, Long> sizes) {
+        List<List<String>> batches = Lists.newArrayList();
+        List<String> batch = Lists.newArrayList();
+        long batchSize = 0;
+        for (String fileName : fileNames) {
+            long size = sizes.get(fileName);
+            if (!batch.isEmpty() && batchSize + size > MAX_BATCH_SIZE) {
+                batches.add(batch);
+                batch = Lists.newArrayList();
+                batchSize = 0;
+            }
+            batch.add(fileName);
+            batchSize += size;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private void store(final FilePath blob, final byte[] content) throws IOException, InterruptedException {
+        if (!blob.exists()) {
+            FilePath directory = blob.getParent();
+            directory.mkdirs();
+            FilePath temp = directory.createTempFile(blob.getName(), SourceStore.TEMP_SUFFIX);
+            OutputStream output = temp.write();
+            try {
+                output.write(content);
+            }
+            finally {
+                IOUtils.closeQuietly(output);
+            }
+            temp.renameTo(blob);
+        }
+    }
+
+    private <V> V call(final VirtualChannel channel, final Callable<V, IOException> callable)
+            throws IOException, InterruptedException {
+        if (channel == null) {
+            return callable.call();
+        }
+        return channel.call(callable);
     }
 
     private void logExceptionToFile(final IOException exception, final FilePath masterFile,
@@ -128,4 +234,88 @@ public class Files {
             final Object... arguments) throws IOException {
         IOUtils.write(String.format(message, arguments), outputStream, defaultEncoding);
     }
+
+    /**
+     * The hashes and sizes of the source files in the workspace.
+     */
+    private static class SourceHashes implements Serializable {
+        private static final long serialVersionUID = 2311540546627787593L;
+
+        private final HashMap<String, String> hashes = new HashMap<String, String>();
+        private final HashMap<String, Long> sizes = new HashMap<String, Long>();
+        private final HashMap<String, IOException> errors = new HashMap<String, IOException>();
+
+        Map<String, String> getHashes() {
+            return hashes;
+        }
+
+        Map<String, Long> getSizes() {
+            return sizes;
+        }
+
+        Map<String, IOException> getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * Computes the hashes of all source files on the agent.
+     */
+    private static class ComputeHashes extends MasterToSlaveCallable<SourceHashes, IOException> {
+        private static final long serialVersionUID = -4437386620946596373L;
+
+        private final ArrayList<String> fileNames;
+
+        ComputeHashes(final Collection<String> fileNames) {
+            this.fileNames = new ArrayList<String>(fileNames);
+        }
+
+        @Override
+        public SourceHashes call() {
+            SourceHashes result = new SourceHashes();
+            for (String fileName : fileNames) {
+                InputStream input = null;
+                try {
+                    File file = new File(fileName);
+                    input = new FileInputStream(file);
+                    result.hashes.put(fileName, SourceStore.computeHash(input));
+                    result.sizes.put(fileName, file.length());
+                }
+                catch (IOException exception) {
+                    result.errors.put(fileName, exception);
+                }
+                finally {
+                    IOUtils.closeQuietly(input);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Reads the contents of the specified source files on the agent. Files that can't be read are skipped.
+     */
+    private static class ReadSources extends MasterToSlaveCallable<HashMap<String, byte[]>, IOException> {
+        private static final long serialVersionUID = -6893040012286935208L;
+
+        private final ArrayList<String> fileNames;
+
+        ReadSources(final Collection<String> fileNames) {
+            this.fileNames = new ArrayList<String>(fileNames);
+        }
+
+        @Override
+        public HashMap<String, byte[]> call() {
+            HashMap<String, byte[]> contents = new HashMap<String, byte[]>();
+            for (String fileName : fileNames) {
+                try {
+                    contents.put(fileName, FileUtils.readFileToByteArray(new File(fileName)));
+                }
+                catch (IOException exception) {
+                    // skip, reported on the master
+                }
+            }
+            return contents;
+        }
+    }
 }
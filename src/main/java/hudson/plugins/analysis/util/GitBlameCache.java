@@ -0,0 +1,235 @@
+package hudson.plugins.analysis.util;
+
+import javax.annotation.CheckForNull;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Caches the blame information of files in a Git repository. The blame information of a file depends only on the
+ * history of the file: as long as the blob of a file does not change, subsequent builds get the same result from a
+ * blame command. So the cache is keyed by the repository, the path, and the blob ID of a file. The cache is held in
+ * the memory of the agent that runs the blame command and is shared by all builds on that agent. The least recently
+ * used entries are evicted if the cache exceeds its size.
+ *
+ * @since 1.93
+ */
+final class GitBlameCache {
+    private static final int MAX_ENTRIES = Integer.getInteger(GitBlameCache.class.getName() + ".size", 5000);
+    private static final GitBlameCache INSTANCE = new GitBlameCache(MAX_ENTRIES);
+
+    private final Map<String, FileBlame> entries;
+
+    /**
+     * Returns the cache of this agent.
+     *
+     * @return the cache
+     */
+    static GitBlameCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a new instance of {@link GitBlameCache}.
+     *
+     * @param maxEntries
+     *            the maximum number of files to cache
+     */
+    @SuppressWarnings("serial")
+    GitBlameCache(final int maxEntries) {
+        entries = new LinkedHashMap<String, FileBlame>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, FileBlame> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached blame information of the specified file.
+     *
+     * @param repository
+     *            the ID of the repository (e.g., the URL of the origin)
+     * @param path
+     *            the path of the file in the repository
+     * @param blob
+     *            the ID of the blob of the file
+     * @return the blame information or <code>null</code> if the file is not in the cache
+     */
+    @CheckForNull
+    synchronized FileBlame get(final String repository, final String path, final ObjectId blob) {
+        return entries.get(createKey(repository, path, blob));
+    }
+
+    /**
+     * Stores the blame information of the specified file.
+     *
+     * @param repository
+     *            the ID of the repository (e.g., the URL of the origin)
+     * @param path
+     *            the path of the file in the repository
+     * @param blob
+     *            the ID of the blob of the file
+     * @param blame
+     *            the blame information
+     */
+    synchronized void put(final String repository, final String path, final ObjectId blob, final FileBlame blame) {
+        entries.put(createKey(repository, path, blob), blame);
+    }
+
+    /**
+     * Returns the number of cached files.
+     *
+     * @return the number of cached files
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private String createKey(final String repository, final String path, final ObjectId blob) {
+        return repository + '\n' + path + '\n' + blob.getName();
+    }
+
+    /**
+     * The blame information of all lines of a file: the commit, author name, and author email of each line. Lines
+     * that have been changed by the same commit share the same {@link Origin} instance.
+     */
+    static final class FileBlame implements Serializable {
+        private static final long serialVersionUID = 6471622098337962837L;
+
+        private final Origin[] origins;
+        private final int[] originByLine;
+
+        /**
+         * Creates the blame information of all lines of the specified blame result.
+         *
+         * @param result
+         *            the result of the blame command
+         * @return the blame information
+         */
+        static FileBlame of(final BlameResult result) {
+            int size = result.getResultContents().size();
+            Map<Origin, Integer> indexByOrigin = new HashMap<Origin, Integer>();
+            List<Origin> origins = Lists.newArrayList();
+            int[] originByLine = new int[size];
+            for (int line = 0; line < size; line++) {
+                Origin origin = Origin.of(result.getSourceCommit(line), result.getSourceAuthor(line));
+                Integer index = indexByOrigin.get(origin);
+                if (index == null) {
+                    index = origins.size();
+                    origins.add(origin);
+                    indexByOrigin.put(origin, index);
+                }
+                originByLine[line] = index;
+            }
+            return new FileBlame(origins.toArray(new Origin[origins.size()]), originByLine);
+        }
+
+        private FileBlame(final Origin[] origins, final int[] originByLine) {
+            this.origins = origins;
+            this.originByLine = originByLine;
+        }
+
+        /**
+         * Returns the number of lines of the file.
+         *
+         * @return the number of lines
+         */
+        int size() {
+            return originByLine.length;
+        }
+
+        /**
+         * Returns the origin of the specified line.
+         *
+         * @param lineIndex
+         *            the index of the line, the first line has index 0
+         * @return the origin of the line
+         */
+        Origin getOrigin(final int lineIndex) {
+            return origins[originByLine[lineIndex]];
+        }
+    }
+
+    /**
+     * The commit, author name, and author email of a line.
+     */
+    static final class Origin implements Serializable {
+        private static final long serialVersionUID = -2158546155307296217L;
+
+        @CheckForNull
+        private final String commit;
+        @CheckForNull
+        private final String name;
+        @CheckForNull
+        private final String email;
+
+        static Origin of(@CheckForNull final RevCommit commit, @CheckForNull final PersonIdent author) {
+            return new Origin(commit == null ? null : commit.getName(),
+                    author == null ? null : author.getName(),
+                    author == null ? null : author.getEmailAddress());
+        }
+
+        Origin(@CheckForNull final String commit, @CheckForNull final String name, @CheckForNull final String email) {
+            this.commit = commit;
+            this.name = name;
+            this.email = email;
+        }
+
+        @CheckForNull
+        String getCommit() {
+            return commit;
+        }
+
+        /**
+         * Returns whether the author of this origin is known.
+         *
+         * @return <code>true</code> if the author is known
+         */
+        boolean hasAuthor() {
+            return name != null || email != null;
+        }
+
+        @CheckForNull
+        String getName() {
+            return name;
+        }
+
+        @CheckForNull
+        String getEmail() {
+            return email;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Origin other = (Origin)obj;
+            return equal(commit, other.commit) && equal(name, other.name) && equal(email, other.email);
+        }
+
+        private static boolean equal(final String first, final String second) {
+            return first == null ? second == null : first.equals(second);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = commit == null ? 0 : commit.hashCode();
+            result = 31 * result + (name == null ? 0 : name.hashCode());
+            return 31 * result + (email == null ? 0 : email.hashCode());
+        }
+    }
+}
@@ -5,25 +5,38 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jgit.api.BlameCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.blame.BlameResult;
 import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.jenkinsci.plugins.gitclient.GitClient;
 import org.jenkinsci.plugins.gitclient.RepositoryCallback;
 
 import hudson.model.TaskListener;
+import hudson.plugins.analysis.util.GitBlameCache.FileBlame;
+import hudson.plugins.analysis.util.GitBlameCache.Origin;
 import hudson.plugins.git.GitException;
 import hudson.remoting.VirtualChannel;
 
 /**
- * Assigns git blames to warnings. Based on the solution by John Gibson, see JENKINS-6748.
+ * Assigns git blames to warnings. Based on the solution by John Gibson, see JENKINS-6748. The blame results are
+ * cached on the agent by path and blob ID (see {@link GitBlameCache}), so only files that have been changed since a
+ * previous build need to be blamed again. The remaining files are blamed either one after another or by a bounded
+ * pool of worker threads that share the same repository.
  *
  * @author Lukas Krose
  * @see <a href="http://issues.jenkins-ci.org/browse/JENKINS-6748">Issue 6748</a>
@@ -31,6 +44,7 @@ import hudson.remoting.VirtualChannel;
 public class GitBlamer extends AbstractBlamer {
     private final GitClient git;
     private final String gitCommit;
+    private final int numberOfThreads;
 
     /**
      * Creates a new blamer for Git.
@@ -40,10 +54,26 @@ public class GitBlamer extends AbstractBlamer {
      * @param listener  task listener to print logging statements to
      */
     public GitBlamer(final GitClient git, @CheckForNull final String gitCommit, final TaskListener listener) {
+        this(git, gitCommit, listener, 1);
+    }
+
+    /**
+     * Creates a new blamer for Git.
+     *
+     * @param git             git client
+     * @param gitCommit       content of environment variable GIT_COMMIT
+     * @param listener        task listener to print logging statements to
+     * @param numberOfThreads the number of threads that blame the files in parallel, a value less than 2 blames the
+     *                        files one after another
+     * @since 1.93
+     */
+    public GitBlamer(final GitClient git, @CheckForNull final String gitCommit, final TaskListener listener,
+            final int numberOfThreads) {
         super(git.getWorkTree(), listener);
 
         this.git = git;
         this.gitCommit = StringUtils.defaultString(gitCommit, "HEAD");
+        this.numberOfThreads = numberOfThreads;
 
         log("Using GitBlamer to create author and commit information for all warnings.%n");
         log("GIT_COMMIT=%s, workspace=%s%n", gitCommit, git.getWorkTree());
@@ -54,11 +84,12 @@ public class GitBlamer extends AbstractBlamer {
         return fillBlameResults(linesOfConflictingFiles, loadBlameResultsForFiles(linesOfConflictingFiles));
     }
 
-    private Map<String, BlameResult> loadBlameResultsForFiles(final Map<String, BlameRequest> linesOfConflictingFiles)
+    private Map<String, FileBlame> loadBlameResultsForFiles(final Map<String, BlameRequest> linesOfConflictingFiles)
             throws InterruptedException, IOException {
         try {
             ObjectId headCommit = git.revParse(gitCommit);
-            return git.withRepository(new BlameCallback(this, headCommit, linesOfConflictingFiles.values()));
+            return git.withRepository(new BlameCallback(this, headCommit, linesOfConflictingFiles.values(),
+                    numberOfThreads));
         }
         catch (GitException exception) {
             log("Can't determine head commit using 'git rev-parse'. Skipping blame. %n%s%n", exception.getMessage());
@@ -68,31 +99,30 @@ public class GitBlamer extends AbstractBlamer {
     }
 
     private Map<String, BlameRequest> fillBlameResults(final Map<String, BlameRequest> linesOfConflictingFiles,
-            final Map<String, BlameResult> blameResults) {
+            final Map<String, FileBlame> blameResults) {
         for (String fileName : linesOfConflictingFiles.keySet()) {
             BlameRequest request = linesOfConflictingFiles.get(fileName);
-            BlameResult blame = blameResults.get(request.getFileName());
+            FileBlame blame = blameResults.get(request.getFileName());
             if (blame == null) {
                 log("No blame details found for %s.%n", fileName);
             }
             else {
                 for (int line : request) {
                     int lineIndex = line - 1; // first line is index 0
-                    if (lineIndex < blame.getResultContents().size()) {
-                        PersonIdent who = blame.getSourceAuthor(lineIndex);
-                        if (who == null) {
-                            log("No author information found for line %d in file %s.%n", lineIndex, fileName);
+                    if (lineIndex < blame.size()) {
+                        Origin origin = blame.getOrigin(lineIndex);
+                        if (origin.hasAuthor()) {
+                            request.setName(line, origin.getName());
+                            request.setEmail(line, origin.getEmail());
                         }
                         else {
-                            request.setName(line, who.getName());
-                            request.setEmail(line, who.getEmailAddress());
+                            log("No author information found for line %d in file %s.%n", lineIndex, fileName);
                         }
-                        RevCommit commit = blame.getSourceCommit(lineIndex);
-                        if (commit == null) {
+                        if (origin.getCommit() == null) {
                             log("No commit ID found for line %d in file %s.%n", lineIndex, fileName);
                         }
                         else {
-                            request.setCommit(line, commit.getName());
+                            request.setCommit(line, origin.getCommit());
                         }
                     }
                 }
@@ -101,53 +131,196 @@ public class GitBlamer extends AbstractBlamer {
         return linesOfConflictingFiles;
     }
 
-    private static class BlameCallback implements RepositoryCallback<Map<String, BlameResult>> {
+    private static class BlameCallback implements RepositoryCallback<Map<String, FileBlame>> {
         private GitBlamer gitBlamer;
         private ObjectId headCommit;
         private Collection<BlameRequest> requests;
+        private int numberOfThreads;
 
-        public BlameCallback(final GitBlamer gitBlamer, final ObjectId headCommit, final Collection<BlameRequest> requests) {
+        public BlameCallback(final GitBlamer gitBlamer, final ObjectId headCommit, final Collection<BlameRequest> requests,
+                final int numberOfThreads) {
             this.gitBlamer = gitBlamer;
             this.headCommit = headCommit;
             this.requests = requests;
+            this.numberOfThreads = numberOfThreads;
         }
 
         @Override
-        public Map<String, BlameResult> invoke(final Repository repo, final VirtualChannel channel) throws IOException, InterruptedException {
-            Map<String, BlameResult> blameResults = new HashMap<String, BlameResult>();
+        public Map<String, FileBlame> invoke(final Repository repo, final VirtualChannel channel) throws IOException, InterruptedException {
+            Map<String, FileBlame> blameResults = new HashMap<String, FileBlame>();
             if (headCommit == null) {
                 gitBlamer.error("Could not retrieve HEAD commit, aborting.");
 
                 return blameResults;
             }
 
-            for (BlameRequest request : requests) {
-                BlameCommand blame = new BlameCommand(repo);
-                String fileName = request.getFileName();
-                blame.setFilePath(fileName);
-                blame.setStartCommit(headCommit);
-                try {
-                    BlameResult result = blame.call();
-                    if (result == null) {
-                        gitBlamer.log("No blame results for request <%s>.%n", request);
+            GitBlameCache cache = GitBlameCache.getInstance();
+            String repositoryId = getRepositoryId(repo);
+
+            Map<BlameRequest, ObjectId> misses = new LinkedHashMap<BlameRequest, ObjectId>();
+            RevWalk walk = new RevWalk(repo);
+            try {
+                RevTree tree = walk.parseCommit(headCommit).getTree();
+                for (BlameRequest request : requests) {
+                    String fileName = request.getFileName();
+                    ObjectId blob = getBlobId(repo, fileName, tree);
+                    FileBlame cached = blob == null ? null : cache.get(repositoryId, fileName, blob);
+                    if (cached == null) {
+                        misses.put(request, blob);
                     }
                     else {
-                        blameResults.put(fileName, result);
-                    }
-                    if (Thread.interrupted()) {
-                        String message = "Thread was interrupted while computing blame information.";
-                        gitBlamer.log(message);
-                        throw new InterruptedException(message);
+                        blameResults.put(fileName, cached);
                     }
                 }
-                catch (GitAPIException e) {
-                    String message = "Error running git blame on " + fileName + " with revision: " + headCommit;
-                    gitBlamer.error(message);
+            }
+            finally {
+                walk.close();
+            }
+            gitBlamer.log("Blame cache: %d hits, %d misses (%d files cached on this agent).%n",
+                    blameResults.size(), misses.size(), cache.size());
+
+            Map<BlameRequest, FileBlame> blames;
+            if (numberOfThreads > 1 && misses.size() > 1) {
+                blames = blameInParallel(repo, misses.keySet());
+            }
+            else {
+                blames = blameSequentially(repo, misses.keySet());
+            }
+            for (Entry<BlameRequest, FileBlame> entry : blames.entrySet()) {
+                String fileName = entry.getKey().getFileName();
+                blameResults.put(fileName, entry.getValue());
+                ObjectId blob = misses.get(entry.getKey());
+                if (blob != null) {
+                    cache.put(repositoryId, fileName, blob, entry.getValue());
                 }
             }
 
             return blameResults;
         }
+
+        private Map<BlameRequest, FileBlame> blameSequentially(final Repository repo,
+                final Collection<BlameRequest> blameRequests) throws InterruptedException {
+            Map<BlameRequest, FileBlame> blames = new LinkedHashMap<BlameRequest, FileBlame>();
+            for (BlameRequest request : blameRequests) {
+                FileBlame blame = runBlame(repo, request);
+                if (blame != null) {
+                    blames.put(request, blame);
+                }
+            }
+            return blames;
+        }
+
+        /**
+         * Blames the specified files using a pool of worker threads. All threads share the same repository, JGit
+         * creates a separate object reader for each blame command. If the calling thread is interrupted then all
+         * workers are interrupted as well.
+         */
+        private Map<BlameRequest, FileBlame> blameInParallel(final Repository repo,
+                final Collection<BlameRequest> blameRequests) throws InterruptedException {
+            int poolSize = Math.min(numberOfThreads, blameRequests.size());
+            gitBlamer.log("Blaming %d files using %d threads.%n", blameRequests.size(), poolSize);
+
+            ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+            try {
+                Map<BlameRequest, Future<FileBlame>> futures = new LinkedHashMap<BlameRequest, Future<FileBlame>>();
+                for (final BlameRequest request : blameRequests) {
+                    futures.put(request, executor.submit(new Callable<FileBlame>() {
+                        @Override
+                        public FileBlame call() throws InterruptedException {
+                            return runBlame(repo, request);
+                        }
+                    }));
+                }
+
+                Map<BlameRequest, FileBlame> blames = new LinkedHashMap<BlameRequest, FileBlame>();
+                for (Entry<BlameRequest, Future<FileBlame>> entry : futures.entrySet()) {
+                    FileBlame blame = getBlame(entry.getValue());
+                    if (blame != null) {
+                        blames.put(entry.getKey(), blame);
+                    }
+                }
+                return blames;
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @CheckForNull
+        private FileBlame getBlame(final Future<FileBlame> future) throws InterruptedException {
+            try {
+                return future.get();
+            }
+            catch (ExecutionException exception) {
+                Throwable cause = exception.getCause();
+                if (cause instanceof InterruptedException) {
+                    throw (InterruptedException) cause;
+                }
+                else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                else {
+                    throw new IllegalStateException(cause);
+                }
+            }
+        }
+
+        /**
+         * Returns an ID of the repository that is shared by all clones of the same origin. Since the blame results
+         * depend on the history of a file, only clones of the same origin should share the cached results.
+         */
+        private String getRepositoryId(final Repository repo) {
+            String origin = repo.getConfig().getString("remote", "origin", "url");
+            if (origin == null) {
+                return repo.getDirectory().getAbsolutePath();
+            }
+            return origin;
+        }
+
+        @CheckForNull
+        private ObjectId getBlobId(final Repository repo, final String fileName, final RevTree tree) throws IOException {
+            TreeWalk treeWalk = TreeWalk.forPath(repo, fileName, tree);
+            if (treeWalk == null) {
+                return null;
+            }
+            try {
+                return treeWalk.getObjectId(0);
+            }
+            finally {
+                treeWalk.close();
+            }
+        }
+
+        @CheckForNull
+        private FileBlame runBlame(final Repository repo, final BlameRequest request) throws InterruptedException {
+            BlameCommand blame = new BlameCommand(repo);
+            String fileName = request.getFileName();
+            blame.setFilePath(fileName);
+            blame.setStartCommit(headCommit);
+            try {
+                BlameResult result = blame.call();
+                if (Thread.interrupted()) {
+                    String message = "Thread was interrupted while computing blame information.";
+                    gitBlamer.log(message);
+                    throw new InterruptedException(message);
+                }
+                if (result == null) {
+                    gitBlamer.log("No blame results for request <%s>.%n", request);
+
+                    return null;
+                }
+                return FileBlame.of(result);
+            }
+            catch (GitAPIException e) {
+                String message = "Error running git blame on " + fileName + " with revision: " + headCommit;
+                gitBlamer.error(message);
+
+                return null;
+            }
+        }
     }
 
 //    /**
@@ -8,6 +8,7 @@ import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.model.AbstractBuild;
 import hudson.model.TaskListener;
+import hudson.plugins.analysis.core.GlobalSettings;
 import hudson.plugins.git.GitSCM;
 import hudson.scm.SCM;
 
@@ -59,7 +60,7 @@ public class GitChecker {
             GitClient gitClient = asGit(scm).createClient(listener, getEnvironment(build, listener), build, workspace);
             String gitCommit = getEnvironment(build, listener).get("GIT_COMMIT");
 
-            return new GitBlamer(gitClient, gitCommit, listener);
+            return new GitBlamer(gitClient, gitCommit, listener, GlobalSettings.parserInstance().getBlameThreads());
         }
         catch (IOException e) {
             return new NullBlamer();
@@ -36,10 +36,9 @@ public class JavaPackageDetector extends AbstractPackageDetector {
                     Charsets.toCharset(Charset.defaultCharset())));
 
             while (iterator.hasNext()) {
-                String line = iterator.nextLine();
-                Matcher matcher = pattern.matcher(line);
-                if (matcher.matches()) {
-                    return matcher.group(1);
+                String packageName = detectPackageNameInLine(iterator.nextLine());
+                if (packageName != null) {
+                    return packageName;
                 }
             }
         }
@@ -49,6 +48,15 @@ public class JavaPackageDetector extends AbstractPackageDetector {
         return UNKNOWN_PACKAGE;
     }
 
+    @Override
+    protected String detectPackageNameInLine(final String line) {
+        Matcher matcher = pattern.matcher(line);
+        if (matcher.matches()) {
+            return matcher.group(1);
+        }
+        return null;
+    }
+
     @Override
     public boolean accepts(final String fileName) {
         return fileName.endsWith(".java");
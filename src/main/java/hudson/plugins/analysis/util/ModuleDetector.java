@@ -1,15 +1,15 @@
 package hudson.plugins.analysis.util;
 
+import javax.annotation.CheckForNull;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
@@ -21,7 +21,10 @@ import org.xml.sax.SAXException;
 
 /**
  * Detects module names by parsing the name of a source file, the Maven pom.xml
- * file or the ANT build.xml file.
+ * file or the ANT build.xml file. The module of a file is the module of the
+ * longest path prefix that has a descriptor, the prefixes are stored in a
+ * {@link PrefixTrie}. The parsed module names can be cached between builds
+ * using a {@link ModuleMapCache}.
  *
  * @author Ulli Hafner
  * @author Christoph Laeubrich (support for OSGi-Bundles)
@@ -36,6 +39,8 @@ public class ModuleDetector {
     private static final String BUNDLE_SYMBOLIC_NAME = "Bundle-SymbolicName";
     private static final String BUNDLE_NAME = "Bundle-Name";
     private static final String REPLACEMENT_CHAR = "%";
+    private static final String PLUGIN_PROPERTIES = "plugin.properties";
+    private static final String BUNDLE_PROPERTIES = "OSGI-INF/l10n/bundle.properties";
 
     static final String MAVEN_POM = "pom.xml";
     static final String ANT_PROJECT = "build.xml";
@@ -47,17 +52,22 @@ public class ModuleDetector {
 
     /** The factory to create input streams with. */
     private FileInputStreamFactory factory = new DefaultFileInputStreamFactory();
+    /** Cache of the parsed module names. */
+    @CheckForNull
+    private ModuleMapCache cache;
+    /** The descriptors found in the workspace. */
+    private String[] descriptors = new String[0];
     /** Maps file names to module names. */
     private final Map<String, String> fileNameToModuleName;
-    /** Sorted list of file name prefixes. */
-    private final List<String> prefixes;
+    /** Trie of the file name prefixes. */
+    private final PrefixTrie prefixes;
 
     /**
      * Creates a new instance of {@link ModuleDetector}.
      */
     protected ModuleDetector() {
         fileNameToModuleName = new HashMap<String, String>();
-        prefixes = new ArrayList<String>();
+        prefixes = new PrefixTrie();
     }
 
     /**
@@ -67,7 +77,24 @@ public class ModuleDetector {
      *            the workspace to scan for Maven pom.xml or Ant build.xml files
      */
     public ModuleDetector(final File workspace) {
-        this(workspace, new DefaultFileInputStreamFactory());
+        this(workspace, false);
+    }
+
+    /**
+     * Creates a new instance of {@link ModuleDetector}. The module names of the descriptors that have not been
+     * changed since the previous invocation for the same workspace are taken from the cache of this agent.
+     *
+     * @param workspace
+     *            the workspace to scan for Maven pom.xml or Ant build.xml files
+     * @param isPersistent
+     *            determines whether the parsed module names should be persisted in the temporary folder of the
+     *            workspace
+     * @since 1.93
+     */
+    public ModuleDetector(final File workspace, final boolean isPersistent) {
+        this(workspace, new DefaultFileInputStreamFactory(), ModuleMapCache.get(workspace, isPersistent));
+
+        cache.store(workspace, Arrays.asList(descriptors), isPersistent);
     }
 
     /**
@@ -79,10 +106,28 @@ public class ModuleDetector {
      *            factory to load files
      */
     ModuleDetector(final File workspace, final FileInputStreamFactory fileInputStreamFactory) {
+        this(workspace, fileInputStreamFactory, null);
+    }
+
+    /**
+     * Creates a new instance of {@link ModuleDetector}.
+     *
+     * @param workspace
+     *            the workspace to scan for Maven pom.xml or ant build.xml files
+     * @param fileInputStreamFactory
+     *            factory to load files
+     * @param cache
+     *            the cache of module names, might be <code>null</code>
+     */
+    ModuleDetector(final File workspace, final FileInputStreamFactory fileInputStreamFactory,
+            @CheckForNull final ModuleMapCache cache) {
         factory = fileInputStreamFactory;
+        this.cache = cache;
         fileNameToModuleName = createFilesToModuleMapping(workspace);
-        prefixes = new ArrayList<String>(fileNameToModuleName.keySet());
-        Collections.sort(prefixes);
+        prefixes = new PrefixTrie();
+        for (Entry<String, String> prefix : fileNameToModuleName.entrySet()) {
+            prefixes.add(prefix.getKey(), prefix.getValue());
+        }
     }
 
     /**
@@ -98,23 +143,68 @@ public class ModuleDetector {
         String[] projects = find(workspace);
         for (String fileName : projects) {
             if (fileName.endsWith(ANT_PROJECT)) {
-                addMapping(mapping, fileName, ANT_PROJECT, parseBuildXml(fileName));
+                addMapping(mapping, fileName, ANT_PROJECT, getModuleName(fileName, ANT_PROJECT));
             }
         }
         for (String fileName : projects) {
             if (fileName.endsWith(MAVEN_POM)) {
-                addMapping(mapping, fileName, MAVEN_POM, parsePom(fileName));
+                addMapping(mapping, fileName, MAVEN_POM, getModuleName(fileName, MAVEN_POM));
             }
         }
         for (String fileName : projects) {
             if (fileName.endsWith(OSGI_BUNDLE)) {
-                addMapping(mapping, fileName, OSGI_BUNDLE, parseManifest(fileName));
+                addMapping(mapping, fileName, OSGI_BUNDLE, getModuleName(fileName, OSGI_BUNDLE));
             }
         }
+        descriptors = projects;
 
         return mapping;
     }
 
+    /**
+     * Returns the module name of the specified descriptor. If the descriptor has not been changed since it has been
+     * parsed the last time, then the module name is taken from the cache.
+     *
+     * @param fileName
+     *            the absolute file name of the descriptor
+     * @param suffix
+     *            the type of the descriptor
+     * @return the module name or an empty string if the name could not be resolved
+     */
+    private String getModuleName(final String fileName, final String suffix) {
+        if (cache == null) {
+            return parseModuleName(fileName, suffix);
+        }
+
+        String fingerprint = createFingerprint(fileName, suffix);
+        String moduleName = cache.get(fileName, fingerprint);
+        if (moduleName == null) {
+            moduleName = parseModuleName(fileName, suffix);
+            cache.put(fileName, fingerprint, moduleName);
+        }
+        return moduleName;
+    }
+
+    private String createFingerprint(final String fileName, final String suffix) {
+        if (OSGI_BUNDLE.equals(suffix)) {
+            String path = StringUtils.substringBefore(fileName, OSGI_BUNDLE);
+            return ModuleMapCache.createFingerprint(fileName, path + PLUGIN_PROPERTIES, path + BUNDLE_PROPERTIES);
+        }
+        return ModuleMapCache.createFingerprint(fileName);
+    }
+
+    private String parseModuleName(final String fileName, final String suffix) {
+        if (ANT_PROJECT.equals(suffix)) {
+            return parseBuildXml(fileName);
+        }
+        else if (MAVEN_POM.equals(suffix)) {
+            return parsePom(fileName);
+        }
+        else {
+            return parseManifest(fileName);
+        }
+    }
+
     private void addMapping(final Map<String, String> mapping, final String fileName, final String suffix, final String moduleName) {
         if (StringUtils.isNotBlank(moduleName)) {
             mapping.put(StringUtils.substringBeforeLast(fileName, suffix), moduleName);
@@ -130,15 +220,7 @@ public class ModuleDetector {
      * @return a module name or an empty string
      */
     public String guessModuleName(final String originalFileName) {
-        String fullPath = originalFileName.replace('\\', '/');
-
-        String guessedModule = StringUtils.EMPTY;
-        for (String path : prefixes) {
-            if (fullPath.startsWith(path)) {
-                guessedModule = fileNameToModuleName.get(path);
-            }
-        }
-        return guessedModule;
+        return prefixes.findLongestPrefix(originalFileName.replace('\\', '/'));
     }
 
     /**
@@ -284,8 +366,8 @@ public class ModuleDetector {
 
     private Properties readProperties(final String path) {
         Properties properties = new Properties();
-        readProperties(path, properties, "plugin.properties");
-        readProperties(path, properties, "OSGI-INF/l10n/bundle.properties");
+        readProperties(path, properties, PLUGIN_PROPERTIES);
+        readProperties(path, properties, BUNDLE_PROPERTIES);
 
         return properties;
     }
@@ -334,5 +416,104 @@ public class ModuleDetector {
             return new FileFinder(PATTERN).find(root);
         }
     }
-}
 
+    /**
+     * A trie of path prefixes that finds the longest prefix of a file name in time proportional to the number of
+     * folders of the file name. Each node of the trie represents a folder. Since a prefix does not need to end with
+     * a slash, each node stores the module names of the prefixes that end in this folder together with the remaining
+     * characters of the prefix (the tail, empty if the prefix ends with a slash).
+     */
+    static final class PrefixTrie {
+        private final Node root = new Node();
+
+        /**
+         * Adds the specified prefix.
+         *
+         * @param prefix
+         *            the prefix
+         * @param moduleName
+         *            the module name of the prefix
+         */
+        void add(final String prefix, final String moduleName) {
+            int lastSlash = prefix.lastIndexOf(SLASH);
+            Node node = root;
+            if (lastSlash >= 0) {
+                for (String folder : Arrays.asList(prefix.substring(0, lastSlash).split(SLASH, -1))) {
+                    node = node.getOrCreateChild(folder);
+                }
+            }
+            node.addTail(prefix.substring(lastSlash + 1), moduleName);
+        }
+
+        /**
+         * Returns the module name of the longest prefix of the specified file name.
+         *
+         * @param fileName
+         *            the file name
+         * @return the module name or an empty string if no prefix matches
+         */
+        String findLongestPrefix(final String fileName) {
+            String moduleName = StringUtils.EMPTY;
+            Node node = root;
+            int start = 0;
+            while (node != null) {
+                int end = fileName.indexOf(SLASH, start);
+                String folder = end < 0 ? fileName.substring(start) : fileName.substring(start, end);
+                String tailModule = node.findLongestTail(folder);
+                if (tailModule != null) {
+                    moduleName = tailModule;
+                }
+                if (end < 0) {
+                    break;
+                }
+                node = node.getChild(folder);
+                start = end + 1;
+            }
+            return moduleName;
+        }
+    }
+
+    /**
+     * A node of the {@link PrefixTrie}.
+     */
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<String, Node>();
+        @CheckForNull
+        private Map<String, String> moduleNamesByTail;
+
+        Node getOrCreateChild(final String folder) {
+            Node child = children.get(folder);
+            if (child == null) {
+                child = new Node();
+                children.put(folder, child);
+            }
+            return child;
+        }
+
+        @CheckForNull
+        Node getChild(final String folder) {
+            return children.get(folder);
+        }
+
+        void addTail(final String tail, final String moduleName) {
+            if (moduleNamesByTail == null) {
+                moduleNamesByTail = new HashMap<String, String>();
+            }
+            moduleNamesByTail.put(tail, moduleName);
+        }
+
+        @CheckForNull
+        String findLongestTail(final String folder) {
+            if (moduleNamesByTail == null) {
+                return null;
+            }
+            String longestTail = null;
+            for (String tail : moduleNamesByTail.keySet()) {
+                if (folder.startsWith(tail) && (longestTail == null || tail.length() > longestTail.length())) {
+                    longestTail = tail;
+                }
+            }
+            return longestTail == null ? null : moduleNamesByTail.get(longestTail);
+        }
+    }
+}
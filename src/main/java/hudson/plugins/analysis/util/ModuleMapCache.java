@@ -0,0 +1,173 @@
+package hudson.plugins.analysis.util;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caches the module names that {@link ModuleDetector} has parsed from the Maven, Ant and OSGi descriptors of a
+ * workspace. Each module name is stored together with a fingerprint (size and modification time) of its descriptor,
+ * so a descriptor is parsed again only if it has been changed. Each agent keeps the module names of a workspace in
+ * memory between builds. Optionally, they are also persisted in the temporary folder of the workspace. The module
+ * names are kept and persisted by a {@link WorkspaceStore}.
+ *
+ * @since 1.93
+ */
+final class ModuleMapCache {
+    /** Name of the file that stores the persisted module names. */
+    static final String CACHE_FILE_NAME = "analysis-module-map.txt";
+
+    private static final WorkspaceStore<ModuleMapCache> STORE = new WorkspaceStore<ModuleMapCache>(
+            CACHE_FILE_NAME, "module-map 1", new CacheFormat());
+
+    /** The fingerprints of the descriptors, mapped by the absolute file names of the descriptors. */
+    private final Map<String, String> fingerprints = new HashMap<String, String>();
+    /** The module names, mapped by the absolute file names of the descriptors. */
+    private final Map<String, String> moduleNames = new HashMap<String, String>();
+    private boolean isModified;
+
+    /**
+     * Returns the cached module names of the specified workspace. If there are no module names in the cache of this
+     * agent (or in the temporary folder of the workspace) then an empty cache is returned.
+     *
+     * @param workspace
+     *            the root of the workspace
+     * @param isPersistent
+     *            determines whether the module names are persisted in the temporary folder of the workspace
+     * @return the cache
+     */
+    static ModuleMapCache get(final File workspace, final boolean isPersistent) {
+        ModuleMapCache cache = STORE.get(workspace, isPersistent);
+        if (cache == null) {
+            cache = new ModuleMapCache();
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the file that stores the persisted module names of the specified workspace.
+     *
+     * @param workspace
+     *            the root of the workspace
+     * @return the file
+     */
+    static File getCacheFile(final File workspace) {
+        return STORE.getFile(workspace);
+    }
+
+    /**
+     * Returns the fingerprint of the specified descriptor and of the additional files that are used to resolve the
+     * module name.
+     *
+     * @param descriptor
+     *            the absolute file name of the descriptor
+     * @param additionalFiles
+     *            additional files that are read when parsing the descriptor
+     * @return the fingerprint
+     */
+    static String createFingerprint(final String descriptor, final String... additionalFiles) {
+        StringBuilder fingerprint = new StringBuilder();
+        appendFingerprint(fingerprint, new File(descriptor));
+        for (String additionalFile : additionalFiles) {
+            appendFingerprint(fingerprint, new File(additionalFile));
+        }
+        return fingerprint.toString();
+    }
+
+    private static void appendFingerprint(final StringBuilder fingerprint, final File file) {
+        fingerprint.append(file.length()).append(':').append(file.lastModified()).append(';');
+    }
+
+    /**
+     * Returns the cached module name of the specified descriptor.
+     *
+     * @param descriptor
+     *            the absolute file name of the descriptor
+     * @param fingerprint
+     *            the current fingerprint of the descriptor
+     * @return the module name, or <code>null</code> if the descriptor is not cached or has been changed
+     */
+    @CheckForNull
+    synchronized String get(final String descriptor, final String fingerprint) {
+        if (fingerprint.equals(fingerprints.get(descriptor))) {
+            return moduleNames.get(descriptor);
+        }
+        return null;
+    }
+
+    /**
+     * Stores the module name of the specified descriptor.
+     *
+     * @param descriptor
+     *            the absolute file name of the descriptor
+     * @param fingerprint
+     *            the current fingerprint of the descriptor
+     * @param moduleName
+     *            the module name
+     */
+    synchronized void put(final String descriptor, final String fingerprint, final String moduleName) {
+        fingerprints.put(descriptor, fingerprint);
+        moduleNames.put(descriptor, moduleName);
+        isModified = true;
+    }
+
+    /**
+     * Stores these module names in the cache of this agent and, if they have been modified, in the temporary folder
+     * of the workspace. Descriptors that are not part of the workspace anymore are removed before.
+     *
+     * @param workspace
+     *            the root of the workspace
+     * @param descriptors
+     *            the absolute file names of all descriptors of the workspace
+     * @param isPersistent
+     *            determines whether the module names are persisted in the temporary folder of the workspace
+     */
+    synchronized void store(final File workspace, final Collection<String> descriptors, final boolean isPersistent) {
+        if (moduleNames.keySet().retainAll(descriptors)) {
+            fingerprints.keySet().retainAll(descriptors);
+            isModified = true;
+        }
+        STORE.put(workspace, this);
+        if (isPersistent && isModified) {
+            STORE.save(workspace, this);
+        }
+        isModified = false;
+    }
+
+    /**
+     * Returns the number of cached module names.
+     *
+     * @return the number of cached module names
+     */
+    synchronized int size() {
+        return moduleNames.size();
+    }
+
+    /**
+     * Stores each descriptor in a record with the file name, the fingerprint, and the module name.
+     */
+    private static class CacheFormat implements WorkspaceStore.Format<ModuleMapCache> {
+        @Override
+        public void write(final ModuleMapCache cache, final WorkspaceStore.RecordWriter writer) throws IOException {
+            synchronized (cache) {
+                for (Map.Entry<String, String> moduleName : cache.moduleNames.entrySet()) {
+                    writer.write(moduleName.getKey(), cache.fingerprints.get(moduleName.getKey()),
+                            moduleName.getValue());
+                }
+            }
+        }
+
+        @Override
+        public ModuleMapCache read(final WorkspaceStore.RecordReader reader) throws IOException {
+            ModuleMapCache cache = new ModuleMapCache();
+            for (String[] record = reader.read(3); record != null; record = reader.read(3)) {
+                cache.fingerprints.put(record[0], record[1]);
+                cache.moduleNames.put(record[0], record[2]);
+            }
+            return cache;
+        }
+    }
+}
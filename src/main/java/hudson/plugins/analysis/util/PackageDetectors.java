@@ -1,11 +1,12 @@
 package hudson.plugins.analysis.util;
 
-import java.util.Arrays;
-import java.util.List;
+import javax.annotation.CheckForNull;
 
 /**
  * Provides convenient methods to determine the package or namespace names of a
- * file.
+ * file. The files are read using the {@link SourceMetadataService}, so each
+ * file is read only once for all of its warnings. Parsers that process many
+ * warnings should use {@link SourceMetadataService#assignPackageNames(java.util.Collection)}.
  *
  * @author Ulli Hafner
  */
@@ -13,9 +14,6 @@ public final class PackageDetectors {
     /** If no package could be assigned this value is used as package name. */
     public static final String UNDEFINED_PACKAGE = "-";
 
-    private static final List<AbstractPackageDetector> DETECTORS = Arrays.asList(
-            new JavaPackageDetector(), new CsharpNamespaceDetector());
-
     /**
      * Detects the package name of the specified file based on several detector
      * strategies.
@@ -25,12 +23,23 @@ public final class PackageDetectors {
      * @return the package name or an empty string
      */
     public static String detectPackageName(final String fileName) {
-        for (PackageDetector detector : DETECTORS) {
-            if (detector.accepts(fileName)) {
-                return detector.detectPackageName(fileName);
-            }
-        }
-        return UNDEFINED_PACKAGE;
+        return detectPackageName(fileName, null);
+    }
+
+    /**
+     * Detects the package name of the specified file based on several detector
+     * strategies.
+     *
+     * @param fileName
+     *            the filename of the file to scan
+     * @param encoding
+     *            the encoding of the file, if <code>null</code> or empty then
+     *            the default encoding of the platform is used
+     * @return the package name or an empty string
+     * @since 1.93
+     */
+    public static String detectPackageName(final String fileName, @CheckForNull final String encoding) {
+        return new SourceMetadataService(encoding).getPackageName(fileName);
     }
 
     /**
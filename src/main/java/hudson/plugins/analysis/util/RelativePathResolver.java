@@ -0,0 +1,89 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jenkins.MasterToSlaveFileCallable;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Resolves a collection of relative file names in the workspace with a single remote call. A file name is resolved
+ * if there is a file with that name relative to the workspace root. Otherwise the name is optionally resolved using
+ * the {@link WorkspaceFileIndex} of the workspace.
+ *
+ * @since 1.93
+ */
+public class RelativePathResolver extends MasterToSlaveFileCallable<Map<String, String>> {
+    private static final long serialVersionUID = -1467263395613463318L;
+    private static final String SLASH = "/";
+
+    private final List<String> fileNames;
+    private final boolean canScanWorkspace;
+    private final String includePattern;
+    private final boolean isPersistent;
+
+    /**
+     * Creates a new instance of {@link RelativePathResolver}.
+     *
+     * @param fileNames
+     *            the relative file names to resolve
+     * @param canScanWorkspace
+     *            determines whether file names that do not exist relative to the workspace root should be resolved
+     *            using the index of all workspace files
+     * @param includePattern
+     *            Ant file-set pattern of the workspace files to index
+     * @param isPersistent
+     *            determines whether the index should be persisted in the temporary folder of the workspace
+     */
+    public RelativePathResolver(final Collection<String> fileNames, final boolean canScanWorkspace,
+            final String includePattern, final boolean isPersistent) {
+        this.fileNames = new ArrayList<String>(fileNames);
+        this.canScanWorkspace = canScanWorkspace;
+        this.includePattern = includePattern;
+        this.isPersistent = isPersistent;
+    }
+
+    /**
+     * Returns the absolute file names of the relative file names.
+     *
+     * @param workspace
+     *            root directory of the workspace
+     * @param channel
+     *            not used
+     * @return the absolute file names, mapped by the relative file names. If a file name could not be resolved then
+     *         the value is <code>null</code>.
+     * @throws IOException
+     *             if the workspace could not be read
+     */
+    @Override
+    public Map<String, String> invoke(final File workspace, final VirtualChannel channel) throws IOException {
+        FilePath root = new FilePath(workspace);
+        WorkspaceFileIndex index = null;
+
+        Map<String, String> absoluteFileNames = new HashMap<String, String>();
+        for (String fileName : fileNames) {
+            String absoluteFileName = null;
+            if (new File(workspace, fileName).exists()) {
+                absoluteFileName = root.child(fileName).getRemote();
+            }
+            else if (canScanWorkspace) {
+                if (index == null) {
+                    index = WorkspaceFileIndex.get(workspace, includePattern, isPersistent);
+                }
+                String match = index.resolve(fileName);
+                if (match != null) {
+                    absoluteFileName = root.getRemote() + SLASH + match;
+                }
+            }
+            absoluteFileNames.put(fileName, absoluteFileName);
+        }
+        return absoluteFileNames;
+    }
+}
@@ -0,0 +1,179 @@
+package hudson.plugins.analysis.util;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+
+/**
+ * Metadata of a source file that has been extracted by the {@link SourceMetadataService} in a single pass over the
+ * file: the package or namespace name and an index of the lines that contains the hash code and length of each line.
+ * The index is sufficient to compute the context hash codes of warnings (see {@link ContextHashCode}) without reading
+ * the file again. If only the first lines of the file are required (e.g., to detect the package name) then the
+ * index is incomplete and contains only these lines.
+ *
+ * @since 1.93
+ */
+public final class SourceMetadata {
+    private static final int HASH_MULTIPLIER = 31;
+
+    @CheckForNull
+    private final String packageName;
+    private final int[] hashCodes;
+    private final int[] lengths;
+    private final boolean isComplete;
+    private final long lastModified;
+    private final long length;
+
+    /**
+     * Creates a new instance of {@link SourceMetadata}.
+     *
+     * @param packageName
+     *            the package or namespace name, or <code>null</code> if the package name has not been detected in
+     *            the indexed lines
+     * @param hashCodes
+     *            the hash codes of the lines
+     * @param lengths
+     *            the lengths of the lines
+     * @param isComplete
+     *            determines whether all lines of the file have been indexed
+     * @param lastModified
+     *            the modification time of the file before it has been read
+     * @param length
+     *            the size of the file before it has been read
+     */
+    SourceMetadata(@CheckForNull final String packageName, final int[] hashCodes, final int[] lengths,
+            final boolean isComplete, final long lastModified, final long length) {
+        this.packageName = packageName;
+        this.hashCodes = hashCodes;
+        this.lengths = lengths;
+        this.isComplete = isComplete;
+        this.lastModified = lastModified;
+        this.length = length;
+    }
+
+    /**
+     * Returns the package or namespace name of the file.
+     *
+     * @return the package name or {@link PackageDetectors#UNDEFINED_PACKAGE} if the file contains no package
+     *         declaration
+     */
+    public String getPackageName() {
+        if (packageName == null) {
+            return PackageDetectors.UNDEFINED_PACKAGE;
+        }
+        return packageName;
+    }
+
+    /**
+     * Returns whether the package name has been detected, i.e. whether the package declaration is part of the
+     * indexed lines or the file has no package declaration at all.
+     *
+     * @return <code>true</code> if the package name has been detected
+     */
+    boolean isPackageNameDetected() {
+        return packageName != null;
+    }
+
+    /**
+     * Returns the number of indexed lines of the file.
+     *
+     * @return the number of lines
+     */
+    public int getNumberOfLines() {
+        return hashCodes.length;
+    }
+
+    /**
+     * Returns whether all lines of the file have been indexed.
+     *
+     * @return <code>true</code> if all lines have been indexed, <code>false</code> if only the first lines have been
+     *         indexed
+     */
+    public boolean isComplete() {
+        return isComplete;
+    }
+
+    /**
+     * Returns the number of lines that need to be indexed to compute the context hash code of the specified line.
+     *
+     * @param line
+     *            the line of the warning
+     * @return the number of lines
+     */
+    static int getRequiredLines(final int line) {
+        return Math.max(0, line + ContextHashCode.LINES_LOOK_AHEAD + 2);
+    }
+
+    /**
+     * Returns whether the context hash code of the specified line can be computed with the indexed lines.
+     *
+     * @param line
+     *            the line of the warning
+     * @return <code>true</code> if the context of the line has been indexed
+     */
+    boolean covers(final int line) {
+        return isComplete || getRequiredLines(line) <= hashCodes.length;
+    }
+
+    /**
+     * Returns the context hash code of the specified line. The hash code is the same as the hash code that is
+     * computed by {@link ContextHashCode#compute(String, int, String)}. The context of the line must be part of the
+     * indexed lines, see {@link #isComplete()}.
+     *
+     * @param line
+     *            the line of the warning
+     * @return the hash code of the source code
+     */
+    public int getContextHashCode(final int line) {
+        int end = Math.min(hashCodes.length - 1, Math.max(0, line + ContextHashCode.LINES_LOOK_AHEAD + 1));
+
+        int hashCode = 0;
+        for (int i = Math.max(0, line - ContextHashCode.LINES_LOOK_AHEAD); i <= end; i++) {
+            hashCode = hashCode * power(lengths[i]) + hashCodes[i];
+        }
+        return hashCode;
+    }
+
+    /**
+     * Returns the context hash codes of the specified lines.
+     *
+     * @param lines
+     *            the lines of the warnings
+     * @return the hash codes of the source code, the hash code at index <code>i</code> belongs to the line at index
+     *         <code>i</code>
+     * @see #getContextHashCode(int)
+     */
+    public int[] getContextHashCodes(final int[] lines) {
+        int[] contextHashCodes = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            contextHashCodes[i] = getContextHashCode(lines[i]);
+        }
+        return contextHashCodes;
+    }
+
+    /**
+     * Computes {@code 31^exponent} using the overflow semantics of {@link String#hashCode()}, so that the hash code
+     * of a concatenation can be composed from the hash codes of its parts.
+     */
+    private static int power(final int exponent) {
+        int result = 1;
+        int base = HASH_MULTIPLIER;
+        for (int remaining = exponent; remaining > 0; remaining >>= 1) {
+            if ((remaining & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether this metadata still reflects the content of the specified file.
+     *
+     * @param file
+     *            the file
+     * @return <code>true</code> if the file has not been changed since the metadata has been extracted
+     */
+    boolean isValid(final File file) {
+        return file.lastModified() == lastModified && file.length() == length;
+    }
+}
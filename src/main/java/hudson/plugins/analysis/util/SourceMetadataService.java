@@ -0,0 +1,299 @@
+package hudson.plugins.analysis.util;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.LineIterator;
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+
+/**
+ * Provides the {@link SourceMetadata} of source files. Each source file is read at most once: the package or
+ * namespace name and the index of the lines that is required for the context hash codes are extracted in the same
+ * pass. A file is read only as far as required: if only the package name is requested then reading stops at the
+ * package declaration, if only context hash codes are requested then reading stops after the context of the last
+ * warning. The metadata is cached on the agent by the absolute path of the file (and the encoding) so that the
+ * parsers and the {@link hudson.plugins.analysis.core.AnnotationsClassifier} of a build share the results. A cached
+ * entry is reused as long as the size and the modification time of the file are unchanged and it contains the
+ * requested lines. The cache is bounded by the total number of indexed lines, the least recently used files are
+ * evicted first.
+ *
+ * @since 1.93
+ */
+public class SourceMetadataService {
+    /** Maximum number of indexed lines of all cached files. */
+    private static final long MAX_LINES = Long.getLong(SourceMetadataService.class.getName() + ".size", 2000000L);
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final Map<String, SourceMetadata> CACHE = new LinkedHashMap<String, SourceMetadata>(16, 0.75f, true);
+    private static long cachedLines;
+
+    private static final List<AbstractPackageDetector> DETECTORS = Arrays.asList(
+            new JavaPackageDetector(), new CsharpNamespaceDetector());
+
+    /** The encoding to read the files with, or <code>null</code> if no encoding has been specified. */
+    @CheckForNull
+    private final String encoding;
+
+    /**
+     * Creates a new instance of {@link SourceMetadataService}.
+     *
+     * @param encoding
+     *            the encoding of the files, if <code>null</code> or empty then the default encoding of the platform is
+     *            used. The package names are detected using the default encoding of the package detector in this
+     *            case (e.g., UTF-8 for C# files).
+     */
+    public SourceMetadataService(@CheckForNull final String encoding) {
+        if (StringUtils.isBlank(encoding)) {
+            this.encoding = null;
+        }
+        else {
+            this.encoding = EncodingValidator.defaultCharset(encoding).name();
+        }
+    }
+
+    /**
+     * Returns the metadata of the specified file. All lines of the file are indexed.
+     *
+     * @param fileName
+     *            the absolute path of the file
+     * @return the metadata, or <code>null</code> if the file could not be read
+     */
+    @CheckForNull
+    public SourceMetadata get(final String fileName) {
+        return get(fileName, getCharset(), Integer.MAX_VALUE, false);
+    }
+
+    @CheckForNull
+    private SourceMetadata get(final String fileName, final String charset, final int requiredLines,
+            final boolean isPackageNameRequired) {
+        String key = charset + '\n' + fileName;
+        File file = new File(fileName);
+        synchronized (CACHE) {
+            SourceMetadata metadata = CACHE.get(key);
+            if (metadata != null && metadata.isValid(file)
+                    && (metadata.isComplete() || requiredLines <= metadata.getNumberOfLines())
+                    && (!isPackageNameRequired || metadata.isPackageNameDetected())) {
+                return metadata;
+            }
+        }
+
+        SourceMetadata metadata = read(file, charset, requiredLines, isPackageNameRequired);
+        if (metadata != null) {
+            put(key, metadata);
+        }
+        return metadata;
+    }
+
+    /**
+     * Returns the cached metadata of the specified file.
+     *
+     * @param fileName
+     *            the absolute path of the file
+     * @return the metadata, or <code>null</code> if the file is not cached
+     */
+    @CheckForNull
+    SourceMetadata getCached(final String fileName) {
+        synchronized (CACHE) {
+            return CACHE.get(getCharset() + '\n' + fileName);
+        }
+    }
+
+    private String getCharset() {
+        if (encoding == null) {
+            return Charset.defaultCharset().name();
+        }
+        return encoding;
+    }
+
+    private String getCharset(final AbstractPackageDetector detector) {
+        if (encoding == null) {
+            return detector.getDefaultCharset().name();
+        }
+        return encoding;
+    }
+
+    /**
+     * Returns the metadata of the specified files.
+     *
+     * @param fileNames
+     *            the absolute paths of the files
+     * @return the metadata mapped by the file names, files that could not be read are not part of the mapping
+     */
+    public Map<String, SourceMetadata> get(final Collection<String> fileNames) {
+        Map<String, SourceMetadata> metadata = Maps.newHashMap();
+        for (String fileName : fileNames) {
+            if (!metadata.containsKey(fileName)) {
+                SourceMetadata fileMetadata = get(fileName);
+                if (fileMetadata != null) {
+                    metadata.put(fileName, fileMetadata);
+                }
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Returns the package or namespace name of the specified file. Files that are not accepted by any of the
+     * package detectors are not read.
+     *
+     * @param fileName
+     *            the absolute path of the file
+     * @return the package name or {@link PackageDetectors#UNDEFINED_PACKAGE} if the package could not be detected
+     */
+    public String getPackageName(final String fileName) {
+        AbstractPackageDetector detector = getDetector(fileName);
+        if (detector == null) {
+            return PackageDetectors.UNDEFINED_PACKAGE;
+        }
+        SourceMetadata metadata = get(fileName, getCharset(detector), 0, true);
+        if (metadata == null) {
+            return PackageDetectors.UNDEFINED_PACKAGE;
+        }
+        return metadata.getPackageName();
+    }
+
+    /**
+     * Returns the context hash codes of the specified lines of a file.
+     *
+     * @param fileName
+     *            the absolute path of the file
+     * @param lines
+     *            the lines of the warnings
+     * @return the hash codes of the source code, the hash code at index <code>i</code> belongs to the line at index
+     *         <code>i</code>. If the file could not be read then the hash code of the file name is used.
+     * @see ContextHashCode#compute(String, int[], String)
+     */
+    public int[] getContextHashCodes(final String fileName, final int[] lines) {
+        int requiredLines = 0;
+        for (int line : lines) {
+            requiredLines = Math.max(requiredLines, SourceMetadata.getRequiredLines(line));
+        }
+        SourceMetadata metadata = get(fileName, getCharset(), requiredLines, false);
+        if (metadata == null) {
+            int[] hashCodes = new int[lines.length];
+            Arrays.fill(hashCodes, fileName.hashCode());
+            return hashCodes;
+        }
+        return metadata.getContextHashCodes(lines);
+    }
+
+    /**
+     * Assigns the package or namespace names to all annotations that have no package name yet. Each file is read
+     * only once for all of its annotations.
+     *
+     * @param annotations
+     *            the annotations
+     */
+    public void assignPackageNames(final Collection<? extends AbstractAnnotation> annotations) {
+        ListMultimap<String, AbstractAnnotation> annotationsByFile = ArrayListMultimap.create();
+        for (AbstractAnnotation annotation : annotations) {
+            if (!annotation.hasPackageName()) {
+                annotationsByFile.put(annotation.getFileName(), annotation);
+            }
+        }
+        for (String fileName : annotationsByFile.keySet()) {
+            String packageName = getPackageName(fileName);
+            for (AbstractAnnotation annotation : annotationsByFile.get(fileName)) {
+                annotation.setPackageName(packageName);
+            }
+        }
+    }
+
+    @CheckForNull
+    private static AbstractPackageDetector getDetector(final String fileName) {
+        for (AbstractPackageDetector detector : DETECTORS) {
+            if (detector.accepts(fileName)) {
+                return detector;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the first lines of the specified file. Reading stops as soon as the required number of lines has been
+     * read and, if required, the package name has been detected.
+     */
+    @CheckForNull
+    private SourceMetadata read(final File file, final String charset, final int requiredLines,
+            final boolean isPackageNameRequired) {
+        long lastModified = file.lastModified();
+        long length = file.length();
+        AbstractPackageDetector detector = getDetector(file.getPath());
+        if (detector != null && !charset.equals(getCharset(detector))) {
+            detector = null; // the package name would be detected using the wrong encoding
+        }
+        String packageName = null;
+
+        int[] hashCodes = new int[INITIAL_CAPACITY];
+        int[] lengths = new int[INITIAL_CAPACITY];
+        int lines = 0;
+        boolean isComplete = true;
+        try {
+            LineIterator iterator = EncodingValidator.readFile(file.getPath(), charset);
+            try {
+                while (iterator.hasNext()) {
+                    if (lines >= requiredLines && (!isPackageNameRequired || packageName != null)) {
+                        isComplete = false;
+                        break;
+                    }
+                    String line = iterator.nextLine();
+                    if (detector != null && packageName == null) {
+                        packageName = detector.detectPackageNameInLine(line);
+                    }
+                    if (lines == hashCodes.length) {
+                        hashCodes = Arrays.copyOf(hashCodes, lines * 2);
+                        lengths = Arrays.copyOf(lengths, lines * 2);
+                    }
+                    hashCodes[lines] = line.hashCode();
+                    lengths[lines] = line.length();
+                    lines++;
+                }
+            }
+            finally {
+                iterator.close();
+            }
+        }
+        catch (IOException exception) {
+            return null;
+        }
+
+        if (packageName == null && detector != null && isComplete) {
+            packageName = PackageDetectors.UNDEFINED_PACKAGE;
+        }
+        return new SourceMetadata(packageName, Arrays.copyOf(hashCodes, lines), Arrays.copyOf(lengths, lines),
+                isComplete, lastModified, length);
+    }
+
+    private static void put(final String key, final SourceMetadata metadata) {
+        if (metadata.getNumberOfLines() > MAX_LINES) {
+            return;
+        }
+        synchronized (CACHE) {
+            SourceMetadata previous = CACHE.put(key, metadata);
+            if (previous != null) {
+                cachedLines -= previous.getNumberOfLines();
+            }
+            cachedLines += metadata.getNumberOfLines();
+
+            Iterator<SourceMetadata> eldest = CACHE.values().iterator();
+            while (cachedLines > MAX_LINES && eldest.hasNext()) {
+                cachedLines -= eldest.next().getNumberOfLines();
+                eldest.remove();
+            }
+        }
+    }
+}
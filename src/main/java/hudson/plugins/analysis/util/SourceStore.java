@@ -0,0 +1,419 @@
+package hudson.plugins.analysis.util;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.collect.Sets;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+
+/**
+ * Content addressed store for the source files that contain warnings. The contents of the source files are stored
+ * only once per job in the folder {@value #STORE_DIRECTORY}, the name of a stored file is the SHA-1 hash of its
+ * content. Each build gets a manifest in its folder {@link AbstractAnnotation#WORKSPACE_FILES} that maps the temporary
+ * names of the source files (see {@link hudson.plugins.analysis.util.model.WorkspaceFile#getTempName()}) to the
+ * hashes of the contents. Builds without manifest still use the copies of the source files in their
+ * {@link AbstractAnnotation#WORKSPACE_FILES} folder.
+ * <p>
+ * When a build is deleted, the stored contents that are not referenced by the manifest of any other build of the job
+ * are removed (see {@link #collectGarbage(File)}).
+ *
+ * @since 1.93
+ */
+public final class SourceStore {
+    /** Folder of the job that contains the contents of the source files. */
+    public static final String STORE_DIRECTORY = "workspace-sources";
+    /** File name of the manifest in the folder {@link AbstractAnnotation#WORKSPACE_FILES} of a build. */
+    public static final String MANIFEST = "sources.manifest";
+
+    private static final Logger LOGGER = Logger.getLogger(SourceStore.class.getName());
+    private static final int MAX_MANIFESTS = 100;
+    private static final int BUFFER_SIZE = 8192;
+    /** Suffix of the temporary files that are renamed to a stored content when completely written. */
+    static final String TEMP_SUFFIX = ".part";
+
+    /**
+     * Lock that guards the manifests and the stored contents: a manifest must reference all of its contents before
+     * this lock is released, otherwise the contents might be removed by {@link #collectGarbage(File)}.
+     */
+    static final Object LOCK = new Object();
+
+    private static final Map<File, Manifest> MANIFESTS = new LinkedHashMap<File, Manifest>(16, 0.75f, true) {
+        private static final long serialVersionUID = -7044212446394207745L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<File, Manifest> eldest) {
+            return size() > MAX_MANIFESTS;
+        }
+    };
+
+    /**
+     * Returns the stored content of the specified source file of a build.
+     *
+     * @param buildRoot
+     *            the root folder of the build
+     * @param tempName
+     *            the temporary name of the source file
+     * @return the file with the content of the source file or <code>null</code> if the source file is not part of the
+     *         manifest of the build
+     */
+    @CheckForNull
+    public static File getSourceFile(@CheckForNull final File buildRoot, final String tempName) {
+        if (buildRoot == null) {
+            return null;
+        }
+        String hash = getManifest(buildRoot).get(tempName);
+        if (hash == null) {
+            return null;
+        }
+        File blob = new File(getStoreDirectory(buildRoot), getBlobPath(hash));
+        if (blob.exists()) {
+            return blob;
+        }
+        return null;
+    }
+
+    /**
+     * Copies the manifest entries and the stored contents of the source files of a build to another build. Existing
+     * entries of the target build are kept.
+     *
+     * @param sourceBuildRoot
+     *            the root folder of the build to copy the source files from
+     * @param targetBuildRoot
+     *            the root folder of the build to copy the source files to
+     * @throws IOException
+     *             if the files could not be copied
+     * @throws InterruptedException
+     *             if the user cancels the processing
+     */
+    public static void copy(final File sourceBuildRoot, final File targetBuildRoot)
+            throws IOException, InterruptedException {
+        FilePath source = new FilePath(sourceBuildRoot);
+        Properties entries = readManifest(getManifestDirectory(source));
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        FilePath sourceStore = getStoreDirectory(source);
+        FilePath target = new FilePath(targetBuildRoot);
+        FilePath targetStore = getStoreDirectory(target);
+        synchronized (LOCK) {
+            for (String tempName : entries.stringPropertyNames()) {
+                String blobPath = getBlobPath(entries.getProperty(tempName));
+                FilePath targetBlob = targetStore.child(blobPath);
+                FilePath sourceBlob = sourceStore.child(blobPath);
+                if (!targetBlob.exists() && sourceBlob.exists()) {
+                    targetBlob.getParent().mkdirs();
+                    sourceBlob.copyTo(targetBlob);
+                }
+            }
+            FilePath directory = getManifestDirectory(target);
+            directory.mkdirs();
+            Properties merged = readManifest(directory);
+            merged.putAll(entries);
+            writeManifest(directory, merged);
+        }
+    }
+
+    /**
+     * Removes the stored contents that are referenced only by the specified build, i.e. the contents that are not
+     * referenced by the manifest of another build of the job. This method is called before the folder of the build
+     * is deleted. If a manifest of another build can't be read, then no content is removed.
+     *
+     * @param buildRoot
+     *            the root folder of the deleted build
+     * @return the number of removed contents
+     */
+    public static int collectGarbage(final File buildRoot) {
+        File builds = buildRoot.getParentFile();
+        if (builds == null || builds.getParentFile() == null) {
+            return 0;
+        }
+        File store = getStoreDirectory(buildRoot);
+        synchronized (LOCK) {
+            synchronized (MANIFESTS) {
+                MANIFESTS.remove(buildRoot);
+            }
+            File[] folders = store.listFiles();
+            if (folders == null) {
+                return 0;
+            }
+            try {
+                Set<String> referenced = getReferencedContents(builds, buildRoot.getCanonicalFile());
+                int removed = 0;
+                for (File folder : folders) {
+                    removed += removeUnreferencedContents(folder, referenced);
+                }
+                return removed;
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't remove stored source files of " + buildRoot, exception);
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        }
+    }
+
+    private static Set<String> getReferencedContents(final File builds, final File deletedBuild)
+            throws IOException, InterruptedException {
+        Set<String> referenced = Sets.newHashSet();
+        File[] candidates = builds.listFiles();
+        if (candidates == null) {
+            throw new IOException("Can't list builds in " + builds);
+        }
+        for (File build : candidates) {
+            if (build.isDirectory() && !build.getCanonicalFile().equals(deletedBuild)) {
+                for (Object hash : readManifest(getManifestDirectory(new FilePath(build))).values()) {
+                    referenced.add((String)hash);
+                }
+            }
+        }
+        return referenced;
+    }
+
+    private static int removeUnreferencedContents(final File folder, final Set<String> referenced) {
+        File[] blobs = folder.listFiles();
+        if (blobs == null) {
+            return 0;
+        }
+        int removed = 0;
+        for (File blob : blobs) {
+            if (!blob.getName().endsWith(TEMP_SUFFIX) && !referenced.contains(blob.getName())) {
+                if (blob.delete()) {
+                    removed++;
+                }
+                else {
+                    LOGGER.log(Level.FINE, "Can't remove stored source file " + blob);
+                }
+            }
+        }
+        String[] remaining = folder.list();
+        if (remaining != null && remaining.length == 0 && !folder.delete()) {
+            LOGGER.log(Level.FINE, "Can't remove folder " + folder);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the store folder of the job of the specified build. The store is located in the parent of the folder
+     * that contains the builds of the job.
+     *
+     * @param buildRoot
+     *            the root folder of the build
+     * @return the store folder
+     */
+    static FilePath getStoreDirectory(final FilePath buildRoot) {
+        FilePath builds = buildRoot.getParent();
+        if (builds == null || builds.getParent() == null) {
+            return buildRoot.child(STORE_DIRECTORY);
+        }
+        return builds.getParent().child(STORE_DIRECTORY);
+    }
+
+    private static File getStoreDirectory(final File buildRoot) {
+        File builds = buildRoot.getParentFile();
+        if (builds == null || builds.getParentFile() == null) {
+            return new File(buildRoot, STORE_DIRECTORY);
+        }
+        return new File(builds.getParentFile(), STORE_DIRECTORY);
+    }
+
+    /**
+     * Returns the path of the specified content relative to the store folder.
+     *
+     * @param hash
+     *            the hash of the content
+     * @return the relative path
+     */
+    static String getBlobPath(final String hash) {
+        return hash.substring(0, 2) + "/" + hash;
+    }
+
+    /**
+     * Returns the folder that contains the manifest of the specified build.
+     *
+     * @param buildRoot
+     *            the root folder of the build
+     * @return the folder of the manifest
+     */
+    static FilePath getManifestDirectory(final FilePath buildRoot) {
+        return buildRoot.child(AbstractAnnotation.WORKSPACE_FILES);
+    }
+
+    /**
+     * Reads the manifest in the specified folder.
+     *
+     * @param directory
+     *            the folder of the manifest
+     * @return the entries of the manifest, empty if there is no manifest
+     * @throws IOException
+     *             if the manifest could not be read
+     * @throws InterruptedException
+     *             if the user cancels the processing
+     */
+    static Properties readManifest(final FilePath directory) throws IOException, InterruptedException {
+        Properties entries = new Properties();
+        FilePath manifest = directory.child(MANIFEST);
+        if (manifest.exists()) {
+            InputStream input = manifest.read();
+            try {
+                entries.load(input);
+            }
+            finally {
+                IOUtils.closeQuietly(input);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Writes the manifest in the specified folder.
+     *
+     * @param directory
+     *            the folder of the manifest
+     * @param entries
+     *            the entries of the manifest
+     * @throws IOException
+     *             if the manifest could not be written
+     * @throws InterruptedException
+     *             if the user cancels the processing
+     */
+    static void writeManifest(final FilePath directory, final Properties entries)
+            throws IOException, InterruptedException {
+        OutputStream output = directory.child(MANIFEST).write();
+        try {
+            entries.store(output, null);
+        }
+        finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
+    /**
+     * Computes the SHA-1 hash of the specified content.
+     *
+     * @param content
+     *            the content
+     * @return the hash as hex string
+     * @throws IOException
+     *             if the content could not be read
+     */
+    static String computeHash(final InputStream content) throws IOException {
+        MessageDigest digest = createDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read = content.read(buffer);
+        while (read >= 0) {
+            digest.update(buffer, 0, read);
+            read = content.read(buffer);
+        }
+        return Util.toHexString(digest.digest());
+    }
+
+    /**
+     * Computes the SHA-1 hash of the specified content.
+     *
+     * @param content
+     *            the content
+     * @return the hash as hex string
+     */
+    public static String computeHash(final byte[] content) {
+        return Util.toHexString(createDigest().digest(content));
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static Map<String, String> getManifest(final File buildRoot) {
+        File file = new File(new File(buildRoot, AbstractAnnotation.WORKSPACE_FILES), MANIFEST);
+        synchronized (MANIFESTS) {
+            Manifest manifest = MANIFESTS.get(buildRoot);
+            if (manifest == null || !manifest.isValid(file)) {
+                manifest = new Manifest(file);
+                MANIFESTS.put(buildRoot, manifest);
+            }
+            return manifest.getEntries();
+        }
+    }
+
+    /**
+     * The entries of a manifest file, together with the time stamp and size of the file when it was read.
+     */
+    private static class Manifest {
+        private final long lastModified;
+        private final long length;
+        private final Map<String, String> entries;
+
+        Manifest(final File file) {
+            lastModified = file.lastModified();
+            length = file.length();
+            entries = read(file);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Map<String, String> read(final File file) {
+            if (!file.exists()) {
+                return Collections.emptyMap();
+            }
+            try {
+                return (Map) readManifest(new FilePath(file.getParentFile()));
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't read manifest " + file, exception);
+            }
+            catch (InterruptedException exception) {
+                // ignore
+            }
+            return Collections.emptyMap();
+        }
+
+        boolean isValid(final File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+
+        Map<String, String> getEntries() {
+            return entries;
+        }
+    }
+
+    /**
+     * Removes the stored contents of a build when the build has been deleted.
+     */
+    @Extension
+    public static class Listener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(final Run<?, ?> run) {
+            collectGarbage(run.getRootDir());
+        }
+    }
+
+    private SourceStore() {
+        // prevents instantiation
+    }
+}
@@ -0,0 +1,344 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+
+/**
+ * An index of the file names in a workspace that maps the base name of each file to its paths relative to the
+ * workspace root. The index is built on the machine that hosts the workspace in a single scan and is used to resolve
+ * the relative file names of warnings in bulk.
+ * <p>
+ * Each agent keeps the index of a workspace in memory between builds. Optionally, the index is also persisted in the
+ * temporary folder of the workspace, see {@link WorkspaceStore}. A cached index is reused as long as the modification times of all of its
+ * directories are unchanged, since adding, removing or renaming a file changes the modification time of its parent
+ * directory.
+ *
+ * @since 1.93
+ */
+public final class WorkspaceFileIndex {
+    private static final Logger LOGGER = Logger.getLogger(WorkspaceFileIndex.class.getName());
+
+    /** Include pattern that indexes all files of the workspace. */
+    public static final String ALL_FILES = "**/*";
+    /** Name of the file that stores the persisted index. */
+    static final String INDEX_FILE_NAME = "analysis-workspace-index.txt";
+
+    private static final String DIRECTORY = "d";
+    private static final String FILE = "f";
+
+    private static final WorkspaceStore<WorkspaceFileIndex> STORE = new WorkspaceStore<WorkspaceFileIndex>(
+            INDEX_FILE_NAME, "workspace-index 1", new IndexFormat());
+
+    /** The include pattern that has been used to build this index. */
+    private final String includePattern;
+    /** The modification times of all scanned directories, mapped by their relative paths. */
+    private final Map<String, Long> directories = new HashMap<String, Long>();
+    /** The relative paths of the indexed files, mapped by their base names. */
+    private final Multimap<String, String> filesByBaseName = HashMultimap.create();
+
+    /**
+     * Returns the index of the specified workspace. If there is a valid index in the cache of this agent (or in the
+     * temporary folder of the workspace) then this index is returned, otherwise the workspace is scanned.
+     *
+     * @param workspace
+     *            the root of the workspace
+     * @param includePattern
+     *            Ant file-set pattern of the files to index, several patterns are separated by comma
+     * @param isPersistent
+     *            determines whether the index should be persisted in the temporary folder of the workspace
+     * @return the index
+     */
+    public static WorkspaceFileIndex get(final File workspace, final String includePattern, final boolean isPersistent) {
+        String pattern = StringUtils.defaultIfBlank(includePattern, ALL_FILES);
+
+        WorkspaceFileIndex index = STORE.get(workspace, isPersistent);
+        if (index != null && index.isValid(workspace, pattern)) {
+            LOGGER.log(Level.FINE, "Reusing index of workspace files: " + workspace);
+        }
+        else {
+            index = new WorkspaceFileIndex(workspace, pattern);
+            if (isPersistent) {
+                STORE.save(workspace, index);
+            }
+        }
+        STORE.put(workspace, index);
+        return index;
+    }
+
+    /**
+     * Returns the file that stores the persisted index of the specified workspace.
+     *
+     * @param workspace
+     *            the root of the workspace
+     * @return the file
+     */
+    static File getIndexFile(final File workspace) {
+        return STORE.getFile(workspace);
+    }
+
+    /**
+     * Creates a new index of the specified workspace.
+     *
+     * @param workspace
+     *            the root of the workspace
+     * @param includePattern
+     *            Ant file-set pattern of the files to index, several patterns are separated by comma
+     */
+    WorkspaceFileIndex(final File workspace, final String includePattern) {
+        this.includePattern = includePattern;
+
+        LOGGER.log(Level.FINE, "Building index of workspace files " + includePattern + " in " + workspace);
+        scan(workspace, toPatterns(includePattern));
+    }
+
+    private static String[] toPatterns(final String includePattern) {
+        String[] patterns = StringUtils.split(includePattern, ", \t\n");
+        for (int i = 0; i < patterns.length; i++) {
+            String pattern = patterns[i].replace('/', File.separatorChar).replace('\\', File.separatorChar);
+            if (pattern.endsWith(File.separator)) {
+                pattern += "**";
+            }
+            patterns[i] = pattern;
+        }
+        return patterns;
+    }
+
+    /**
+     * Scans all directories of the workspace that might contain files that match one of the patterns. Directories
+     * that are excluded by Ant's default excludes (e.g., the folders of version control systems) are skipped. Each
+     * directory is scanned only once, even if it is reachable by several symbolic links, so links that point to a
+     * parent directory don't create an endless loop.
+     */
+    private void scan(final File workspace, final String[] patterns) {
+        String[] excludes = DirectoryScanner.getDefaultExcludes();
+        Set<String> visited = new HashSet<String>();
+        Deque<String> pending = new ArrayDeque<String>();
+        pending.add(StringUtils.EMPTY);
+        while (!pending.isEmpty()) {
+            String directory = pending.removeFirst();
+            File folder = directory.isEmpty() ? workspace : new File(workspace, directory);
+            if (!visited.add(getCanonicalPath(folder))) {
+                LOGGER.log(Level.FINE, "Skipping already scanned directory " + folder);
+                continue;
+            }
+            File[] children = folder.listFiles();
+            if (children == null) {
+                continue;
+            }
+            directories.put(directory, folder.lastModified());
+            for (File child : children) {
+                String path = directory.isEmpty() ? child.getName() : directory + File.separator + child.getName();
+                if (child.isDirectory()) {
+                    if (!matchesAny(excludes, path) && couldMatch(patterns, path)) {
+                        pending.add(path);
+                    }
+                }
+                else if (matchesAny(patterns, path)) {
+                    filesByBaseName.put(child.getName(), FilenameUtils.separatorsToUnix(path));
+                }
+            }
+        }
+    }
+
+    private String getCanonicalPath(final File folder) {
+        try {
+            return folder.getCanonicalPath();
+        }
+        catch (IOException exception) {
+            return folder.getAbsolutePath();
+        }
+    }
+
+    private boolean matchesAny(final String[] patterns, final String path) {
+        for (String pattern : patterns) {
+            if (SelectorUtils.matchPath(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean couldMatch(final String[] patterns, final String directory) {
+        for (String pattern : patterns) {
+            if (SelectorUtils.matchPatternStart(pattern, directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether this index is still valid for the specified workspace, i.e. whether it has been created with
+     * the same pattern and all directories have not been modified since.
+     *
+     * @param workspace
+     *            the root of the workspace
+     * @param pattern
+     *            the include pattern
+     * @return <code>true</code> if this index is still valid, <code>false</code> if the workspace needs to be
+     *         scanned again
+     */
+    boolean isValid(final File workspace, final String pattern) {
+        if (!includePattern.equals(pattern) || directories.isEmpty()) {
+            return false;
+        }
+        for (Map.Entry<String, Long> directory : directories.entrySet()) {
+            File folder = directory.getKey().isEmpty() ? workspace : new File(workspace, directory.getKey());
+            if (folder.lastModified() != directory.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of indexed files.
+     *
+     * @return the number of files
+     */
+    public int size() {
+        return filesByBaseName.size();
+    }
+
+    /**
+     * Returns the relative paths of all indexed files with the specified base name.
+     *
+     * @param baseName
+     *            the base name of the files
+     * @return the relative paths of the files, using UNIX separators
+     */
+    public Collection<String> getFiles(final String baseName) {
+        return filesByBaseName.get(baseName);
+    }
+
+    /**
+     * Finds the file that matches the specified relative file name of a warning. Relative prefixes of the file name
+     * (like {@code ../}) are ignored. The file name is resolved only if there is exactly one indexed file that matches.
+     *
+     * @param fileName
+     *            the relative file name
+     * @return the path of the matching file relative to the workspace root, or <code>null</code> if the file name
+     *         could not be resolved
+     */
+    public String resolve(final String fileName) {
+        String baseName = FilenameUtils.getName(fileName);
+        if (!filesByBaseName.containsKey(baseName)) {
+            LOGGER.log(Level.FINE, String.format(
+                    "Absolute filename could not be resolved for: %s. No such file in workspace.", fileName));
+            return null;
+        }
+
+        String strippedFileName = stripRelativePrefix(fileName);
+        int matchesCount = 0;
+        String relativeFileName = null;
+        for (String match : filesByBaseName.get(baseName)) {
+            if (match.contains(strippedFileName)) {
+                relativeFileName = match;
+                matchesCount++;
+            }
+        }
+        if (matchesCount == 1) {
+            return relativeFileName;
+        }
+        else if (matchesCount == 0) {
+            LOGGER.log(Level.FINE, String.format(
+                    "Absolute filename could not be resolved for: %s. Found no matches in cache: %s. ",
+                    fileName, filesByBaseName.get(baseName)));
+        }
+        else {
+            LOGGER.log(Level.FINE, String.format(
+                    "Absolute filename could not be resolved for: %s. Found multiple matches in cache: %s. ",
+                    fileName, filesByBaseName.get(baseName)));
+        }
+        return null;
+    }
+
+    /**
+     * Removes the relative prefix (e.g., {@code ../../}) of the specified file name.
+     *
+     * @param fileName
+     *            the file name
+     * @return the file name without relative prefix
+     */
+    public static String stripRelativePrefix(final String fileName) {
+        return StringUtils.removePattern(fileName, ".*(\\.\\.?/)+");
+    }
+
+    /**
+     * Creates an index of the specified relative file names.
+     *
+     * @param files
+     *            the relative file names
+     * @return the index
+     */
+    static WorkspaceFileIndex of(final String... files) {
+        WorkspaceFileIndex index = new WorkspaceFileIndex(ALL_FILES);
+        for (String file : files) {
+            index.filesByBaseName.put(FilenameUtils.getName(file), FilenameUtils.separatorsToUnix(file));
+        }
+        return index;
+    }
+
+    private WorkspaceFileIndex(final String includePattern) {
+        this.includePattern = includePattern;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d files (%s) in %d directories", size(), includePattern, directories.size());
+    }
+
+    /**
+     * Persists the pattern, the directories with their modification times, and the indexed files.
+     */
+    private static class IndexFormat implements WorkspaceStore.Format<WorkspaceFileIndex> {
+        @Override
+        public void write(final WorkspaceFileIndex index, final WorkspaceStore.RecordWriter writer) throws IOException {
+            writer.write(index.includePattern, StringUtils.EMPTY, StringUtils.EMPTY);
+            for (Map.Entry<String, Long> directory : index.directories.entrySet()) {
+                writer.write(DIRECTORY, directory.getKey(), String.valueOf(directory.getValue()));
+            }
+            for (Map.Entry<String, String> file : index.filesByBaseName.entries()) {
+                writer.write(FILE, file.getKey(), file.getValue());
+            }
+        }
+
+        @Override
+        public WorkspaceFileIndex read(final WorkspaceStore.RecordReader reader) throws IOException {
+            String[] pattern = reader.read(3);
+            if (pattern == null) {
+                throw new IllegalArgumentException("No include pattern");
+            }
+            WorkspaceFileIndex index = new WorkspaceFileIndex(pattern[0]);
+            for (String[] record = reader.read(3); record != null; record = reader.read(3)) {
+                if (DIRECTORY.equals(record[0])) {
+                    index.directories.put(record[1], Long.valueOf(record[2]));
+                }
+                else if (FILE.equals(record[0])) {
+                    index.filesByBaseName.put(record[1], record[2]);
+                }
+                else {
+                    throw new IllegalArgumentException("Unknown record " + record[0]);
+                }
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package hudson.plugins.analysis.util;
+
+import javax.annotation.CheckForNull;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Keeps objects that have been computed for a workspace (e.g., an index of the workspace files) in the memory of an
+ * agent between builds. Optionally, the objects are persisted in the temporary folder of the workspace, i.e. in
+ * {@code workspace@tmp}. Since the build can write to this folder, the objects are persisted in a plain text format
+ * of tab separated records rather than by Java serialization: reading a persisted file never instantiates other
+ * classes than strings, a file that can't be parsed is ignored.
+ * <p>
+ * The number of workspaces in memory is bounded, the least recently used workspaces are removed first. Additionally,
+ * the objects are referenced softly so that they are removed if the agent runs out of memory.
+ *
+ * @param <T>
+ *            the type of the stored objects
+ * @since 1.93
+ */
+final class WorkspaceStore<T> {
+    private static final Logger LOGGER = Logger.getLogger(WorkspaceStore.class.getName());
+
+    /** Maximum number of workspaces that are kept in memory. */
+    private static final int MAX_WORKSPACES = Integer.getInteger(WorkspaceStore.class.getName() + ".maxWorkspaces", 100);
+    private static final String ENCODING = "UTF-8";
+    private static final char SEPARATOR = '\t';
+
+    private final String fileName;
+    private final String header;
+    private final Format<T> format;
+    private final int maximumSize;
+
+    /** The objects of the workspaces, mapped by the absolute path of the workspace in the order of last access. */
+    private final Map<String, SoftReference<T>> cache = new LinkedHashMap<String, SoftReference<T>>(16, 0.75f, true) {
+        private static final long serialVersionUID = -4106473386434356707L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, SoftReference<T>> eldest) {
+            return size() > maximumSize;
+        }
+    };
+
+    /**
+     * Creates a new instance of {@link WorkspaceStore} that keeps the objects of at most 100 workspaces in memory.
+     * This limit can be changed with the system property
+     * <code>hudson.plugins.analysis.util.WorkspaceStore.maxWorkspaces</code>.
+     *
+     * @param fileName
+     *            the name of the file in the temporary folder of the workspace
+     * @param header
+     *            the first line of the file that identifies the format and its version
+     * @param format
+     *            the format of the persisted objects
+     */
+    WorkspaceStore(final String fileName, final String header, final Format<T> format) {
+        this(fileName, header, format, MAX_WORKSPACES);
+    }
+
+    /**
+     * Creates a new instance of {@link WorkspaceStore}.
+     *
+     * @param fileName
+     *            the name of the file in the temporary folder of the workspace
+     * @param header
+     *            the first line of the file that identifies the format and its version
+     * @param format
+     *            the format of the persisted objects
+     * @param maximumSize
+     *            the maximum number of workspaces that are kept in memory
+     */
+    WorkspaceStore(final String fileName, final String header, final Format<T> format, final int maximumSize) {
+        this.fileName = fileName;
+        this.header = header;
+        this.format = format;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the object of the specified workspace. If the object is not in memory and the store is persistent,
+     * then the object is read from the temporary folder of the workspace.
+     *
+     * @param workspace
+     *            the root of the workspace
+     * @param isPersistent
+     *            determines whether the object is persisted in the temporary folder of the workspace
+     * @return the object, or <code>null</code> if there is no such object
+     */
+    @CheckForNull
+    T get(final File workspace, final boolean isPersistent) {
+        T value = getCached(workspace);
+        if (value == null && isPersistent) {
+            value = load(getFile(workspace));
+        }
+        return value;
+    }
+
+    @CheckForNull
+    private T getCached(final File workspace) {
+        synchronized (cache) {
+            SoftReference<T> reference = cache.get(workspace.getAbsolutePath());
+            if (reference == null) {
+                return null;
+            }
+            return reference.get();
+        }
+    }
+
+    /**
+     * Stores the object of the specified workspace in memory.
+     *
+     * @param workspace
+     *            the root of the workspace
+     * @param value
+     *            the object
+     */
+    void put(final File workspace, final T value) {
+        synchronized (cache) {
+            for (Iterator<SoftReference<T>> iterator = cache.values().iterator(); iterator.hasNext();) {
+                if (iterator.next().get() == null) {
+                    iterator.remove();
+                }
+            }
+            cache.put(workspace.getAbsolutePath(), new SoftReference<T>(value));
+        }
+    }
+
+    /**
+     * Stores the object of the specified workspace in memory and in the temporary folder of the workspace.
+     *
+     * @param workspace
+     *            the root of the workspace
+     * @param value
+     *            the object
+     */
+    void save(final File workspace, final T value) {
+        File file = getFile(workspace);
+        Writer output = null;
+        try {
+            if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+                throw new IOException("Can't create folder " + file.getParentFile());
+            }
+            output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), ENCODING));
+            output.write(header);
+            output.write('\n');
+            format.write(value, new RecordWriter(output));
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.FINE, "Can't write " + file, exception);
+        }
+        finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
+    @CheckForNull
+    private T load(final File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        BufferedReader input = null;
+        try {
+            input = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+            if (!header.equals(input.readLine())) {
+                LOGGER.log(Level.FINE, "Ignoring " + file + " with unknown format");
+                return null;
+            }
+            return format.read(new RecordReader(input));
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.FINE, "Can't read " + file, exception);
+        }
+        catch (IllegalArgumentException exception) {
+            LOGGER.log(Level.FINE, "Ignoring corrupted file " + file, exception);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the file that stores the persisted object of the specified workspace. This file is located in the
+     * temporary folder of the workspace that is used by Jenkins for all workspaces, i.e. {@code workspace@tmp}.
+     *
+     * @param workspace
+     *            the root of the workspace
+     * @return the file
+     */
+    File getFile(final File workspace) {
+        return new File(new File(workspace.getParentFile(), workspace.getName() + "@tmp"), fileName);
+    }
+
+    /**
+     * Returns the number of workspaces in memory.
+     *
+     * @return the number of workspaces
+     */
+    int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Writes and reads the persisted objects as a sequence of records.
+     *
+     * @param <T>
+     *            the type of the objects
+     */
+    interface Format<T> {
+        /**
+         * Writes the specified object.
+         *
+         * @param value
+         *            the object to write
+         * @param writer
+         *            the writer for the records
+         * @throws IOException
+         *             if the records could not be written
+         */
+        void write(T value, RecordWriter writer) throws IOException;
+
+        /**
+         * Reads an object.
+         *
+         * @param reader
+         *            the reader of the records
+         * @return the object
+         * @throws IOException
+         *             if the records could not be read
+         * @throws IllegalArgumentException
+         *             if the records are corrupted
+         */
+        T read(RecordReader reader) throws IOException;
+    }
+
+    /**
+     * Writes records of string fields, one record per line. Tabs, line breaks, and backslashes are escaped.
+     */
+    static final class RecordWriter {
+        private final Writer writer;
+
+        RecordWriter(final Writer writer) {
+            this.writer = writer;
+        }
+
+        /**
+         * Writes a record.
+         *
+         * @param fields
+         *            the fields of the record
+         * @throws IOException
+         *             if the record could not be written
+         */
+        void write(final String... fields) throws IOException {
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    writer.write(SEPARATOR);
+                }
+                escape(fields[i]);
+            }
+            writer.write('\n');
+        }
+
+        private void escape(final String field) throws IOException {
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                switch (c) {
+                    case '\\':
+                        writer.write("\\\\");
+                        break;
+                    case SEPARATOR:
+                        writer.write("\\t");
+                        break;
+                    case '\n':
+                        writer.write("\\n");
+                        break;
+                    case '\r':
+                        writer.write("\\r");
+                        break;
+                    default:
+                        writer.write(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the records that have been written by a {@link RecordWriter}.
+     */
+    static final class RecordReader {
+        private final BufferedReader reader;
+
+        RecordReader(final Reader reader) {
+            this.reader = reader instanceof BufferedReader ? (BufferedReader)reader : new BufferedReader(reader);
+        }
+
+        /**
+         * Reads the next record.
+         *
+         * @param numberOfFields
+         *            the expected number of fields
+         * @return the fields of the record, or <code>null</code> if there are no more records
+         * @throws IOException
+         *             if the record could not be read
+         * @throws IllegalArgumentException
+         *             if the record has not the expected number of fields
+         */
+        @CheckForNull
+        String[] read(final int numberOfFields) throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            List<String> fields = new ArrayList<String>(numberOfFields);
+            StringBuilder field = new StringBuilder();
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == SEPARATOR) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                }
+                else if (c == '\\' && i + 1 < line.length()) {
+                    field.append(unescape(line.charAt(++i)));
+                }
+                else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            if (fields.size() != numberOfFields) {
+                throw new IllegalArgumentException("Expected " + numberOfFields + " fields: " + line);
+            }
+            return fields.toArray(new String[numberOfFields]);
+        }
+
+        private char unescape(final char c) {
+            switch (c) {
+                case 't':
+                    return SEPARATOR;
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                default:
+                    return c;
+            }
+        }
+    }
+}
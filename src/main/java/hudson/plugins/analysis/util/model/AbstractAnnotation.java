@@ -5,7 +5,6 @@ import java.io.File;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Random;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -22,6 +21,7 @@ import hudson.model.Run;
 import hudson.plugins.analysis.Messages;
 import hudson.plugins.analysis.core.AbstractAnnotationParser;
 import hudson.plugins.analysis.util.PackageDetectors;
+import hudson.plugins.analysis.util.SourceStore;
 import hudson.plugins.analysis.util.TreeString;
 import hudson.plugins.analysis.util.TreeStringBuilder;
 
@@ -42,9 +42,6 @@ public abstract class AbstractAnnotation implements FileAnnotation, Serializable
     private static final long serialVersionUID = -1092014926477547148L;
     public static final String DEFAULT_CATEGORY = "-";
 
-    /** Current key of this annotation. */
-    private static long currentKey = new Random().nextLong();
-
     /** The message of this annotation. */
     private /*almost final*/ TreeString message;
     /** The priority of this annotation. */
@@ -108,19 +105,18 @@ public abstract class AbstractAnnotation implements FileAnnotation, Serializable
      * @param type
      *            the type of the annotation
      */
-    @SuppressFBWarnings("ST")
     public AbstractAnnotation(final String message, final int start, final int end, final String category, final String type) {
         this.message = TreeString.of(StringUtils.strip(message));
         this.category = defaultString(category);
         this.type = defaultString(type);
 
-        key = currentKey++;
+        key = KeyGenerator.nextKey();
 
         lineRanges = new LineRangeList();
         lineRanges.add(new LineRange(start, end));
         primaryLineNumber = start;
 
-        contextHashCode = currentKey;
+        contextHashCode = key;
     }
 
     private static String defaultString(final String value) {
@@ -155,9 +151,8 @@ public abstract class AbstractAnnotation implements FileAnnotation, Serializable
      * @param copy
      *            the annotation to copy the values from
      */
-    @SuppressFBWarnings("ST")
     public AbstractAnnotation(final FileAnnotation copy) {
-        key = currentKey++;
+        key = KeyGenerator.nextKey();
 
         message = TreeString.of(copy.getMessage());
         priority = copy.getPriority();
@@ -714,7 +709,9 @@ public abstract class AbstractAnnotation implements FileAnnotation, Serializable
     @Override
     public final boolean canDisplayFile(final Run<?, ?> owner) {
         if (owner.hasPermission(Item.WORKSPACE)) {
-            return isInConsoleLog() || new File(getFileName()).exists() || new File(getTempName(owner)).exists();
+            File tempFile = new File(getTempName(owner));
+            return isInConsoleLog() || new File(getFileName()).exists() || tempFile.exists()
+                    || SourceStore.getSourceFile(owner.getRootDir(), tempFile.getName()) != null;
         }
         return false;
     }
@@ -1,5 +1,6 @@
 package hudson.plugins.analysis.util.model; // NOPMD
 
+import javax.annotation.CheckForNull;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -7,7 +8,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
@@ -23,9 +24,12 @@ import com.google.common.collect.ImmutableSortedSet;
 import edu.umd.cs.findbugs.annotations.SuppressWarnings;
 
 import hudson.plugins.analysis.Messages;
+import hudson.plugins.analysis.util.model.AnnotationIndex.Column;
 
 /**
- * A container for annotations.
+ * A container for annotations. The sub-containers of a container (modules, packages, files, authors, categories and
+ * types) are created on demand as lightweight views on a column index of the annotations that is shared with the
+ * root container, see {@link AnnotationIndex}.
  *
  * @author Ulli Hafner
  */
@@ -47,15 +51,28 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
         USER
         }
 
-    /** The annotations mapped by their key. */
+    /** The annotations mapped by their key. Views on the index of a parent container don't use this map. */
     @SuppressWarnings("Se")
     private final Map<Long, FileAnnotation> annotations = new HashMap<Long, FileAnnotation>();
-    /** The annotations mapped by priority. */
-    private transient Map<Priority, Set<FileAnnotation>> annotationsByPriority;
-    /** The annotations mapped by category. */
-    private transient Map<String, Set<FileAnnotation>> annotationsByCategory;
-    /** The annotations mapped by type. */
-    private transient Map<String, Set<FileAnnotation>> annotationsByType;
+    /** The index of the root container, shared by all views of this root. Created on first use. */
+    private transient AnnotationIndex index;
+    /** The rows of the index that belong to this container, sorted in ascending order. */
+    private transient int[] rows;
+    /** Determines whether this container is a view on the index of a parent container. */
+    private transient boolean isView;
+    /** The columns that select the rows of a view. */
+    private transient Column[] filterColumns;
+    /** The values of the columns that select the rows of a view. */
+    private transient String[] filterValues;
+    /** The version of the index the rows have been selected for. */
+    private transient int version;
+
+    /** The rows of the annotations mapped by priority. */
+    private transient Map<Priority, int[]> annotationsByPriority;
+    /** The rows of the annotations mapped by category. */
+    private transient Map<String, int[]> annotationsByCategory;
+    /** The rows of the annotations mapped by type. */
+    private transient Map<String, int[]> annotationsByType;
     /** The files that contain annotations mapped by file name. */
     private transient Map<String, WorkspaceFile> filesByName;
     /** The packages that contain annotations mapped by package name. */
@@ -71,10 +88,10 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
     private transient Map<Integer, JavaPackage> packagesByHashCode;
     /** The modules that contain annotations mapped by hash code of module name. */
     private transient Map<Integer, MavenModule> modulesByHashCode;
-    /** The modules that contain annotations mapped by hash code of category name. */
-    private transient Map<Integer, Set<FileAnnotation>> categoriesByHashCode;
-    /** The modules that contain annotations mapped by hash code of type name. */
-    private transient Map<Integer, Set<FileAnnotation>> typesByHashCode;
+    /** The rows of the annotations mapped by hash code of category name. */
+    private transient Map<Integer, int[]> categoriesByHashCode;
+    /** The rows of the annotations mapped by hash code of type name. */
+    private transient Map<Integer, int[]> typesByHashCode;
     /** The authors that contain annotations mapped by hash code of author name. */
     private transient Map<Integer, Author> authorsByHashCode;
 
@@ -193,27 +210,24 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
     }
 
     /**
-     * Initializes the transient mappings.
+     * Resets the transient mappings. The mappings are rebuilt from the rows of the index on demand.
      */
-    private void initialize() {
-        annotationsByPriority = new EnumMap<Priority, Set<FileAnnotation>>(Priority.class);
-        for (Priority priority : Priority.values()) {
-            annotationsByPriority.put(priority, new HashSet<FileAnnotation>());
-        }
-        annotationsByCategory = new HashMap<String, Set<FileAnnotation>>();
-        annotationsByType = new HashMap<String, Set<FileAnnotation>>();
+    private synchronized void initialize() {
+        annotationsByPriority = null;
+        annotationsByCategory = null;
+        annotationsByType = null;
 
-        authorsByName = new HashMap<String, Author>();
-        filesByName = new HashMap<String, WorkspaceFile>();
-        packagesByName = new HashMap<String, JavaPackage>();
-        modulesByName = new HashMap<String, MavenModule>();
+        authorsByName = null;
+        filesByName = null;
+        packagesByName = null;
+        modulesByName = null;
 
-        filesByHashCode = new HashMap<Integer, WorkspaceFile>();
-        packagesByHashCode = new HashMap<Integer, JavaPackage>();
-        modulesByHashCode = new HashMap<Integer, MavenModule>();
-        authorsByHashCode = new HashMap<Integer, Author>();
-        categoriesByHashCode = new HashMap<Integer, Set<FileAnnotation>>();
-        typesByHashCode = new HashMap<Integer, Set<FileAnnotation>>();
+        filesByHashCode = null;
+        packagesByHashCode = null;
+        modulesByHashCode = null;
+        authorsByHashCode = null;
+        categoriesByHashCode = null;
+        typesByHashCode = null;
     }
 
     /**
@@ -227,133 +241,341 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
         return this;
     }
 
+    /**
+     * Copies the annotations of a view into this container so that they are serialized.
+     *
+     * @return this container
+     * @since 1.93
+     */
+    protected Object writeReplace() {
+        detach();
+        return this;
+    }
+
     /**
      * Rebuilds the priorities and files after deserialization.
      */
     protected void rebuildMappings() {
-        initialize();
-        for (FileAnnotation annotation : getAnnotations()) {
-            updateMappings(annotation);
+        synchronized (this) {
+            if (!isView) {
+                index = null;
+                rows = null;
+            }
+            initialize();
         }
     }
 
     /**
-     * Updates the annotation drill-down mappings (priority, packages, files) with the specified annotation.
+     * Makes the specified container a view on the specified rows of the index of this container. The rows of the
+     * view are the rows of this container that have the specified value in the specified column.
+     *
+     * @param container
+     *            the new sub-container
+     * @param column
+     *            the column that selects the rows of the view
+     * @param value
+     *            the value of the column
+     * @param containerRows
+     *            the rows of the sub-container
+     * @return the view
+     */
+    private synchronized <T extends AnnotationContainer> T createView(final T container, final Column column,
+            final String value, final int[] containerRows) {
+        AnnotationContainer view = container;
+        view.index = getIndex();
+        view.rows = containerRows;
+        view.version = version;
+        view.filterColumns = append(getFilterColumns(), column);
+        view.filterValues = append(getFilterValues(), value);
+        view.isView = true;
+        return container;
+    }
+
+    private Column[] getFilterColumns() {
+        return filterColumns == null ? new Column[0] : filterColumns;
+    }
+
+    private String[] getFilterValues() {
+        return filterValues == null ? new String[0] : filterValues;
+    }
+
+    private static <T> T[] append(final T[] array, final T element) {
+        T[] appended = Arrays.copyOf(array, array.length + 1);
+        appended[array.length] = element;
+        return appended;
+    }
+
+    /**
+     * Makes this container a view on the annotations of the specified container. The index of the specified container
+     * is shared, so the annotations are neither copied nor indexed again. Use this method to show the details of
+     * sub-containers like the ones returned by {@link #getModule(int)} or {@link #getPackage(int)}.
      *
-     * @param annotation the new annotation
+     * @param container
+     *            the container that provides the annotations
+     * @since 1.93
      */
-    @SuppressWarnings("SF_SWITCH_FALLTHROUGH")
-    @java.lang.SuppressWarnings("fallthrough")
-    private void updateMappings(final FileAnnotation annotation) {
-        annotationsByPriority.get(annotation.getPriority()).add(annotation);
-        if (StringUtils.isNotBlank(annotation.getCategory())) {
-            addCategory(annotation);
-        }
-        if (StringUtils.isNotBlank(annotation.getType())) {
-            addType(annotation);
-        }
-        if (hierarchy == Hierarchy.PROJECT) {
-            addModule(annotation);
-        }
-        if (hierarchy == Hierarchy.PROJECT || hierarchy == Hierarchy.MODULE) {
-            addPackage(annotation);
+    protected final void share(final AnnotationContainer container) {
+        AnnotationIndex sharedIndex;
+        int[] sharedRows;
+        int sharedVersion;
+        Column[] sharedColumns;
+        String[] sharedValues;
+        synchronized (container) {
+            sharedRows = container.getRows();
+            sharedIndex = container.getIndex();
+            sharedVersion = container.version;
+            sharedColumns = container.getFilterColumns();
+            sharedValues = container.getFilterValues();
         }
-        if (hierarchy == Hierarchy.PROJECT || hierarchy == Hierarchy.MODULE
-                || hierarchy == Hierarchy.PACKAGE) {
-            addFile(annotation);
-        }
-        if (hierarchy == Hierarchy.PROJECT || hierarchy == Hierarchy.MODULE
-                || hierarchy == Hierarchy.PACKAGE || hierarchy == Hierarchy.FILE) {
-            addAuthorName(annotation);
+        synchronized (this) {
+            annotations.clear();
+            index = sharedIndex;
+            rows = sharedRows;
+            version = sharedVersion;
+            filterColumns = sharedColumns;
+            filterValues = sharedValues;
+            isView = true;
+            initialize();
         }
     }
 
     /**
-     * Adds a new category to this container that will contain the specified
-     * annotation. If the category already exists, then the annotation is only added
-     * to this category.
+     * Returns the object that keeps the annotations of this container in memory. A view returns the index of its
+     * root container, so all views of the same root container return the same object. Otherwise this container is
+     * returned.
      *
-     * @param annotation the new annotation
+     * @return the object that keeps the annotations in memory
+     * @see #getNumberOfRetainedAnnotations()
+     * @since 1.93
      */
-    private void addCategory(final FileAnnotation annotation) {
-        String category = annotation.getCategory();
-        if (!annotationsByCategory.containsKey(category)) {
-            HashSet<FileAnnotation> container = new HashSet<FileAnnotation>();
-            annotationsByCategory.put(category, container);
-            categoriesByHashCode.put(category.hashCode(), container);
-        }
-        annotationsByCategory.get(category).add(annotation);
+    public final synchronized Object getRetainedAnnotations() {
+        return isView ? index : this;
     }
 
     /**
-     * Adds a new type to this container that will contain the specified
-     * annotation. If the type already exists, then the annotation is only added
-     * to this type.
+     * Returns the number of annotations that are kept in memory by this container. A view keeps all annotations of
+     * the index of its root container in memory, even the ones that are not part of the view.
      *
-     * @param annotation the new annotation
+     * @return the number of annotations that are kept in memory
+     * @see #getRetainedAnnotations()
+     * @since 1.93
+     */
+    public final synchronized int getNumberOfRetainedAnnotations() {
+        return isView ? index.size() : annotations.size();
+    }
+
+    /**
+     * Returns whether this container keeps only annotations in memory that are kept in memory by the specified
+     * container anyway, i.e. whether this container is the specified container or a view on the same index.
+     *
+     * @param container
+     *            the container to compare with
+     * @return <code>true</code> if this container does not keep additional annotations in memory
+     * @see #getRetainedAnnotations()
+     * @since 1.93
+     */
+    public final boolean sharesAnnotationsWith(final AnnotationContainer container) {
+        Object retained = getRetainedAnnotations();
+        return retained == container.getRetainedAnnotations() || retained == container.getCreatedIndex();
+    }
+
+    @CheckForNull
+    private synchronized AnnotationIndex getCreatedIndex() {
+        return index;
+    }
+
+    /**
+     * Copies the annotations of the parent container that belong to this view into this container. Afterwards this
+     * container is independent of its parent and can be modified.
      */
-    private void addType(final FileAnnotation annotation) {
-        String type = annotation.getType();
-        if (!annotationsByType.containsKey(type)) {
-            HashSet<FileAnnotation> container = new HashSet<FileAnnotation>();
-            annotationsByType.put(type, container);
-            typesByHashCode.put(type.hashCode(), container);
+    private synchronized void detach() {
+        if (isView) {
+            for (int row : getRows()) {
+                FileAnnotation annotation = index.get(row);
+                annotations.put(annotation.getKey(), annotation);
+            }
+            isView = false;
+            index = null;
+            rows = null;
+            filterColumns = null;
+            filterValues = null;
+            initialize();
         }
-        annotationsByType.get(type).add(annotation);
     }
 
     /**
-     * Adds a new module to this container that will contain the specified
-     * annotation. If the module already exists, then the annotation is only added
-     * to this module.
+     * Returns the index of the root container. If this container is not a view, then the index is created on first
+     * access.
      *
-     * @param annotation the new annotation
+     * @return the index
      */
-    private void addModule(final FileAnnotation annotation) {
-        String moduleName = annotation.getModuleName();
-        if (!modulesByName.containsKey(moduleName)) {
-            MavenModule module = new MavenModule(moduleName);
-            modulesByName.put(moduleName, module);
-            modulesByHashCode.put(moduleName.hashCode(), module);
+    private synchronized AnnotationIndex getIndex() {
+        if (index == null) {
+            index = new AnnotationIndex(annotations.values());
+            rows = index.getAllRows();
+            version = index.getVersion();
         }
-        modulesByName.get(moduleName).addAnnotation(annotation);
+        return index;
     }
 
     /**
-     * Adds a new package to this container that will contain the specified
-     * annotation. If the package already exists, then the annotation is only added
-     * to this package.
+     * Returns the rows of the index that belong to this container. If annotations have been added to the root
+     * container since the rows have been selected, then the rows are selected again and the mappings of this
+     * container are reset. So views never show stale content.
      *
-     * @param annotation the new annotation
+     * @return the rows
      */
-    private void addPackage(final FileAnnotation annotation) {
-        String packageName = annotation.getPackageName();
-        if (StringUtils.isBlank(packageName)) {
-            packageName = "-";
+    private synchronized int[] getRows() {
+        AnnotationIndex current = getIndex();
+        int currentVersion = current.getVersion();
+        if (version != currentVersion) {
+            if (isView) {
+                rows = current.select(getFilterColumns(), getFilterValues());
+            }
+            else {
+                rows = current.getAllRows();
+            }
+            version = currentVersion;
+            initialize();
         }
-        if (!packagesByName.containsKey(packageName)) {
-            JavaPackage javaPackage = new JavaPackage(packageName);
-            packagesByName.put(packageName, javaPackage);
-            packagesByHashCode.put(packageName.hashCode(), javaPackage);
+        return rows;
+    }
+
+    private Collection<FileAnnotation> getValues() {
+        if (isView) {
+            return getAnnotations(getRows());
+        }
+        return annotations.values();
+    }
+
+    private List<FileAnnotation> getAnnotations(final int[] annotationRows) {
+        AnnotationIndex annotationIndex = getIndex();
+        List<FileAnnotation> values = new ArrayList<FileAnnotation>(annotationRows.length);
+        for (int row : annotationRows) {
+            values.add(annotationIndex.get(row));
+        }
+        return values;
+    }
+
+    private synchronized Map<Priority, int[]> getAnnotationsByPriority() {
+        getRows();
+        if (annotationsByPriority == null) {
+            int[][] groups = getIndex().groupByPriority(getRows());
+            Map<Priority, int[]> mapping = new EnumMap<Priority, int[]>(Priority.class);
+            for (Priority priority : Priority.values()) {
+                mapping.put(priority, groups[priority.ordinal()]);
+            }
+            annotationsByPriority = mapping;
+        }
+        return annotationsByPriority;
+    }
+
+    private synchronized void indexCategories() {
+        getRows();
+        if (annotationsByCategory == null) {
+            Map<String, int[]> groups = getIndex().group(Column.CATEGORY, getRows());
+            categoriesByHashCode = new HashMap<Integer, int[]>();
+            for (Map.Entry<String, int[]> group : groups.entrySet()) {
+                categoriesByHashCode.put(group.getKey().hashCode(), group.getValue());
+            }
+            annotationsByCategory = groups;
+        }
+    }
+
+    private synchronized void indexTypes() {
+        getRows();
+        if (annotationsByType == null) {
+            Map<String, int[]> groups = getIndex().group(Column.TYPE, getRows());
+            typesByHashCode = new HashMap<Integer, int[]>();
+            for (Map.Entry<String, int[]> group : groups.entrySet()) {
+                typesByHashCode.put(group.getKey().hashCode(), group.getValue());
+            }
+            annotationsByType = groups;
         }
-        packagesByName.get(packageName).addAnnotation(annotation);
     }
 
     /**
-     * Adds a new file to this container that will contain the specified
-     * annotation. If the file already exists, then the annotation is only added
-     * to this class.
-     *
-     * @param annotation the new annotation
+     * Creates the modules of this container. Only projects have modules.
+     */
+    private synchronized void indexModules() {
+        getRows();
+        if (modulesByName == null) {
+            modulesByHashCode = new HashMap<Integer, MavenModule>();
+            Map<String, MavenModule> mapping = new HashMap<String, MavenModule>();
+            if (hierarchy == Hierarchy.PROJECT) {
+                for (Map.Entry<String, int[]> group : getIndex().group(Column.MODULE, getRows()).entrySet()) {
+                    MavenModule module = createView(new MavenModule(group.getKey()), Column.MODULE, group.getKey(),
+                            group.getValue());
+                    mapping.put(group.getKey(), module);
+                    modulesByHashCode.put(group.getKey().hashCode(), module);
+                }
+            }
+            modulesByName = mapping;
+        }
+    }
+
+    /**
+     * Creates the packages of this container. Only projects and modules have packages.
+     */
+    private synchronized void indexPackages() {
+        getRows();
+        if (packagesByName == null) {
+            packagesByHashCode = new HashMap<Integer, JavaPackage>();
+            Map<String, JavaPackage> mapping = new HashMap<String, JavaPackage>();
+            if (hierarchy == Hierarchy.PROJECT || hierarchy == Hierarchy.MODULE) {
+                for (Map.Entry<String, int[]> group : getIndex().group(Column.PACKAGE, getRows()).entrySet()) {
+                    JavaPackage javaPackage = createView(new JavaPackage(group.getKey()), Column.PACKAGE,
+                            group.getKey(), group.getValue());
+                    mapping.put(group.getKey(), javaPackage);
+                    packagesByHashCode.put(group.getKey().hashCode(), javaPackage);
+                }
+            }
+            packagesByName = mapping;
+        }
+    }
+
+    /**
+     * Creates the files of this container. Only projects, modules and packages have files.
+     */
+    private synchronized void indexFiles() {
+        getRows();
+        if (filesByName == null) {
+            filesByHashCode = new HashMap<Integer, WorkspaceFile>();
+            Map<String, WorkspaceFile> mapping = new HashMap<String, WorkspaceFile>();
+            if (hierarchy == Hierarchy.PROJECT || hierarchy == Hierarchy.MODULE
+                    || hierarchy == Hierarchy.PACKAGE) {
+                for (Map.Entry<String, int[]> group : getIndex().group(Column.FILE, getRows()).entrySet()) {
+                    WorkspaceFile file = createView(new WorkspaceFile(group.getKey()), Column.FILE, group.getKey(),
+                            group.getValue());
+                    mapping.put(group.getKey(), file);
+                    filesByHashCode.put(file.getName().hashCode(), file);
+                }
+            }
+            filesByName = mapping;
+        }
+    }
+
+    /**
+     * Creates the authors of this container. All containers but authors have authors.
      */
-    private void addFile(final FileAnnotation annotation) {
-        String fileName = annotation.getFileName();
-        if (!filesByName.containsKey(fileName)) {
-            WorkspaceFile file = new WorkspaceFile(fileName);
-            filesByName.put(fileName, file);
-            filesByHashCode.put(file.getName().hashCode(), file);
+    private synchronized void indexAuthors() {
+        getRows();
+        if (authorsByName == null) {
+            authorsByHashCode = new HashMap<Integer, Author>();
+            Map<String, Author> mapping = new HashMap<String, Author>();
+            if (hierarchy == Hierarchy.PROJECT || hierarchy == Hierarchy.MODULE
+                    || hierarchy == Hierarchy.PACKAGE || hierarchy == Hierarchy.FILE) {
+                for (Map.Entry<String, int[]> group : getIndex().group(Column.AUTHOR, getRows()).entrySet()) {
+                    String key = group.getKey();
+                    FileAnnotation annotation = getIndex().get(group.getValue()[0]);
+                    Author author = createView(new Author(key, annotation.getAuthorDetails(), annotation.getAuthorName(),
+                            annotation.getAuthorEmail(), Hierarchy.USER), Column.AUTHOR, key, group.getValue());
+                    mapping.put(key, author);
+                    authorsByHashCode.put(key.hashCode(), author);
+                }
+            }
+            authorsByName = mapping;
         }
-        filesByName.get(fileName).addAnnotation(annotation);
     }
 
     /**
@@ -362,8 +584,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @param annotation the annotation to add
      */
     public final void addAnnotation(final FileAnnotation annotation) {
-        annotations.put(annotation.getKey(), annotation);
-        updateMappings(annotation);
+        addAnnotations(Collections.singleton(annotation));
     }
 
     /**
@@ -372,25 +593,15 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @param newAnnotations the annotations to add
      */
     public final void addAnnotations(final Collection<? extends FileAnnotation> newAnnotations) {
-        for (FileAnnotation annotation : newAnnotations) {
-            addAnnotation(annotation);
-        }
-    }
-
-    /**
-     * Indexes an annotation by author name.
-     *
-     * @param annotation the new annotation
-     */
-    private void addAuthorName(final FileAnnotation annotation) {
-        String key = annotation.getAuthor();
-        if (!authorsByName.containsKey(key)) {
-            Author container = new Author(key, annotation.getAuthorDetails(), annotation.getAuthorName(),
-                    annotation.getAuthorEmail(), Hierarchy.USER);
-            authorsByName.put(key, container);
-            authorsByHashCode.put(key.hashCode(), container);
+        synchronized (this) {
+            detach();
+            for (FileAnnotation annotation : newAnnotations) {
+                annotations.put(annotation.getKey(), annotation);
+            }
+            if (index != null) {
+                index.addAll(newAnnotations);
+            }
         }
-        authorsByName.get(key).addAnnotation(annotation);
     }
 
     /**
@@ -408,17 +619,17 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return a sorted set  of the annotations
      */
     public final SortedSet<FileAnnotation> getSortedAnnotations() {
-        return ImmutableSortedSet.copyOf(annotations.values());
+        return ImmutableSortedSet.copyOf(getValues());
     }
 
     @Override
     public final Set<FileAnnotation> getAnnotations() {
-        return ImmutableSet.copyOf(annotations.values());
+        return ImmutableSet.copyOf(getValues());
     }
 
     @Override
     public final Set<FileAnnotation> getAnnotations(final Priority priority) {
-        return ImmutableSortedSet.copyOf(annotationsByPriority.get(priority));
+        return ImmutableSortedSet.copyOf(getAnnotations(getAnnotationsByPriority().get(priority)));
     }
 
     /**
@@ -496,6 +707,9 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
 
     @Override
     public int getNumberOfAnnotations() {
+        if (isView) {
+            return getRows().length;
+        }
         return annotations.size();
     }
 
@@ -528,7 +742,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
 
     @Override
     public int getNumberOfAnnotations(final Priority priority) {
-        return annotationsByPriority.get(priority).size();
+        return getAnnotationsByPriority().get(priority).length;
     }
 
     @Override
@@ -553,12 +767,12 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
 
     @Override
     public final boolean hasNoAnnotations() {
-        return annotations.isEmpty();
+        return getNumberOfAnnotations() == 0;
     }
 
     @Override
     public final boolean hasNoAnnotations(final Priority priority) {
-        return annotationsByPriority.get(priority).isEmpty();
+        return getNumberOfAnnotations(priority) == 0;
     }
 
     @Override
@@ -568,9 +782,17 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
 
     @Override
     public final FileAnnotation getAnnotation(final long key) {
-        FileAnnotation annotation = annotations.get(key);
-        if (annotation != null) {
-            return annotation;
+        if (isView) {
+            int row = getIndex().getRow(key);
+            if (row >= 0 && Arrays.binarySearch(getRows(), row) >= 0) {
+                return getIndex().get(row);
+            }
+        }
+        else {
+            FileAnnotation annotation = annotations.get(key);
+            if (annotation != null) {
+                return annotation;
+            }
         }
         throw new NoSuchElementException("Annotation not found: key=" + key);
     }
@@ -607,7 +829,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      */
     public final String getPackageCategoryName() {
         if (hasAnnotations()) {
-            FileAnnotation annotation = getAnnotations().iterator().next();
+            FileAnnotation annotation = getValues().iterator().next();
             String fileName = annotation.getFileName();
             if (fileName.endsWith(".cs")) {
                 return Messages.NamespaceDetail_header();
@@ -632,7 +854,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      */
     public final String getPackageCategoryTitle() {
         if (hasAnnotations()) {
-            FileAnnotation annotation = getAnnotations().iterator().next();
+            FileAnnotation annotation = getValues().iterator().next();
             String fileName = annotation.getFileName();
             if (fileName.endsWith(".cs")) {
                 return Messages.NamespaceDetail_title();
@@ -656,6 +878,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the modules with annotations
      */
     public Collection<MavenModule> getModules() {
+        indexModules();
         ArrayList<MavenModule> modules = new ArrayList<MavenModule>(modulesByName.values());
         Collections.sort(modules);
         return Collections.unmodifiableCollection(modules);
@@ -670,6 +893,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * exists, <code>false</code> otherwise
      */
     public boolean containsModule(final String moduleName) {
+        indexModules();
         return modulesByName.containsKey(moduleName);
     }
 
@@ -681,6 +905,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the module with the given name
      */
     public MavenModule getModule(final String moduleName) {
+        indexModules();
         if (modulesByName.containsKey(moduleName)) {
             return modulesByName.get(moduleName);
         }
@@ -695,6 +920,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the module with the given name
      */
     public MavenModule getModule(final int hashCode) {
+        indexModules();
         if (modulesByHashCode.containsKey(hashCode)) {
             return modulesByHashCode.get(hashCode);
         }
@@ -707,6 +933,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the packages with annotations
      */
     public Collection<JavaPackage> getPackages() {
+        indexPackages();
         ArrayList<JavaPackage> packages = new ArrayList<JavaPackage>(packagesByName.values());
         Collections.sort(packages);
         return Collections.unmodifiableCollection(packages);
@@ -721,6 +948,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * exists, <code>false</code> otherwise
      */
     public boolean containsPackage(final String packageName) {
+        indexPackages();
         return packagesByName.containsKey(packageName);
     }
 
@@ -732,6 +960,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the file with the given name
      */
     public JavaPackage getPackage(final String packageName) {
+        indexPackages();
         if (packagesByName.containsKey(packageName)) {
             return packagesByName.get(packageName);
         }
@@ -746,6 +975,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the package with the given name
      */
     public JavaPackage getPackage(final int hashCode) {
+        indexPackages();
         if (packagesByHashCode.containsKey(hashCode)) {
             return packagesByHashCode.get(hashCode);
         }
@@ -758,6 +988,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the files with annotations
      */
     public Collection<WorkspaceFile> getFiles() {
+        indexFiles();
         ArrayList<WorkspaceFile> files = new ArrayList<WorkspaceFile>(filesByName.values());
         Collections.sort(files);
         return Collections.unmodifiableCollection(files);
@@ -772,6 +1003,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * exists, <code>false</code> otherwise
      */
     public boolean containsFile(final String fileName) {
+        indexFiles();
         return filesByName.containsKey(fileName);
     }
 
@@ -783,6 +1015,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the file with the given name
      */
     public WorkspaceFile getFile(final String fileName) {
+        indexFiles();
         if (filesByName.containsKey(fileName)) {
             return filesByName.get(fileName);
         }
@@ -797,6 +1030,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the file with the given name
      */
     public WorkspaceFile getFile(final int hashCode) {
+        indexFiles();
         if (filesByHashCode.containsKey(hashCode)) {
             return filesByHashCode.get(hashCode);
         }
@@ -810,6 +1044,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      */
     public Collection<AnnotationContainer> getCategories() {
         ArrayList<AnnotationContainer> categories = new ArrayList<AnnotationContainer>();
+        indexCategories();
         for (String category : annotationsByCategory.keySet()) {
             categories.add(getCategory(category));
         }
@@ -826,6 +1061,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * exists, <code>false</code> otherwise
      */
     public boolean containsCategory(final String category) {
+        indexCategories();
         return annotationsByCategory.containsKey(category);
     }
 
@@ -836,8 +1072,10 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the category with the given name
      */
     public DefaultAnnotationContainer getCategory(final String category) {
+        indexCategories();
         if (annotationsByCategory.containsKey(category)) {
-            return new DefaultAnnotationContainer(category, annotationsByCategory.get(category));
+            return createView(new DefaultAnnotationContainer(category), Column.CATEGORY, category,
+                    annotationsByCategory.get(category));
         }
         throw new NoSuchElementException("Category not found: " + category);
     }
@@ -849,10 +1087,12 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the category with the given hash code
      */
     public DefaultAnnotationContainer getCategory(final int hashCode) {
+        indexCategories();
         if (categoriesByHashCode.containsKey(hashCode)) {
-            Set<FileAnnotation> container = categoriesByHashCode.get(hashCode);
-            FileAnnotation fileAnnotation = container.iterator().next();
-            return new DefaultAnnotationContainer(fileAnnotation.getCategory(), container);
+            int[] container = categoriesByHashCode.get(hashCode);
+            FileAnnotation fileAnnotation = getIndex().get(container[0]);
+            return createView(new DefaultAnnotationContainer(fileAnnotation.getCategory()), Column.CATEGORY,
+                    fileAnnotation.getCategory(), container);
         }
         throw new NoSuchElementException("Category by hashCode not found: " + hashCode);
     }
@@ -863,6 +1103,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the authors with annotations.
      */
     public Collection<Author> getAuthors() {
+        indexAuthors();
         ArrayList<Author> authors = new ArrayList<Author>(authorsByName.values());
         Collections.sort(authors);
         return Collections.unmodifiableCollection(authors);
@@ -876,6 +1117,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the author with the given key.
      */
     public Author getAuthor(final String key) {
+        indexAuthors();
         if (authorsByName.containsKey(key)) {
             return authorsByName.get(key);
         }
@@ -890,6 +1132,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the author with the given hashCode.
      */
     public Author getAuthor(final int hashCode) {
+        indexAuthors();
         if (authorsByHashCode.containsKey(hashCode)) {
             return authorsByHashCode.get(hashCode);
         }
@@ -903,6 +1146,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      */
     public Collection<AnnotationContainer> getTypes() {
         ArrayList<AnnotationContainer> types = new ArrayList<AnnotationContainer>();
+        indexTypes();
         for (String type : annotationsByType.keySet()) {
             types.add(getType(type));
         }
@@ -919,6 +1163,7 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * exists, <code>false</code> otherwise
      */
     public boolean containsType(final String type) {
+        indexTypes();
         return annotationsByType.containsKey(type);
     }
 
@@ -929,8 +1174,9 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the type with the given name
      */
     public DefaultAnnotationContainer getType(final String type) {
+        indexTypes();
         if (annotationsByType.containsKey(type)) {
-            return new DefaultAnnotationContainer(type, annotationsByType.get(type));
+            return createView(new DefaultAnnotationContainer(type), Column.TYPE, type, annotationsByType.get(type));
         }
         throw new NoSuchElementException("Type not found: " + type);
     }
@@ -942,10 +1188,12 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return the type with the given hash code
      */
     public DefaultAnnotationContainer getType(final int hashCode) {
+        indexTypes();
         if (typesByHashCode.containsKey(hashCode)) {
-            Set<FileAnnotation> container = typesByHashCode.get(hashCode);
-            FileAnnotation fileAnnotation = container.iterator().next();
-            return new DefaultAnnotationContainer(fileAnnotation.getType(), container);
+            int[] container = typesByHashCode.get(hashCode);
+            FileAnnotation fileAnnotation = getIndex().get(container[0]);
+            return createView(new DefaultAnnotationContainer(fileAnnotation.getType()), Column.TYPE,
+                    fileAnnotation.getType(), container);
         }
         throw new NoSuchElementException("Type by hashcode not found: " + hashCode);
     }
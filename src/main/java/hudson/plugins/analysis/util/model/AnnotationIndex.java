@@ -0,0 +1,383 @@
+package hudson.plugins.analysis.util.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A column oriented index of the annotations of a root {@link AnnotationContainer}. The sub-containers (modules,
+ * packages, files, authors, categories and types) of the root container are views that just reference the rows of
+ * this index that belong to them. The values of a column (e.g., the module name of each annotation) are resolved
+ * and stored as integer codes only when a view asks for the corresponding grouping for the first time. Annotations
+ * that are added later are appended to the index, see {@link #addAll(Collection)}.
+ */
+final class AnnotationIndex {
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    /** The columns that can be used to group the rows of the index. */
+    enum Column {
+        /** Module name. */
+        MODULE {
+            @Override
+            String getValue(final FileAnnotation annotation) {
+                return annotation.getModuleName();
+            }
+        },
+        /** Package name, blank package names are mapped to "-". */
+        PACKAGE {
+            @Override
+            String getValue(final FileAnnotation annotation) {
+                return StringUtils.defaultIfBlank(annotation.getPackageName(), "-");
+            }
+        },
+        /** File name. */
+        FILE {
+            @Override
+            String getValue(final FileAnnotation annotation) {
+                return annotation.getFileName();
+            }
+        },
+        /** Author key. */
+        AUTHOR {
+            @Override
+            String getValue(final FileAnnotation annotation) {
+                return annotation.getAuthor();
+            }
+        },
+        /** Category, blank categories are not indexed. */
+        CATEGORY {
+            @Override
+            String getValue(final FileAnnotation annotation) {
+                return StringUtils.defaultIfBlank(annotation.getCategory(), null);
+            }
+        },
+        /** Type, blank types are not indexed. */
+        TYPE {
+            @Override
+            String getValue(final FileAnnotation annotation) {
+                return StringUtils.defaultIfBlank(annotation.getType(), null);
+            }
+        };
+
+        /**
+         * Returns the value of this column for the specified annotation.
+         *
+         * @param annotation
+         *            the annotation
+         * @return the value or <code>null</code> if the annotation should not be part of any group
+         */
+        abstract String getValue(FileAnnotation annotation);
+    }
+
+    private FileAnnotation[] annotations;
+    private byte[] priorities;
+    private int size;
+    private final int[][] codes = new int[Column.values().length][];
+    private final Dictionary[] dictionaries = new Dictionary[Column.values().length];
+    private Map<Long, Integer> rowsByKey;
+    /** The number of modifications of this index, see {@link #getVersion()}. */
+    private int version;
+
+    /**
+     * Creates a new instance of {@link AnnotationIndex}.
+     *
+     * @param annotations
+     *            the annotations to index
+     */
+    AnnotationIndex(final Collection<FileAnnotation> annotations) {
+        this.annotations = annotations.toArray(new FileAnnotation[annotations.size()]);
+        size = this.annotations.length;
+
+        priorities = new byte[size];
+        for (int row = 0; row < size; row++) {
+            priorities[row] = (byte)this.annotations[row].getPriority().ordinal();
+        }
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the number of rows
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of modifications of this index. The rows of a view that have been selected for a different
+     * version need to be selected again.
+     *
+     * @return the version
+     */
+    synchronized int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns all rows of this index.
+     *
+     * @return all rows
+     */
+    synchronized int[] getAllRows() {
+        int[] rows = new int[size];
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = row;
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the annotation of the specified row.
+     *
+     * @param row
+     *            the row
+     * @return the annotation
+     */
+    synchronized FileAnnotation get(final int row) {
+        return annotations[row];
+    }
+
+    /**
+     * Returns the row of the annotation with the specified key.
+     *
+     * @param key
+     *            the key of the annotation
+     * @return the row or -1 if there is no such annotation
+     */
+    synchronized int getRow(final long key) {
+        Integer row = getRowsByKey().get(key);
+        if (row == null) {
+            return -1;
+        }
+        return row;
+    }
+
+    private Map<Long, Integer> getRowsByKey() {
+        if (rowsByKey == null) {
+            rowsByKey = new HashMap<Long, Integer>(size * 4 / 3 + 1);
+            for (int row = 0; row < size; row++) {
+                rowsByKey.put(annotations[row].getKey(), row);
+            }
+        }
+        return rowsByKey;
+    }
+
+    /**
+     * Adds the specified annotations to this index. An annotation with the key of an already indexed annotation
+     * replaces the indexed annotation in the same row. The columns that have already been computed are updated for
+     * the added rows only, so adding annotations one by one does not index the existing rows again.
+     *
+     * @param newAnnotations
+     *            the annotations to add
+     */
+    synchronized void addAll(final Collection<? extends FileAnnotation> newAnnotations) {
+        Map<Long, Integer> rows = getRowsByKey();
+        ensureCapacity(size + newAnnotations.size());
+        for (FileAnnotation annotation : newAnnotations) {
+            Integer existing = rows.get(annotation.getKey());
+            int row;
+            if (existing == null) {
+                row = size++;
+                rows.put(annotation.getKey(), row);
+            }
+            else {
+                row = existing;
+            }
+            annotations[row] = annotation;
+            priorities[row] = (byte)annotation.getPriority().ordinal();
+            for (Column column : Column.values()) {
+                int ordinal = column.ordinal();
+                if (codes[ordinal] != null) {
+                    codes[ordinal][row] = dictionaries[ordinal].encode(column.getValue(annotation));
+                }
+            }
+        }
+        version++;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > annotations.length) {
+            int length = Math.max(capacity, annotations.length + (annotations.length >> 1));
+            annotations = Arrays.copyOf(annotations, length);
+            priorities = Arrays.copyOf(priorities, length);
+            for (int ordinal = 0; ordinal < codes.length; ordinal++) {
+                if (codes[ordinal] != null) {
+                    codes[ordinal] = Arrays.copyOf(codes[ordinal], length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Selects the rows whose columns have the specified values.
+     *
+     * @param columns
+     *            the columns to check
+     * @param columnValues
+     *            the required value of each column
+     * @return the matching rows, sorted in ascending order
+     */
+    synchronized int[] select(final Column[] columns, final String[] columnValues) {
+        int[][] columnCodes = new int[columns.length][];
+        int[] requiredCodes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            columnCodes[i] = getCodes(columns[i]);
+            requiredCodes[i] = dictionaries[columns[i].ordinal()].find(columnValues[i]);
+            if (requiredCodes[i] < 0) {
+                return new int[0];
+            }
+        }
+
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (matches(columnCodes, requiredCodes, row)) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    private boolean matches(final int[][] columnCodes, final int[] requiredCodes, final int row) {
+        for (int i = 0; i < requiredCodes.length; i++) {
+            if (columnCodes[i][row] != requiredCodes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits the specified rows by priority.
+     *
+     * @param rows
+     *            the rows to split, sorted in ascending order
+     * @return the rows of each priority, indexed by the ordinal of the priority
+     */
+    synchronized int[][] groupByPriority(final int[] rows) {
+        int[] counts = new int[PRIORITIES.length];
+        for (int row : rows) {
+            counts[priorities[row]]++;
+        }
+        int[][] groups = new int[PRIORITIES.length][];
+        for (int priority = 0; priority < groups.length; priority++) {
+            groups[priority] = new int[counts[priority]];
+            counts[priority] = 0;
+        }
+        for (int row : rows) {
+            int priority = priorities[row];
+            groups[priority][counts[priority]++] = row;
+        }
+        return groups;
+    }
+
+    /**
+     * Groups the specified rows by the values of the specified column. Rows without a value are skipped.
+     *
+     * @param column
+     *            the column to group by
+     * @param rows
+     *            the rows to group, sorted in ascending order
+     * @return the rows of each value of the column, each sorted in ascending order
+     */
+    synchronized Map<String, int[]> group(final Column column, final int[] rows) {
+        int[] columnCodes = getCodes(column);
+
+        long[] entries = new long[rows.length];
+        int count = 0;
+        for (int row : rows) {
+            int code = columnCodes[row];
+            if (code >= 0) {
+                entries[count++] = ((long)code << Integer.SIZE) | row;
+            }
+        }
+        Arrays.sort(entries, 0, count);
+
+        Dictionary dictionary = dictionaries[column.ordinal()];
+        Map<String, int[]> groups = new HashMap<String, int[]>();
+        int start = 0;
+        while (start < count) {
+            int code = (int)(entries[start] >>> Integer.SIZE);
+            int end = start + 1;
+            while (end < count && (int)(entries[end] >>> Integer.SIZE) == code) {
+                end++;
+            }
+            int[] group = new int[end - start];
+            for (int i = start; i < end; i++) {
+                group[i - start] = (int)entries[i];
+            }
+            groups.put(dictionary.decode(code), group);
+            start = end;
+        }
+        return groups;
+    }
+
+    /**
+     * Returns the codes of the specified column, computes them on first access.
+     */
+    private int[] getCodes(final Column column) {
+        int ordinal = column.ordinal();
+        if (codes[ordinal] == null) {
+            Dictionary dictionary = new Dictionary();
+            int[] columnCodes = new int[annotations.length];
+            for (int row = 0; row < size; row++) {
+                columnCodes[row] = dictionary.encode(column.getValue(annotations[row]));
+            }
+            codes[ordinal] = columnCodes;
+            dictionaries[ordinal] = dictionary;
+        }
+        return codes[ordinal];
+    }
+
+    /**
+     * Maps the values of a column to integer codes.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<String, Integer>();
+        private final List<String> values = new ArrayList<String>();
+
+        /**
+         * Returns the code of the specified value, a new code is assigned to unknown values.
+         *
+         * @param value
+         *            the value
+         * @return the code or -1 if the value is <code>null</code>
+         */
+        int encode(final String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        /**
+         * Returns the code of the specified value.
+         *
+         * @param value
+         *            the value
+         * @return the code or -1 if the value is unknown
+         */
+        int find(final String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                return -1;
+            }
+            return code;
+        }
+
+        String decode(final int code) {
+            return values.get(code);
+        }
+    }
+}
@@ -0,0 +1,886 @@
+package hudson.plugins.analysis.util.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.reflection.ReflectionConverter;
+import com.thoughtworks.xstream.mapper.Mapper;
+
+import hudson.plugins.analysis.util.TreeString;
+import hudson.plugins.analysis.util.TreeStringBuilder;
+import hudson.util.RobustReflectionConverter;
+
+/**
+ * A file that stores an array of {@link FileAnnotation annotations} in a compact binary format. This format is
+ * much smaller and faster to read than the XML produced by {@link AnnotationStream}: all strings (file, module,
+ * package, category and type names, messages, etc.) are written only once into a string table that is built while
+ * streaming, and all numbers and line ranges are stored as variable length integers in the same way as
+ * {@link LineRangeList} does.
+ * <p>
+ * The layout of the file is:
+ * <ul>
+ * <li>a magic number and the version of the format,</li>
+ * <li>the number of annotations,</li>
+ * <li>for each annotation a reference to its class descriptor followed by the values of all of its fields.</li>
+ * </ul>
+ * A reference to a class descriptor or string is either the index of an already defined entry or the next free
+ * index that is immediately followed by the definition of the new entry. A class descriptor lists the serialized
+ * fields of a class (declaring class, name and type), so files written by an older version of an annotation class
+ * can still be read after fields have been added or removed.
+ * <p>
+ * Only annotations that are serialized by the reflection converter of the {@link XStream} and that contain
+ * primitive values, strings, enumerations, and line ranges are supported, see {@link #isSupported(FileAnnotation...)}.
+ * Class names are resolved using the mapper of the specified {@link XStream}, so the same aliases are used as in the
+ * XML format.
+ *
+ * @since 1.93
+ */
+public class BinaryAnnotationFile {
+    /** Magic number at the start of each file: "ANNO". */
+    static final int MAGIC = 0x414E4E4F;
+    /** Current version of the format. */
+    static final int VERSION = 1;
+
+    private static final int NULLABLE = 0x80;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final XStream xstream;
+    private final File file;
+    private final Map<Class<?>, ClassDescriptor> descriptors = Maps.newHashMap();
+
+    /**
+     * Creates a new instance of {@link BinaryAnnotationFile}.
+     *
+     * @param xstream
+     *            the XStream that is used to resolve class names and serialized fields
+     * @param file
+     *            the file to read from or write to
+     */
+    public BinaryAnnotationFile(final XStream xstream, final File file) {
+        this.xstream = xstream;
+        this.file = file;
+    }
+
+    /**
+     * Returns the file of this binary annotation file.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns whether this file exists.
+     *
+     * @return <code>true</code> if this file exists, <code>false</code> otherwise
+     */
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Deletes this file.
+     *
+     * @throws IOException
+     *             if the file exists but could not be deleted
+     */
+    public void delete() throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Can't delete " + file);
+        }
+    }
+
+    /**
+     * Returns whether all of the specified annotations can be stored in this binary format. If one of the
+     * annotations contains a field of an unsupported type or is serialized by a custom converter, then the
+     * annotations need to be stored as XML.
+     *
+     * @param annotations
+     *            the annotations to check
+     * @return <code>true</code> if the annotations can be written, <code>false</code> otherwise
+     */
+    public boolean isSupported(final FileAnnotation... annotations) {
+        for (FileAnnotation annotation : annotations) {
+            if (annotation == null || !getDescriptor(annotation.getClass()).isSupported()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the specified annotations to this file. The file is replaced only if all annotations have been written
+     * successfully.
+     *
+     * @param annotations
+     *            the annotations to write
+     * @throws IOException
+     *             if the annotations could not be written
+     * @see #isSupported(FileAnnotation...)
+     */
+    public void write(final FileAnnotation... annotations) throws IOException {
+        if (!isSupported(annotations)) {
+            throw new IOException("Annotations can't be stored in binary format: " + file);
+        }
+
+        File temporary = new File(file.getParentFile(), file.getName() + ".tmp");
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporary), BUFFER_SIZE));
+        try {
+            new Writer(output).write(annotations);
+            output.close();
+            replace(temporary);
+        }
+        finally {
+            IOUtils.closeQuietly(output);
+            if (temporary.exists() && !temporary.delete()) {
+                temporary.deleteOnExit();
+            }
+        }
+    }
+
+    private void replace(final File temporary) throws IOException {
+        if (!temporary.renameTo(file)) {
+            delete();
+            if (!temporary.renameTo(file)) {
+                throw new IOException("Can't move " + temporary + " to " + file);
+            }
+        }
+    }
+
+    /**
+     * Reads the annotations of this file.
+     *
+     * @return the annotations
+     * @throws IOException
+     *             if the file could not be read or has an unknown format
+     */
+    public FileAnnotation[] read() throws IOException {
+        DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+        try {
+            return new Reader(input).read();
+        }
+        catch (RuntimeException exception) { // e.g., XStream can't resolve a class
+            throw new IOException("Can't read annotations from " + file, exception);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Reads the annotations of this file one by one and passes them to the specified visitor. Only the current
+     * annotation (and the table of strings) is held in memory, so this method should be used to process large files
+     * sequentially. Reading stops as soon as the visitor returns <code>false</code>.
+     *
+     * @param visitor
+     *            the visitor that receives the annotations
+     * @throws IOException
+     *             if the file could not be read or has an unknown format, or if the visitor failed
+     */
+    public void read(final Visitor visitor) throws IOException {
+        read(0, visitor);
+    }
+
+    /**
+     * Reads the annotations of this file one by one, starting with the annotation at the specified position, and
+     * passes them to the specified visitor. The preceding annotations are skipped: their values are read to build the
+     * table of strings, but no annotation instances are created. Reading stops as soon as the visitor returns
+     * <code>false</code>.
+     *
+     * @param first
+     *            the position of the first annotation to pass to the visitor
+     * @param visitor
+     *            the visitor that receives the annotations
+     * @throws IOException
+     *             if the file could not be read or has an unknown format, or if the visitor failed
+     */
+    public void read(final int first, final Visitor visitor) throws IOException {
+        DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+        try {
+            Reader reader = new Reader(input);
+            int size = reader.readHeader();
+            for (int i = 0; i < size; i++) {
+                if (i < first) {
+                    reader.skipAnnotation();
+                }
+                else if (!visitor.visit(reader.readAnnotation())) {
+                    return;
+                }
+            }
+        }
+        catch (RuntimeException exception) { // e.g., XStream can't resolve a class
+            throw new IOException("Can't read annotations from " + file, exception);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+    /**
+     * Receives the annotations of a file one by one.
+     *
+     * @see BinaryAnnotationFile#read(Visitor)
+     */
+    public interface Visitor {
+        /**
+         * Visits the next annotation of the file.
+         *
+         * @param annotation
+         *            the annotation
+         * @return <code>true</code> if the remaining annotations should be read, <code>false</code> to stop reading
+         * @throws IOException
+         *             if the annotation could not be processed
+         */
+        boolean visit(FileAnnotation annotation) throws IOException;
+    }
+
+    private ClassDescriptor getDescriptor(final Class<?> type) {
+        ClassDescriptor descriptor = descriptors.get(type);
+        if (descriptor == null) {
+            descriptor = new ClassDescriptor(type, xstream);
+            descriptors.put(type, descriptor);
+        }
+        return descriptor;
+    }
+
+    /**
+     * The type of a serialized field. The ordinal is part of the file format, so new types must be appended.
+     */
+    private enum FieldType {
+        BOOLEAN {
+            @Override
+            void write(final Writer writer, final Object value) throws IOException {
+                writer.output.writeBoolean((Boolean)value);
+            }
+
+            @Override
+            Object read(final Reader reader, final Class<?> type) throws IOException {
+                return reader.input.readBoolean();
+            }
+        },
+        INTEGER {
+            @Override
+            void write(final Writer writer, final Object value) throws IOException {
+                writer.writeInt(zigzag((Integer)value));
+            }
+
+            @Override
+            Object read(final Reader reader, final Class<?> type) throws IOException {
+                int value = reader.readInt();
+                return (value >>> 1) ^ -(value & 1);
+            }
+
+            private int zigzag(final int value) {
+                return (value << 1) ^ (value >> 31); // NOCHECKSTYLE
+            }
+        },
+        LONG {
+            @Override
+            void write(final Writer writer, final Object value) throws IOException {
+                writer.output.writeLong((Long)value);
+            }
+
+            @Override
+            Object read(final Reader reader, final Class<?> type) throws IOException {
+                return reader.input.readLong();
+            }
+        },
+        FLOAT {
+            @Override
+            void write(final Writer writer, final Object value) throws IOException {
+                writer.output.writeFloat((Float)value);
+            }
+
+            @Override
+            Object read(final Reader reader, final Class<?> type) throws IOException {
+                return reader.input.readFloat();
+            }
+        },
+        DOUBLE {
+            @Override
+            void write(final Writer writer, final Object value) throws IOException {
+                writer.output.writeDouble((Double)value);
+            }
+
+            @Override
+            Object read(final Reader reader, final Class<?> type) throws IOException {
+                return reader.input.readDouble();
+            }
+        },
+        STRING {
+            @Override
+            void write(final Writer writer, final Object value) throws IOException {
+                writer.writeString((String)value);
+            }
+
+            @Override
+            Object read(final Reader reader, final Class<?> type) throws IOException {
+                return reader.readString();
+            }
+        },
+        TREE_STRING {
+            @Override
+            void write(final Writer writer, final Object value) throws IOException {
+                writer.writeString(TreeString.toString((TreeString)value));
+            }
+
+            @Override
+            Object read(final Reader reader, final Class<?> type) throws IOException {
+                String value = reader.readString();
+                if (value == null) {
+                    return null;
+                }
+                return reader.treeStrings.intern(value);
+            }
+
+            @Override
+            void skip(final Reader reader) throws IOException {
+                reader.readString();
+            }
+        },
+        ENUM {
+            @Override
+            void write(final Writer writer, final Object value) throws IOException {
+                writer.writeString(((Enum<?>)value).name());
+            }
+
+            @Override
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Object read(final Reader reader, final Class<?> type) throws IOException {
+                String name = reader.readString();
+                if (type == null) {
+                    return null;
+                }
+                return Enum.valueOf((Class<Enum>)type, name);
+            }
+        },
+        LINE_RANGES {
+            @Override
+            void write(final Writer writer, final Object value) throws IOException {
+                LineRangeList ranges = (LineRangeList)value;
+                writer.writeInt(ranges.size());
+                for (LineRange range : ranges) {
+                    writer.writeInt(range.getStart());
+                    writer.writeInt(range.getEnd() - range.getStart());
+                }
+            }
+
+            @Override
+            Object read(final Reader reader, final Class<?> type) throws IOException {
+                int size = reader.readInt();
+                LineRangeList ranges = new LineRangeList(size * 2);
+                for (int i = 0; i < size; i++) {
+                    int start = reader.readInt();
+                    ranges.add(new LineRange(start, start + reader.readInt()));
+                }
+                ranges.trim();
+                return ranges;
+            }
+
+            @Override
+            void skip(final Reader reader) throws IOException {
+                int size = reader.readInt();
+                for (int i = 0; i < size * 2; i++) {
+                    reader.readInt();
+                }
+            }
+        };
+
+        /**
+         * Returns the type of a field with the specified class.
+         *
+         * @param type
+         *            the class of the field
+         * @return the field type or <code>null</code> if the class is not supported
+         */
+        static FieldType of(final Class<?> type) {
+            if (type == boolean.class || type == Boolean.class) {
+                return BOOLEAN;
+            }
+            if (type == int.class || type == Integer.class) {
+                return INTEGER;
+            }
+            if (type == long.class || type == Long.class) {
+                return LONG;
+            }
+            if (type == float.class || type == Float.class) {
+                return FLOAT;
+            }
+            if (type == double.class || type == Double.class) {
+                return DOUBLE;
+            }
+            if (type == String.class) {
+                return STRING;
+            }
+            if (type == TreeString.class) {
+                return TREE_STRING;
+            }
+            if (type.isEnum()) {
+                return ENUM;
+            }
+            if (type == LineRangeList.class) {
+                return LINE_RANGES;
+            }
+            return null;
+        }
+
+        /**
+         * Writes the specified non-null value.
+         *
+         * @param writer
+         *            the writer to use
+         * @param value
+         *            the value
+         * @throws IOException
+         *             if the value could not be written
+         */
+        abstract void write(Writer writer, Object value) throws IOException;
+
+        /**
+         * Reads a value.
+         *
+         * @param reader
+         *            the reader to use
+         * @param type
+         *            the class of the target field, or <code>null</code> if the value is skipped
+         * @return the value
+         * @throws IOException
+         *             if the value could not be read
+         */
+        abstract Object read(Reader reader, Class<?> type) throws IOException;
+
+        /**
+         * Skips a value. New strings are still added to the table of strings of the reader.
+         *
+         * @param reader
+         *            the reader to use
+         * @throws IOException
+         *             if the value could not be read
+         */
+        void skip(final Reader reader) throws IOException {
+            read(reader, null);
+        }
+    }
+
+    /**
+     * A serialized field of an annotation class.
+     */
+    private static class FieldDescriptor {
+        private final Field field;
+        private final FieldType type;
+        private final boolean isNullable;
+
+        FieldDescriptor(final Field field, final FieldType type, final boolean isNullable) {
+            this.field = field;
+            this.type = type;
+            this.isNullable = isNullable;
+            if (field != null) {
+                field.setAccessible(true);
+            }
+        }
+
+        /**
+         * Returns the type code of this field that is stored in the file.
+         */
+        int getCode() {
+            return type.ordinal() | (isNullable ? NULLABLE : 0);
+        }
+
+        void write(final Writer writer, final Object annotation) throws IOException, IllegalAccessException {
+            Object value = field.get(annotation);
+            if (isNullable) {
+                writer.output.writeBoolean(value != null);
+                if (value == null) {
+                    return;
+                }
+            }
+            type.write(writer, value);
+        }
+
+        void skip(final Reader reader) throws IOException {
+            if (!isNullable || reader.input.readBoolean()) {
+                type.skip(reader);
+            }
+        }
+
+        void read(final Reader reader, final Object annotation) throws IOException, IllegalAccessException {
+            if (isNullable && !reader.input.readBoolean()) {
+                return; // fields of instances created by XStream are null by default
+            }
+            if (field == null) {
+                type.skip(reader);
+            }
+            else {
+                field.set(annotation, type.read(reader, field.getType()));
+            }
+        }
+    }
+
+    /**
+     * The serialized fields of an annotation class.
+     */
+    private static class ClassDescriptor {
+        private final Class<?> type;
+        private final List<FieldDescriptor> fields = Lists.newArrayList();
+        private final Method readResolve;
+        private boolean isSupported;
+
+        /**
+         * Creates a descriptor with all fields that XStream would serialize for the specified class.
+         */
+        ClassDescriptor(final Class<?> type, final XStream xstream) {
+            this.type = type;
+            readResolve = findMethod(type, "readResolve");
+
+            isSupported = hasReflectionConverter(type, xstream) && findMethod(type, "writeReplace") == null;
+            Mapper mapper = xstream.getMapper();
+            for (Class<?> definedIn = type; definedIn != Object.class; definedIn = definedIn.getSuperclass()) {
+                for (Field field : definedIn.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)
+                            && mapper.shouldSerializeMember(definedIn, field.getName())) {
+                        FieldType fieldType = FieldType.of(field.getType());
+                        if (fieldType == null) {
+                            isSupported = false;
+                        }
+                        else {
+                            fields.add(new FieldDescriptor(field, fieldType, !field.getType().isPrimitive()));
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Creates a descriptor for the specified class with the specified fields read from a file.
+         */
+        ClassDescriptor(final Class<?> type, final List<FieldDescriptor> fields) {
+            this.type = type;
+            this.fields.addAll(fields);
+            readResolve = findMethod(type, "readResolve");
+        }
+
+        private static boolean hasReflectionConverter(final Class<?> type, final XStream xstream) {
+            Converter converter = xstream.getConverterLookup().lookupConverterForType(type);
+
+            return converter instanceof ReflectionConverter || converter instanceof RobustReflectionConverter;
+        }
+
+        /**
+         * Finds a method without parameters in the class hierarchy in the same way as XStream does.
+         */
+        private static Method findMethod(final Class<?> type, final String name) {
+            for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+                try {
+                    Method method = clazz.getDeclaredMethod(name);
+                    method.setAccessible(true);
+                    return method;
+                }
+                catch (NoSuchMethodException exception) {
+                    // try the super class
+                }
+            }
+            return null;
+        }
+
+        boolean isSupported() {
+            return isSupported;
+        }
+
+        List<FieldDescriptor> getFields() {
+            return Collections.unmodifiableList(fields);
+        }
+
+        Object resolve(final Object instance) throws IOException {
+            if (readResolve == null) {
+                return instance;
+            }
+            try {
+                return readResolve.invoke(instance);
+            }
+            catch (IllegalAccessException exception) {
+                throw new IOException(exception);
+            }
+            catch (InvocationTargetException exception) {
+                throw new IOException("Can't resolve instance of " + type, exception.getCause());
+            }
+        }
+    }
+
+    /**
+     * Writes annotations to a stream. Strings and class descriptors are defined on their first usage.
+     */
+    private class Writer {
+        private final DataOutputStream output;
+        private final Map<String, Integer> strings = Maps.newHashMap();
+        private final Map<Class<?>, Integer> classes = Maps.newHashMap();
+
+        Writer(final DataOutputStream output) {
+            this.output = output;
+        }
+
+        void write(final FileAnnotation[] annotations) throws IOException {
+            output.writeInt(MAGIC);
+            writeInt(VERSION);
+            writeInt(annotations.length);
+            for (FileAnnotation annotation : annotations) {
+                ClassDescriptor descriptor = getDescriptor(annotation.getClass());
+                writeClass(descriptor);
+                try {
+                    for (FieldDescriptor field : descriptor.getFields()) {
+                        field.write(this, annotation);
+                    }
+                }
+                catch (IllegalAccessException exception) {
+                    throw new IOException(exception);
+                }
+            }
+            output.flush();
+        }
+
+        private void writeClass(final ClassDescriptor descriptor) throws IOException {
+            Integer index = classes.get(descriptor.type);
+            if (index != null) {
+                writeInt(index);
+                return;
+            }
+            index = classes.size();
+            classes.put(descriptor.type, index);
+            writeInt(index);
+
+            Mapper mapper = xstream.getMapper();
+            writeString(mapper.serializedClass(descriptor.type));
+            writeInt(descriptor.getFields().size());
+            for (FieldDescriptor field : descriptor.getFields()) {
+                writeString(mapper.serializedClass(field.field.getDeclaringClass()));
+                writeString(field.field.getName());
+                output.writeByte(field.getCode());
+            }
+        }
+
+        /**
+         * Writes a reference to the specified string. Index 0 is reserved for <code>null</code>.
+         */
+        void writeString(final String value) throws IOException {
+            if (value == null) {
+                writeInt(0);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeInt(index);
+                return;
+            }
+            index = strings.size() + 1;
+            strings.put(value, index);
+            writeInt(index);
+
+            byte[] bytes = value.getBytes(Charsets.UTF_8);
+            writeInt(bytes.length);
+            output.write(bytes);
+        }
+
+        /**
+         * Writes the specified value using the variable length format of {@link LineRangeList}.
+         */
+        void writeInt(final int value) throws IOException {
+            int remaining = value;
+            while ((remaining & ~0x7F) != 0) {
+                output.writeByte(remaining & 0x7F);
+                remaining >>>= 7;
+            }
+            output.writeByte(remaining | 0x80);
+        }
+    }
+
+    /**
+     * Reads annotations from a stream.
+     */
+    private class Reader {
+        private final DataInputStream input;
+        private final List<String> strings = Lists.newArrayList();
+        private final List<ClassDescriptor> classes = Lists.newArrayList();
+        private final TreeStringBuilder treeStrings = new TreeStringBuilder();
+
+        Reader(final DataInputStream input) {
+            this.input = input;
+        }
+
+        FileAnnotation[] read() throws IOException {
+            int size = readHeader();
+            FileAnnotation[] annotations = new FileAnnotation[size];
+            for (int i = 0; i < size; i++) {
+                annotations[i] = readAnnotation();
+            }
+            treeStrings.dedup();
+
+            return annotations;
+        }
+
+        /**
+         * Reads the magic number and the version of the format.
+         *
+         * @return the number of annotations in the file
+         */
+        int readHeader() throws IOException {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a binary annotation file: " + file);
+            }
+            int version = readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of binary annotation file: " + file);
+            }
+            return readInt();
+        }
+
+        FileAnnotation readAnnotation() throws IOException {
+            ClassDescriptor descriptor = readClass();
+            Object annotation = xstream.getReflectionProvider().newInstance(descriptor.type);
+            try {
+                for (FieldDescriptor field : descriptor.getFields()) {
+                    field.read(this, annotation);
+                }
+            }
+            catch (IllegalAccessException exception) {
+                throw new IOException(exception);
+            }
+            return (FileAnnotation)descriptor.resolve(annotation);
+        }
+
+        /**
+         * Skips the next annotation without creating an instance.
+         */
+        void skipAnnotation() throws IOException {
+            for (FieldDescriptor field : readClass().getFields()) {
+                field.skip(this);
+            }
+        }
+
+        private ClassDescriptor readClass() throws IOException {
+            int index = readInt();
+            if (index < classes.size()) {
+                return classes.get(index);
+            }
+            if (index > classes.size()) {
+                throw new IOException("Invalid class reference " + index + " in " + file);
+            }
+
+            Mapper mapper = xstream.getMapper();
+            Class<?> type = mapper.realClass(readString());
+            int size = readInt();
+            List<FieldDescriptor> fields = Lists.newArrayList();
+            for (int i = 0; i < size; i++) {
+                String definedIn = readString();
+                String name = readString();
+                int code = input.readUnsignedByte();
+                FieldType[] types = FieldType.values();
+                if ((code & ~NULLABLE) >= types.length) {
+                    throw new IOException("Invalid field type " + code + " in " + file);
+                }
+                FieldType fieldType = types[code & ~NULLABLE];
+                boolean isNullable = (code & NULLABLE) != 0;
+
+                fields.add(new FieldDescriptor(findField(type, definedIn, name, fieldType, isNullable),
+                        fieldType, isNullable));
+            }
+            ClassDescriptor descriptor = new ClassDescriptor(type, fields);
+            classes.add(descriptor);
+            return descriptor;
+        }
+
+        /**
+         * Finds the field that matches the stored field. Fields that have been removed or changed their type are
+         * skipped.
+         */
+        private Field findField(final Class<?> type, final String definedIn, final String name,
+                final FieldType fieldType, final boolean isNullable) {
+            Mapper mapper = xstream.getMapper();
+            for (Class<?> clazz = type; clazz != Object.class; clazz = clazz.getSuperclass()) {
+                if (mapper.serializedClass(clazz).equals(definedIn)) {
+                    try {
+                        Field field = clazz.getDeclaredField(name);
+                        if (FieldType.of(field.getType()) == fieldType
+                                && field.getType().isPrimitive() != isNullable
+                                && !Modifier.isStatic(field.getModifiers())) {
+                            return field;
+                        }
+                    }
+                    catch (NoSuchFieldException exception) {
+                        // skip removed field
+                    }
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Reads a reference to a string and the string itself if it is a new entry.
+         */
+        String readString() throws IOException {
+            int index = readInt();
+            if (index == 0) {
+                return null;
+            }
+            if (index <= strings.size()) {
+                return strings.get(index - 1);
+            }
+            if (index > strings.size() + 1) {
+                throw new IOException("Invalid string reference " + index + " in " + file);
+            }
+            byte[] bytes = new byte[readInt()];
+            input.readFully(bytes);
+            String value = new String(bytes, Charsets.UTF_8);
+            strings.add(value);
+            return value;
+        }
+
+        /**
+         * Reads a value that has been written using the variable length format of {@link LineRangeList}.
+         */
+        int readInt() throws IOException {
+            int value = 0;
+            int shift = 0;
+            int current;
+            do {
+                current = input.read();
+                if (current < 0) {
+                    throw new EOFException("Unexpected end of " + file);
+                }
+                value |= (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) == 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package hudson.plugins.analysis.util.model;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates unique keys for {@link FileAnnotation} instances. This generator is thread safe: each thread obtains a
+ * block of consecutive keys from a shared atomic counter and hands out the keys of its block without any
+ * synchronization. So concurrent parsers and aggregators never get the same key and contend only once per block.
+ */
+final class KeyGenerator {
+    /** Number of keys that are reserved by a thread at once. */
+    static final int BLOCK_SIZE = 1024;
+
+    /** The first key of the next block that has not been reserved yet. */
+    private static final AtomicLong NEXT_BLOCK = new AtomicLong(new Random().nextLong());
+
+    private static final ThreadLocal<Block> BLOCKS = new ThreadLocal<Block>() {
+        @Override
+        protected Block initialValue() {
+            return new Block();
+        }
+    };
+
+    /**
+     * Returns a new unique key.
+     *
+     * @return the key
+     */
+    static long nextKey() {
+        return BLOCKS.get().nextKey();
+    }
+
+    private KeyGenerator() {
+        // prevents instantiation
+    }
+
+    /**
+     * A block of keys that is reserved by a single thread.
+     */
+    private static class Block {
+        private long next;
+        private long end;
+
+        long nextKey() {
+            if (next == end) {
+                next = NEXT_BLOCK.getAndAdd(BLOCK_SIZE);
+                end = next + BLOCK_SIZE;
+            }
+            return next++;
+        }
+    }
+}
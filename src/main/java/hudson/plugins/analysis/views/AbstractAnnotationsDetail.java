@@ -66,6 +66,33 @@ public abstract class AbstractAnnotationsDetail extends AnnotationContainer impl
         addAnnotations(annotations);
     }
 
+    /**
+     * Creates a new instance of {@link AbstractAnnotationsDetail} that shows the annotations of the specified
+     * container. The annotations are not copied: this detail is a view on the index of the container.
+     *
+     * @param owner
+     *            current build as owner of this object
+     * @param detailFactory
+     *            factory to create detail objects with
+     * @param container
+     *            the container with the warnings represented by this object
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param name
+     *            the name of this object
+     * @param hierarchy
+     *            the hierarchy level of this detail object
+     * @since 1.93
+     */
+    protected AbstractAnnotationsDetail(final Run<?, ?> owner, final DetailFactory detailFactory, final AnnotationContainer container, final String defaultEncoding, final String name, final Hierarchy hierarchy) {
+        super(name, hierarchy);
+        this.owner = owner;
+        this.detailFactory = detailFactory;
+        this.defaultEncoding = defaultEncoding;
+
+        share(container);
+    }
+
     /**
      * Returns whether author and commit information should be shown or not.
      *
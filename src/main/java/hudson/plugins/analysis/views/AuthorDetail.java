@@ -31,7 +31,7 @@ public class AuthorDetail extends AbstractAnnotationsDetail {
      * @param header           header to be shown on detail page
      */
     public AuthorDetail(final Run<?, ?> owner, final DetailFactory detailFactory, final Author authorContainer, final String defaultEncoding, final String header) {
-        super(owner, detailFactory, authorContainer.getAnnotations(), defaultEncoding, header, authorContainer.getHierarchy());
+        super(owner, detailFactory, authorContainer, defaultEncoding, header, authorContainer.getHierarchy());
 
         this.authorName = authorContainer.getFullName();
         this.authorEmail = authorContainer.getEmail();
@@ -0,0 +1,284 @@
+package hudson.plugins.analysis.views;
+
+import javax.annotation.CheckForNull;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.analysis.core.ResultCache;
+import hudson.plugins.analysis.util.model.AnnotationContainer;
+
+/**
+ * Process wide cache of the detail views that have been created by a {@link DetailFactory}. A detail is identified by
+ * the build, the link, and the parent object the detail has been created from (the container or the collection of new
+ * or fixed warnings). The parent is referenced weakly: as soon as the parent has been evicted from the
+ * {@link ResultCache} and has been garbage collected, the details of the parent are removed on the next access of this
+ * cache. Until then the details still keep the warnings of the parent in memory.
+ * <p>
+ * The total number of warnings that are kept in memory by the cached details is bounded, the least recently used
+ * details are evicted first. A detail that is a view on the index of another container keeps all warnings of that
+ * index in memory, see {@link AnnotationContainer#getNumberOfRetainedAnnotations()}. Since the views of the same
+ * container share its index, the warnings of an index are counted only once. The index of the parent itself is not
+ * counted at all: it is charged to the {@link ResultCache} as long as the parent is cached, and the details are removed
+ * as soon as the parent has been collected. So this cache is charged only with the warnings that the details keep in
+ * memory in addition to the warnings of the {@link ResultCache}. By default, its budget is a fifth of the budget of
+ * the {@link ResultCache}.
+ *
+ * @since 1.93
+ */
+public final class DetailCache {
+    /** Maximum total number of warnings that are kept in memory by the cached details in addition to the results. */
+    private static final long BUDGET = Long.getLong(DetailCache.class.getName() + ".budget",
+            ResultCache.getInstance().getBudget() / 5);
+    private static final char SEPARATOR = '\n';
+
+    private static final DetailCache INSTANCE = new DetailCache(BUDGET);
+
+    private final long budget;
+    /** The cached details, in the order of their last access. */
+    private final Map<String, Entry> details = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    /** The charge of the cached details that keep the warnings of an index in memory, mapped by the index. */
+    private final Map<Object, Charge> references = new IdentityHashMap<Object, Charge>();
+    /** The entries whose parent has been garbage collected. */
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<Object>();
+    private long footprint;
+
+    /**
+     * Returns the cache of this Jenkins instance.
+     *
+     * @return the cache
+     */
+    static DetailCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a new instance of {@link DetailCache}.
+     *
+     * @param budget
+     *            the maximum total number of warnings that are kept in memory by the cached details
+     */
+    DetailCache(final long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Creates the key of a detail.
+     *
+     * @param owner
+     *            the build as owner of the detail page
+     * @param link
+     *            the link to identify the sub page to show
+     * @param parent
+     *            the object the detail is created from
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param displayName
+     *            the name of the selected object
+     * @return the key
+     */
+    static String createKey(final Run<?, ?> owner, final String link, final Object parent,
+            final String defaultEncoding, final String displayName) {
+        return createKey(owner.getParent().getFullName(), owner.getNumber(), link, parent, defaultEncoding,
+                displayName);
+    }
+
+    static String createKey(final String jobName, final int buildNumber, final String link, final Object parent,
+            final String defaultEncoding, final String displayName) {
+        return createPrefix(jobName, buildNumber) + System.identityHashCode(parent) + SEPARATOR + link + SEPARATOR
+                + defaultEncoding + SEPARATOR + displayName;
+    }
+
+    private static String createPrefix(final String jobName, final int buildNumber) {
+        return jobName + SEPARATOR + buildNumber + SEPARATOR;
+    }
+
+    /**
+     * Returns the cached detail with the specified key.
+     *
+     * @param key
+     *            the key of the detail
+     * @param parent
+     *            the object the detail has been created from
+     * @return the cached detail, or <code>null</code> if the detail is not cached for the specified parent
+     */
+    @CheckForNull
+    synchronized AnnotationContainer get(final String key, final Object parent) {
+        purge();
+
+        Entry entry = details.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.get() != parent) {
+            remove(details.remove(key));
+            return null;
+        }
+        return entry.detail;
+    }
+
+    /**
+     * Stores the specified detail.
+     *
+     * @param key
+     *            the key of the detail
+     * @param parent
+     *            the object the detail has been created from
+     * @param detail
+     *            the detail
+     */
+    synchronized void put(final String key, final Object parent, final AnnotationContainer detail) {
+        purge();
+
+        remove(details.remove(key));
+        Entry entry = new Entry(key, parent, detail, collected);
+        details.put(key, entry);
+        add(entry);
+
+        Iterator<Entry> eldest = details.values().iterator();
+        while (footprint > budget && eldest.hasNext()) {
+            remove(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Removes the details whose parent has been garbage collected.
+     */
+    private void purge() {
+        for (Reference<?> reference = collected.poll(); reference != null; reference = collected.poll()) {
+            Entry entry = (Entry)reference;
+            if (details.get(entry.key) == entry) {
+                remove(details.remove(entry.key));
+            }
+        }
+    }
+
+    /**
+     * Charges the warnings of the index of the specified entry, unless they are already kept in memory by another
+     * entry.
+     */
+    private void add(final Entry entry) {
+        Charge charge = references.get(entry.index);
+        if (charge == null) {
+            charge = new Charge(entry.weight);
+            footprint += charge.weight;
+            references.put(entry.index, charge);
+        }
+        charge.count++;
+    }
+
+    /**
+     * Releases the warnings of the index of the specified entry, unless they are still kept in memory by another
+     * entry.
+     */
+    private void remove(@CheckForNull final Entry entry) {
+        if (entry != null) {
+            entry.clear();
+            Charge charge = references.get(entry.index);
+            charge.count--;
+            if (charge.count == 0) {
+                footprint -= charge.weight;
+                references.remove(entry.index);
+            }
+        }
+    }
+
+    /**
+     * Removes all details of the specified build.
+     *
+     * @param jobName
+     *            the full name of the job
+     * @param buildNumber
+     *            the number of the build
+     */
+    synchronized void remove(final String jobName, final int buildNumber) {
+        String prefix = createPrefix(jobName, buildNumber);
+        for (Iterator<Map.Entry<String, Entry>> iterator = details.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry<String, Entry> candidate = iterator.next();
+            if (candidate.getKey().startsWith(prefix)) {
+                remove(candidate.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cached details.
+     *
+     * @return the number of details
+     */
+    synchronized int size() {
+        purge();
+
+        return details.size();
+    }
+
+    /**
+     * Returns the total number of warnings that are kept in memory by the cached details.
+     *
+     * @return the footprint
+     */
+    synchronized long getFootprint() {
+        purge();
+
+        return footprint;
+    }
+
+    /**
+     * A cached detail that references its parent weakly.
+     */
+    private static final class Entry extends WeakReference<Object> {
+        private final String key;
+        private final AnnotationContainer detail;
+        /** The object that keeps the warnings of the detail in memory. */
+        private final Object index;
+        private final int weight;
+
+        Entry(final String key, final Object parent, final AnnotationContainer detail,
+                final ReferenceQueue<Object> queue) {
+            super(parent, queue);
+
+            this.key = key;
+            this.detail = detail;
+            index = detail.getRetainedAnnotations();
+            if (parent instanceof AnnotationContainer && detail.sharesAnnotationsWith((AnnotationContainer)parent)) {
+                weight = 0;
+            }
+            else {
+                weight = Math.max(1, detail.getNumberOfRetainedAnnotations());
+            }
+        }
+    }
+
+    /**
+     * The warnings of an index that are charged to this cache and the number of details that keep them in memory.
+     */
+    private static final class Charge {
+        /** The number of warnings that are charged, the weight of the first detail that references the index. */
+        private final int weight;
+        private int count;
+
+        Charge(final int weight) {
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Removes the cached details of a build when the build has been deleted.
+     */
+    @Extension
+    public static class Listener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(final Run<?, ?> run) {
+            getInstance().remove(run.getParent().getFullName(), run.getNumber());
+        }
+    }
+}
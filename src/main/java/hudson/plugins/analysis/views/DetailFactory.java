@@ -99,6 +99,13 @@ public class DetailFactory {
             return createTrendDetails(link, (AbstractBuild<?, ?>) owner, container, fixedAnnotations, newAnnotations, errors, defaultEncoding, displayName);
         }
         else {
+            Collection<FileAnnotation> parent = getTrendAnnotations(link, fixedAnnotations, newAnnotations);
+            String key = DetailCache.createKey(owner, link, parent, defaultEncoding, displayName);
+            AnnotationContainer cached = parent == null ? null : DetailCache.getInstance().get(key, parent);
+            if (cached != null) {
+                return cached;
+            }
+
             AnnotationContainer detail;
             if ("fixed".equals(link)) {
                 detail = createFixedWarningsDetail(owner, fixedAnnotations, defaultEncoding, displayName);
@@ -119,10 +126,33 @@ public class DetailFactory {
                 return createDetails(link, owner, container, defaultEncoding, displayName);
             }
             attachLabelProvider(detail);
+            DetailCache.getInstance().put(key, parent, detail);
             return detail;
         }
     }
 
+    /**
+     * Returns the annotations the detail of the specified trend link is created from.
+     *
+     * @param link
+     *            the link to identify the sub page to show
+     * @param fixedAnnotations
+     *            the annotations fixed in this build
+     * @param newAnnotations
+     *            the annotations new in this build
+     * @return the new or fixed annotations, or <code>null</code> if the link does not show new or fixed annotations
+     */
+    private Collection<FileAnnotation> getTrendAnnotations(final String link,
+            final Collection<FileAnnotation> fixedAnnotations, final Collection<FileAnnotation> newAnnotations) {
+        if ("fixed".equals(link) || link.startsWith("tab.fixed")) {
+            return fixedAnnotations;
+        }
+        if ("new".equals(link) || link.startsWith("tab.new")) {
+            return newAnnotations;
+        }
+        return null;
+    }
+
     /**
      * Returns the default label provider that is used to visualize the build result (i.e., the tab labels).
      *
@@ -156,6 +186,13 @@ public class DetailFactory {
             return createDetails(link, (AbstractBuild<?, ?>) owner, container, defaultEncoding, displayName);
         }
         else {
+            String key = DetailCache.createKey(owner, link, container, defaultEncoding, displayName);
+            boolean isCacheable = !link.startsWith("source.");
+            AnnotationContainer cached = isCacheable ? DetailCache.getInstance().get(key, container) : null;
+            if (cached != null) {
+                return cached;
+            }
+
             PriorityDetailFactory factory = new PriorityDetailFactory(this);
             AnnotationContainer detail = null;
             if (factory.isPriority(link)) {
@@ -198,6 +235,7 @@ public class DetailFactory {
             }
             if (detail != null) {
                 attachLabelProvider(detail);
+                DetailCache.getInstance().put(key, container, detail);
             }
             return detail;
         }
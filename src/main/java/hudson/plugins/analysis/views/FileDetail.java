@@ -34,7 +34,7 @@ public class FileDetail extends AbstractAnnotationsDetail {
      *            header to be shown on detail page
      */
     public FileDetail(final Run<?, ?> owner, final DetailFactory detailFactory, final WorkspaceFile file, final String defaultEncoding, final String header) {
-        super(owner, detailFactory, file.getAnnotations(), defaultEncoding, header, Hierarchy.FILE);
+        super(owner, detailFactory, file, defaultEncoding, header, Hierarchy.FILE);
         this.file = file;
     }
 
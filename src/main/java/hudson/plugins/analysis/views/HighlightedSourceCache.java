@@ -0,0 +1,208 @@
+package hudson.plugins.analysis.views;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import hudson.plugins.analysis.util.SourceStore;
+
+/**
+ * Caches the highlighted HTML of source files so that java2html does not need to parse the same file again for each
+ * request of a {@link SourceDetail}. The memory tier is shared by all builds: the least recently used entries are
+ * evicted as soon as the total number of cached characters exceeds the budget. Optionally, the highlighted HTML is
+ * written as compressed file to the build folder as well so that it survives the eviction and restarts.
+ *
+ * @since 1.93
+ */
+final class HighlightedSourceCache {
+    /** Maximum number of characters in the memory tier. */
+    private static final long MAX_CHARACTERS = Long.getLong(HighlightedSourceCache.class.getName() + ".size",
+            16L * 1024 * 1024);
+    /** Determines whether the highlighted sources are stored in the build folder as well. */
+    private static final boolean USE_DISK = Boolean.getBoolean(HighlightedSourceCache.class.getName() + ".disk");
+    /** Name of the folder (within the build folder) of the disk tier. */
+    static final String DISK_DIRECTORY = "highlighted-sources";
+
+    private static final HighlightedSourceCache INSTANCE = new HighlightedSourceCache(MAX_CHARACTERS, USE_DISK);
+    private static final Logger LOGGER = Logger.getLogger(HighlightedSourceCache.class.getName());
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final long maxCharacters;
+    private final boolean useDisk;
+    private final Map<String, String> entries = new LinkedHashMap<String, String>(16, 0.75f, true);
+    private long characters;
+
+    /**
+     * Returns the cache of this Jenkins instance.
+     *
+     * @return the cache
+     */
+    static HighlightedSourceCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a new instance of {@link HighlightedSourceCache}.
+     *
+     * @param maxCharacters
+     *            the maximum number of characters in the memory tier
+     * @param useDisk
+     *            determines whether the highlighted sources are stored in the build folder as well
+     */
+    HighlightedSourceCache(final long maxCharacters, final boolean useDisk) {
+        this.maxCharacters = maxCharacters;
+        this.useDisk = useDisk;
+    }
+
+    /**
+     * Returns the cached HTML for the specified key.
+     *
+     * @param key
+     *            the key of the highlighted source, see {@link #createKey(String, String, String, String)}
+     * @param buildRoot
+     *            the root folder of the build that contains the disk tier, might be <code>null</code>
+     * @return the highlighted source or <code>null</code> if the source is not cached
+     */
+    @CheckForNull
+    String get(final String key, @CheckForNull final File buildRoot) {
+        synchronized (entries) {
+            String html = entries.get(key);
+            if (html != null) {
+                return html;
+            }
+        }
+        File file = getDiskFile(key, buildRoot);
+        if (file != null && file.exists()) {
+            String html = read(file);
+            if (html != null) {
+                putInMemory(key, html);
+            }
+            return html;
+        }
+        return null;
+    }
+
+    /**
+     * Stores the HTML for the specified key.
+     *
+     * @param key
+     *            the key of the highlighted source, see {@link #createKey(String, String, String, String)}
+     * @param html
+     *            the highlighted source
+     * @param buildRoot
+     *            the root folder of the build that contains the disk tier, might be <code>null</code>
+     */
+    void put(final String key, final String html, @CheckForNull final File buildRoot) {
+        putInMemory(key, html);
+
+        File file = getDiskFile(key, buildRoot);
+        if (file != null) {
+            write(file, html);
+        }
+    }
+
+    /**
+     * Returns the number of characters in the memory tier.
+     *
+     * @return the number of characters
+     */
+    long getCharacters() {
+        synchronized (entries) {
+            return characters;
+        }
+    }
+
+    private void putInMemory(final String key, final String html) {
+        if (html.length() > maxCharacters) {
+            return;
+        }
+        synchronized (entries) {
+            String previous = entries.put(key, html);
+            if (previous != null) {
+                characters -= previous.length();
+            }
+            characters += html.length();
+
+            Iterator<String> eldest = entries.values().iterator();
+            while (characters > maxCharacters && eldest.hasNext()) {
+                characters -= eldest.next().length();
+                eldest.remove();
+            }
+        }
+    }
+
+    @CheckForNull
+    private File getDiskFile(final String key, @CheckForNull final File buildRoot) {
+        if (useDisk && buildRoot != null) {
+            return new File(new File(buildRoot, DISK_DIRECTORY), SourceStore.computeHash(key.getBytes(UTF8))
+                    + ".html.gz");
+        }
+        return null;
+    }
+
+    @CheckForNull
+    private String read(final File file) {
+        InputStream input = null;
+        try {
+            input = new GZIPInputStream(FileUtils.openInputStream(file));
+            return IOUtils.toString(input, UTF8.name());
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't read highlighted source " + file, exception);
+
+            return null;
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    private void write(final File file, final String html) {
+        OutputStream output = null;
+        try {
+            File temp = new File(file.getPath() + ".part");
+            output = new GZIPOutputStream(FileUtils.openOutputStream(temp));
+            IOUtils.write(html, output, UTF8.name());
+            output.close();
+            if (!temp.renameTo(file)) {
+                FileUtils.deleteQuietly(temp);
+            }
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Can't write highlighted source " + file, exception);
+        }
+        finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
+    /**
+     * Creates the key of a highlighted source.
+     *
+     * @param tempName
+     *            the temporary name of the source file
+     * @param encoding
+     *            the encoding of the source file
+     * @param hash
+     *            the hash of the content of the source file
+     * @param window
+     *            the window of lines that have been highlighted
+     * @return the key
+     */
+    static String createKey(final String tempName, final String encoding, final String hash, final String window) {
+        return tempName + '|' + encoding + '|' + hash + '|' + window;
+    }
+}
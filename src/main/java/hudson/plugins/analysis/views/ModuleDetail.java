@@ -32,7 +32,7 @@ public class ModuleDetail extends AbstractAnnotationsDetail {
      *            header to be shown on detail page
      */
     public ModuleDetail(final Run<?, ?> owner, final DetailFactory detailFactory, final MavenModule module, final String defaultEncoding, final String header) {
-        super(owner, detailFactory, module.getAnnotations(), defaultEncoding, header, Hierarchy.MODULE);
+        super(owner, detailFactory, module, defaultEncoding, header, Hierarchy.MODULE);
         this.module = module;
     }
 
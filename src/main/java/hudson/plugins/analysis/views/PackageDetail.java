@@ -31,7 +31,7 @@ public class PackageDetail extends AbstractAnnotationsDetail {
      *            header to be shown on detail page
      */
     public PackageDetail(final Run<?, ?> owner, final DetailFactory detailFactory, final JavaPackage javaPackage, final String defaultEncoding, final String header) {
-        super(owner, detailFactory, javaPackage.getAnnotations(), defaultEncoding, header, Hierarchy.PACKAGE);
+        super(owner, detailFactory, javaPackage, defaultEncoding, header, Hierarchy.PACKAGE);
         this.javaPackage = javaPackage;
     }
 
@@ -1,12 +1,18 @@
 package hudson.plugins.analysis.views;
 
+import javax.annotation.CheckForNull;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import org.apache.commons.io.IOUtils;
@@ -16,6 +22,7 @@ import org.apache.commons.lang.StringUtils;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 
+import com.google.common.collect.Lists;
 import com.infradna.tool.bridge_method_injector.WithBridgeMethods;
 
 import de.java2html.converter.JavaSource2HTMLConverter;
@@ -28,12 +35,15 @@ import hudson.model.Run;
 import hudson.model.ModelObject;
 
 import hudson.plugins.analysis.util.EncodingValidator;
+import hudson.plugins.analysis.util.SourceStore;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.LineRange;
 
 /**
  * Renders a source file containing an annotation for the whole file or a
- * specific line number.
+ * specific line number. The highlighted HTML is cached in the
+ * {@link HighlightedSourceCache}. Large files are highlighted only in a window
+ * of lines around the line ranges of the annotation.
  *
  * @author Ulli Hafner
  */
@@ -45,6 +55,15 @@ public class SourceDetail implements ModelObject {
     private static final String FIRST_COLOR = "#FCAF3E";
     /** Color for all other annotation ranges. */
     private static final String OTHER_COLOR = "#FCE94F";
+    /** Files with more lines are highlighted only around the line ranges of the annotation. */
+    private static final int WINDOW_THRESHOLD = Integer.getInteger(SourceDetail.class.getName() + ".windowThreshold",
+            5000);
+    /** Number of lines that are shown before and after each line range in the windowed mode. */
+    private static final int WINDOW_CONTEXT = Integer.getInteger(SourceDetail.class.getName() + ".windowContext", 200);
+    /** Window of a file that is completely highlighted. */
+    private static final String FULL_FILE = "*";
+    /** Replacement for the first of several lines that are outside of the window. */
+    private static final String OMITTED_LINES = "...";
     /** The current build as owner of this object. */
     private final Run<?, ?> owner;
     /** Stripped file name of this annotation without the path prefix. */
@@ -83,13 +102,17 @@ public class SourceDetail implements ModelObject {
         InputStream file = null;
         try {
             File tempFile = new File(annotation.getTempName(owner));
-            if (tempFile.exists()) {
+            File storedFile = getStoredFile(tempFile);
+            if (storedFile != null) {
+                file = new FileInputStream(storedFile);
+            }
+            else if (tempFile.exists()) {
                 file = new FileInputStream(tempFile);
             }
             else {
                 file = new FileInputStream(new File(annotation.getFileName()));
             }
-            splitSourceFile(highlightSource(file));
+            splitSourceFile(getHighlightedSource(tempFile.getName(), IOUtils.toByteArray(file)));
         }
         catch (IOException exception) {
             sourceCode = "Can't read file: " + exception.getLocalizedMessage();
@@ -99,11 +122,138 @@ public class SourceDetail implements ModelObject {
         }
     }
 
+    @CheckForNull
+    private File getStoredFile(final File tempFile) {
+        if (owner == null) {
+            return null;
+        }
+        return SourceStore.getSourceFile(owner.getRootDir(), tempFile.getName());
+    }
+
     @Override
     public String getDisplayName() {
         return fileName;
     }
 
+    /**
+     * Returns the highlighted HTML of the specified content. The HTML is taken from the cache if the same content
+     * already has been highlighted.
+     *
+     * @param tempName
+     *            the temporary name of the source file
+     * @param content
+     *            the content of the source file
+     * @return the source as an HTML string
+     * @throws IOException
+     *             if the source code could not be read
+     */
+    private String getHighlightedSource(final String tempName, final byte[] content) throws IOException {
+        Charset charset = EncodingValidator.defaultCharset(defaultEncoding);
+        String source = new String(content, charset);
+
+        String window = FULL_FILE;
+        List<LineRange> visibleLines = Collections.emptyList();
+        if (StringUtils.countMatches(source, "\n") > WINDOW_THRESHOLD) {
+            visibleLines = getVisibleLines();
+            if (!visibleLines.isEmpty()) {
+                window = describe(visibleLines);
+            }
+        }
+
+        String key = HighlightedSourceCache.createKey(tempName, charset.name(), SourceStore.computeHash(content),
+                window);
+        File buildRoot = owner == null ? null : owner.getRootDir();
+        HighlightedSourceCache cache = HighlightedSourceCache.getInstance();
+        String html = cache.get(key, buildRoot);
+        if (html == null) {
+            if (visibleLines.isEmpty()) {
+                html = highlight(new StringReader(source));
+            }
+            else {
+                html = highlight(new StringReader(createWindow(source, visibleLines)));
+            }
+            cache.put(key, html, buildRoot);
+        }
+        return html;
+    }
+
+    /**
+     * Returns the lines that should be visible in the windowed mode: each line range of the annotation, enlarged by
+     * the number of context lines. Overlapping ranges are merged.
+     *
+     * @return the visible lines, sorted by line number. If the annotation marks the whole file, then an empty list
+     *         is returned.
+     */
+    private List<LineRange> getVisibleLines() {
+        List<LineRange> ranges = Lists.newArrayList();
+        for (LineRange range : annotation.getLineRanges()) {
+            if (range.getStart() <= 0) {
+                return Collections.emptyList();
+            }
+            ranges.add(new LineRange(Math.max(1, range.getStart() - WINDOW_CONTEXT), range.getEnd() + WINDOW_CONTEXT));
+        }
+        Collections.sort(ranges, new Comparator<LineRange>() {
+            @Override
+            public int compare(final LineRange first, final LineRange second) {
+                return first.getStart() - second.getStart();
+            }
+        });
+
+        List<LineRange> merged = Lists.newArrayList();
+        for (LineRange range : ranges) {
+            int last = merged.size() - 1;
+            if (last >= 0 && range.getStart() <= merged.get(last).getEnd() + 1) {
+                LineRange previous = merged.get(last);
+                merged.set(last, new LineRange(previous.getStart(), Math.max(previous.getEnd(), range.getEnd())));
+            }
+            else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    private String describe(final List<LineRange> visibleLines) {
+        StringBuilder description = new StringBuilder();
+        for (LineRange range : visibleLines) {
+            description.append(range.getStart()).append('-').append(range.getEnd()).append(',');
+        }
+        return description.toString();
+    }
+
+    /**
+     * Replaces all lines of the source that are not visible with empty lines. The line numbers of the visible lines
+     * remain unchanged. The first line of each block of omitted lines is marked with {@value #OMITTED_LINES}.
+     *
+     * @param source
+     *            the source
+     * @param visibleLines
+     *            the visible lines, sorted by line number
+     * @return the windowed source
+     */
+    private String createWindow(final String source, final List<LineRange> visibleLines) {
+        StringBuilder window = new StringBuilder();
+        LineIterator lineIterator = IOUtils.lineIterator(new StringReader(source));
+        int rangeIndex = 0;
+        boolean isOmitting = false;
+        for (int lineNumber = 1; lineIterator.hasNext(); lineNumber++) {
+            String line = lineIterator.nextLine();
+            while (rangeIndex < visibleLines.size() && visibleLines.get(rangeIndex).getEnd() < lineNumber) {
+                rangeIndex++;
+            }
+            if (rangeIndex < visibleLines.size() && visibleLines.get(rangeIndex).getStart() <= lineNumber) {
+                window.append(line);
+                isOmitting = false;
+            }
+            else if (!isOmitting) {
+                window.append(OMITTED_LINES);
+                isOmitting = true;
+            }
+            window.append('\n');
+        }
+        return window.toString();
+    }
+
     /**
      * Highlights the specified source and returns the result as an HTML string.
      *
@@ -114,8 +264,11 @@ public class SourceDetail implements ModelObject {
      *             if the source code could not be read
      */
     public final String highlightSource(final InputStream file) throws IOException {
-        JavaSource source = new JavaSourceParser().parse(
-                new InputStreamReader(file, EncodingValidator.defaultCharset(defaultEncoding)));
+        return highlight(new InputStreamReader(file, EncodingValidator.defaultCharset(defaultEncoding)));
+    }
+
+    private String highlight(final Reader reader) throws IOException {
+        JavaSource source = new JavaSourceParser().parse(reader);
 
         JavaSource2HTMLConverter converter = new JavaSource2HTMLConverter();
         StringWriter writer = new StringWriter();
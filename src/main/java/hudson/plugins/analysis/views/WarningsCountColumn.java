@@ -1,17 +1,18 @@
 package hudson.plugins.analysis.views;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import javax.annotation.CheckForNull;
 
 import hudson.model.Job;
 import hudson.plugins.analysis.Messages;
 import hudson.plugins.analysis.core.AbstractProjectAction;
-import hudson.plugins.analysis.core.BuildResult;
+import hudson.plugins.analysis.core.JobSummary;
 import hudson.plugins.analysis.util.HtmlPrinter;
 import hudson.plugins.analysis.util.model.Priority;
 import hudson.views.ListViewColumn;
 
 /**
- * A column that shows the total number of warnings in a job.
+ * A column that shows the total number of warnings in a job. The numbers are read from the cached
+ * {@link JobSummary} of the job.
  *
  * @author Ulli Hafner
  * @param <T>
@@ -59,10 +60,10 @@ public abstract class WarningsCountColumn<T extends AbstractProjectAction<?>> ex
      * @return the total number of annotations
      */
     public String getNumberOfAnnotations(final Job<?, ?> project) {
-        T action = getProjectAction(project);
+        JobSummary summary = getSummary(project);
 
-        if (action != null && action.hasValidResults()) {
-            return String.valueOf(getResult(action).getNumberOfAnnotations());
+        if (summary != null) {
+            return String.valueOf(summary.getNumberOfAnnotations());
         }
         else {
             return NO_RESULT;
@@ -73,9 +74,23 @@ public abstract class WarningsCountColumn<T extends AbstractProjectAction<?>> ex
         return project.getAction(getProjectAction());
     }
 
-    @SuppressFBWarnings("NP")
-    private BuildResult getResult(final T action) {
-        return action.getLastAction().getResult();
+    /**
+     * Returns the summary of the last result of the selected job.
+     *
+     * @param project
+     *            the selected project
+     * @return the summary, or <code>null</code> if the job has no results
+     */
+    @CheckForNull
+    private JobSummary getSummary(final Job<?, ?> project) {
+        T action = getProjectAction(project);
+        if (action != null) {
+            JobSummary summary = JobSummary.of(action);
+            if (summary.hasResult()) {
+                return summary;
+            }
+        }
+        return null;
     }
 
     /**
@@ -95,19 +110,18 @@ public abstract class WarningsCountColumn<T extends AbstractProjectAction<?>> ex
     public String getDetails(final Job<?, ?> project) {
         HtmlPrinter printer = new HtmlPrinter();
         printer.append("<table>");
-        T action = getProjectAction(project);
-        if (action != null && action.hasValidResults()) {
-            BuildResult result = getResult(action);
-            if (result.isSuccessfulTouched()) {
-                printer.append(printer.line(Messages.ResultAction_Status() + result.getResultIcon()));
+        JobSummary summary = getSummary(project);
+        if (summary != null) {
+            if (summary.isSuccessfulTouched()) {
+                printer.append(printer.line(Messages.ResultAction_Status() + summary.getResultIcon()));
             }
-            if (result.getNumberOfNewWarnings() > 0) {
-                print(printer, Messages.NewWarningsDetail_Name(), result.getNumberOfNewWarnings());
+            if (summary.getNumberOfNewWarnings() > 0) {
+                print(printer, Messages.NewWarningsDetail_Name(), summary.getNumberOfNewWarnings());
             }
 
-            print(printer, Priority.HIGH, result.getNumberOfHighPriorityWarnings());
-            print(printer, Priority.NORMAL, result.getNumberOfNormalPriorityWarnings());
-            print(printer, Priority.LOW, result.getNumberOfLowPriorityWarnings());
+            print(printer, Priority.HIGH, summary.getNumberOfAnnotations(Priority.HIGH));
+            print(printer, Priority.NORMAL, summary.getNumberOfAnnotations(Priority.NORMAL));
+            print(printer, Priority.LOW, summary.getNumberOfAnnotations(Priority.LOW));
         }
         else {
             return Messages.Column_NoResults();
@@ -0,0 +1,173 @@
+package hudson.plugins.analysis.core;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link AbstractStaxAnnotationParser}.
+ */
+public class AbstractStaxAnnotationParserTest {
+    private static final String REPORT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<checkstyle version=\"6.0\">\n"
+            + "  <file name=\"A.java\">\n"
+            + "    <error line=\"1\" severity=\"error\" message=\"first\" source=\"Rule\"/>\n"
+            + "    <error line=\"2\" severity=\"warning\" message=\"second &amp; more\" source=\"Rule\"/>\n"
+            + "  </file>\n"
+            + "  <file name=\"B.java\">\n"
+            + "    <error line=\"3\" severity=\"info\" message=\"third\" source=\"Rule\"/>\n"
+            + "  </file>\n"
+            + "</checkstyle>\n";
+
+    /** Temporary folder for the report. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the annotations are reported one by one to the sink.
+     *
+     * @throws Exception
+     *             if the report could not be written or parsed
+     */
+    @Test
+    public void shouldReportAnnotationsToSink() throws Exception {
+        File report = folder.newFile("checkstyle.xml");
+        FileUtils.writeStringToFile(report, REPORT, "UTF-8");
+
+        final List<FileAnnotation> annotations = Lists.newArrayList();
+        new CheckStyleParser().parse(report, "module", new AnnotationSink() {
+            @Override
+            public void add(final FileAnnotation annotation) {
+                annotations.add(annotation);
+            }
+        });
+
+        assertEquals("Wrong number of annotations", 3, annotations.size());
+        verifyAnnotation(annotations.get(0), "A.java", 1, Priority.HIGH, "first");
+        verifyAnnotation(annotations.get(1), "A.java", 2, Priority.NORMAL, "second & more");
+        verifyAnnotation(annotations.get(2), "B.java", 3, Priority.LOW, "third");
+    }
+
+    /**
+     * Verifies that the annotations of a stream are collected if the non-streaming API is used.
+     *
+     * @throws InvocationTargetException
+     *             if the report could not be parsed
+     */
+    @Test
+    public void shouldCollectAnnotations() throws InvocationTargetException {
+        Collection<FileAnnotation> annotations = new CheckStyleParser().parse(
+                new ByteArrayInputStream(REPORT.getBytes()), "module");
+
+        assertEquals("Wrong number of annotations", 3, annotations.size());
+    }
+
+    /**
+     * Verifies that broken reports are reported as {@link InvocationTargetException}.
+     *
+     * @throws IOException
+     *             if the report could not be written
+     */
+    @Test
+    public void shouldWrapParserExceptions() throws IOException {
+        File report = folder.newFile("broken.xml");
+        FileUtils.writeStringToFile(report, StringUtils.substringBefore(REPORT, "</file>"), "UTF-8");
+
+        final List<FileAnnotation> annotations = Lists.newArrayList();
+        try {
+            new CheckStyleParser().parse(report, "module", new AnnotationSink() {
+                @Override
+                public void add(final FileAnnotation annotation) {
+                    annotations.add(annotation);
+                }
+            });
+            fail("Broken report has been parsed");
+        }
+        catch (InvocationTargetException exception) {
+            assertTrue("Wrong cause", exception.getCause() instanceof XMLStreamException);
+        }
+        assertEquals("Wrong number of annotations before error", 2, annotations.size());
+    }
+
+    private void verifyAnnotation(final FileAnnotation annotation, final String fileName, final int line,
+            final Priority priority, final String message) {
+        assertEquals("Wrong file name", fileName, annotation.getFileName());
+        assertEquals("Wrong line", line, annotation.getPrimaryLineNumber());
+        assertEquals("Wrong priority", priority, annotation.getPriority());
+        assertEquals("Wrong message", message, annotation.getMessage());
+        assertEquals("Wrong module", "module", annotation.getModuleName());
+    }
+
+    /**
+     * Parses a simplified Checkstyle report.
+     */
+    private static class CheckStyleParser extends AbstractStaxAnnotationParser {
+        private static final long serialVersionUID = -3727365183707416454L;
+
+        private String fileName;
+
+        CheckStyleParser() {
+            super("UTF-8");
+        }
+
+        @Override
+        protected void startElement(final XMLStreamReader reader, final String moduleName, final AnnotationSink sink) {
+            if ("file".equals(reader.getLocalName())) {
+                fileName = getAttribute(reader, "name");
+            }
+            else if ("error".equals(reader.getLocalName())) {
+                Warning warning = new Warning(getPriority(getAttribute(reader, "severity")),
+                        getAttribute(reader, "message"), Integer.parseInt(getAttribute(reader, "line")),
+                        getAttribute(reader, "source"));
+                warning.setFileName(fileName);
+                warning.setModuleName(moduleName);
+                sink.add(warning);
+            }
+        }
+
+        private Priority getPriority(final String severity) {
+            if ("error".equals(severity)) {
+                return Priority.HIGH;
+            }
+            else if ("warning".equals(severity)) {
+                return Priority.NORMAL;
+            }
+            return Priority.LOW;
+        }
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 5171661552905752370L;
+
+        Warning(final Priority priority, final String message, final int line, final String category) {
+            super(priority, message, line, line, category, "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
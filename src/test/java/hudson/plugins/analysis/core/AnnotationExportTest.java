@@ -0,0 +1,242 @@
+package hudson.plugins.analysis.core;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kohsuke.stapler.StaplerRequest;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.Lists;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import net.sf.json.util.JSONUtils;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.AnnotationStream;
+import hudson.plugins.analysis.util.model.BinaryAnnotationFile;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link AnnotationExport}.
+ */
+public class AnnotationExportTest {
+    /** Temporary folder for the binary data files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private int visited;
+
+    /**
+     * Verifies that the filtered annotations are exported page by page, and that the cursor of a page continues with
+     * the next matching annotation.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldExportFilteredAnnotationsPageByPage() throws IOException {
+        BuildResult result = createResult(Priority.HIGH, Priority.LOW, Priority.HIGH, Priority.NORMAL, Priority.HIGH);
+
+        StaplerRequest request = createRequest("json", "2", null);
+        when(request.getParameterValues("priority")).thenReturn(new String[] {"high"});
+        JSONObject first = export(request, result);
+
+        JSONArray annotations = first.getJSONArray("annotations");
+        assertEquals("Wrong number of annotations", 2, annotations.size());
+        assertEquals("Wrong annotation", "File0.java", annotations.getJSONObject(0).getString("fileName"));
+        assertEquals("Wrong annotation", "File2.java", annotations.getJSONObject(1).getString("fileName"));
+        assertEquals("Wrong priority", "HIGH", annotations.getJSONObject(1).getString("priority"));
+        assertEquals("Wrong cursor", 3, annotations.getJSONObject(1).getInt("cursor"));
+        assertEquals("Wrong next cursor", 4, first.getInt("nextCursor"));
+
+        when(request.getParameter("cursor")).thenReturn(first.getString("nextCursor"));
+        JSONObject second = export(request, result);
+
+        annotations = second.getJSONArray("annotations");
+        assertEquals("Wrong number of annotations", 1, annotations.size());
+        assertEquals("Wrong annotation", "File4.java", annotations.getJSONObject(0).getString("fileName"));
+        assertTrue("Not the last page", JSONUtils.isNull(second.get("nextCursor")));
+    }
+
+    /**
+     * Verifies that the annotations are written line by line in NDJSON format and that reading stops as soon as
+     * the page is complete.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldStopReadingIfPageIsComplete() throws IOException {
+        BuildResult result = createResult(Priority.HIGH, Priority.LOW, Priority.HIGH, Priority.NORMAL, Priority.HIGH);
+        StaplerRequest request = createRequest("ndjson", "2", "new");
+        when(request.getParameterValues("module")).thenReturn(new String[] {"module"});
+        AnnotationExport export = AnnotationExport.fromRequest(request);
+
+        assertEquals("Wrong content type", "application/x-ndjson;charset=UTF-8", export.getContentType());
+        assertEquals("Wrong selection", AnnotationExport.Selection.NEW, export.getSelection());
+
+        StringWriter writer = new StringWriter();
+        export.write(result, writer);
+
+        String[] lines = StringUtils.split(writer.toString(), '\n');
+        assertEquals("Wrong number of lines", 2, lines.length);
+        assertEquals("Wrong annotation", "File1.java", JSONObject.fromObject(lines[1]).getString("fileName"));
+        assertEquals("Wrong number of read annotations", 3, visited);
+    }
+
+    /**
+     * Pages through a large binary data file and verifies that each annotation is exported exactly once, and that
+     * the annotations before the cursor of a page are skipped without being created again.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldPageThroughLargeFile() throws IOException {
+        int size = 20000;
+        int limit = 1000;
+        Warning[] warnings = new Warning[size];
+        for (int i = 0; i < size; i++) {
+            warnings[i] = new Warning(Priority.NORMAL, "message " + i);
+            warnings[i].setFileName("File" + i % 100 + ".java");
+        }
+        BinaryAnnotationFile file = new BinaryAnnotationFile(new AnnotationStream(), folder.newFile("warnings.bin"));
+        file.write(warnings);
+        BuildResult result = createResult(file);
+
+        Warning.created = 0;
+        StaplerRequest request = createRequest("json", String.valueOf(limit), null);
+        int pages = 0;
+        int exported = 0;
+        for (String cursor = "0"; cursor != null; pages++) {
+            when(request.getParameter("cursor")).thenReturn(cursor);
+            JSONObject page = export(request, result);
+
+            JSONArray annotations = page.getJSONArray("annotations");
+            for (int i = 0; i < annotations.size(); i++) {
+                assertEquals("Wrong annotation", "message " + exported,
+                        annotations.getJSONObject(i).getString("message"));
+                exported++;
+            }
+            cursor = JSONUtils.isNull(page.get("nextCursor")) ? null : page.getString("nextCursor");
+        }
+
+        assertEquals("Wrong number of exported annotations", size, exported);
+        assertEquals("Wrong number of pages", size / limit, pages);
+        assertTrue("Skipped annotations created: " + Warning.created, Warning.created < size + pages);
+    }
+
+    /**
+     * Verifies that invalid parameters are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidCursor() {
+        StaplerRequest request = createRequest("json", "2", null);
+        when(request.getParameter("cursor")).thenReturn("-1");
+
+        AnnotationExport.fromRequest(request);
+    }
+
+    /**
+     * Verifies that unknown formats are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownFormat() {
+        AnnotationExport.fromRequest(createRequest("xml", null, null));
+    }
+
+    private JSONObject export(final StaplerRequest request, final BuildResult result) throws IOException {
+        StringWriter writer = new StringWriter();
+        AnnotationExport.fromRequest(request).write(result, writer);
+        return JSONObject.fromObject(writer.toString());
+    }
+
+    private StaplerRequest createRequest(final String format, final String limit, final String set) {
+        StaplerRequest request = mock(StaplerRequest.class);
+        when(request.getParameter("format")).thenReturn(format);
+        when(request.getParameter("limit")).thenReturn(limit);
+        when(request.getParameter("set")).thenReturn(set);
+        return request;
+    }
+
+    private BuildResult createResult(final Priority... priorities) throws IOException {
+        final List<FileAnnotation> annotations = Lists.newArrayList();
+        for (int i = 0; i < priorities.length; i++) {
+            Warning warning = new Warning(priorities[i], "message " + i);
+            warning.setFileName("File" + i + ".java");
+            warning.setModuleName("module");
+            annotations.add(warning);
+        }
+
+        BuildResult result = mock(BuildResult.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws IOException {
+                int first = (Integer)invocation.getArguments()[1];
+                final BinaryAnnotationFile.Visitor visitor = (BinaryAnnotationFile.Visitor)invocation.getArguments()[2];
+                AnnotationExport.visit(annotations, first, new BinaryAnnotationFile.Visitor() {
+                    @Override
+                    public boolean visit(final FileAnnotation annotation) throws IOException {
+                        visited++;
+                        return visitor.visit(annotation);
+                    }
+                });
+                return null;
+            }
+        }).when(result).visitAnnotations(any(AnnotationExport.Selection.class), anyInt(),
+                any(BinaryAnnotationFile.Visitor.class));
+        return result;
+    }
+
+    private BuildResult createResult(final BinaryAnnotationFile file) throws IOException {
+        BuildResult result = mock(BuildResult.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws IOException {
+                file.read((Integer)invocation.getArguments()[1],
+                        (BinaryAnnotationFile.Visitor)invocation.getArguments()[2]);
+                return null;
+            }
+        }).when(result).visitAnnotations(any(AnnotationExport.Selection.class), anyInt(),
+                any(BinaryAnnotationFile.Visitor.class));
+        return result;
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = -2107963525491306375L;
+
+        /** The number of warnings that have been read from a binary data file. */
+        private static int created;
+
+        Warning(final Priority priority, final String message) {
+            super(priority, message, 1, 1, "category", "type");
+        }
+
+        @SuppressWarnings("unused")
+        private Object readResolve() {
+            superReadResolve();
+            created++;
+            return this;
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
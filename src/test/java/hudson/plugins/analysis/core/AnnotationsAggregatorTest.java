@@ -0,0 +1,157 @@
+package hudson.plugins.analysis.core;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.matrix.Combination;
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixConfiguration;
+import hudson.matrix.MatrixRun;
+import hudson.model.Action;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link AnnotationsAggregator}.
+ */
+public class AnnotationsAggregatorTest {
+    /**
+     * Verifies that both modes aggregate the runs until the first run with warnings, and that the new and fixed
+     * warnings of the count-only mode are the ones of the aggregated runs.
+     *
+     * @throws Exception
+     *             should not happen
+     */
+    @Test
+    public void shouldAggregateSameRunsInBothModes() throws Exception {
+        List<MatrixRun> runs = Lists.newArrayList();
+        Map<MatrixRun, BuildResult> results = Maps.newHashMap();
+        add(runs, results, "jdk=6", "core", 0, 2);
+        add(runs, results, "jdk=7", "ui", 1, 0, Priority.HIGH, Priority.LOW, Priority.LOW);
+        add(runs, results, "jdk=8", "web", 2, 0, Priority.HIGH, Priority.HIGH);
+
+        ParserResult totals = aggregate(false, runs, results);
+        ParserResult counters = aggregate(true, runs, results);
+
+        assertEquals("Wrong number of warnings", 3, totals.getNumberOfAnnotations());
+        assertEquals("Wrong modules", Sets.newHashSet("core", "ui"), totals.getModules());
+
+        assertTrue("No count-only aggregation", counters instanceof RunAggregation);
+        RunAggregation aggregation = (RunAggregation)counters;
+        for (Priority priority : Priority.values()) {
+            assertEquals("Wrong number of warnings", totals.getNumberOfAnnotations(priority),
+                    aggregation.getNumberOfAnnotations(priority));
+        }
+        assertEquals("Wrong number of warnings", 3, aggregation.getNumberOfAnnotations());
+        assertEquals("Wrong modules", totals.getModules(), aggregation.getModules());
+        assertEquals("Wrong runs", Arrays.asList("jdk=6", "jdk=7"), aggregation.getRuns());
+        assertEquals("Wrong number of new warnings", 1, aggregation.getNumberOfNewWarnings());
+        assertEquals("Wrong number of fixed warnings", 2, aggregation.getNumberOfFixedWarnings());
+    }
+
+    private ParserResult aggregate(final boolean isCountOnly, final List<MatrixRun> runs,
+            final Map<MatrixRun, BuildResult> results) throws InterruptedException, IOException {
+        TestAggregator aggregator = new TestAggregator(isCountOnly, results);
+        for (MatrixRun run : runs) {
+            aggregator.endRun(run);
+        }
+        aggregator.endBuild();
+        return aggregator.aggregatedResult;
+    }
+
+    private void add(final List<MatrixRun> runs, final Map<MatrixRun, BuildResult> results, final String combination,
+            final String module, final int numberOfNewWarnings, final int numberOfFixedWarnings,
+            final Priority... priorities) {
+        MatrixConfiguration configuration = mock(MatrixConfiguration.class);
+        when(configuration.getCombination()).thenReturn(Combination.fromString(combination));
+        MatrixRun run = mock(MatrixRun.class);
+        when(run.getParent()).thenReturn(configuration);
+
+        Set<FileAnnotation> annotations = Sets.newHashSet();
+        int[] counts = new int[Priority.values().length];
+        for (Priority priority : priorities) {
+            annotations.add(new Warning(priority, combination + " " + annotations.size()));
+            counts[priority.ordinal()]++;
+        }
+        BuildResult result = mock(BuildResult.class);
+        when(result.getAnnotations()).thenReturn(annotations);
+        when(result.getNumberOfHighPriorityWarnings()).thenReturn(counts[Priority.HIGH.ordinal()]);
+        when(result.getNumberOfNormalPriorityWarnings()).thenReturn(counts[Priority.NORMAL.ordinal()]);
+        when(result.getNumberOfLowPriorityWarnings()).thenReturn(counts[Priority.LOW.ordinal()]);
+        when(result.getNumberOfNewWarnings()).thenReturn(numberOfNewWarnings);
+        when(result.getNumberOfFixedWarnings()).thenReturn(numberOfFixedWarnings);
+        when(result.getModules()).thenReturn(Collections.singleton(module));
+
+        runs.add(run);
+        results.put(run, result);
+    }
+
+    /**
+     * An aggregator that records the aggregated result.
+     */
+    private static class TestAggregator extends AnnotationsAggregator {
+        private final boolean isCountOnly;
+        private final Map<MatrixRun, BuildResult> results;
+        private ParserResult aggregatedResult;
+
+        TestAggregator(final boolean isCountOnly, final Map<MatrixRun, BuildResult> results) {
+            super(mock(MatrixBuild.class), null, null, new NullHealthDescriptor(), "UTF-8", false, false);
+
+            this.isCountOnly = isCountOnly;
+            this.results = results;
+        }
+
+        @Override
+        protected boolean hasResult(final MatrixRun run) {
+            return true;
+        }
+
+        @Override
+        protected BuildResult getResult(final MatrixRun run) {
+            return results.get(run);
+        }
+
+        @Override
+        protected boolean isCountOnly() {
+            return isCountOnly;
+        }
+
+        @Override
+        protected Action createAction(final HealthDescriptor healthDescriptor, final String defaultEncoding,
+                final ParserResult aggregated) {
+            aggregatedResult = aggregated;
+            return null;
+        }
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 7213958620637481553L;
+
+        Warning(final Priority priority, final String message) {
+            super(priority, message, 1, 1, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package hudson.plugins.analysis.core;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Run;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link AuthorStatistics}.
+ */
+public class AuthorStatisticsTest {
+    /**
+     * Verifies that the warnings are counted per author and priority and that warnings without author are skipped.
+     */
+    @Test
+    public void shouldCountWarningsPerAuthorAndPriority() {
+        List<FileAnnotation> annotations = Lists.newArrayList();
+        annotations.add(createWarning(Priority.HIGH, "alice"));
+        annotations.add(createWarning(Priority.HIGH, "alice"));
+        annotations.add(createWarning(Priority.LOW, "alice"));
+        annotations.add(createWarning(Priority.NORMAL, "bob"));
+        annotations.add(createWarning(Priority.NORMAL, "-"));
+        annotations.add(createWarning(Priority.NORMAL, null));
+
+        AuthorStatistics statistics = AuthorStatistics.create(annotations);
+
+        assertEquals("Wrong number of authors", 2, statistics.size());
+        Map<String, int[]> counts = statistics.getCountsByAuthor();
+        assertArrayEquals("Wrong counts", createCounts(2, 0, 1), counts.get("alice"));
+        assertArrayEquals("Wrong counts", createCounts(0, 1, 0), counts.get("bob"));
+    }
+
+    /**
+     * Verifies that the statistics of a build are not stored if the warnings of the build can't be read.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    @SuppressWarnings("rawtypes")
+    public void shouldNotPersistStatisticsIfWarningsCantBeRead() throws IOException {
+        Run build = mock(Run.class);
+        BuildResult result = mock(BuildResult.class);
+        when(result.getOwner()).thenReturn(build);
+        when(result.loadAuthorStatistics()).thenThrow(new IOException("missing"));
+
+        assertFalse("Statistics computed", AuthorStatistics.compute(result));
+
+        verify(result, never()).setAuthorStatistics((AuthorStatistics)any());
+        verify(build, never()).save();
+
+        AuthorStatistics statistics = AuthorStatistics.create(Lists.newArrayList(createWarning(Priority.HIGH, "alice")));
+        reset(result);
+        when(result.getOwner()).thenReturn(build);
+        when(result.loadAuthorStatistics()).thenReturn(statistics);
+
+        assertTrue("Statistics not computed", AuthorStatistics.compute(result));
+
+        verify(result).setAuthorStatistics(statistics);
+        verify(build).save();
+    }
+
+    private int[] createCounts(final int high, final int normal, final int low) {
+        int[] counts = new int[Priority.values().length];
+        counts[Priority.HIGH.ordinal()] = high;
+        counts[Priority.NORMAL.ordinal()] = normal;
+        counts[Priority.LOW.ordinal()] = low;
+        return counts;
+    }
+
+    private FileAnnotation createWarning(final Priority priority, final String author) {
+        Warning warning = new Warning(priority);
+        warning.setAuthorName(author);
+        return warning;
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 6370826464385493766L;
+
+        Warning(final Priority priority) {
+            super(priority, "message", 1, 1, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
@@ -1,11 +1,32 @@
 package hudson.plugins.analysis.core;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 
+import org.apache.commons.lang.StringUtils;
 import org.junit.Assert;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+import static org.mockito.Mockito.*;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.AnnotationContainer;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.JavaProject;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.analysis.views.DetailFactory;
 
 /**
  * Tests the class {@link BuildResult}.
@@ -13,6 +34,13 @@ import org.junit.Test;
  * @author Ulli Hafner
  */
 public class BuildResultTest {
+    private static final String FILE_NAME = "warnings.xml";
+    private static final int BUILD = 2;
+
+    /** Temporary folder for the builds. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     /**
      * Initializes the locale to English.
      */
@@ -180,5 +208,164 @@ public class BuildResultTest {
         Assert.assertEquals("Wrong delta message created.", expectedMessage,
                 BuildResult.createDefaultDeltaMessage("findbugsResult", numberOfNewWarnings, numberOfFixedWarnings));
     }
-}
 
+    /**
+     * Verifies that the new warnings are written to a binary file and are read again without loading all warnings.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldPersistNewWarningsInBinaryFormat() throws IOException {
+        File rootDir = folder.newFolder("binary");
+        FileAnnotation newWarning = createWarning("new", BUILD);
+
+        createResult(rootDir).serializeNewWarnings(Lists.newArrayList(newWarning, createWarning("old", BUILD - 1)));
+
+        Assert.assertTrue("No binary file", new File(rootDir, "warnings-new.bin").isFile());
+        Assert.assertFalse("XML file written", new File(rootDir, "warnings-new.xml").exists());
+
+        BuildResult result = createResult(rootDir);
+        Assert.assertEquals("Wrong new warnings", Collections.singleton(newWarning), result.loadNewWarnings());
+        verify(result, never()).getProject();
+    }
+
+    /**
+     * Verifies that the new warnings are written to an XML file if the binary format does not support them, and that
+     * a stale binary file is removed.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldPersistNewWarningsAsXmlIfBinaryFormatIsNotSupported() throws IOException {
+        File rootDir = folder.newFolder("xml");
+        createResult(rootDir).serializeNewWarnings(Lists.<FileAnnotation>newArrayList(createWarning("new", BUILD)));
+        FileAnnotation linkedWarning = new LinkedWarning(BUILD);
+
+        createResult(rootDir).serializeNewWarnings(Lists.<FileAnnotation>newArrayList(linkedWarning));
+
+        Assert.assertTrue("No XML file", new File(rootDir, "warnings-new.xml").isFile());
+        Assert.assertFalse("Stale binary file", new File(rootDir, "warnings-new.bin").exists());
+
+        BuildResult result = createResult(rootDir);
+        Assert.assertEquals("Wrong new warnings", Collections.singleton(linkedWarning), result.loadNewWarnings());
+        verify(result, never()).getProject();
+    }
+
+    /**
+     * Verifies that the new warnings of builds without a file for the new warnings are filtered from all warnings.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldFilterAllWarningsIfNewWarningsAreNotPersisted() throws IOException {
+        FileAnnotation newWarning = createWarning("new", BUILD);
+        JavaProject project = new JavaProject();
+        project.addAnnotations(Lists.newArrayList(newWarning, createWarning("old", BUILD - 1)));
+
+        BuildResult result = createResult(folder.newFolder("previous-release"));
+        doReturn(project).when(result).getProject();
+
+        Assert.assertEquals("Wrong new warnings", Collections.singleton(newWarning), result.loadNewWarnings());
+    }
+
+    /**
+     * Verifies that the warnings of the whole project are not loaded for the details of new and fixed warnings,
+     * unless the detail factory overrides the creation of these details.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldLoadContainerOnlyIfDetailsUseIt() throws IOException {
+        BuildResult result = createResult(folder.newFolder("details"));
+        JavaProject project = new JavaProject();
+        project.addAnnotation(createWarning("new", BUILD));
+        doReturn(project).when(result).getContainer();
+
+        DetailFactory factory = new DetailFactory();
+        for (String link : Lists.newArrayList("new", "fixed", "error", "tab.new", "tab.fixed")) {
+            Assert.assertEquals("Container loaded for " + link, 0,
+                    result.getDetailContainer(link, factory).getNumberOfAnnotations());
+        }
+        verify(result, never()).getContainer();
+
+        Assert.assertSame("Wrong container", project, result.getDetailContainer("module.1", factory));
+        Assert.assertSame("Wrong container", project, result.getDetailContainer("new", new TrendDetailFactory()));
+    }
+
+    @SuppressWarnings("rawtypes")
+    private BuildResult createResult(final File rootDir) {
+        Job job = mock(Job.class);
+        when(job.getFullName()).thenReturn(rootDir.getAbsolutePath());
+        Run run = mock(Run.class);
+        when(run.getRootDir()).thenReturn(rootDir);
+        when(run.getNumber()).thenReturn(BUILD);
+        doReturn(job).when(run).getParent();
+
+        BuildResult result = mock(BuildResult.class, CALLS_REAL_METHODS);
+        doReturn(run).when(result).getOwner();
+        doReturn(FILE_NAME).when(result).getSerializationFileName();
+        return result;
+    }
+
+    private FileAnnotation createWarning(final String message, final int build) {
+        Warning warning = new Warning(message);
+        warning.setFileName("File.java");
+        warning.setBuild(build);
+        return warning;
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = -3086432195837485520L;
+
+        Warning(final String message) {
+            super(Priority.NORMAL, message, 1, 1, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+
+    /**
+     * A warning with a field that is not supported by the binary format.
+     */
+    private static class LinkedWarning extends AbstractAnnotation {
+        private static final long serialVersionUID = 1409564128953318853L;
+
+        @SuppressWarnings("unused")
+        private final List<String> links = Lists.newArrayList("link");
+
+        LinkedWarning(final int build) {
+            super(Priority.HIGH, "linked", 1, 1, "category", "type");
+            setBuild(build);
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+
+    /**
+     * A detail factory that creates its own details for the new and fixed warnings.
+     */
+    private static class TrendDetailFactory extends DetailFactory {
+        // CHECKSTYLE:OFF
+        @Override
+        public Object createTrendDetails(final String link, final Run<?, ?> owner,
+                final AnnotationContainer container, final Collection<FileAnnotation> fixedAnnotations,
+                final Collection<FileAnnotation> newAnnotations, final Collection<String> errors,
+                final String defaultEncoding, final String displayName) {
+            // CHECKSTYLE:ON
+            return container;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package hudson.plugins.analysis.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Sets;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link FilesParser}.
+ */
+public class FilesParserTest {
+    private static final int NUMBER_OF_FILES = 8;
+    private static final String PATTERN = "**/*.xml";
+
+    /** The threads that have been used by the parser. */
+    private static final Set<String> PARSER_THREADS = Collections.synchronizedSet(Sets.<String>newHashSet());
+    /** The thread that is interrupted by the parser. */
+    private static volatile Thread caller;
+
+    /** Temporary workspace with the report files. */
+    @Rule
+    public TemporaryFolder workspace = new TemporaryFolder();
+
+    /**
+     * Removes the recorded threads and the interrupt flag of the current thread.
+     */
+    @After
+    public void clearThreads() {
+        PARSER_THREADS.clear();
+        Thread.interrupted();
+    }
+
+    /**
+     * Verifies that parsing the files in parallel produces the same result and log as parsing the files one after
+     * another, even if the files are parsed in a different order.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldMergeResultsInOrderOfFiles() throws IOException {
+        createReports();
+
+        ParserResult sequential = parse(1, new DelayedParser());
+        ParserResult parallel = parse(4, new DelayedParser());
+
+        assertEquals("Wrong number of warnings", NUMBER_OF_FILES, sequential.getNumberOfAnnotations());
+        assertEquals("Wrong warnings", sequential.getAnnotations(), parallel.getAnnotations());
+        assertEquals("Wrong order of results", sequential.getLogMessages(), parallel.getLogMessages());
+        assertEquals("Wrong modules", sequential.getModules(), parallel.getModules());
+    }
+
+    /**
+     * Verifies that a streaming parser hands its annotations over in batches when parsing the files in parallel and
+     * that the result is the same as when parsing the files one after another.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldStreamResultsInOrderOfFiles() throws IOException {
+        createReports();
+
+        ParserResult sequential = parse(1, new StreamingParser());
+        ParserResult parallel = parse(4, new StreamingParser());
+
+        assertEquals("Wrong number of warnings", NUMBER_OF_FILES * StreamingParser.WARNINGS_PER_FILE,
+                sequential.getNumberOfAnnotations());
+        assertEquals("Wrong warnings", sequential.getAnnotations(), parallel.getAnnotations());
+        assertEquals("Wrong order of results", sequential.getLogMessages(), parallel.getLogMessages());
+        assertFalse("Files parsed in the calling thread", PARSER_THREADS.contains(Thread.currentThread().getName()));
+    }
+
+    /**
+     * Verifies that the number of threads of the parser settings is used.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldUseNumberOfThreadsOfSettings() throws IOException {
+        createReports();
+
+        parse(new FilesParser("[TEST] ", PATTERN, new DelayedParser(), false, false, false));
+        assertEquals("Files not parsed in the calling thread", Collections.singleton(Thread.currentThread().getName()),
+                PARSER_THREADS);
+
+        PARSER_THREADS.clear();
+        ParserSettings settings = mock(ParserSettings.class);
+        when(settings.getParserThreads()).thenReturn(4);
+        FilesParser filesParser = new FilesParser("[TEST] ", PATTERN, new DelayedParser(), false, false, false);
+        filesParser.setParserSettings(settings);
+        parse(filesParser);
+        assertFalse("Files parsed in the calling thread", PARSER_THREADS.contains(Thread.currentThread().getName()));
+    }
+
+    /**
+     * Verifies that the files are parsed one after another if the parser is not thread safe.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldNotParseInParallelIfParserIsNotThreadSafe() throws IOException {
+        createReports();
+
+        ParserResult result = parse(4, new UnsafeParser());
+
+        assertEquals("Files not parsed in the calling thread", Collections.singleton(Thread.currentThread().getName()),
+                PARSER_THREADS);
+        assertEquals("Wrong number of warnings", NUMBER_OF_FILES, result.getNumberOfAnnotations());
+    }
+
+    /**
+     * Verifies that parsing is canceled if the calling thread is interrupted: the remaining files are skipped, the
+     * worker threads are stopped, and the interrupt flag of the calling thread is restored.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test(timeout = 10000)
+    public void shouldCancelParsingIfInterrupted() throws IOException {
+        createReports();
+        caller = Thread.currentThread();
+
+        ParserResult result = parse(2, new InterruptingParser());
+
+        assertTrue("Interrupt flag not restored", Thread.interrupted());
+        assertTrue("Cancellation not logged", result.getLogMessages().contains("Parsing has been canceled."));
+        assertEquals("Wrong number of warnings", 0, result.getNumberOfAnnotations());
+    }
+
+    private void createReports() throws IOException {
+        for (int i = 0; i < NUMBER_OF_FILES; i++) {
+            FileUtils.writeStringToFile(new File(workspace.getRoot(), "report-" + i + ".xml"), String.valueOf(i));
+        }
+    }
+
+    private ParserResult parse(final int numberOfThreads, final AnnotationParser parser) throws IOException {
+        FilesParser filesParser = new FilesParser("[TEST] ", PATTERN, parser, false, false, false);
+        filesParser.setNumberOfThreads(numberOfThreads);
+        return parse(filesParser);
+    }
+
+    private ParserResult parse(final FilesParser filesParser) throws IOException {
+        return filesParser.invoke(workspace.getRoot(), null);
+    }
+
+    /**
+     * Creates one warning per file. The files with a small number are parsed slower than the others, so the files
+     * are completed in reverse order when parsed in parallel.
+     */
+    private static class DelayedParser implements ThreadSafeAnnotationParser {
+        private static final long serialVersionUID = 6101264720744337592L;
+
+        @Override
+        public Collection<FileAnnotation> parse(final File file, final String moduleName) {
+            PARSER_THREADS.add(Thread.currentThread().getName());
+            try {
+                int number = Integer.parseInt(FileUtils.readFileToString(file));
+                Thread.sleep((NUMBER_OF_FILES - number) * 10);
+
+                Warning warning = new Warning("Warning " + number);
+                warning.setFileName(file.getAbsolutePath());
+                return Collections.<FileAnnotation>singleton(warning);
+            }
+            catch (IOException exception) {
+                throw new IllegalStateException(exception);
+            }
+            catch (InterruptedException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+    }
+
+    /**
+     * Interrupts the calling thread and blocks until the worker thread is interrupted as well.
+     */
+    private static class InterruptingParser implements ThreadSafeAnnotationParser {
+        private static final long serialVersionUID = -5026424002962616165L;
+
+        @Override
+        public Collection<FileAnnotation> parse(final File file, final String moduleName) {
+            caller.interrupt();
+            try {
+                Thread.sleep(60000);
+            }
+            catch (InterruptedException exception) {
+                // canceled by the calling thread
+            }
+            return Collections.<FileAnnotation>singleton(new Warning(file.getName()));
+        }
+    }
+
+    /**
+     * Creates one warning per file without being marked as thread safe.
+     */
+    private static class UnsafeParser implements AnnotationParser {
+        private static final long serialVersionUID = -3361513285069372946L;
+
+        @Override
+        public Collection<FileAnnotation> parse(final File file, final String moduleName) {
+            PARSER_THREADS.add(Thread.currentThread().getName());
+
+            return Collections.<FileAnnotation>singleton(new Warning(file.getName()));
+        }
+    }
+
+    /**
+     * Reports more warnings per file than fit into a single batch.
+     */
+    private static class StreamingParser extends AbstractStreamingAnnotationParser
+            implements ThreadSafeAnnotationParser {
+        private static final long serialVersionUID = 8225165539146325127L;
+        static final int WARNINGS_PER_FILE = 2500;
+
+        StreamingParser() {
+            super(null);
+        }
+
+        @Override
+        protected void parse(final InputStream file, final String moduleName, final AnnotationSink sink) {
+            PARSER_THREADS.add(Thread.currentThread().getName());
+            try {
+                String number = IOUtils.toString(file);
+                for (int line = 1; line <= WARNINGS_PER_FILE; line++) {
+                    Warning warning = new Warning("Warning " + number + "-" + line);
+                    warning.setFileName("report-" + number + ".txt");
+                    sink.add(warning);
+                }
+            }
+            catch (IOException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 2744564618489472340L;
+
+        Warning(final String message) {
+            super(Priority.NORMAL, message, 1, 1, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package hudson.plugins.analysis.core;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Measures the scaling of {@link IssueDifference} from 1k to 100k issues. The reference build contains the same
+ * issues as the current build, where every 10th issue has been moved (same context, different line) and every 20th
+ * issue has been fixed. Run with {@link #main(String[])}.
+ */
+// CHECKSTYLE:OFF
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IssueDifferenceBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private Set<FileAnnotation> current;
+    private Set<FileAnnotation> reference;
+
+    @Setup(Level.Trial)
+    public void createIssues() {
+        Random random = new Random(size);
+        current = new HashSet<FileAnnotation>();
+        reference = new HashSet<FileAnnotation>();
+        for (int i = 0; i < size; i++) {
+            String fileName = "src/File" + random.nextInt(size / 10 + 1) + ".java";
+            long context = random.nextLong();
+            int line = random.nextInt(5000);
+            current.add(createWarning(fileName, line, context));
+            if (i % 20 == 0) {
+                reference.add(createWarning(fileName, line, random.nextLong()));
+            }
+            else if (i % 10 == 0) {
+                reference.add(createWarning(fileName, line + 1, context));
+            }
+            else {
+                reference.add(createWarning(fileName, line, context));
+            }
+        }
+    }
+
+    private Warning createWarning(final String fileName, final int line, final long context) {
+        Warning warning = new Warning(fileName + ":" + line, line);
+        warning.setFileName(fileName);
+        warning.setContextHashCode(context);
+        return warning;
+    }
+
+    @Benchmark
+    public int computeDifference() {
+        IssueDifference difference = new IssueDifference(current, reference);
+        return difference.getNewIssues().size() + difference.getFixedIssues().size();
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(IssueDifferenceBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = -2470424069512578406L;
+
+        Warning(final String message, final int line) {
+            super(Priority.NORMAL, message, line, line, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package hudson.plugins.analysis.core;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link IssueDifference}.
+ */
+public class IssueDifferenceTest {
+    private static final int REFERENCE_BUILD = 1;
+
+    /**
+     * Verifies that equal issues are neither new nor fixed and that the build number of the reference issue is
+     * propagated to the current issue.
+     */
+    @Test
+    public void shouldMatchEqualIssues() {
+        Warning current = createWarning("message", 10, 4711);
+        Warning reference = createWarning("message", 10, 1);
+        reference.setBuild(REFERENCE_BUILD);
+
+        IssueDifference difference = new IssueDifference(Sets.<FileAnnotation>newHashSet(current),
+                Sets.<FileAnnotation>newHashSet(reference));
+
+        assertTrue("Wrong new issues", difference.getNewIssues().isEmpty());
+        assertTrue("Wrong fixed issues", difference.getFixedIssues().isEmpty());
+        assertEquals("Build not propagated", REFERENCE_BUILD, current.getBuild());
+    }
+
+    /**
+     * Verifies that issues with the same context hash code are neither new nor fixed.
+     */
+    @Test
+    public void shouldMatchIssuesWithSameContext() {
+        Warning current = createWarning("moved", 20, 42);
+        Warning reference = createWarning("original", 10, 42);
+        reference.setBuild(REFERENCE_BUILD);
+        Warning fixed = createWarning("fixed", 30, 43);
+
+        IssueDifference difference = new IssueDifference(Sets.<FileAnnotation>newHashSet(current),
+                Sets.<FileAnnotation>newHashSet(reference, fixed));
+
+        assertTrue("Wrong new issues", difference.getNewIssues().isEmpty());
+        assertEquals("Wrong fixed issues", Sets.newHashSet(fixed), difference.getFixedIssues());
+        assertEquals("Build not propagated", REFERENCE_BUILD, current.getBuild());
+    }
+
+    /**
+     * Verifies that a reference issue is matched only once even if several current issues share its context hash
+     * code.
+     */
+    @Test
+    public void shouldMatchReferenceOnlyOnce() {
+        Warning first = createWarning("first", 10, 42);
+        Warning second = createWarning("second", 20, 42);
+        Warning reference = createWarning("original", 30, 42);
+
+        IssueDifference difference = new IssueDifference(Sets.<FileAnnotation>newHashSet(first, second),
+                Sets.<FileAnnotation>newHashSet(reference));
+
+        assertEquals("Wrong number of new issues", 1, difference.getNewIssues().size());
+        assertTrue("Wrong fixed issues", difference.getFixedIssues().isEmpty());
+    }
+
+    /**
+     * Verifies that the indexed difference produces the same results as scanning all remaining reference issues for
+     * each current issue.
+     */
+    @Test
+    public void shouldProduceSameResultsAsLinearScan() {
+        for (int seed = 0; seed < 20; seed++) {
+            Set<FileAnnotation> current = createWarnings(new Random(seed), 500, 0);
+            Set<FileAnnotation> expectedCurrent = createWarnings(new Random(seed), 500, 0);
+            Set<FileAnnotation> reference = createWarnings(new Random(-seed - 1), 500, REFERENCE_BUILD);
+
+            IssueDifference difference = new IssueDifference(current, reference);
+            LinearScanDifference expected = new LinearScanDifference(expectedCurrent, reference);
+
+            assertEquals("Wrong new issues", expected.newIssues, difference.getNewIssues());
+            assertEquals("Wrong fixed issues", expected.fixedIssues, difference.getFixedIssues());
+            Iterator<FileAnnotation> expectedIterator = expectedCurrent.iterator();
+            for (FileAnnotation warning : current) {
+                assertEquals("Wrong build of " + warning, expectedIterator.next().getBuild(), warning.getBuild());
+            }
+        }
+    }
+
+    private Set<FileAnnotation> createWarnings(final Random random, final int size, final int build) {
+        Set<FileAnnotation> warnings = new HashSet<FileAnnotation>();
+        for (int i = 0; i < size; i++) {
+            Warning warning = createWarning("message " + random.nextInt(size), random.nextInt(size / 10),
+                    random.nextInt(size / 2));
+            warning.setBuild(build);
+            warnings.add(warning);
+        }
+        return warnings;
+    }
+
+    private Warning createWarning(final String message, final int line, final long contextHashCode) {
+        Warning warning = new Warning(Priority.HIGH, message, line, line, "category", "type");
+        warning.setFileName("file.txt");
+        warning.setContextHashCode(contextHashCode);
+        return warning;
+    }
+
+    /**
+     * The original algorithm that scans all remaining reference issues for each current issue.
+     */
+    private static class LinearScanDifference {
+        private final Set<FileAnnotation> newIssues;
+        private final Set<FileAnnotation> fixedIssues;
+
+        LinearScanDifference(final Set<FileAnnotation> currentIssues, final Set<FileAnnotation> referenceIssues) {
+            newIssues = new HashSet<FileAnnotation>(currentIssues);
+            fixedIssues = new HashSet<FileAnnotation>(referenceIssues);
+
+            for (FileAnnotation current : currentIssues) {
+                FileAnnotation referenceToRemove = null;
+                for (FileAnnotation reference : fixedIssues) {
+                    if (current.equals(reference)) {
+                        referenceToRemove = reference;
+                        break;
+                    }
+                }
+                if (referenceToRemove == null) {
+                    for (FileAnnotation reference : fixedIssues) {
+                        if (current.getContextHashCode() == reference.getContextHashCode()) {
+                            referenceToRemove = reference;
+                            break;
+                        }
+                    }
+                }
+                if (referenceToRemove != null) {
+                    newIssues.remove(current);
+                    fixedIssues.remove(referenceToRemove);
+
+                    current.setBuild(referenceToRemove.getBuild());
+                }
+            }
+        }
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 6593483467567325416L;
+
+        Warning(final Priority priority, final String message, final int start, final int end, final String category, final String type) {
+            super(priority, message, start, end, category, type);
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package hudson.plugins.analysis.core;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+import org.acegisecurity.context.SecurityContextImpl;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link JobSummary}.
+ */
+public class JobSummaryTest {
+    /**
+     * Verifies that the summary of a job is cached until a build of the job has been completed.
+     */
+    @Test
+    public void shouldCacheSummaryUntilInvalidated() {
+        Job<?, ?> job = createJob("cached");
+        ResultAction<?> resultAction = createResultAction(1, 10);
+
+        AbstractProjectAction<?> action = createAction(job, "plugin", resultAction);
+        JobSummary summary = JobSummary.of(action);
+
+        assertTrue("No result", summary.hasResult());
+        assertEquals("Wrong build", 1, summary.getBuildNumber());
+        assertEquals("Wrong number of warnings", 10, summary.getNumberOfAnnotations());
+        assertEquals("Wrong number of high warnings", 5, summary.getNumberOfAnnotations(Priority.HIGH));
+        assertSame("Summary not cached", summary, JobSummary.of(action));
+        verify(resultAction, times(1)).getResult();
+
+        JobSummary.invalidate(job);
+        assertNotSame("Summary not invalidated", summary, JobSummary.of(action));
+        verify(resultAction, times(2)).getResult();
+    }
+
+    /**
+     * Verifies that jobs without results have an empty summary.
+     */
+    @Test
+    public void shouldCreateEmptySummaryForJobsWithoutResults() {
+        JobSummary summary = JobSummary.of(createAction(createJob("empty"), "plugin", null));
+
+        assertFalse("Result found", summary.hasResult());
+        assertEquals("Wrong number of warnings", 0, summary.getNumberOfAnnotations());
+    }
+
+    /**
+     * Verifies that the summaries of many jobs are created in parallel and returned in the order of the actions.
+     *
+     * @throws InterruptedException
+     *             should not happen
+     */
+    @Test
+    public void shouldCreateSummariesInParallel() throws InterruptedException {
+        List<AbstractProjectAction<?>> actions = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            actions.add(createAction(createJob("parallel-" + i), "plugin", createResultAction(i, i * 2)));
+        }
+        JobSummary.of(actions.get(0));
+
+        List<JobSummary> summaries = JobSummary.of(actions);
+
+        assertEquals("Wrong number of summaries", actions.size(), summaries.size());
+        for (int i = 0; i < summaries.size(); i++) {
+            assertEquals("Wrong order", i, summaries.get(i).getBuildNumber());
+            assertEquals("Wrong number of warnings", i * 2, summaries.get(i).getNumberOfAnnotations());
+        }
+    }
+
+    /**
+     * Verifies that the summaries are created in parallel with the security context of the caller.
+     *
+     * @throws InterruptedException
+     *             should not happen
+     */
+    @Test
+    public void shouldCreateSummariesWithSecurityContextOfCaller() throws InterruptedException {
+        final Authentication authentication = mock(Authentication.class);
+        final Set<Object> authentications = Collections.synchronizedSet(Sets.newHashSet());
+        List<AbstractProjectAction<?>> actions = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            final ResultAction<?> resultAction = createResultAction(i, i);
+            actions.add(new TestProjectAction(createJob("secured-" + i)) {
+                @Override
+                public ResultAction<?> getLastAction() {
+                    authentications.add(SecurityContextHolder.getContext().getAuthentication());
+                    return resultAction;
+                }
+            });
+        }
+
+        SecurityContext previous = SecurityContextHolder.getContext();
+        SecurityContextImpl context = new SecurityContextImpl();
+        context.setAuthentication(authentication);
+        SecurityContextHolder.setContext(context);
+        try {
+            JobSummary.of(actions);
+        }
+        finally {
+            SecurityContextHolder.setContext(previous);
+        }
+
+        assertEquals("Wrong authentication", Collections.singleton(authentication), authentications);
+    }
+
+    /**
+     * Verifies that the summaries of a deleted or renamed job and of the jobs within a deleted folder are removed.
+     */
+    @Test
+    public void shouldRemoveSummariesOfJob() {
+        AbstractProjectAction<?> job = createAction(createJob("folder/job"), "plugin", createResultAction(1, 1));
+        AbstractProjectAction<?> other = createAction(createJob("folder/jobs"), "plugin", createResultAction(1, 1));
+        JobSummary summary = JobSummary.of(job);
+        JobSummary otherSummary = JobSummary.of(other);
+
+        JobSummary.removeJob("folder/job");
+        assertNotSame("Summary not removed", summary, JobSummary.of(job));
+        assertSame("Summary of other job removed", otherSummary, JobSummary.of(other));
+
+        JobSummary.removeJob("folder");
+        assertNotSame("Summary not removed", otherSummary, JobSummary.of(other));
+    }
+
+    private Job<?, ?> createJob(final String name) {
+        Job<?, ?> job = mock(Job.class);
+        when(job.getFullName()).thenReturn(name);
+        return job;
+    }
+
+    private ResultAction<?> createResultAction(final int buildNumber, final int numberOfWarnings) {
+        Run<?, ?> run = mock(Run.class);
+        when(run.getNumber()).thenReturn(buildNumber);
+
+        BuildResult result = mock(BuildResult.class);
+        doReturn(run).when(result).getOwner();
+        when(result.getNumberOfAnnotations()).thenReturn(numberOfWarnings);
+        when(result.getNumberOfHighPriorityWarnings()).thenReturn(numberOfWarnings / 2);
+        when(result.isSuccessful()).thenReturn(true);
+
+        @SuppressWarnings("unchecked")
+        ResultAction<BuildResult> action = mock(ResultAction.class);
+        when(action.getResult()).thenReturn(result);
+        return action;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private AbstractProjectAction<?> createAction(final Job<?, ?> job, final String url,
+            final ResultAction<?> lastAction) {
+        return new AbstractProjectAction(job, ResultAction.class, null, null, url, null, url) {
+            @Override
+            public ResultAction<?> getLastAction() {
+                return lastAction;
+            }
+        };
+    }
+
+    /**
+     * A project action with the URL "plugin".
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private abstract static class TestProjectAction extends AbstractProjectAction {
+        TestProjectAction(final Job<?, ?> job) {
+            super(job, ResultAction.class, null, null, "plugin", null, "plugin");
+        }
+    }
+}
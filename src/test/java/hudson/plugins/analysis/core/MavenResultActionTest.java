@@ -0,0 +1,202 @@
+package hudson.plugins.analysis.core;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.maven.MavenAggregatedReport;
+import hudson.maven.MavenBuild;
+import hudson.maven.MavenModule;
+import hudson.maven.MavenModuleSet;
+import hudson.maven.MavenModuleSetBuild;
+import hudson.model.Action;
+import hudson.model.Run;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link MavenResultAction}.
+ */
+public class MavenResultActionTest {
+    /**
+     * Verifies that the module results are appended without creating a result, that the aggregated result is created
+     * once with all pending module results, and that readers get the result that has been created last.
+     */
+    @Test
+    public void shouldAggregateModuleResultsIncrementally() {
+        TestAction action = new TestAction(true);
+
+        action.append(null, createResult("first"));
+        action.append(null, createResult("second"));
+        action.append(null, createResult("third"));
+        assertEquals("Result created before it has been read", 0, action.numberOfCreatedResults);
+
+        assertEquals("Wrong number of warnings", 3, action.getResult().getNumberOfAnnotations());
+        assertEquals("Wrong number of created results", 1, action.numberOfCreatedResults);
+
+        action.append(null, createResult("fourth"));
+
+        assertEquals("Result created by a reader", 3, action.getResult().getNumberOfAnnotations());
+        assertEquals("Wrong number of created results", 1, action.numberOfCreatedResults);
+
+        assertTrue("Result not created", action.flush());
+        assertFalse("Result created twice", action.flush());
+        assertEquals("Stale result read", 4, action.getResult().getNumberOfAnnotations());
+        assertEquals("Wrong number of created results", 2, action.numberOfCreatedResults);
+    }
+
+    /**
+     * Verifies that the module results are added one by one if the aggregated result is not created from the
+     * aggregation, without creating a result that is thrown away.
+     */
+    @Test
+    public void shouldAddModuleResultsOneByOneByDefault() {
+        TestAction action = new TestAction(false);
+
+        action.append(null, createResult("first"));
+        action.append(null, createResult("second"));
+        action.append(null, createResult("third"));
+
+        assertEquals("Wrong number of warnings", 3, action.getResult().getNumberOfAnnotations());
+        assertEquals("Wrong number of created results", 3, action.numberOfCreatedResults);
+    }
+
+    /**
+     * Verifies that the pending module results are aggregated and saved when the build has been completed.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    @SuppressWarnings("rawtypes")
+    public void shouldCreatePendingResultWhenBuildIsCompleted() throws IOException {
+        TestAction action = new TestAction(true);
+        action.append(null, createResult("first"));
+        action.append(null, createResult("second"));
+
+        Run run = mock(Run.class);
+        doReturn(Collections.singletonList(action)).when(run).getActions(MavenResultAction.class);
+
+        MavenResultAction.Listener listener = new MavenResultAction.Listener();
+        listener.onCompleted(run, null);
+        listener.onCompleted(run, null);
+
+        verify(run, times(1)).save();
+        assertEquals("Wrong number of created results", 1, action.numberOfCreatedResults);
+        assertEquals("Wrong number of warnings", 2, action.getResult().getNumberOfAnnotations());
+        assertEquals("Wrong number of created results", 1, action.numberOfCreatedResults);
+    }
+
+    private static BuildResult createResult(final String... messages) {
+        Set<FileAnnotation> annotations = Sets.newHashSet();
+        for (String message : messages) {
+            annotations.add(new Warning(message));
+        }
+        return createResult(annotations);
+    }
+
+    private static BuildResult createResult(final Set<FileAnnotation> annotations) {
+        BuildResult result = mock(BuildResult.class);
+        when(result.getAnnotations()).thenReturn(annotations);
+        when(result.getNumberOfAnnotations()).thenReturn(annotations.size());
+        when(result.getModules()).thenReturn(Collections.<String>emptySet());
+        when(result.getErrors()).thenReturn(Lists.<String>newArrayList());
+        return result;
+    }
+
+    /**
+     * A Maven action that creates results with the warnings of the aggregated results.
+     */
+    private static class TestAction extends MavenResultAction<BuildResult> {
+        private final boolean isAggregating;
+        private int numberOfCreatedResults;
+
+        TestAction(final boolean isAggregating) {
+            super(new TestResultAction(mock(Run.class)), "UTF-8", "TEST");
+
+            this.isAggregating = isAggregating;
+        }
+
+        @Override
+        protected BuildResult createAggregatedResult(final BuildResult existingResult,
+                final List<BuildResult> additionalResults, final ParserResult aggregation) {
+            if (isAggregating) {
+                numberOfCreatedResults++;
+
+                return MavenResultActionTest.createResult(Sets.newHashSet(aggregation.getAnnotations()));
+            }
+            return super.createAggregatedResult(existingResult, additionalResults, aggregation);
+        }
+
+        @Override
+        protected BuildResult createResult(final BuildResult existingResult, final BuildResult additionalResult) {
+            numberOfCreatedResults++;
+
+            return MavenResultActionTest.createResult(
+                    Sets.newHashSet(aggregate(existingResult, additionalResult).getAnnotations()));
+        }
+
+        @Override
+        public Class<? extends MavenResultAction<BuildResult>> getIndividualActionType() {
+            return TestAction.class;
+        }
+
+        @Override
+        public MavenAggregatedReport createAggregatedAction(final MavenModuleSetBuild build,
+                final Map<MavenModule, List<MavenBuild>> moduleBuilds) {
+            return this;
+        }
+
+        @Override
+        public Action getProjectAction(final MavenModuleSet moduleSet) {
+            return null;
+        }
+    }
+
+    /**
+     * A result action without health reporting.
+     */
+    private static class TestResultAction extends AbstractResultAction<BuildResult> {
+        TestResultAction(final Run<?, ?> owner) {
+            super(owner, new NullHealthDescriptor(), null);
+        }
+
+        @Override
+        protected PluginDescriptor getDescriptor() {
+            return null;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Test";
+        }
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = -1584276380467432103L;
+
+        Warning(final String message) {
+            super(Priority.NORMAL, message, 1, 1, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package hudson.plugins.analysis.core;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.core.ResultCache.Kind;
+
+/**
+ * Tests the class {@link ResultCache}.
+ */
+public class ResultCacheTest {
+    private static final String JOB = "job";
+    private static final String FILE = "warnings.xml";
+    private static final int THREADS = 20;
+
+    /**
+     * Verifies that the least recently used entries are evicted if the budget is exceeded.
+     */
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntries() {
+        ResultCache cache = new ResultCache(30);
+
+        cache.put(JOB, FILE, 3, Kind.PROJECT, "latest", 10);
+        cache.put(JOB, FILE, 1, Kind.PROJECT, "first", 10);
+        cache.put(JOB, FILE, 2, Kind.PROJECT, "second", 10);
+        assertEquals("Wrong footprint", 30, cache.getFootprint());
+
+        assertEquals("Wrong value", "first", cache.get(JOB, FILE, 1, Kind.PROJECT, String.class));
+        cache.put(JOB, FILE, 0, Kind.PROJECT, "zero", 10);
+
+        assertNull("Entry not evicted", cache.get(JOB, FILE, 2, Kind.PROJECT, String.class));
+        assertEquals("Wrong value", "first", cache.get(JOB, FILE, 1, Kind.PROJECT, String.class));
+        assertEquals("Wrong value", "zero", cache.get(JOB, FILE, 0, Kind.PROJECT, String.class));
+        assertEquals("Wrong number of evictions", 1, cache.getEvictions());
+        assertEquals("Wrong footprint", 30, cache.getFootprint());
+        assertEquals("Wrong size", 3, cache.getSize());
+        assertEquals("Wrong number of hits", 3, cache.getHits());
+        assertEquals("Wrong number of misses", 1, cache.getMisses());
+    }
+
+    /**
+     * Verifies that the entries of the latest build are pinned until a newer build has been cached.
+     */
+    @Test
+    public void shouldPinLatestBuild() {
+        ResultCache cache = new ResultCache(10, 20);
+
+        cache.put(JOB, FILE, 1, Kind.PROJECT, "all", 8);
+        cache.put(JOB, FILE, 1, Kind.NEW, "new", 8);
+        assertEquals("Wrong number of pinned entries", 2, cache.getPinned());
+        assertEquals("Pinned entry evicted", "all", cache.get(JOB, FILE, 1, Kind.PROJECT, String.class));
+        assertEquals("Pinned entry evicted", "new", cache.get(JOB, FILE, 1, Kind.NEW, String.class));
+
+        cache.put(JOB, FILE, 2, Kind.PROJECT, "next", 3);
+
+        assertEquals("Wrong number of pinned entries", 1, cache.getPinned());
+        assertNull("Entry not evicted", cache.get(JOB, FILE, 1, Kind.PROJECT, String.class));
+        assertNull("Entry not evicted", cache.get(JOB, FILE, 1, Kind.NEW, String.class));
+        assertEquals("Wrong footprint", 3, cache.getFootprint());
+        assertEquals("Wrong number of evictions", 2, cache.getEvictions());
+    }
+
+    /**
+     * Verifies that an older build is not pinned if a newer build of the job has been completed, even if the newer
+     * build has not been cached yet.
+     */
+    @Test
+    public void shouldPinOnlyLastCompletedBuild() {
+        ResultCache cache = new ResultCache(100);
+
+        cache.put(JOB, FILE, 5, 10, Kind.PROJECT, "old", 1);
+        assertEquals("Old build pinned", 0, cache.getPinned());
+
+        cache.put(JOB, FILE, 10, 10, Kind.PROJECT, "latest", 1);
+        assertEquals("Latest build not pinned", 1, cache.getPinned());
+
+        cache.put(JOB, FILE, 11, 10, Kind.PROJECT, "running", 1);
+        assertEquals("Running build not pinned", 1, cache.getPinned());
+        assertEquals("Wrong footprint of pinned entries", 1, cache.getPinnedFootprint());
+    }
+
+    /**
+     * Verifies that the latest build is determined again if the latest build has been deleted.
+     */
+    @Test
+    public void shouldPinPreviousBuildIfLatestBuildIsDeleted() {
+        ResultCache cache = new ResultCache(100);
+
+        cache.put(JOB, FILE, 2, 2, Kind.PROJECT, "latest", 1);
+        cache.put("folder/" + JOB, FILE, 2, 2, Kind.PROJECT, "other", 1);
+        cache.remove(JOB, 2);
+        assertEquals("Wrong number of pinned entries", 1, cache.getPinned());
+
+        cache.put(JOB, FILE, 1, 1, Kind.PROJECT, "previous", 1);
+        assertEquals("Previous build not pinned", 2, cache.getPinned());
+    }
+
+    /**
+     * Verifies that the latest builds of different jobs and plug-ins use different slots.
+     */
+    @Test
+    public void shouldPinLatestBuildOfEachSlot() {
+        ResultCache cache = new ResultCache(0, 3);
+
+        cache.put(JOB, FILE, 5, Kind.PROJECT, "job", 1);
+        cache.put("other", FILE, 1, Kind.PROJECT, "other", 1);
+        cache.put(JOB, "other.xml", 1, Kind.PROJECT, "plugin", 1);
+
+        assertEquals("Wrong number of pinned entries", 3, cache.getPinned());
+        assertEquals("Wrong number of evictions", 0, cache.getEvictions());
+    }
+
+    /**
+     * Verifies that entries of the latest build are not pinned if the pinned entries would exceed their budget.
+     */
+    @Test
+    public void shouldBoundWeightOfPinnedEntries() {
+        ResultCache cache = new ResultCache(20, 10);
+
+        cache.put(JOB, FILE, 1, Kind.PROJECT, "all", 8);
+        cache.put(JOB, FILE, 1, Kind.NEW, "new", 8);
+        assertEquals("Wrong number of pinned entries", 1, cache.getPinned());
+        assertEquals("Wrong footprint of pinned entries", 8, cache.getPinnedFootprint());
+
+        cache.put("other", FILE, 1, Kind.PROJECT, "other", 8);
+
+        assertEquals("Wrong number of evictions", 1, cache.getEvictions());
+        assertNull("Entry not evicted", cache.get(JOB, FILE, 1, Kind.NEW, String.class));
+        assertEquals("Pinned entry evicted", "all", cache.get(JOB, FILE, 1, Kind.PROJECT, String.class));
+        assertEquals("Wrong footprint", 16, cache.getFootprint());
+    }
+
+    /**
+     * Verifies that the entries and latest builds of a deleted job and of the jobs in a deleted folder are removed.
+     */
+    @Test
+    public void shouldRemoveEntriesOfJob() {
+        ResultCache cache = new ResultCache(100);
+
+        cache.put("folder/job", FILE, 2, Kind.PROJECT, "latest", 10);
+        cache.put("folder/job", FILE, 1, Kind.PROJECT, "all", 10);
+        cache.put("folder-2", FILE, 1, Kind.PROJECT, "other", 10);
+
+        cache.removeJob("folder");
+
+        assertEquals("Wrong size", 1, cache.getSize());
+        assertEquals("Wrong footprint", 10, cache.getFootprint());
+        assertEquals("Wrong number of pinned entries", 1, cache.getPinned());
+        assertEquals("Wrong value", "other", cache.get("folder-2", FILE, 1, Kind.PROJECT, String.class));
+
+        cache.put("folder/job", FILE, 1, Kind.PROJECT, "renamed", 10);
+        assertEquals("Latest build of removed job not reset", 2, cache.getPinned());
+    }
+
+    /**
+     * Verifies that the entries of a deleted build are removed.
+     */
+    @Test
+    public void shouldRemoveEntriesOfBuild() {
+        ResultCache cache = new ResultCache(100);
+
+        cache.put(JOB, FILE, 2, Kind.PROJECT, "latest", 10);
+        cache.put(JOB, FILE, 1, Kind.PROJECT, "all", 10);
+        cache.put(JOB, FILE, 1, Kind.FIXED, "fixed", 5);
+        cache.put("jobs", FILE, 1, Kind.PROJECT, "other", 10);
+
+        cache.remove(JOB, 1);
+
+        assertEquals("Wrong size", 2, cache.getSize());
+        assertEquals("Wrong footprint", 20, cache.getFootprint());
+        assertEquals("Wrong value", "other", cache.get("jobs", FILE, 1, Kind.PROJECT, String.class));
+    }
+
+    /**
+     * Verifies that concurrent callers wait for the same load of a value that is not cached yet.
+     *
+     * @throws Exception
+     *             should not happen
+     */
+    @Test
+    public void shouldLoadValueOnlyOnceForConcurrentCallers() throws Exception {
+        final ResultCache cache = new ResultCache(100);
+        final AtomicInteger loads = new AtomicInteger();
+        final Callable<String> loader = new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                loads.incrementAndGet();
+                Thread.sleep(200);
+                cache.put(JOB, FILE, 1, Kind.PROJECT, "loaded", 1);
+                return "loaded";
+            }
+        };
+
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> results = Lists.newArrayList();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws InterruptedException {
+                        start.await();
+                        return cache.get(JOB, FILE, 1, Kind.PROJECT, String.class, loader);
+                    }
+                }));
+            }
+            start.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("Wrong value", "loaded", result.get());
+            }
+            assertEquals("Value loaded more than once", 1, loads.get());
+            assertEquals("Wrong value", "loaded", cache.get(JOB, FILE, 1, Kind.PROJECT, String.class, loader));
+            assertEquals("Value loaded more than once", 1, loads.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Verifies that the value is loaded in the calling thread and that a caller that waits for the load of another
+     * thread stops waiting if it is interrupted.
+     *
+     * @throws Exception
+     *             should not happen
+     */
+    @Test(timeout = 10000)
+    public void shouldStopWaitingIfInterrupted() throws Exception {
+        final ResultCache cache = new ResultCache(100);
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        final Callable<String> loader = new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                loading.countDown();
+                finish.await();
+                return Thread.currentThread().getName();
+            }
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> result = executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    Thread.currentThread().setName("loader");
+                    return cache.get(JOB, FILE, 1, Kind.PROJECT, String.class, loader);
+                }
+            });
+            loading.await();
+
+            Thread.currentThread().interrupt();
+            try {
+                cache.get(JOB, FILE, 1, Kind.PROJECT, String.class, loader);
+                fail("No exception thrown");
+            }
+            catch (IllegalStateException exception) {
+                assertTrue("Interrupt flag not restored", Thread.interrupted());
+            }
+
+            finish.countDown();
+            assertEquals("Value not loaded in calling thread", "loader", result.get());
+        }
+        finally {
+            Thread.interrupted();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Verifies that the exception of a failed load is propagated to the caller and that the value is loaded again
+     * on the next call.
+     */
+    @Test
+    public void shouldPropagateFailedLoad() {
+        ResultCache cache = new ResultCache(100);
+        try {
+            cache.get(JOB, FILE, 1, Kind.PROJECT, String.class, new Callable<String>() {
+                @Override
+                public String call() {
+                    throw new IllegalStateException("failed");
+                }
+            });
+            fail("No exception thrown");
+        }
+        catch (IllegalStateException exception) {
+            assertEquals("Wrong exception", "failed", exception.getMessage());
+        }
+
+        assertEquals("Wrong value", "loaded", cache.get(JOB, FILE, 1, Kind.PROJECT, String.class,
+                new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return "loaded";
+                    }
+                }));
+    }
+}
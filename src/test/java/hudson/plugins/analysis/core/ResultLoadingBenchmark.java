@@ -0,0 +1,117 @@
+package hudson.plugins.analysis.core;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import hudson.plugins.analysis.core.ResultCache.Kind;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.JavaProject;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Measures the latency of many simultaneous requests for the results of builds that are not loaded yet. Each group of
+ * {@link #REQUESTS_PER_BUILD} consecutive requests asks for the same build, the first request of a group triggers the
+ * load of the build. The single-flight loading of the {@link ResultCache} is compared with loading the result while
+ * holding a lock of the build (which has been the behavior of previous releases). Run with {@link #main(String[])}.
+ */
+// CHECKSTYLE:OFF
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Threads(32)
+@Fork(1)
+public class ResultLoadingBenchmark {
+    private static final int REQUESTS_PER_BUILD = 64;
+    private static final String JOB = "job";
+    private static final String FILE = "warnings.xml";
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    private final ResultCache singleFlightCache = new ResultCache(1000000);
+    private final ResultCache lockedCache = new ResultCache(1000000);
+    private final ConcurrentHashMap<Integer, Object> locks = new ConcurrentHashMap<Integer, Object>();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @Benchmark
+    public JavaProject singleFlight() {
+        final int build = requests.getAndIncrement() / REQUESTS_PER_BUILD;
+        return singleFlightCache.get(JOB, FILE, build, Kind.PROJECT, JavaProject.class, new Callable<JavaProject>() {
+            @Override
+            public JavaProject call() {
+                return load(singleFlightCache, build);
+            }
+        });
+    }
+
+    @Benchmark
+    public JavaProject locked() {
+        int build = requests.getAndIncrement() / REQUESTS_PER_BUILD;
+        synchronized (getLock(build)) {
+            JavaProject project = lockedCache.get(JOB, FILE, build, Kind.PROJECT, JavaProject.class);
+            if (project == null) {
+                return load(lockedCache, build);
+            }
+            return project;
+        }
+    }
+
+    private Object getLock(final int build) {
+        Object lock = new Object();
+        Object existing = locks.putIfAbsent(build, lock);
+        return existing == null ? lock : existing;
+    }
+
+    private JavaProject load(final ResultCache cache, final int build) {
+        Random random = new Random(build);
+        JavaProject project = new JavaProject();
+        for (int i = 0; i < size; i++) {
+            Warning warning = new Warning("Warning " + random.nextInt(), random.nextInt(1000));
+            warning.setFileName("src/File" + random.nextInt(size / 10 + 1) + ".java");
+            project.addAnnotation(warning);
+        }
+        cache.put(JOB, FILE, build, Kind.PROJECT, project, size);
+        return project;
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ResultLoadingBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 2236587624150245371L;
+
+        Warning(final String message, final int line) {
+            super(Priority.NORMAL, message, line, line, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
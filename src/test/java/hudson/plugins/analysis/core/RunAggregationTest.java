@@ -0,0 +1,58 @@
+package hudson.plugins.analysis.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link RunAggregation}.
+ */
+public class RunAggregationTest {
+    /**
+     * Verifies that the counters and modules of the runs are aggregated without loading the warnings, and that the
+     * errors are skipped like in the aggregation of the warnings.
+     */
+    @Test
+    public void shouldAggregateCountersOfRuns() {
+        RunAggregation aggregation = new RunAggregation();
+        assertTrue("Warnings found", aggregation.hasNoAnnotations());
+
+        BuildResult first = createResult(1, 2, 3, "core");
+        BuildResult second = createResult(0, 0, 4, "ui");
+        aggregation.add("jdk=7", first);
+        aggregation.add("jdk=8", second);
+
+        assertEquals("Wrong number of warnings", 10, aggregation.getNumberOfAnnotations());
+        assertEquals("Wrong number of warnings", 1, aggregation.getNumberOfAnnotations(Priority.HIGH));
+        assertEquals("Wrong number of warnings", 2, aggregation.getNumberOfAnnotations(Priority.NORMAL));
+        assertEquals("Wrong number of warnings", 7, aggregation.getNumberOfAnnotations(Priority.LOW));
+        assertTrue("No warnings found", aggregation.hasAnnotations(Priority.HIGH));
+        assertEquals("Wrong number of new warnings", 2, aggregation.getNumberOfNewWarnings());
+        assertEquals("Wrong number of fixed warnings", 4, aggregation.getNumberOfFixedWarnings());
+        assertEquals("Wrong modules", 2, aggregation.getModules().size());
+        assertTrue("Errors aggregated", aggregation.getErrorMessages().isEmpty());
+        assertEquals("Wrong runs", Arrays.asList("jdk=7", "jdk=8"), aggregation.getRuns());
+        assertTrue("Warnings copied", aggregation.getAnnotations().isEmpty());
+
+        verify(first, never()).getAnnotations();
+        verify(second, never()).getAnnotations();
+    }
+
+    private BuildResult createResult(final int high, final int normal, final int low, final String module) {
+        BuildResult result = mock(BuildResult.class);
+        when(result.getNumberOfHighPriorityWarnings()).thenReturn(high);
+        when(result.getNumberOfNormalPriorityWarnings()).thenReturn(normal);
+        when(result.getNumberOfLowPriorityWarnings()).thenReturn(low);
+        when(result.getNumberOfNewWarnings()).thenReturn(1);
+        when(result.getNumberOfFixedWarnings()).thenReturn(2);
+        when(result.getModules()).thenReturn(Collections.singleton(module));
+        when(result.getErrors()).thenReturn(Collections.singletonList("error in " + module));
+        return result;
+    }
+}
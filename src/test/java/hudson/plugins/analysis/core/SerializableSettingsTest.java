@@ -29,6 +29,24 @@ public class SerializableSettingsTest {
         copy = new SerializableSettings(original);
         assertTrue("Wrong value for quiet: ", copy.getQuietMode());
         assertTrue("Wrong value for fail: ", copy.getFailOnCorrupt());
+        assertEquals("Wrong default for parser threads: ", Integer.valueOf(1), copy.getParserThreads());
+        assertFalse("Wrong default for persist: ", copy.getPersistWorkspaceIndex());
+    }
+
+    /**
+     * Verifies that the parser settings are copied if the original settings provide them.
+     */
+    @Test
+    public void testParserValues() {
+        GlobalSettings.DescriptorImpl original = mock(GlobalSettings.DescriptorImpl.class);
+        when(original.getParserThreads()).thenReturn(4);
+        when(original.getBlameThreads()).thenReturn(2);
+        when(original.getPersistWorkspaceIndex()).thenReturn(true);
+
+        SerializableSettings copy = new SerializableSettings(original);
+        assertEquals("Wrong value for parser threads: ", Integer.valueOf(4), copy.getParserThreads());
+        assertEquals("Wrong value for blame threads: ", Integer.valueOf(2), copy.getBlameThreads());
+        assertTrue("Wrong value for persist: ", copy.getPersistWorkspaceIndex());
     }
 }
 
@@ -0,0 +1,146 @@
+package hudson.plugins.analysis.core;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.plugins.analysis.core.TrendStore.Record;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link TrendStore}.
+ */
+@SuppressWarnings("rawtypes")
+public class TrendStoreTest {
+    private static final int HEADER = 8;
+    private static final int RECORD = 36;
+
+    /** Temporary job folder. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the history is added to the store when the trend is requested for the first time, and that
+     * completed and deleted builds are appended afterwards.
+     */
+    @Test
+    public void shouldBackfillAndAppendRecords() {
+        File file = new File(folder.getRoot(), "test" + TrendStore.SUFFIX);
+        BuildResult first = mockResult(1, null);
+        BuildResult second = mockResult(2, first);
+        BuildResult third = mockResult(3, second);
+
+        TrendStore store = new TrendStore(file);
+        verifyTrend(store.getTrend(third), 3, 2, 1);
+        assertEquals("Wrong file size", HEADER + 3 * RECORD, file.length());
+
+        Record record = store.getTrend(third).get(0);
+        assertEquals("Wrong number of warnings", 6, record.getNumberOfWarnings());
+        assertEquals("Wrong number of high warnings", 3, record.getNumberOfAnnotations(Priority.HIGH));
+        assertEquals("Wrong number of new warnings", 3, record.getNumberOfNewWarnings());
+        assertEquals("Wrong number of fixed warnings", 6, record.getNumberOfFixedWarnings());
+        assertEquals("Wrong delta", -3, record.getDelta());
+        assertEquals("Wrong time stamp", 3000, record.getTimestamp());
+
+        BuildResult fourth = mockResult(4, third);
+        store.add(fourth);
+        assertEquals("Wrong file size", HEADER + 4 * RECORD, file.length());
+
+        store.remove(2);
+        assertEquals("Wrong file size", HEADER + 5 * RECORD, file.length());
+        verifyTrend(store.getTrend(fourth), 4, 3, 1);
+        verifyTrend(store.getTrend(third), 3, 1);
+
+        verifyTrend(new TrendStore(file).getTrend(fourth), 4, 3, 1);
+        verify(first, times(1)).getNumberOfNewWarnings();
+    }
+
+    /**
+     * Verifies that a running build is part of the trend but is not stored yet.
+     */
+    @Test
+    public void shouldNotStoreRunningBuild() {
+        File file = new File(folder.getRoot(), "test" + TrendStore.SUFFIX);
+        BuildResult first = mockResult(1, null);
+        BuildResult running = mockResult(2, first);
+        when(running.getOwner().isBuilding()).thenReturn(true);
+
+        TrendStore store = new TrendStore(file);
+        verifyTrend(store.getTrend(running), 2, 1);
+        assertEquals("Wrong file size", HEADER + RECORD, file.length());
+
+        store.add(running);
+        assertEquals("Wrong file size", HEADER + 2 * RECORD, file.length());
+        verifyTrend(store.getTrend(running), 2, 1);
+    }
+
+    /**
+     * Verifies that the stores of a job are shared by all results of the job and are removed if the job or its folder
+     * has been deleted or renamed.
+     */
+    @Test
+    public void shouldRemoveStoresOfJob() {
+        BuildResult result = mockResult(1, null);
+        BuildResult other = mockResult(1, null);
+        mockJob(result, "folder/job");
+        mockJob(other, "folder/job");
+        int size = TrendStore.size();
+
+        TrendStore store = TrendStore.of(result);
+        assertSame("Store not shared", store, TrendStore.of(other));
+        assertEquals("Wrong file", new File(folder.getRoot(), "test" + TrendStore.SUFFIX), store.getFile());
+        assertEquals("Wrong number of jobs", size + 1, TrendStore.size());
+
+        TrendStore.removeJob("folder/jo");
+        assertEquals("Store of other job removed", size + 1, TrendStore.size());
+
+        TrendStore.removeJob("folder");
+        assertEquals("Store not removed", size, TrendStore.size());
+        assertNotSame("Store not removed", store, TrendStore.of(result));
+
+        TrendStore.removeJob("folder/job");
+        assertEquals("Store not removed", size, TrendStore.size());
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void mockJob(final BuildResult result, final String fullName) {
+        Job job = mock(Job.class);
+        when(job.getFullName()).thenReturn(fullName);
+        when(job.getRootDir()).thenReturn(folder.getRoot());
+        when(result.getOwner().getParent()).thenReturn(job);
+        when(result.getSerializationFileName()).thenReturn("test.xml");
+    }
+
+    private void verifyTrend(final List<Record> trend, final int... expectedNumbers) {
+        assertEquals("Wrong number of builds in " + trend, expectedNumbers.length, trend.size());
+        for (int i = 0; i < expectedNumbers.length; i++) {
+            assertEquals("Wrong build in " + trend, expectedNumbers[i], trend.get(i).getNumber());
+        }
+    }
+
+    private BuildResult mockResult(final int number, final BuildResult previous) {
+        Run build = mock(Run.class);
+        when(build.getNumber()).thenReturn(number);
+        when(build.getTimeInMillis()).thenReturn(number * 1000L);
+
+        BuildResult result = mock(BuildResult.class);
+        when(result.getOwner()).thenReturn(build);
+        when(result.getNumberOfAnnotations(Priority.HIGH)).thenReturn(number);
+        when(result.getNumberOfAnnotations(Priority.NORMAL)).thenReturn(number - 1);
+        when(result.getNumberOfAnnotations(Priority.LOW)).thenReturn(number - 2);
+        when(result.getNumberOfNewWarnings()).thenReturn(number);
+        when(result.getNumberOfFixedWarnings()).thenReturn(2 * number);
+        when(result.getDelta()).thenReturn(-number);
+        when(result.hasPreviousResult()).thenReturn(previous != null);
+        when(result.getPreviousResult()).thenReturn(previous);
+        return result;
+    }
+}
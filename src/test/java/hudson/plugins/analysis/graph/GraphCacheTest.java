@@ -0,0 +1,292 @@
+package hudson.plugins.analysis.graph;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.junit.Test;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.plugins.analysis.core.AbstractHealthDescriptor;
+
+/**
+ * Tests the classes {@link GraphCache} and {@link CachedGraph}.
+ */
+public class GraphCacheTest {
+    private static final String KEY = GraphCache.createKey("job", "PRIORITY", "500!200!0!0!PRIORITY!", "", 10, "", "url");
+
+    /**
+     * Verifies that the least recently used graphs are evicted if the size of the cache is exceeded.
+     */
+    @Test
+    public void shouldEvictLeastRecentlyUsedGraphs() {
+        GraphCache cache = new GraphCache(300);
+
+        cache.put("first", createGraph(100));
+        cache.put("second", createGraph(100));
+        cache.put("third", createGraph(100));
+        assertNotNull("Graph not cached", cache.get("first"));
+
+        cache.put("fourth", createGraph(100));
+
+        assertNull("Graph not evicted", cache.get("second"));
+        assertNotNull("Graph evicted", cache.get("first"));
+        assertEquals("Wrong number of graphs", 3, cache.size());
+        assertEquals("Wrong footprint", 300, cache.getFootprint());
+    }
+
+    /**
+     * Verifies that all graphs of a job are removed.
+     */
+    @Test
+    public void shouldRemoveGraphsOfJob() {
+        GraphCache cache = new GraphCache(1000);
+
+        cache.put(GraphCache.createKey("job", "PRIORITY", "", "", 1), createGraph(10));
+        cache.put(GraphCache.createKey("job", "NEW", "", "", 1), createGraph(10));
+        cache.put(GraphCache.createKey("job/child", "NEW", "", "", 1), createGraph(10));
+        cache.put(GraphCache.createKey("jobs", "NEW", "", "", 1), createGraph(10));
+
+        cache.removeJob("job");
+
+        assertEquals("Wrong number of graphs", 1, cache.size());
+        assertEquals("Wrong footprint", 10, cache.getFootprint());
+        assertNotNull("Graph of other job removed", cache.get(GraphCache.createKey("jobs", "NEW", "", "", 1)));
+    }
+
+    /**
+     * Verifies that the least recently used graphs of a job are evicted if the number of graphs of the job is
+     * exceeded, while the graphs of the other jobs are kept.
+     */
+    @Test
+    public void shouldBoundNumberOfGraphsPerJob() {
+        GraphCache cache = new GraphCache(1000, 2);
+
+        String other = GraphCache.createKey("other", "NEW", "", "", 1);
+        cache.put(other, createGraph(10));
+        cache.put(GraphCache.createKey("job", "NEW", "", "", 1, "100x100"), createGraph(10));
+        cache.put(GraphCache.createKey("job", "NEW", "", "", 1, "200x200"), createGraph(10));
+        cache.put(GraphCache.createKey("job", "NEW", "", "", 1, "300x300"), createGraph(10));
+
+        assertEquals("Wrong number of graphs", 3, cache.size());
+        assertEquals("Wrong footprint", 30, cache.getFootprint());
+        assertNull("Graph not evicted", cache.get(GraphCache.createKey("job", "NEW", "", "", 1, "100x100")));
+        assertNotNull("Graph of other job evicted", cache.get(other));
+    }
+
+    /**
+     * Verifies that graphs are rendered again if the settings of the health descriptor have been changed.
+     */
+    @Test
+    public void shouldStampGraphWithHealthSettings() {
+        AbstractHealthDescriptor descriptor = mock(AbstractHealthDescriptor.class);
+        when(descriptor.isHealthyReportEnabled()).thenReturn(true);
+        when(descriptor.getHealthyAnnotations()).thenReturn(10);
+        when(descriptor.getUnHealthyAnnotations()).thenReturn(20);
+        HealthGraph graph = new HealthGraph(descriptor);
+
+        String stamp = graph.getCacheStamp();
+        when(descriptor.getUnHealthyAnnotations()).thenReturn(30);
+
+        assertFalse("Changed threshold ignored", stamp.equals(graph.getCacheStamp()));
+    }
+
+    private RenderedGraph createGraph(final int size) {
+        return new RenderedGraph(new byte[size], "");
+    }
+
+    /**
+     * Verifies that a graph is rendered only once for the PNG image and the image map.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldRenderGraphOnlyOnce() throws IOException {
+        CountingGraph graph = new CountingGraph(new GraphCache(1000000));
+
+        RenderedGraph png = graph.getRenderedGraph(500, 200, 1.0);
+        RenderedGraph map = graph.getRenderedGraph(500, 200, 1.0);
+
+        assertSame("Graph not cached", png, map);
+        assertTrue("No image rendered", png.getPng().length > 0);
+        assertTrue("No image map rendered", png.getMap().startsWith("<map"));
+        assertEquals("Graph rendered more than once", 1, graph.count);
+
+        graph.getRenderedGraph(800, 600, 1.0);
+        assertEquals("Graph with different size not rendered", 2, graph.count);
+    }
+
+    /**
+     * Verifies that the size and the scale factor of a graph are clamped, so that large requests render and cache
+     * the same bounded image.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldClampSizeOfGraph() throws IOException {
+        GraphCache cache = new GraphCache(100000000);
+        CountingGraph graph = new CountingGraph(cache);
+
+        RenderedGraph large = graph.getRenderedGraph(10000, 10000, 8.0);
+        RenderedGraph maximum = graph.getRenderedGraph(2000, 2000, 1.0);
+
+        assertSame("Size not clamped", maximum, large);
+        assertSame("Scale not clamped", graph.getRenderedGraph(500, 200, 2.0), graph.getRenderedGraph(500, 200, 4.0));
+        assertEquals("Wrong number of rendered graphs", 2, graph.count);
+        assertEquals("Wrong number of graphs", 2, cache.size());
+    }
+
+    /**
+     * Verifies that graphs that are created from incomplete data are not cached.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldNotCacheIncompleteGraphs() throws IOException {
+        GraphCache cache = new GraphCache(1000000);
+        CountingGraph graph = new CountingGraph(cache);
+        graph.isComplete = false;
+
+        graph.getRenderedGraph(500, 200, 1.0);
+        graph.getRenderedGraph(500, 200, 1.0);
+
+        assertEquals("Incomplete graph cached", 2, graph.count);
+        assertEquals("Incomplete graph cached", 0, cache.size());
+
+        graph.isComplete = true;
+        graph.getRenderedGraph(500, 200, 1.0);
+        graph.getRenderedGraph(500, 200, 1.0);
+
+        assertEquals("Complete graph not cached", 3, graph.count);
+    }
+
+    /**
+     * Verifies that conditional requests with a matching entity tag are answered without content and without
+     * rendering the graph.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldAnswerConditionalRequests() throws IOException {
+        CountingGraph graph = new CountingGraph(new GraphCache(1000000));
+        String eTag = graph.getETag(500, 200, 1.0);
+
+        StaplerRequest request = mock(StaplerRequest.class);
+        when(request.getHeader("If-None-Match")).thenReturn(eTag);
+        StaplerResponse response = mock(StaplerResponse.class);
+
+        graph.doPng(request, response);
+
+        verify(response).setHeader("ETag", eTag);
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response, never()).getOutputStream();
+        assertEquals("Graph rendered for a conditional request", 0, graph.count);
+
+        StaplerRequest unconditional = mock(StaplerRequest.class);
+        StaplerResponse content = mock(StaplerResponse.class);
+        ServletOutputStream output = mock(ServletOutputStream.class);
+        when(content.getOutputStream()).thenReturn(output);
+
+        graph.doPng(unconditional, content);
+
+        verify(content).setContentType("image/png");
+        verify(output).write(graph.getRenderedGraph(500, 200, 1.0).getPng());
+        assertEquals("Graph rendered more than once", 1, graph.count);
+    }
+
+    /**
+     * Verifies that the date of the last build is ignored if the entity tag of the request does not match, e.g.
+     * after the configuration of the graph has been changed.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldIgnoreModificationDateIfEntityTagDoesNotMatch() throws IOException {
+        CountingGraph graph = new CountingGraph(new GraphCache(1000000), 1000L);
+        assertFalse("Same entity tag for different sizes", graph.getETag(500, 200, 1.0).equals(
+                graph.getETag(400, 200, 1.0)));
+
+        StaplerRequest request = mock(StaplerRequest.class);
+        when(request.getHeader("If-None-Match")).thenReturn("\"outdated\"");
+        when(request.checkIfModified(anyLong(), any(StaplerResponse.class))).thenReturn(true);
+        StaplerResponse response = mock(StaplerResponse.class);
+        ServletOutputStream output = mock(ServletOutputStream.class);
+        when(response.getOutputStream()).thenReturn(output);
+
+        graph.doPng(request, response);
+
+        verify(request, never()).checkIfModified(anyLong(), any(StaplerResponse.class));
+        verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response).setContentType("image/png");
+        assertEquals("Graph not rendered", 1, graph.count);
+    }
+
+    /**
+     * Verifies that incomplete graphs are not tagged.
+     *
+     * @throws IOException
+     *             should not happen
+     */
+    @Test
+    public void shouldNotTagIncompleteGraphs() throws IOException {
+        CountingGraph graph = new CountingGraph(new GraphCache(1000000));
+        graph.isComplete = false;
+
+        StaplerRequest request = mock(StaplerRequest.class);
+        when(request.getHeader("If-None-Match")).thenReturn(graph.getETag(500, 200, 1.0));
+        StaplerResponse response = mock(StaplerResponse.class);
+        ServletOutputStream output = mock(ServletOutputStream.class);
+        when(response.getOutputStream()).thenReturn(output);
+
+        graph.doPng(request, response);
+
+        verify(response, never()).setHeader(eq("ETag"), anyString());
+        verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals("Graph not rendered", 1, graph.count);
+    }
+
+    /**
+     * A graph that counts the number of created charts.
+     */
+    private static class CountingGraph extends CachedGraph {
+        private int count;
+        private boolean isComplete = true;
+
+        CountingGraph(final GraphCache cache) {
+            this(cache, -1);
+        }
+
+        CountingGraph(final GraphCache cache, final long timestamp) {
+            super(cache, KEY, timestamp, 500, 200);
+        }
+
+        @Override
+        protected JFreeChart createGraph() {
+            count++;
+
+            DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+            for (int build = 1; build <= 10; build++) {
+                dataset.addValue(build * 2, "warnings", Integer.valueOf(build));
+            }
+            return ChartFactory.createLineChart(null, null, null, dataset, PlotOrientation.VERTICAL, false, true, false);
+        }
+
+        @Override
+        protected boolean isComplete() {
+            return isComplete;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package hudson.plugins.analysis.graph;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the latency of a trend graph request (PNG image and image map) with a cold and a warm
+ * {@link GraphCache}. The cold request creates the chart of the builds and renders it, the warm request is answered
+ * from the cache. Run with {@link #main(String[])} and -Djava.awt.headless=true.
+ */
+// CHECKSTYLE:OFF
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GraphRenderingBenchmark {
+    private static final int WIDTH = 500;
+    private static final int HEIGHT = 200;
+
+    @Param({"50", "500"})
+    private int builds;
+
+    private TrendGraph warm;
+
+    @Setup(Level.Trial)
+    public void renderWarmGraph() throws IOException {
+        warm = new TrendGraph(new GraphCache(Long.MAX_VALUE), builds);
+        warm.getRenderedGraph(WIDTH, HEIGHT, 1.0);
+    }
+
+    @Benchmark
+    public RenderedGraph coldCache() throws IOException {
+        return new TrendGraph(new GraphCache(Long.MAX_VALUE), builds).getRenderedGraph(WIDTH, HEIGHT, 1.0);
+    }
+
+    @Benchmark
+    public RenderedGraph warmCache() throws IOException {
+        return warm.getRenderedGraph(WIDTH, HEIGHT, 1.0);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(GraphRenderingBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * A stacked area chart of warnings per priority.
+     */
+    private static class TrendGraph extends CachedGraph {
+        private final int builds;
+
+        TrendGraph(final GraphCache cache, final int builds) {
+            super(cache, GraphCache.createKey("job", "PRIORITY", "", "", builds), -1, WIDTH, HEIGHT);
+
+            this.builds = builds;
+        }
+
+        @Override
+        protected JFreeChart createGraph() {
+            DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+            for (int build = 1; build <= builds; build++) {
+                dataset.addValue(build % 7, "high", Integer.valueOf(build));
+                dataset.addValue(build % 13, "normal", Integer.valueOf(build));
+                dataset.addValue(build % 29, "low", Integer.valueOf(build));
+            }
+            return ChartFactory.createStackedAreaChart(null, null, null, dataset, PlotOrientation.VERTICAL, false,
+                    true, false);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package hudson.plugins.analysis.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.net.URISyntaxException;
+
+import org.junit.Test;
+
+/**
+ * Tests the class {@link ContextHashCode}.
+ */
+public class ContextHashCodeTest {
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * Verifies that the hash codes of several lines of a file are the same as the hash codes of each individual
+     * line, even for lines at the start, the end, or outside of the file.
+     *
+     * @throws URISyntaxException
+     *             if the file name of the test resource could not be resolved
+     */
+    @Test
+    public void shouldComputeSameHashCodesForAllLinesOfFile() throws URISyntaxException {
+        String fileName = new File(ContextHashCodeTest.class.getResource("build.xml").toURI()).getAbsolutePath();
+        int[] lines = {-10, 0, 1, 2, 3, 4, 5, 100, 99, 100, 500, 793, 796, 797, 798, 801, 802, 5000};
+
+        ContextHashCode contextHashCode = new ContextHashCode();
+        int[] hashCodes = contextHashCode.compute(fileName, lines, ENCODING);
+
+        assertEquals("Wrong number of hash codes", lines.length, hashCodes.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals("Wrong hash code for line " + lines[i],
+                    contextHashCode.compute(fileName, lines[i], ENCODING), hashCodes[i]);
+        }
+    }
+
+    /**
+     * Verifies that the hash code of the file name is used if the file does not exist.
+     */
+    @Test
+    public void shouldUseFileNameIfFileDoesNotExist() {
+        String fileName = "/does/not/exist.txt";
+
+        int[] hashCodes = new ContextHashCode().compute(fileName, new int[] {1, 2}, ENCODING);
+
+        assertArrayEquals("Wrong hash codes", new int[] {fileName.hashCode(), fileName.hashCode()}, hashCodes);
+    }
+}
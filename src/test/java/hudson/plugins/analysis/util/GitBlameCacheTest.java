@@ -0,0 +1,87 @@
+package hudson.plugins.analysis.util;
+
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.plugins.analysis.util.GitBlameCache.FileBlame;
+import hudson.plugins.analysis.util.GitBlameCache.Origin;
+
+/**
+ * Tests the class {@link GitBlameCache}.
+ */
+public class GitBlameCacheTest {
+    private static final String REPOSITORY = "git://origin";
+    private static final String PATH = "src/A.java";
+    private static final ObjectId BLOB = ObjectId.fromString("0123456789012345678901234567890123456789");
+    private static final ObjectId CHANGED_BLOB = ObjectId.fromString("9876543210987654321098765432109876543210");
+
+    /**
+     * Verifies that cached results are found only for the same repository, path and blob.
+     */
+    @Test
+    public void shouldFindResultsOfUnchangedBlobs() {
+        GitBlameCache cache = new GitBlameCache(10);
+        FileBlame blame = createBlame();
+        cache.put(REPOSITORY, PATH, BLOB, blame);
+
+        assertSame("Wrong cached result", blame, cache.get(REPOSITORY, PATH, BLOB));
+        assertNull("Changed blob found", cache.get(REPOSITORY, PATH, CHANGED_BLOB));
+        assertNull("Other path found", cache.get(REPOSITORY, "src/B.java", BLOB));
+        assertNull("Other repository found", cache.get("git://fork", PATH, BLOB));
+    }
+
+    /**
+     * Verifies that the least recently used entries are evicted.
+     */
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntries() {
+        GitBlameCache cache = new GitBlameCache(2);
+        FileBlame blame = createBlame();
+        cache.put(REPOSITORY, "1", BLOB, blame);
+        cache.put(REPOSITORY, "2", BLOB, blame);
+        cache.get(REPOSITORY, "1", BLOB);
+        cache.put(REPOSITORY, "3", BLOB, blame);
+
+        assertEquals("Wrong size", 2, cache.size());
+        assertNotNull("Recently used entry evicted", cache.get(REPOSITORY, "1", BLOB));
+        assertNull("Eldest entry not evicted", cache.get(REPOSITORY, "2", BLOB));
+        assertNotNull("New entry evicted", cache.get(REPOSITORY, "3", BLOB));
+    }
+
+    /**
+     * Verifies that the lines of the same commit and author share the same origin.
+     */
+    @Test
+    public void shouldShareOriginsOfLines() {
+        FileBlame blame = createBlame();
+
+        assertEquals("Wrong number of lines", 3, blame.size());
+        assertSame("Origin not shared", blame.getOrigin(0), blame.getOrigin(2));
+        assertEquals("Wrong name", "Ulli", blame.getOrigin(0).getName());
+        assertEquals("Wrong email", "ulli@example.com", blame.getOrigin(0).getEmail());
+        assertTrue("Author not found", blame.getOrigin(0).hasAuthor());
+
+        Origin uncommitted = blame.getOrigin(1);
+        assertFalse("Author found", uncommitted.hasAuthor());
+        assertNull("Commit found", uncommitted.getCommit());
+    }
+
+    private FileBlame createBlame() {
+        RawText contents = mock(RawText.class);
+        when(contents.size()).thenReturn(3);
+
+        PersonIdent author = new PersonIdent("Ulli", "ulli@example.com");
+        BlameResult result = mock(BlameResult.class);
+        when(result.getResultContents()).thenReturn(contents);
+        when(result.getSourceAuthor(0)).thenReturn(author);
+        when(result.getSourceAuthor(2)).thenReturn(author);
+
+        return FileBlame.of(result);
+    }
+}
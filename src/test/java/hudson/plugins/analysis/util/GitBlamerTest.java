@@ -0,0 +1,124 @@
+package hudson.plugins.analysis.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.jenkinsci.plugins.gitclient.GitClient;
+import org.jenkinsci.plugins.gitclient.RepositoryCallback;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.Maps;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import hudson.FilePath;
+import hudson.util.StreamTaskListener;
+
+/**
+ * Tests the class {@link GitBlamer}.
+ */
+public class GitBlamerTest {
+    private static final String ALICE = "Alice";
+    private static final String BOB = "Bob";
+
+    /** Temporary folder for the repository. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that blaming the files in parallel produces the same results as blaming the files one after another,
+     * and that the results of unchanged files are taken from the cache in subsequent builds.
+     *
+     * @throws Exception
+     *             if the repository could not be created
+     */
+    @Test
+    public void shouldBlameFilesInParallel() throws Exception {
+        File root = folder.getRoot();
+        Git repository = Git.init().setDirectory(root).call();
+        try {
+            FileUtils.writeStringToFile(new File(root, "A.java"), "a1\na2\n");
+            FileUtils.writeStringToFile(new File(root, "B.java"), "b1\n");
+            FileUtils.writeStringToFile(new File(root, "C.java"), "c1\n");
+            commit(repository, ALICE);
+            FileUtils.writeStringToFile(new File(root, "A.java"), "a1\na2\na3\n");
+            FileUtils.writeStringToFile(new File(root, "C.java"), "c2\n");
+            String head = commit(repository, BOB);
+
+            ByteArrayOutputStream log = new ByteArrayOutputStream();
+            GitClient git = createClient(repository);
+
+            Map<String, BlameRequest> parallel = new GitBlamer(git, head, new StreamTaskListener(log), 4)
+                    .blame(createRequests());
+            verifyBlames(parallel, head);
+            assertTrue("Cache used: " + log, log.toString().contains("0 hits, 3 misses"));
+
+            Map<String, BlameRequest> sequential = new GitBlamer(git, head, new StreamTaskListener(log), 1)
+                    .blame(createRequests());
+            verifyBlames(sequential, head);
+            assertTrue("Cache not used: " + log, log.toString().contains("3 hits, 0 misses"));
+        }
+        finally {
+            repository.close();
+        }
+    }
+
+    private void verifyBlames(final Map<String, BlameRequest> blames, final String head) {
+        verifyAuthor(blames.get("A.java"), 1, ALICE);
+        verifyAuthor(blames.get("A.java"), 3, BOB);
+        verifyAuthor(blames.get("B.java"), 1, ALICE);
+        verifyAuthor(blames.get("C.java"), 1, BOB);
+
+        assertEquals("Wrong commit", head, blames.get("C.java").getCommit(1));
+    }
+
+    private void verifyAuthor(final BlameRequest request, final int line, final String author) {
+        assertEquals("Wrong author of " + request, author, request.getName(line));
+        assertEquals("Wrong email of " + request, author + "@example.com", request.getEmail(line));
+    }
+
+    private Map<String, BlameRequest> createRequests() {
+        Map<String, BlameRequest> requests = Maps.newHashMap();
+        BlameRequest request = new BlameRequest("A.java", 1);
+        request.addLineNumber(3);
+        requests.put("A.java", request);
+        requests.put("B.java", new BlameRequest("B.java", 1));
+        requests.put("C.java", new BlameRequest("C.java", 1));
+        return requests;
+    }
+
+    private String commit(final Git repository, final String author) throws Exception {
+        repository.add().addFilepattern(".").call();
+        return repository.commit().setAuthor(author, author + "@example.com").setMessage(author).call().getName();
+    }
+
+    @SuppressWarnings("unchecked")
+    private GitClient createClient(final Git repository) throws Exception {
+        GitClient git = mock(GitClient.class);
+        when(git.getWorkTree()).thenReturn(new FilePath(folder.getRoot()));
+        when(git.revParse(anyString())).thenAnswer(new Answer<ObjectId>() {
+            @Override
+            public ObjectId answer(final InvocationOnMock invocation) throws Throwable {
+                return repository.getRepository().resolve((String) invocation.getArguments()[0]);
+            }
+        });
+        when(git.withRepository(any(RepositoryCallback.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                RepositoryCallback<?> callback = (RepositoryCallback<?>) invocation.getArguments()[0];
+                return callback.invoke(repository.getRepository(), null);
+            }
+        });
+        return git;
+    }
+}
@@ -2,10 +2,15 @@ package hudson.plugins.analysis.util;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.anyObject;
@@ -33,6 +38,10 @@ public class ModuleDetectorTest {
     private static final String EXPECTED_MAVEN_MODULE = "ADT Business Logic";
     private static final String EXPECTED_ANT_MODULE = "checkstyle";
 
+    /** Temporary workspace for the persisted module names. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private ModuleDetector createDetectorUnderTest(final String fileName, final String[] workspaceScanResult) throws FileNotFoundException {
         return createDetectorUnderTest(createFactoryMock(fileName, workspaceScanResult));
     }
@@ -269,4 +278,76 @@ public class ModuleDetectorTest {
         assertEquals("Wrong module guessed", EXPECTED_OSGI_MODULE,
                 detector.guessModuleName(prefix + "/something.txt"));
     }
+
+    /**
+     * Checks whether the trie finds the longest prefix, even if the prefix does not end with a slash.
+     */
+    @Test
+    public void shouldFindLongestPrefix() {
+        ModuleDetector.PrefixTrie trie = new ModuleDetector.PrefixTrie();
+        trie.add("/ws/", "root");
+        trie.add("/ws/module/", "module");
+        trie.add("/ws/module/sub", "sub");
+        trie.add("/ws/module/sub/deep/", "deep");
+
+        assertEquals("Wrong prefix", "root", trie.findLongestPrefix("/ws/other/File.java"));
+        assertEquals("Wrong prefix", "module", trie.findLongestPrefix("/ws/module/File.java"));
+        assertEquals("Wrong prefix", "sub", trie.findLongestPrefix("/ws/module/sub/File.java"));
+        assertEquals("Wrong prefix", "sub", trie.findLongestPrefix("/ws/module/subfolder/File.java"));
+        assertEquals("Wrong prefix", "deep", trie.findLongestPrefix("/ws/module/sub/deep/a/File.java"));
+        assertEquals("Wrong prefix", StringUtils.EMPTY, trie.findLongestPrefix("/other/File.java"));
+    }
+
+    /**
+     * Checks whether unchanged descriptors are not parsed again if the module names are cached.
+     *
+     * @throws FileNotFoundException
+     *             should never happen
+     */
+    @Test
+    public void shouldNotParseUnchangedDescriptorsAgain() throws FileNotFoundException {
+        String maven = PATH_PREFIX_MAVEN + ModuleDetector.MAVEN_POM;
+        ModuleMapCache cache = new ModuleMapCache();
+
+        FileInputStreamFactory factory = mock(FileInputStreamFactory.class);
+        when(factory.create(PREFIX + maven)).thenReturn(read(ModuleDetector.MAVEN_POM));
+        when(factory.find((File)anyObject(), anyString())).thenReturn(new String[] {maven});
+        verifyModuleName(new ModuleDetector(ROOT, factory, cache), EXPECTED_MAVEN_MODULE, PATH_PREFIX_MAVEN + "/a.txt");
+        verify(factory).create(PREFIX + maven);
+        assertEquals("Wrong number of cached modules", 1, cache.size());
+
+        FileInputStreamFactory cached = mock(FileInputStreamFactory.class);
+        when(cached.find((File)anyObject(), anyString())).thenReturn(new String[] {maven});
+        verifyModuleName(new ModuleDetector(ROOT, cached, cache), EXPECTED_MAVEN_MODULE, PATH_PREFIX_MAVEN + "/a.txt");
+        verify(cached, never()).create(anyString());
+    }
+
+    /**
+     * Checks whether the module names are persisted as text and whether a corrupted file is ignored.
+     *
+     * @throws IOException
+     *             if the workspace could not be created
+     */
+    @Test
+    public void shouldPersistModuleNamesAsText() throws IOException {
+        File workspace = folder.newFolder("workspace");
+        String descriptor = new File(workspace, ModuleDetector.MAVEN_POM).getAbsolutePath();
+
+        ModuleMapCache cache = ModuleMapCache.get(workspace, true);
+        cache.put(descriptor, "1:2;", EXPECTED_MAVEN_MODULE);
+        cache.store(workspace, Collections.singleton(descriptor), true);
+
+        assertEquals("Wrong persisted module names",
+                "module-map 1\n" + descriptor + "\t1:2;\t" + EXPECTED_MAVEN_MODULE + "\n",
+                FileUtils.readFileToString(ModuleMapCache.getCacheFile(workspace), "UTF-8"));
+        assertEquals("Wrong cached module name", EXPECTED_MAVEN_MODULE,
+                ModuleMapCache.get(workspace, true).get(descriptor, "1:2;"));
+
+        File corrupted = folder.newFolder("corrupted");
+        File file = ModuleMapCache.getCacheFile(corrupted);
+        assertTrue("Can't create folder", file.getParentFile().mkdirs());
+        FileUtils.writeStringToFile(file, "module-map 1\n" + descriptor + "\n");
+
+        assertEquals("Corrupted file read", 0, ModuleMapCache.get(corrupted, true).size());
+    }
 }
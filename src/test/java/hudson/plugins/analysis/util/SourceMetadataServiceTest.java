@@ -0,0 +1,143 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the classes {@link SourceMetadataService} and {@link SourceMetadata}.
+ */
+public class SourceMetadataServiceTest {
+    private static final String ENCODING = "UTF-8";
+
+    /** Temporary folder for the source files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the context hash codes of the line index are the same as the hash codes that are computed by
+     * reading the lines of the file.
+     *
+     * @throws URISyntaxException
+     *             if the file name of the test resource could not be resolved
+     */
+    @Test
+    public void shouldComputeSameContextHashCodesAsContextHashCode() throws URISyntaxException {
+        String fileName = new File(SourceMetadataServiceTest.class.getResource("build.xml").toURI()).getAbsolutePath();
+        int[] lines = {-10, 0, 1, 2, 3, 4, 5, 100, 99, 500, 793, 796, 797, 798, 801, 802, 5000};
+
+        int[] hashCodes = new SourceMetadataService(ENCODING).getContextHashCodes(fileName, lines);
+
+        ContextHashCode contextHashCode = new ContextHashCode();
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals("Wrong hash code for line " + lines[i],
+                    contextHashCode.compute(fileName, lines[i], ENCODING), hashCodes[i]);
+        }
+    }
+
+    /**
+     * Verifies that the package name is detected in the same pass and that the metadata is read again only if the
+     * file has been changed.
+     *
+     * @throws IOException
+     *             if the file could not be written
+     */
+    @Test
+    public void shouldDetectPackageNameAndCacheMetadata() throws IOException {
+        File source = folder.newFile("Source.java");
+        FileUtils.writeStringToFile(source, "/* header */\npackage hudson.plugins.analysis;\n\nclass Source {}\n", ENCODING);
+        String fileName = source.getAbsolutePath();
+
+        SourceMetadataService service = new SourceMetadataService(ENCODING);
+        SourceMetadata metadata = service.get(fileName);
+
+        assertNotNull("No metadata", metadata);
+        assertEquals("Wrong package", "hudson.plugins.analysis", metadata.getPackageName());
+        assertEquals("Wrong number of lines", 4, metadata.getNumberOfLines());
+        assertSame("Metadata not cached", metadata, new SourceMetadataService(ENCODING).get(fileName));
+        assertEquals("Wrong package", "hudson.plugins.analysis", PackageDetectors.detectPackageName(fileName, ENCODING));
+
+        FileUtils.writeStringToFile(source, "package hudson.plugins;\n", ENCODING);
+        assertEquals("Changed file not read again", "hudson.plugins", service.getPackageName(fileName));
+    }
+
+    /**
+     * Verifies that a file is read only up to the package declaration or the context of the last warning.
+     *
+     * @throws IOException
+     *             if the file could not be written
+     */
+    @Test
+    public void shouldReadOnlyRequiredLines() throws IOException {
+        File source = folder.newFile("Partial.java");
+        StringBuilder content = new StringBuilder("/* header */\npackage hudson.plugins.analysis;\n");
+        for (int i = 0; i < 100; i++) {
+            content.append("// line ").append(i).append('\n');
+        }
+        FileUtils.writeStringToFile(source, content.toString(), ENCODING);
+        String fileName = source.getAbsolutePath();
+
+        SourceMetadataService service = new SourceMetadataService(ENCODING);
+        assertEquals("Wrong package", "hudson.plugins.analysis", service.getPackageName(fileName));
+        verifyCachedLines(service, fileName, 2, false);
+
+        int[] lines = {3, 10};
+        int[] hashCodes = service.getContextHashCodes(fileName, lines);
+        verifyCachedLines(service, fileName, 15, false);
+        ContextHashCode contextHashCode = new ContextHashCode();
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals("Wrong hash code for line " + lines[i],
+                    contextHashCode.compute(fileName, lines[i], ENCODING), hashCodes[i]);
+        }
+        assertEquals("Wrong package", "hudson.plugins.analysis", service.getPackageName(fileName));
+        verifyCachedLines(service, fileName, 15, false);
+
+        assertEquals("Wrong number of lines", 102, service.get(fileName).getNumberOfLines());
+        verifyCachedLines(service, fileName, 102, true);
+    }
+
+    private void verifyCachedLines(final SourceMetadataService service, final String fileName,
+            final int expectedLines, final boolean isComplete) {
+        SourceMetadata metadata = service.getCached(fileName);
+        assertNotNull("Metadata not cached", metadata);
+        assertEquals("Wrong number of indexed lines", expectedLines, metadata.getNumberOfLines());
+        assertEquals("Wrong completeness", isComplete, metadata.isComplete());
+    }
+
+    /**
+     * Verifies that C# namespaces are read using UTF-8 if no encoding has been specified.
+     *
+     * @throws IOException
+     *             if the file could not be written
+     */
+    @Test
+    public void shouldReadNamespacesUsingUtf8() throws IOException {
+        File source = folder.newFile("Source.cs");
+        FileUtils.writeStringToFile(source, "namespace \u00dcml\u00e4ute {\n}\n", ENCODING);
+
+        assertEquals("Wrong namespace", "\u00dcml\u00e4ute",
+                new SourceMetadataService(null).getPackageName(source.getAbsolutePath()));
+        assertEquals("Wrong namespace", "\u00dcml\u00e4ute", PackageDetectors.detectPackageName(source.getAbsolutePath()));
+    }
+
+    /**
+     * Verifies that files that do not exist have no metadata.
+     */
+    @Test
+    public void shouldUseFileNameIfFileDoesNotExist() {
+        String fileName = "/does/not/exist.java";
+        SourceMetadataService service = new SourceMetadataService(ENCODING);
+
+        assertNull("Metadata of missing file", service.get(fileName));
+        assertEquals("Wrong package", PackageDetectors.UNDEFINED_PACKAGE, service.getPackageName(fileName));
+        assertArrayEquals("Wrong hash codes", new int[] {fileName.hashCode()},
+                service.getContextHashCodes(fileName, new int[] {1}));
+    }
+}
@@ -0,0 +1,169 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.*;
+
+import hudson.FilePath;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+import hudson.plugins.analysis.util.model.WorkspaceFile;
+
+/**
+ * Tests the classes {@link SourceStore} and {@link Files}.
+ */
+public class SourceStoreTest {
+    private static final String ENCODING = "UTF-8";
+
+    /** Temporary folder for the workspace and the job. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that unchanged source files are stored only once for all builds of a job and that changed source
+     * files are resolved for each build using the manifest of the build.
+     *
+     * @throws Exception
+     *             if the files could not be copied
+     */
+    @Test
+    public void shouldStoreUnchangedFilesOnlyOnce() throws Exception {
+        File workspace = folder.newFolder("workspace");
+        File source = new File(workspace, "A.java");
+        FileUtils.writeStringToFile(source, "first", ENCODING);
+        File other = new File(workspace, "B.java");
+        FileUtils.writeStringToFile(other, "first", ENCODING);
+
+        File builds = folder.newFolder("job", "builds");
+        File first = copy(new File(builds, "1"), source, other);
+        FileUtils.writeStringToFile(source, "second", ENCODING);
+        File second = copy(new File(builds, "2"), source, other);
+
+        File store = new File(folder.getRoot(), "job/" + SourceStore.STORE_DIRECTORY);
+        assertEquals("Wrong number of stored files", 2, FileUtils.listFiles(store, null, true).size());
+
+        verifyContent(first, source, "first");
+        verifyContent(first, other, "first");
+        verifyContent(second, source, "second");
+        verifyContent(second, other, "first");
+
+        assertNull("File of other build found", SourceStore.getSourceFile(new File(builds, "3"), getTempName(source)));
+    }
+
+    /**
+     * Verifies that source files that can't be read are reported in the build folder.
+     *
+     * @throws Exception
+     *             if the files could not be copied
+     */
+    @Test
+    public void shouldReportMissingFiles() throws Exception {
+        File missing = new File(folder.getRoot(), "Missing.java");
+        File build = copy(new File(folder.newFolder("job", "builds"), "1"), missing);
+
+        assertNull("Missing file found", SourceStore.getSourceFile(build, getTempName(missing)));
+        File error = new File(build, AbstractAnnotation.WORKSPACE_FILES + "/" + getTempName(missing));
+        assertTrue("No error message", FileUtils.readFileToString(error, ENCODING).contains(missing.getPath()));
+    }
+
+    /**
+     * Verifies that the source files of a build can be copied to another job.
+     *
+     * @throws Exception
+     *             if the files could not be copied
+     */
+    @Test
+    public void shouldCopyFilesToOtherJob() throws Exception {
+        File source = folder.newFile("A.java");
+        FileUtils.writeStringToFile(source, "module", ENCODING);
+        File module = copy(new File(folder.newFolder("module", "builds"), "1"), source);
+
+        File parent = new File(folder.newFolder("parent", "builds"), "1");
+        SourceStore.copy(module, parent);
+
+        verifyContent(parent, source, "module");
+    }
+
+    /**
+     * Verifies that the stored contents of a deleted build are removed if they are not referenced by another build.
+     *
+     * @throws Exception
+     *             if the files could not be copied
+     */
+    @Test
+    public void shouldRemoveUnsharedContentsOfDeletedBuild() throws Exception {
+        File workspace = folder.newFolder("workspace");
+        File shared = new File(workspace, "A.java");
+        FileUtils.writeStringToFile(shared, "shared", ENCODING);
+        File changed = new File(workspace, "B.java");
+        FileUtils.writeStringToFile(changed, "first", ENCODING);
+
+        File builds = folder.newFolder("job", "builds");
+        File first = copy(new File(builds, "1"), shared, changed);
+        FileUtils.writeStringToFile(changed, "second", ENCODING);
+        File second = copy(new File(builds, "2"), shared, changed);
+
+        File store = new File(folder.getRoot(), "job/" + SourceStore.STORE_DIRECTORY);
+        assertEquals("Wrong number of stored files", 3, FileUtils.listFiles(store, null, true).size());
+
+        File firstContent = SourceStore.getSourceFile(first, getTempName(changed));
+        assertEquals("Wrong number of removed files", 1, SourceStore.collectGarbage(first));
+        FileUtils.deleteDirectory(first);
+
+        assertFalse("Unshared file not removed", firstContent.exists());
+        assertEquals("Wrong number of stored files", 2, FileUtils.listFiles(store, null, true).size());
+        verifyContent(second, shared, "shared");
+        verifyContent(second, changed, "second");
+
+        assertEquals("Wrong number of removed files", 2, SourceStore.collectGarbage(second));
+        assertEquals("Stored files not removed", 0, FileUtils.listFiles(store, null, true).size());
+    }
+
+    private void verifyContent(final File build, final File source, final String expected) throws IOException {
+        File stored = SourceStore.getSourceFile(build, getTempName(source));
+        assertNotNull("No stored file for " + source, stored);
+        assertEquals("Wrong content", expected, FileUtils.readFileToString(stored, ENCODING));
+    }
+
+    private String getTempName(final File source) {
+        return new WorkspaceFile(source.getPath()).getTempName();
+    }
+
+    private File copy(final File build, final File... sources) throws IOException, InterruptedException {
+        List<FileAnnotation> annotations = Lists.newArrayList();
+        for (File source : sources) {
+            Warning warning = new Warning();
+            warning.setFileName(source.getPath());
+            annotations.add(warning);
+        }
+        new Files().copyFilesWithAnnotationsToBuildFolder(new FilePath(build), annotations, ENCODING);
+        return build;
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = -2470513693950925467L;
+
+        Warning() {
+            super(Priority.NORMAL, "message", 1, 1, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Sets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the classes {@link WorkspaceFileIndex} and {@link RelativePathResolver}.
+ */
+public class WorkspaceFileIndexTest {
+    /** Temporary workspace. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that only files matching the include pattern are indexed and that version control folders are
+     * skipped.
+     *
+     * @throws IOException
+     *             if the files could not be created
+     */
+    @Test
+    public void shouldIndexMatchingFiles() throws IOException {
+        File workspace = createWorkspace();
+
+        WorkspaceFileIndex all = new WorkspaceFileIndex(workspace, WorkspaceFileIndex.ALL_FILES);
+        assertEquals("Wrong number of files", 4, all.size());
+        assertEquals("Wrong files", Sets.newHashSet("a/src/Foo.java", "b/src/Foo.java"),
+                Sets.newHashSet(all.getFiles("Foo.java")));
+
+        WorkspaceFileIndex javaFiles = new WorkspaceFileIndex(workspace, "**/*.java, doc/");
+        assertEquals("Wrong number of files", 4, javaFiles.size());
+
+        WorkspaceFileIndex module = new WorkspaceFileIndex(workspace, "a/**/*.java");
+        assertEquals("Wrong files", Arrays.asList("a/src/Foo.java"), Arrays.asList(module.getFiles("Foo.java").toArray()));
+        assertTrue("Other module indexed", module.getFiles("Bar.java").isEmpty());
+    }
+
+    /**
+     * Verifies that relative file names are only resolved if there is a unique match.
+     */
+    @Test
+    public void shouldResolveUniqueMatches() {
+        WorkspaceFileIndex index = WorkspaceFileIndex.of("a/src/Foo.java", "b/src/Foo.java", "b/src/Bar.java");
+
+        assertEquals("Wrong match", "a/src/Foo.java", index.resolve("a/src/Foo.java"));
+        assertEquals("Wrong match", "b/src/Foo.java", index.resolve("../b/src/Foo.java"));
+        assertEquals("Wrong match", "b/src/Bar.java", index.resolve("Bar.java"));
+        assertNull("Ambiguous match", index.resolve("src/Foo.java"));
+        assertNull("No match", index.resolve("c/Bar.java"));
+        assertNull("No such file", index.resolve("Baz.java"));
+    }
+
+    /**
+     * Verifies that a cached index is invalidated if a folder of the workspace changes.
+     *
+     * @throws IOException
+     *             if the files could not be created
+     */
+    @Test
+    public void shouldInvalidateIndexIfFolderChanges() throws IOException {
+        File workspace = createWorkspace();
+
+        WorkspaceFileIndex index = WorkspaceFileIndex.get(workspace, null, true);
+        assertTrue("Index is not valid", index.isValid(workspace, WorkspaceFileIndex.ALL_FILES));
+        assertFalse("Index is valid for other pattern", index.isValid(workspace, "**/*.java"));
+        assertTrue("Index not persisted", new File(folder.getRoot(), "workspace@tmp/"
+                + WorkspaceFileIndex.INDEX_FILE_NAME).isFile());
+
+        File source = new File(workspace, "b/src");
+        assertTrue("Can't create file", new File(source, "Baz.java").createNewFile());
+        assertTrue("Can't change time stamp", source.setLastModified(source.lastModified() - 10000));
+
+        assertFalse("Index is still valid", index.isValid(workspace, WorkspaceFileIndex.ALL_FILES));
+        assertEquals("Wrong match", "b/src/Baz.java",
+                WorkspaceFileIndex.get(workspace, WorkspaceFileIndex.ALL_FILES, true).resolve("Baz.java"));
+    }
+
+    /**
+     * Verifies that a symbolic link to a parent directory does not create an endless loop.
+     *
+     * @throws IOException
+     *             if the files could not be created
+     */
+    @Test(timeout = 10000)
+    public void shouldScanDirectoriesOfSymbolicLinksOnlyOnce() throws IOException {
+        File workspace = createWorkspace();
+        try {
+            java.nio.file.Files.createSymbolicLink(new File(workspace, "a/src/loop").toPath(),
+                    workspace.toPath());
+        }
+        catch (UnsupportedOperationException exception) {
+            Assume.assumeNoException(exception);
+        }
+
+        WorkspaceFileIndex index = new WorkspaceFileIndex(workspace, WorkspaceFileIndex.ALL_FILES);
+
+        assertEquals("Wrong number of files", 4, index.size());
+    }
+
+    /**
+     * Verifies that a persisted index with an unknown format is ignored and replaced by a new index.
+     *
+     * @throws IOException
+     *             if the files could not be created
+     */
+    @Test
+    public void shouldIgnoreCorruptedIndexFile() throws IOException {
+        File workspace = createWorkspace();
+        File indexFile = WorkspaceFileIndex.getIndexFile(workspace);
+        assertTrue("Can't create folder", indexFile.getParentFile().mkdirs());
+        FileUtils.writeStringToFile(indexFile, "garbage\n");
+
+        WorkspaceFileIndex index = WorkspaceFileIndex.get(workspace, "**/*.java", true);
+
+        assertEquals("Wrong number of files", 3, index.size());
+        assertTrue("Index not replaced", FileUtils.readFileToString(indexFile).startsWith("workspace-index 1\n"));
+    }
+
+    /**
+     * Verifies that all relative file names are resolved with a single call.
+     *
+     * @throws IOException
+     *             if the files could not be created
+     */
+    @Test
+    public void shouldResolveRelativePaths() throws IOException {
+        File workspace = createWorkspace();
+        String root = workspace.getPath();
+
+        Map<String, String> resolved = new RelativePathResolver(
+                Arrays.asList("a/src/Foo.java", "Bar.java", "Foo.java", "Baz.java"), true, null, false)
+                .invoke(workspace, null);
+
+        assertEquals("Wrong number of file names", 4, resolved.size());
+        assertEquals("Wrong existing file", new File(root, "a/src/Foo.java").getPath(),
+                new File(resolved.get("a/src/Foo.java")).getPath());
+        assertEquals("Wrong indexed file", root + "/b/src/Bar.java", resolved.get("Bar.java"));
+        assertNull("Ambiguous file resolved", resolved.get("Foo.java"));
+        assertNull("Missing file resolved", resolved.get("Baz.java"));
+
+        Map<String, String> existingOnly = new RelativePathResolver(Arrays.asList("Bar.java"), false, null, false)
+                .invoke(workspace, null);
+        assertTrue("File name missing", existingOnly.containsKey("Bar.java"));
+        assertNull("Workspace has been scanned", existingOnly.get("Bar.java"));
+    }
+
+    private File createWorkspace() throws IOException {
+        File workspace = folder.newFolder("workspace");
+        createFile(workspace, "a/src/Foo.java");
+        createFile(workspace, "b/src/Foo.java");
+        createFile(workspace, "b/src/Bar.java");
+        createFile(workspace, "doc/readme.txt");
+        createFile(workspace, ".git/config");
+        return workspace;
+    }
+
+    private void createFile(final File workspace, final String fileName) throws IOException {
+        File file = new File(workspace, fileName);
+        assertTrue("Can't create folder", file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+        assertTrue("Can't create file", file.createNewFile());
+    }
+}
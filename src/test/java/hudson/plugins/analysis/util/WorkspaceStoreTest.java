@@ -0,0 +1,109 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link WorkspaceStore}.
+ */
+public class WorkspaceStoreTest {
+    private static final String HEADER = "test 1";
+
+    /** Temporary workspace. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that fields with separators, line breaks and backslashes are persisted and read again.
+     *
+     * @throws IOException
+     *             if the workspace could not be created
+     */
+    @Test
+    public void shouldPersistEscapedFields() throws IOException {
+        File workspace = folder.newFolder("workspace");
+        List<String> values = Lists.newArrayList("plain", "with\ttab", "with\nnew line\r", "back\\slash\\t", "");
+
+        new WorkspaceStore<List<String>>("store.txt", HEADER, new ListFormat()).save(workspace, values);
+
+        WorkspaceStore<List<String>> store = new WorkspaceStore<List<String>>("store.txt", HEADER, new ListFormat());
+        assertEquals("Wrong values", values, store.get(workspace, true));
+        assertNull("Persisted values read", store.get(workspace, false));
+    }
+
+    /**
+     * Verifies that files with another header or with corrupted records are ignored.
+     *
+     * @throws IOException
+     *             if the workspace could not be created
+     */
+    @Test
+    public void shouldIgnoreFilesOfOtherFormat() throws IOException {
+        File workspace = folder.newFolder("workspace");
+        WorkspaceStore<List<String>> store = new WorkspaceStore<List<String>>("store.txt", HEADER, new ListFormat());
+        File file = store.getFile(workspace);
+        assertTrue("Can't create folder", file.getParentFile().mkdirs());
+
+        FileUtils.writeStringToFile(file, "test 2\nvalue\tvalue\n");
+        assertNull("File of other version read", store.get(workspace, true));
+
+        FileUtils.writeStringToFile(file, HEADER + "\nvalue\tvalue\n");
+        assertNull("Corrupted file read", store.get(workspace, true));
+    }
+
+    /**
+     * Verifies that only the most recently used workspaces are kept in memory.
+     *
+     * @throws IOException
+     *             if the workspaces could not be created
+     */
+    @Test
+    public void shouldBoundNumberOfWorkspaces() throws IOException {
+        WorkspaceStore<List<String>> store = new WorkspaceStore<List<String>>("store.txt", HEADER, new ListFormat(), 2);
+        File first = folder.newFolder("first");
+        File second = folder.newFolder("second");
+        File third = folder.newFolder("third");
+
+        store.put(first, Lists.newArrayList("1"));
+        store.put(second, Lists.newArrayList("2"));
+        assertNotNull("First workspace removed", store.get(first, false));
+
+        store.put(third, Lists.newArrayList("3"));
+
+        assertEquals("Wrong number of workspaces", 2, store.size());
+        assertNull("Second workspace not removed", store.get(second, false));
+        assertNotNull("First workspace removed", store.get(first, false));
+        assertNotNull("Third workspace removed", store.get(third, false));
+    }
+
+    /**
+     * Stores each value of a list in a record with one field.
+     */
+    private static class ListFormat implements WorkspaceStore.Format<List<String>> {
+        @Override
+        public void write(final List<String> values, final WorkspaceStore.RecordWriter writer) throws IOException {
+            for (String value : values) {
+                writer.write(value);
+            }
+        }
+
+        @Override
+        public List<String> read(final WorkspaceStore.RecordReader reader) throws IOException {
+            List<String> values = Lists.newArrayList();
+            for (String[] record = reader.read(1); record != null; record = reader.read(1)) {
+                values.add(record[0]);
+            }
+            return values;
+        }
+    }
+}
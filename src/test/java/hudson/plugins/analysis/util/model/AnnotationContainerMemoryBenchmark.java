@@ -0,0 +1,160 @@
+package hudson.plugins.analysis.util.model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Reports the retained heap of a large {@link JavaProject}. The project is measured right after loading, after all
+ * sub-containers (modules, packages, files and authors) have been visited, and compared with independent copies of
+ * all sub-containers that own their annotations (which has been the layout of previous releases). Run with
+ * {@link #main(String[])}, preferably with a fixed heap size (e.g., -Xms2g -Xmx2g). The measured sizes are returned
+ * by {@link #measure()} and printed by {@link #main(String[])}.
+ */
+// CHECKSTYLE:OFF
+public class AnnotationContainerMemoryBenchmark {
+    private static final int ANNOTATIONS = 100000;
+    private static final int MODULES = 20;
+    private static final int PACKAGES = 500;
+    private static final int FILES = 20000;
+    private static final int AUTHORS = 50;
+
+    public static void main(final String[] args) {
+        for (Map.Entry<String, Long> size : measure().entrySet()) {
+            System.out.println(String.format("%-40s %,15d bytes", size.getKey(), size.getValue()));
+        }
+    }
+
+    /**
+     * Measures the retained heap of the annotations, the project, the views, and the copies of the views.
+     *
+     * @return the retained heap in bytes, mapped by the label of the measurement
+     */
+    public static Map<String, Long> measure() {
+        Map<String, Long> sizes = Maps.newLinkedHashMap();
+        long empty = retainedHeap();
+
+        FileAnnotation[] annotations = createAnnotations();
+        long loaded = retainedHeap();
+        sizes.put("Annotations", loaded - empty);
+
+        JavaProject project = new JavaProject();
+        project.addAnnotations(annotations);
+        project.getNumberOfAnnotations(Priority.HIGH);
+        long indexed = retainedHeap();
+        sizes.put("Project", indexed - loaded);
+
+        int visited = visit(project);
+        long views = retainedHeap();
+        sizes.put("Project with " + visited + " views", views - loaded);
+
+        List<AnnotationContainer> copies = copy(project);
+        long copied = retainedHeap();
+        sizes.put(copies.size() + " independent sub-containers", copied - views);
+
+        // keeps the project and the copies reachable until all measurements are done
+        if (project.getNumberOfAnnotations() != ANNOTATIONS || copies.isEmpty()) {
+            throw new IllegalStateException("Project has not been created completely");
+        }
+        return sizes;
+    }
+
+    private static FileAnnotation[] createAnnotations() {
+        Random random = new Random(ANNOTATIONS);
+        FileAnnotation[] annotations = new FileAnnotation[ANNOTATIONS];
+        for (int i = 0; i < ANNOTATIONS; i++) {
+            int file = random.nextInt(FILES);
+            int module = file % MODULES;
+            Warning warning = new Warning(Priority.values()[random.nextInt(3)], "Category" + random.nextInt(10),
+                    random.nextInt(1000));
+            warning.setModuleName("module" + module);
+            warning.setPackageName("org.example.module" + module + ".package" + file % PACKAGES);
+            warning.setFileName("/workspace/module" + module + "/File" + file + ".java");
+            warning.setAuthorName("author" + random.nextInt(AUTHORS));
+            annotations[i] = warning;
+        }
+        return annotations;
+    }
+
+    private static int visit(final AnnotationContainer container) {
+        int visited = 1;
+        for (MavenModule module : container.getModules()) {
+            visited += visit(module);
+        }
+        for (JavaPackage javaPackage : container.getPackages()) {
+            visited += visit(javaPackage);
+        }
+        for (WorkspaceFile file : container.getFiles()) {
+            visited += visit(file);
+        }
+        for (Author author : container.getAuthors()) {
+            visited += visit(author);
+        }
+        return visited;
+    }
+
+    private static List<AnnotationContainer> copy(final AnnotationContainer container) {
+        List<AnnotationContainer> copies = Lists.newArrayList();
+        for (MavenModule module : container.getModules()) {
+            MavenModule copy = new MavenModule(module.getName());
+            copy.addAnnotations(module.getAnnotations());
+            copies.add(copy);
+            copies.addAll(copy(copy));
+        }
+        for (JavaPackage javaPackage : container.getPackages()) {
+            JavaPackage copy = new JavaPackage(javaPackage.getName());
+            copy.addAnnotations(javaPackage.getAnnotations());
+            copies.add(copy);
+            copies.addAll(copy(copy));
+        }
+        for (WorkspaceFile file : container.getFiles()) {
+            WorkspaceFile copy = new WorkspaceFile(file.getName());
+            copy.addAnnotations(file.getAnnotations());
+            copies.add(copy);
+            copies.addAll(copy(copy));
+        }
+        for (Author author : container.getAuthors()) {
+            Author copy = new Author(author.getName(), author.getDisplayName(), author.getFullName(), author.getEmail(),
+                    AnnotationContainer.Hierarchy.USER);
+            copy.addAnnotations(author.getAnnotations());
+            copy.getNumberOfAnnotations(Priority.HIGH);
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    private static long retainedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 2324212540217063409L;
+
+        Warning(final Priority priority, final String category, final int line) {
+            super(priority, "message", line, line, category, "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package hudson.plugins.analysis.util.model;
+
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link AnnotationContainer}.
+ */
+public class AnnotationContainerTest {
+    private static final String MODULE_A = "module-a";
+    private static final String MODULE_B = "module-b";
+    private static final String PACKAGE_A = "edu.hm.a";
+    private static final String PACKAGE_B = "edu.hm.b";
+    private static final String FILE_A = "/a/edu/hm/a/A.java";
+    private static final String FILE_B = "/a/edu/hm/b/B.java";
+    private static final String FILE_C = "/b/edu/hm/a/C.java";
+
+    /**
+     * Verifies that the modules, packages, files, authors, categories and types of a project contain the expected
+     * annotations.
+     */
+    @Test
+    public void shouldCreateSubContainers() {
+        Warning first = createWarning(Priority.HIGH, MODULE_A, PACKAGE_A, FILE_A, "category-1", "john");
+        Warning second = createWarning(Priority.NORMAL, MODULE_A, PACKAGE_A, FILE_A, "category-2", "jane");
+        Warning third = createWarning(Priority.LOW, MODULE_A, PACKAGE_B, FILE_B, "category-1", "john");
+        Warning fourth = createWarning(Priority.HIGH, MODULE_B, PACKAGE_A, FILE_C, "category-1", "john");
+
+        JavaProject project = new JavaProject();
+        project.addAnnotations(new FileAnnotation[] {first, second, third, fourth});
+
+        assertEquals("Wrong number of annotations", 4, project.getNumberOfAnnotations());
+        assertEquals("Wrong number of high annotations", 2, project.getNumberOfAnnotations(Priority.HIGH));
+        assertEquals("Wrong number of modules", 2, project.getModules().size());
+        assertEquals("Wrong number of packages", 2, project.getPackages().size());
+        assertEquals("Wrong number of files", 3, project.getFiles().size());
+        assertEquals("Wrong number of authors", 2, project.getAuthors().size());
+        assertEquals("Wrong number of categories", 2, project.getCategories().size());
+
+        MavenModule moduleA = project.getModule(MODULE_A);
+        verifyAnnotations(moduleA, first, second, third);
+        assertSame("Wrong module by hash code", moduleA, project.getModule(MODULE_A.hashCode()));
+        assertEquals("Wrong number of normal annotations", 1, moduleA.getNumberOfAnnotations(Priority.NORMAL));
+        assertTrue("Modules have no modules", moduleA.getModules().isEmpty());
+
+        JavaPackage packageA = moduleA.getPackage(PACKAGE_A);
+        verifyAnnotations(packageA, first, second);
+        assertSame("Wrong package by hash code", packageA, moduleA.getPackage(PACKAGE_A.hashCode()));
+        assertTrue("Packages have no packages", packageA.getPackages().isEmpty());
+
+        verifyAnnotations(project.getPackage(PACKAGE_A), first, second, fourth);
+        verifyAnnotations(packageA.getFile(FILE_A), first, second);
+        verifyAnnotations(project.getFile(FILE_B.hashCode()), third);
+        verifyAnnotations(project.getCategory("category-1"), first, third, fourth);
+        verifyAnnotations(moduleA.getCategory("category-1".hashCode()), first, third);
+        verifyAnnotations(project.getType("type"), first, second, third, fourth);
+        verifyAnnotations(packageA.getFile(FILE_A).getAuthor(second.getAuthor()), second);
+        verifyAnnotations(project.getAuthor(first.getAuthor().hashCode()), first, third, fourth);
+
+        assertSame("Wrong annotation", first, packageA.getAnnotation(first.getKey()));
+        try {
+            packageA.getAnnotation(third.getKey());
+            fail("Annotation of another package found");
+        }
+        catch (NoSuchElementException exception) {
+            // expected
+        }
+    }
+
+    /**
+     * Verifies that a sub-container can be modified without changing the parent.
+     */
+    @Test
+    public void shouldDetachModifiedSubContainer() {
+        Warning first = createWarning(Priority.HIGH, MODULE_A, PACKAGE_A, FILE_A, "category", "john");
+        Warning second = createWarning(Priority.NORMAL, MODULE_B, PACKAGE_B, FILE_B, "category", "john");
+        JavaProject project = new JavaProject();
+        project.addAnnotations(new FileAnnotation[] {first, second});
+
+        MavenModule module = project.getModule(MODULE_A);
+        module.addAnnotation(second);
+
+        verifyAnnotations(module, first, second);
+        assertEquals("Wrong number of packages", 2, module.getPackages().size());
+        verifyAnnotations(project.getModule(MODULE_A), first, second);
+        assertEquals("Project should not be changed", 2, project.getNumberOfAnnotations());
+        verifyAnnotations(project.getModule(MODULE_B), second);
+    }
+
+    /**
+     * Verifies that the sub-containers are updated if new annotations are added.
+     */
+    @Test
+    public void shouldUpdateSubContainersAfterAdding() {
+        JavaProject project = new JavaProject();
+        assertTrue("Empty project has modules", project.getModules().isEmpty());
+        assertFalse("Empty project has annotations", project.hasAnnotations());
+
+        Warning first = createWarning(Priority.HIGH, MODULE_A, PACKAGE_A, FILE_A, "category", "john");
+        project.addAnnotation(first);
+        verifyAnnotations(project.getModule(MODULE_A), first);
+
+        Warning second = createWarning(Priority.LOW, MODULE_A, PACKAGE_B, FILE_B, "category", "john");
+        project.addAnnotation(second);
+        verifyAnnotations(project.getModule(MODULE_A), first, second);
+        assertTrue("Low annotation not found", project.hasAnnotations(Priority.LOW));
+    }
+
+    /**
+     * Verifies that sub-containers that have been created before new annotations are added to the project show the
+     * new annotations as well, and that the existing rows of the index are kept.
+     */
+    @Test
+    public void shouldUpdateExistingViewsAfterAdding() {
+        Warning first = createWarning(Priority.HIGH, MODULE_A, PACKAGE_A, FILE_A, "category", "john");
+        Warning second = createWarning(Priority.NORMAL, MODULE_B, PACKAGE_B, FILE_B, "category", "jane");
+        JavaProject project = new JavaProject();
+        project.addAnnotations(new FileAnnotation[] {first, second});
+
+        MavenModule module = project.getModule(MODULE_A);
+        JavaPackage javaPackage = module.getPackage(PACKAGE_A);
+        DefaultAnnotationContainer detail = new DefaultAnnotationContainer("detail");
+        detail.share(javaPackage);
+        verifyAnnotations(javaPackage, first);
+
+        Warning third = createWarning(Priority.LOW, MODULE_A, PACKAGE_A, FILE_C, "category", "jane");
+        Warning fourth = createWarning(Priority.LOW, MODULE_B, PACKAGE_A, FILE_C, "category", "john");
+        project.addAnnotation(third);
+        project.addAnnotation(fourth);
+
+        verifyAnnotations(project, first, second, third, fourth);
+        verifyAnnotations(module, first, third);
+        verifyAnnotations(javaPackage, first, third);
+        verifyAnnotations(detail, first, third);
+        assertEquals("Wrong number of files", 2, javaPackage.getFiles().size());
+        assertEquals("Wrong number of authors", 2, detail.getAuthors().size());
+        verifyAnnotations(project.getPackage(PACKAGE_A), first, third, fourth);
+    }
+
+    /**
+     * Verifies that a container that shares the index of a sub-container shows the same annotations, and that it
+     * can be modified without changing the sub-container.
+     */
+    @Test
+    public void shouldShareIndexOfSubContainer() {
+        Warning first = createWarning(Priority.HIGH, MODULE_A, PACKAGE_A, FILE_A, "category", "john");
+        Warning second = createWarning(Priority.NORMAL, MODULE_A, PACKAGE_B, FILE_B, "category", "jane");
+        Warning third = createWarning(Priority.LOW, MODULE_B, PACKAGE_A, FILE_C, "category", "john");
+        JavaProject project = new JavaProject();
+        project.addAnnotations(new FileAnnotation[] {first, second, third});
+
+        MavenModule module = project.getModule(MODULE_A.hashCode());
+        DefaultAnnotationContainer detail = new DefaultAnnotationContainer("detail");
+        detail.share(module);
+
+        verifyAnnotations(detail, first, second);
+        assertEquals("Wrong number of packages", 2, detail.getPackages().size());
+        verifyAnnotations(detail.getPackage(PACKAGE_B.hashCode()), second);
+        assertSame("Wrong annotation", first, detail.getAnnotation(first.getKey()));
+
+        detail.addAnnotation(third);
+
+        verifyAnnotations(detail, first, second, third);
+        verifyAnnotations(module, first, second);
+        verifyAnnotations(project, first, second, third);
+    }
+
+    private void verifyAnnotations(final AnnotationContainer container, final FileAnnotation... expected) {
+        Set<FileAnnotation> expectedAnnotations = Sets.newHashSet(expected);
+
+        assertEquals("Wrong annotations of " + container, expectedAnnotations, container.getAnnotations());
+        assertEquals("Wrong number of annotations of " + container, expected.length, container.getNumberOfAnnotations());
+        int sum = 0;
+        for (Priority priority : Priority.values()) {
+            sum += container.getNumberOfAnnotations(priority);
+        }
+        assertEquals("Wrong sum of priorities of " + container, expected.length, sum);
+    }
+
+    private Warning createWarning(final Priority priority, final String module, final String packageName,
+            final String fileName, final String category, final String author) {
+        Warning warning = new Warning(priority, category);
+        warning.setModuleName(module);
+        warning.setPackageName(packageName);
+        warning.setFileName(fileName);
+        warning.setAuthorName(author);
+        warning.setAuthorEmail(author + "@example.com");
+        return warning;
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = -7193843410587545302L;
+
+        Warning(final Priority priority, final String category) {
+            super(priority, "message", 1, 1, category, "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
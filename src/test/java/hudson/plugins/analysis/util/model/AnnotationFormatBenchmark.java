@@ -0,0 +1,142 @@
+package hudson.plugins.analysis.util.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import hudson.XmlFile;
+
+/**
+ * Compares the load time of the XML files written by {@link AnnotationStream} with the load time of the
+ * corresponding {@link BinaryAnnotationFile}. Run with {@link #main(String[])}, which also reports the sizes of
+ * both files.
+ */
+// CHECKSTYLE:OFF
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnnotationFormatBenchmark {
+    @Param({"1000", "10000", "50000"})
+    private int size;
+
+    private File folder;
+    private XmlFile xmlFile;
+    private BinaryAnnotationFile binaryFile;
+
+    @Setup(Level.Trial)
+    public void writeFiles() throws IOException {
+        Random random = new Random(size);
+        FileAnnotation[] annotations = new FileAnnotation[size];
+        for (int i = 0; i < size; i++) {
+            int module = random.nextInt(10);
+            int javaPackage = random.nextInt(50);
+            String packageName = "org.example.module" + module + ".package" + javaPackage;
+            int line = random.nextInt(5000);
+
+            Warning warning = new Warning("Message " + random.nextInt(100) + " of warning", line,
+                    "Category" + random.nextInt(10), "Type" + random.nextInt(100));
+            warning.setFileName("/workspace/module" + module + "/src/main/java/" + packageName.replace('.', '/')
+                    + "/File" + random.nextInt(20) + ".java");
+            warning.setModuleName("module" + module);
+            warning.setPackageName(packageName);
+            warning.setOrigin("origin");
+            warning.setColumnPosition(random.nextInt(80));
+            warning.setContextHashCode(random.nextInt());
+            warning.setBuild(random.nextInt(100));
+            annotations[i] = warning;
+        }
+
+        folder = File.createTempFile("annotations", "");
+        if (!folder.delete() || !folder.mkdir()) {
+            throw new IOException("Can't create temporary folder " + folder);
+        }
+        xmlFile = new XmlFile(new AnnotationStream(), new File(folder, "annotations.xml"));
+        xmlFile.write(annotations);
+        binaryFile = new BinaryAnnotationFile(new AnnotationStream(), new File(folder, "annotations.bin"));
+        binaryFile.write(annotations);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        FileUtils.deleteDirectory(folder);
+    }
+
+    @Benchmark
+    public FileAnnotation[] readXml() throws IOException {
+        return (FileAnnotation[])xmlFile.read();
+    }
+
+    @Benchmark
+    public FileAnnotation[] readBinary() throws IOException {
+        return binaryFile.read();
+    }
+
+    public static void main(final String[] args) throws RunnerException, IOException {
+        new Runner(new OptionsBuilder().include(AnnotationFormatBenchmark.class.getSimpleName()).build()).run();
+
+        for (int size : new int[] {1000, 10000, 50000}) {
+            long[] sizes = measureFileSizes(size);
+            System.out.println(String.format("%d annotations: XML %d bytes, binary %d bytes", size, sizes[0], sizes[1]));
+        }
+    }
+
+    /**
+     * Writes the specified number of annotations in both formats and returns the sizes of the files.
+     *
+     * @param size
+     *            the number of annotations
+     * @return the size of the XML file and the size of the binary file in bytes
+     * @throws IOException
+     *             if the files could not be written
+     */
+    static long[] measureFileSizes(final int size) throws IOException {
+        AnnotationFormatBenchmark benchmark = new AnnotationFormatBenchmark();
+        benchmark.size = size;
+        benchmark.writeFiles();
+        try {
+            return new long[] {benchmark.xmlFile.getFile().length(), benchmark.binaryFile.getFile().length()};
+        }
+        finally {
+            benchmark.deleteFiles();
+        }
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 6586187429216151409L;
+
+        Warning(final String message, final int line, final String category, final String type) {
+            super(Priority.NORMAL, message, line, line, category, type);
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
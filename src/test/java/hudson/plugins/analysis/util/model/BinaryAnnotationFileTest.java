@@ -0,0 +1,207 @@
+package hudson.plugins.analysis.util.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+import hudson.XmlFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link BinaryAnnotationFile}.
+ */
+public class BinaryAnnotationFileTest {
+    /** Temporary folder for the annotation files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Writes several annotations and verifies that all properties (including the fields of the subclass) are
+     * restored when reading the file again.
+     *
+     * @throws IOException
+     *             if the file could not be written or read
+     */
+    @Test
+    public void shouldRestoreAllProperties() throws IOException {
+        Warning first = createWarning("first", Priority.HIGH, 10, "src/Main.java");
+        first.addLineRange(new LineRange(20, 25));
+        first.setColumnPosition(3, 7);
+        first.setAuthorName("author");
+        first.setAuthorEmail("author@example.com");
+        first.setCommitId("0123456789abcdef");
+        first.setToolTip("tooltip with umlauts \u00e4\u00f6\u00fc");
+        first.rank = -42;
+        first.isSuppressed = Boolean.TRUE;
+        first.details = Priority.LOW;
+        Warning second = createWarning("second", Priority.LOW, 0, "src/Main.java");
+        Warning third = createWarning("third", Priority.NORMAL, 1000000, "src/other/Other.java");
+
+        BinaryAnnotationFile file = createFile();
+        assertTrue("Annotations should be supported", file.isSupported(first, second, third));
+        file.write(first, second, third);
+        FileAnnotation[] annotations = file.read();
+
+        assertEquals("Wrong number of annotations", 3, annotations.length);
+        verifyAnnotation(first, annotations[0]);
+        verifyAnnotation(second, annotations[1]);
+        verifyAnnotation(third, annotations[2]);
+
+        Warning restored = (Warning)annotations[0];
+        assertEquals("Wrong tooltip", first.getToolTip(), restored.getToolTip());
+        assertEquals("Wrong rank", first.rank, restored.rank);
+        assertEquals("Wrong suppressed flag", first.isSuppressed, restored.isSuppressed);
+        assertEquals("Wrong details", first.details, restored.details);
+        assertNull("Wrong suppressed flag", ((Warning)annotations[1]).isSuppressed);
+    }
+
+    /**
+     * Verifies that the annotations are passed one by one to a visitor and that reading stops if the visitor
+     * returns <code>false</code>.
+     *
+     * @throws IOException
+     *             if the file could not be written or read
+     */
+    @Test
+    public void shouldStreamAnnotationsToVisitor() throws IOException {
+        Warning first = createWarning("first", Priority.HIGH, 10, "src/Main.java");
+        Warning second = createWarning("second", Priority.LOW, 20, "src/Main.java");
+        Warning third = createWarning("third", Priority.NORMAL, 30, "src/Other.java");
+
+        BinaryAnnotationFile file = createFile();
+        file.write(first, second, third);
+
+        final List<FileAnnotation> visited = Lists.newArrayList();
+        file.read(new BinaryAnnotationFile.Visitor() {
+            @Override
+            public boolean visit(final FileAnnotation annotation) {
+                visited.add(annotation);
+                return visited.size() < 2;
+            }
+        });
+
+        assertEquals("Wrong number of visited annotations", 2, visited.size());
+        verifyAnnotation(first, visited.get(0));
+        verifyAnnotation(second, visited.get(1));
+    }
+
+    /**
+     * Verifies that annotations with fields of unsupported types are rejected.
+     *
+     * @throws IOException
+     *             expected
+     */
+    @Test(expected = IOException.class)
+    public void shouldRejectUnsupportedFields() throws IOException {
+        BinaryAnnotationFile file = createFile();
+        LinkedWarning linked = new LinkedWarning();
+
+        assertFalse("Links are not supported", file.isSupported(createWarning("message", Priority.HIGH, 1, "file"), linked));
+
+        file.write(linked);
+    }
+
+    /**
+     * Verifies that files with an unknown format are rejected.
+     *
+     * @throws IOException
+     *             expected
+     */
+    @Test(expected = IOException.class)
+    public void shouldRejectUnknownFormat() throws IOException {
+        File xml = folder.newFile("annotations.xml");
+        new XmlFile(new AnnotationStream(), xml).write(new FileAnnotation[] {
+                createWarning("message", Priority.HIGH, 1, "file")});
+
+        new BinaryAnnotationFile(new AnnotationStream(), xml).read();
+    }
+
+    private BinaryAnnotationFile createFile() {
+        return new BinaryAnnotationFile(new AnnotationStream(), new File(folder.getRoot(), "annotations.bin"));
+    }
+
+    private Warning createWarning(final String message, final Priority priority, final int line, final String fileName) {
+        Warning warning = new Warning(message, priority, line);
+        warning.setFileName(fileName);
+        warning.setModuleName("module");
+        warning.setPackageName("package");
+        warning.setOrigin("origin");
+        warning.setContextHashCode(line * 31L);
+        warning.setBuild(line + 1);
+        return warning;
+    }
+
+    private void verifyAnnotation(final FileAnnotation expected, final FileAnnotation actual) {
+        assertEquals("Wrong annotation", expected, actual);
+        assertEquals("Wrong key", expected.getKey(), actual.getKey());
+        assertEquals("Wrong message", expected.getMessage(), actual.getMessage());
+        assertEquals("Wrong priority", expected.getPriority(), actual.getPriority());
+        assertEquals("Wrong line ranges", expected.getLineRanges(), actual.getLineRanges());
+        assertEquals("Wrong primary line", expected.getPrimaryLineNumber(), actual.getPrimaryLineNumber());
+        assertEquals("Wrong file", expected.getFileName(), actual.getFileName());
+        assertEquals("Wrong module", expected.getModuleName(), actual.getModuleName());
+        assertEquals("Wrong package", expected.getPackageName(), actual.getPackageName());
+        assertEquals("Wrong category", expected.getCategory(), actual.getCategory());
+        assertEquals("Wrong type", expected.getType(), actual.getType());
+        assertEquals("Wrong origin", expected.getOrigin(), actual.getOrigin());
+        assertEquals("Wrong context", expected.getContextHashCode(), actual.getContextHashCode());
+        assertEquals("Wrong build", expected.getBuild(), actual.getBuild());
+        assertEquals("Wrong column start", expected.getColumnStart(), actual.getColumnStart());
+        assertEquals("Wrong column end", expected.getColumnEnd(), actual.getColumnEnd());
+        assertEquals("Wrong author", expected.getAuthorName(), actual.getAuthorName());
+        assertEquals("Wrong email", expected.getAuthorEmail(), actual.getAuthorEmail());
+        assertEquals("Wrong commit", expected.getCommitId(), actual.getCommitId());
+    }
+
+    /**
+     * A concrete warning with additional fields.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = -4356432003127413371L;
+
+        private String toolTip;
+        private int rank;
+        private Boolean isSuppressed;
+        private Priority details;
+
+        Warning(final String message, final Priority priority, final int line) {
+            super(priority, message, line, line, "category", "type");
+        }
+
+        void setToolTip(final String toolTip) {
+            this.toolTip = toolTip;
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.defaultString(toolTip);
+        }
+    }
+
+    /**
+     * A warning with a field that is not supported by the binary format.
+     */
+    private static class LinkedWarning extends AbstractAnnotation {
+        private static final long serialVersionUID = 6000409398407101296L;
+
+        @SuppressWarnings("unused")
+        private final List<String> links = Lists.newArrayList("link");
+
+        LinkedWarning() {
+            super(Priority.HIGH, "message", 1, 1, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
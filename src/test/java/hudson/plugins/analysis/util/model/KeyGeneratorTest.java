@@ -0,0 +1,97 @@
+package hudson.plugins.analysis.util.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link KeyGenerator}.
+ */
+public class KeyGeneratorTest {
+    private static final int THREADS = 16;
+    private static final int ANNOTATIONS_PER_THREAD = 250000;
+
+    /**
+     * Creates millions of annotations (using both constructors) from many threads at the same time and verifies
+     * that all annotations have a unique key.
+     *
+     * @throws Exception
+     *             if a thread fails
+     */
+    @Test
+    public void shouldCreateUniqueKeysInConcurrentThreads() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<long[]>> futures = Lists.newArrayList();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() throws InterruptedException {
+                        start.await();
+
+                        long[] keys = new long[ANNOTATIONS_PER_THREAD];
+                        Warning original = new Warning();
+                        for (int i = 0; i < ANNOTATIONS_PER_THREAD; i++) {
+                            if (i % 2 == 0) {
+                                keys[i] = new Warning().getKey();
+                            }
+                            else {
+                                keys[i] = new Warning(original).getKey();
+                            }
+                        }
+                        return keys;
+                    }
+                }));
+            }
+            start.countDown();
+
+            long[] allKeys = new long[THREADS * ANNOTATIONS_PER_THREAD];
+            int position = 0;
+            for (Future<long[]> future : futures) {
+                long[] keys = future.get();
+                System.arraycopy(keys, 0, allKeys, position, keys.length);
+                position += keys.length;
+            }
+
+            Arrays.sort(allKeys);
+            for (int i = 1; i < allKeys.length; i++) {
+                assertTrue("Duplicate key " + allKeys[i], allKeys[i - 1] != allKeys[i]);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 2871227063046283224L;
+
+        Warning() {
+            super(Priority.HIGH, "message", 1, 1, "category", "type");
+        }
+
+        Warning(final FileAnnotation copy) {
+            super(copy);
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
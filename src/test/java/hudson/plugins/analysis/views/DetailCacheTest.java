@@ -0,0 +1,177 @@
+package hudson.plugins.analysis.views;
+
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.AnnotationContainer;
+import hudson.plugins.analysis.util.model.DefaultAnnotationContainer;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link DetailCache}.
+ */
+public class DetailCacheTest {
+    /**
+     * Verifies that the least recently used details are evicted if the number of warnings exceeds the budget.
+     */
+    @Test
+    public void shouldEvictLeastRecentlyUsedDetails() {
+        DetailCache cache = new DetailCache(10);
+        Object parent = new Object();
+
+        cache.put(createKey(1, "module.1", parent), parent, createDetail(4));
+        cache.put(createKey(1, "module.2", parent), parent, createDetail(4));
+        assertNotNull("Detail not cached", cache.get(createKey(1, "module.1", parent), parent));
+
+        cache.put(createKey(1, "module.3", parent), parent, createDetail(4));
+
+        assertNull("Detail not evicted", cache.get(createKey(1, "module.2", parent), parent));
+        assertNotNull("Detail evicted", cache.get(createKey(1, "module.1", parent), parent));
+        assertEquals("Wrong number of details", 2, cache.size());
+        assertEquals("Wrong footprint", 8, cache.getFootprint());
+    }
+
+    /**
+     * Verifies that a detail is not returned for another parent, e.g. after the warnings have been loaded again.
+     */
+    @Test
+    public void shouldIgnoreDetailsOfOtherParent() {
+        DetailCache cache = new DetailCache(100);
+        Object parent = new Object();
+        AnnotationContainer detail = createDetail(2);
+
+        String key = createKey(1, "tab.new", parent);
+        cache.put(key, parent, detail);
+
+        assertSame("Detail not cached", detail, cache.get(key, parent));
+        assertNull("Detail of other parent returned", cache.get(key, new Object()));
+        assertEquals("Stale detail not removed", 0, cache.size());
+        assertEquals("Wrong footprint", 0, cache.getFootprint());
+    }
+
+    /**
+     * Verifies that all details of a deleted build are removed.
+     */
+    @Test
+    public void shouldRemoveDetailsOfBuild() {
+        DetailCache cache = new DetailCache(100);
+        Object parent = new Object();
+
+        cache.put(createKey(1, "module.1", parent), parent, createDetail(1));
+        cache.put(createKey(1, "package.1", parent), parent, createDetail(1));
+        cache.put(createKey(12, "module.1", parent), parent, createDetail(1));
+
+        cache.remove("job", 1);
+
+        assertEquals("Wrong number of details", 1, cache.size());
+        assertNotNull("Detail of other build removed", cache.get(createKey(12, "module.1", parent), parent));
+    }
+
+    /**
+     * Verifies that the details that are views on the index of the same container are charged with all warnings of
+     * the index, but only once.
+     */
+    @Test
+    public void shouldChargeSharedIndexOnce() {
+        DetailCache cache = new DetailCache(100);
+        Object parent = new Object();
+        AnnotationContainer container = createDetail(3, "module-a");
+        container.addAnnotations(createDetail(7, "module-b").getAnnotations());
+
+        cache.put(createKey(1, "module.a", parent), parent, container.getModule("module-a"));
+        assertEquals("Shared index not charged", 10, cache.getFootprint());
+
+        cache.put(createKey(1, "module.b", parent), parent, container.getModule("module-b"));
+        assertEquals("Shared index charged twice", 10, cache.getFootprint());
+
+        cache.put(createKey(1, "module.b", parent), parent, createDetail(2));
+        assertEquals("Shared index released", 12, cache.getFootprint());
+
+        cache.remove("job", 1);
+        assertEquals("Wrong footprint", 0, cache.getFootprint());
+    }
+
+    /**
+     * Verifies that details that are views on the index of their parent are not charged, since the warnings of the
+     * parent are already charged to the result cache.
+     */
+    @Test
+    public void shouldNotChargeIndexOfParent() {
+        DetailCache cache = new DetailCache(100);
+        AnnotationContainer parent = createDetail(3, "module-a");
+        parent.addAnnotations(createDetail(7, "module-b").getAnnotations());
+
+        cache.put(createKey(1, "module.a", parent), parent, parent.getModule("module-a"));
+        assertEquals("Index of parent charged", 0, cache.getFootprint());
+
+        cache.put(createKey(1, "module.c", parent), parent, createDetail(2));
+        assertEquals("Copied detail not charged", 2, cache.getFootprint());
+        assertEquals("Wrong number of details", 2, cache.size());
+    }
+
+    /**
+     * Verifies that the details of a parent are removed on the next access after the parent has been garbage
+     * collected.
+     *
+     * @throws InterruptedException
+     *             if the test has been interrupted
+     */
+    @Test
+    public void shouldRemoveDetailsOfCollectedParent() throws InterruptedException {
+        DetailCache cache = new DetailCache(100);
+        Object parent = new Object();
+        cache.put(createKey(1, "module.1", parent), parent, createDetail(2));
+        assertEquals("Wrong footprint", 2, cache.getFootprint());
+
+        parent = null;
+        for (int i = 0; i < 50 && cache.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertEquals("Detail of collected parent not removed", 0, cache.size());
+        assertEquals("Wrong footprint", 0, cache.getFootprint());
+    }
+
+    private String createKey(final int build, final String link, final Object parent) {
+        return DetailCache.createKey("job", build, link, parent, "UTF-8", "Warnings");
+    }
+
+    private AnnotationContainer createDetail(final int numberOfWarnings) {
+        return createDetail(numberOfWarnings, "module");
+    }
+
+    private AnnotationContainer createDetail(final int numberOfWarnings, final String moduleName) {
+        List<FileAnnotation> warnings = Lists.newArrayList();
+        for (int i = 0; i < numberOfWarnings; i++) {
+            Warning warning = new Warning();
+            warning.setModuleName(moduleName);
+            warnings.add(warning);
+        }
+        return new DefaultAnnotationContainer(warnings);
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 4381256390421843529L;
+
+        Warning() {
+            super(Priority.NORMAL, "message", 1, 1, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
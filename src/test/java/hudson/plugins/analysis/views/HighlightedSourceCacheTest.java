@@ -0,0 +1,64 @@
+package hudson.plugins.analysis.views;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link HighlightedSourceCache}.
+ */
+public class HighlightedSourceCacheTest {
+    /** Temporary build folder. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the least recently used entries are evicted if the cache exceeds its size.
+     */
+    @Test
+    public void shouldEvictEntriesBySize() {
+        HighlightedSourceCache cache = new HighlightedSourceCache(10, false);
+        cache.put("a", "1234", null);
+        cache.put("b", "1234", null);
+        assertNotNull("Entry evicted", cache.get("a", null));
+        cache.put("c", "1234", null);
+
+        assertEquals("Wrong size", 8, cache.getCharacters());
+        assertNotNull("Recently used entry evicted", cache.get("a", null));
+        assertNull("Eldest entry not evicted", cache.get("b", null));
+        assertNotNull("New entry evicted", cache.get("c", null));
+
+        cache.put("d", "12345678901", null);
+        assertNull("Too large entry cached", cache.get("d", null));
+    }
+
+    /**
+     * Verifies that entries that have been evicted from memory are read from the build folder.
+     */
+    @Test
+    public void shouldReadEvictedEntriesFromDisk() {
+        File build = folder.getRoot();
+        HighlightedSourceCache cache = new HighlightedSourceCache(5, true);
+        cache.put("a", "1234", build);
+        cache.put("b", "1234", build);
+
+        assertEquals("Entry not read from disk", "1234", cache.get("a", build));
+        assertNull("Unknown entry found", cache.get("c", build));
+    }
+
+    /**
+     * Verifies that the key contains all parts.
+     */
+    @Test
+    public void shouldCreateDifferentKeys() {
+        String key = HighlightedSourceCache.createKey("a.tmp", "UTF-8", "hash", "*");
+
+        assertFalse("Encoding ignored", key.equals(HighlightedSourceCache.createKey("a.tmp", "UTF-16", "hash", "*")));
+        assertFalse("Hash ignored", key.equals(HighlightedSourceCache.createKey("a.tmp", "UTF-8", "other", "*")));
+        assertFalse("Window ignored", key.equals(HighlightedSourceCache.createKey("a.tmp", "UTF-8", "hash", "1-2")));
+    }
+}
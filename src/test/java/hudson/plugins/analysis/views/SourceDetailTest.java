@@ -1,5 +1,6 @@
 package hudson.plugins.analysis.views;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
@@ -7,10 +8,13 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.easymock.EasyMock.*;
 
@@ -28,6 +32,10 @@ public class SourceDetailTest {
     /** Reference to line 6. */
     private static final String LINE_6_INDICATOR = "<a name=\"" + START + "\">";
 
+    /** Temporary folder for source files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     /**
      * Checks whether we correctly find a specific line in the generated source
      * code at a fixed line offset.
@@ -161,5 +169,37 @@ public class SourceDetailTest {
 
         verify(annotation);
     }
-}
 
+    /**
+     * Checks that only the lines around the annotation are highlighted in large files.
+     *
+     * @throws IOException
+     *             in case of an IO error
+     */
+    @Test
+    public void shouldHighlightWindowOfLargeFile() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int line = 1; line <= 10000; line++) {
+            content.append("int line").append(line).append(";\n");
+        }
+        File file = folder.newFile("Large.java");
+        FileUtils.writeStringToFile(file, content.toString(), "UTF-8");
+
+        List<LineRange> lineRanges = new ArrayList<LineRange>();
+        lineRanges.add(new LineRange(8000));
+        FileAnnotation annotation = createMock(FileAnnotation.class);
+        expect(annotation.getLineRanges()).andReturn(lineRanges).anyTimes();
+        expect(annotation.getFileName()).andReturn(file.getPath()).anyTimes();
+        expect(annotation.getTempName((Run<?, ?>)anyObject())).andReturn("").anyTimes();
+        expect(annotation.getMessage()).andReturn("Message ").anyTimes();
+        expect(annotation.getToolTip()).andReturn("Tooltip").anyTimes();
+        replay(annotation);
+
+        String sourceCode = createSourceDetail(annotation).getSourceCode();
+
+        Assert.assertTrue("Annotated line not shown", sourceCode.contains("line8000"));
+        Assert.assertTrue("Context not shown", sourceCode.contains("line7900"));
+        Assert.assertFalse("Line outside of window shown", sourceCode.contains("line100"));
+        Assert.assertTrue("Line numbers changed", sourceCode.contains("<a name=\"10000\">"));
+    }
+}